@@ -5,11 +5,15 @@ package com.alibaba.rocketmq.broker;
 
 import java.io.IOException;
 import java.util.Properties;
+import java.util.HashMap;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -18,15 +22,20 @@ import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.broker.client.ClientHousekeepingService;
 import com.alibaba.rocketmq.broker.client.ConsumerManager;
+import com.alibaba.rocketmq.broker.client.DefaultConsumerIdsChangeListener;
 import com.alibaba.rocketmq.broker.client.ProducerManager;
+import com.alibaba.rocketmq.broker.client.RebalanceLockManager;
+import com.alibaba.rocketmq.broker.latency.BrokerFastFailure;
 import com.alibaba.rocketmq.broker.longpolling.PullRequestHoldService;
 import com.alibaba.rocketmq.broker.offset.ConsumerOffsetManager;
+import com.alibaba.rocketmq.broker.offset.FlushConsumerOffsetLogService;
 import com.alibaba.rocketmq.broker.processor.AdminBrokerProcessor;
 import com.alibaba.rocketmq.broker.processor.ClientManageProcessor;
 import com.alibaba.rocketmq.broker.processor.EndTransactionProcessor;
 import com.alibaba.rocketmq.broker.processor.PullMessageProcessor;
 import com.alibaba.rocketmq.broker.processor.QueryMessageProcessor;
 import com.alibaba.rocketmq.broker.processor.SendMessageProcessor;
+import com.alibaba.rocketmq.broker.stats.BrokerStatsManager;
 import com.alibaba.rocketmq.broker.topic.TopicConfigManager;
 import com.alibaba.rocketmq.broker.transaction.DefaultTransactionCheckExecuter;
 import com.alibaba.rocketmq.common.BrokerConfig;
@@ -68,8 +77,12 @@ public class BrokerController {
 
     // ѽȴ洢
     private final ConsumerOffsetManager consumerOffsetManager;
+    // ѽȶ־ˢ̣δƴ洢ʱΪnull
+    private final FlushConsumerOffsetLogService flushConsumerOffsetLogService;
     // ConsumerӡĹϵ
     private final ConsumerManager consumerManager;
+    // ˳ʱе
+    private final RebalanceLockManager rebalanceLockManager;
     // Producerӹ
     private final ProducerManager producerManager;
     // пͻ
@@ -83,9 +96,26 @@ public class BrokerController {
     private ExecutorService sendMessageExecutor;
     // ȡϢ̳߳
     private ExecutorService pullMessageExecutor;
+    // ȡϢڴʱԤPageCache̳߳
+    private ExecutorService coldReadMessageExecutor;
+    // ѯϢ̳߳
+    private ExecutorService queryMessageExecutor;
+    // עͻ̳߳
+    private ExecutorService clientManageExecutor;
     // Broker̳߳
     private ExecutorService adminBrokerExecutor;
 
+    // ̳߳صн
+    private final BlockingQueue<Runnable> sendThreadPoolQueue;
+    private final BlockingQueue<Runnable> pullThreadPoolQueue;
+    private final BlockingQueue<Runnable> coldReadThreadPoolQueue;
+    private final BlockingQueue<Runnable> queryThreadPoolQueue;
+    private final BlockingQueue<Runnable> clientManagerThreadPoolQueue;
+    // Ŷӹÿʧ
+    private final BrokerFastFailure brokerFastFailure;
+    // TopicСάȵͳ
+    private final BrokerStatsManager brokerStatsManager;
+
     private final PullMessageProcessor pullMessageProcessor;
     private final PullRequestHoldService pullRequestHoldService;
 
@@ -104,13 +134,48 @@ public class BrokerController {
         this.nettyServerConfig = nettyServerConfig;
         this.messageStoreConfig = messageStoreConfig;
         this.consumerOffsetManager = new ConsumerOffsetManager(this);
+        this.flushConsumerOffsetLogService =
+                brokerConfig.isConsumerOffsetStoreEnable() ? new FlushConsumerOffsetLogService(this) : null;
         this.topicConfigManager = new TopicConfigManager(this);
         this.pullMessageProcessor = new PullMessageProcessor(this);
         this.pullRequestHoldService = new PullRequestHoldService(this);
-        this.consumerManager = new ConsumerManager();
+        this.consumerManager = new ConsumerManager(new DefaultConsumerIdsChangeListener(this));
+        this.rebalanceLockManager = new RebalanceLockManager();
         this.producerManager = new ProducerManager();
         this.clientHousekeepingService = new ClientHousekeepingService(this);
         this.defaultTransactionCheckExecuter = new DefaultTransactionCheckExecuter(this);
+
+        this.sendThreadPoolQueue =
+                new LinkedBlockingQueue<Runnable>(this.brokerConfig.getSendThreadPoolQueueCapacity());
+        this.pullThreadPoolQueue =
+                new LinkedBlockingQueue<Runnable>(this.brokerConfig.getPullThreadPoolQueueCapacity());
+        this.coldReadThreadPoolQueue =
+                new LinkedBlockingQueue<Runnable>(this.brokerConfig.getColdReadThreadPoolQueueCapacity());
+        this.queryThreadPoolQueue =
+                new LinkedBlockingQueue<Runnable>(this.brokerConfig.getQueryThreadPoolQueueCapacity());
+        this.clientManagerThreadPoolQueue =
+                new LinkedBlockingQueue<Runnable>(this.brokerConfig.getClientManagerThreadPoolQueueCapacity());
+        this.brokerFastFailure = new BrokerFastFailure(this);
+        this.brokerStatsManager = new BrokerStatsManager(this);
+    }
+
+
+    /**
+     * ̶߳не̳߳أʱ׳RejectedExecutionExceptionͨŲ㷵ϵͳæ
+     */
+    private static ExecutorService newBoundedThreadPool(final int threadNums,
+            final BlockingQueue<Runnable> workQueue, final String threadNamePrefix) {
+        return new ThreadPoolExecutor(threadNums, threadNums, 1000 * 60, TimeUnit.MILLISECONDS, workQueue,
+            new ThreadFactory() {
+
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, threadNamePrefix + this.threadIndex.incrementAndGet());
+                }
+            });
     }
 
 
@@ -188,30 +253,24 @@ public class BrokerController {
 
             // ʼ̳߳
             this.sendMessageExecutor =
-                    Executors.newFixedThreadPool(this.brokerConfig.getSendMessageThreadPoolNums(),
-                        new ThreadFactory() {
-
-                            private AtomicInteger threadIndex = new AtomicInteger(0);
-
-
-                            @Override
-                            public Thread newThread(Runnable r) {
-                                return new Thread(r, "SendMessageThread_" + this.threadIndex.incrementAndGet());
-                            }
-                        });
+                    newBoundedThreadPool(this.brokerConfig.getSendMessageThreadPoolNums(),
+                        this.sendThreadPoolQueue, "SendMessageThread_");
 
             this.pullMessageExecutor =
-                    Executors.newFixedThreadPool(this.brokerConfig.getPullMessageThreadPoolNums(),
-                        new ThreadFactory() {
+                    newBoundedThreadPool(this.brokerConfig.getPullMessageThreadPoolNums(),
+                        this.pullThreadPoolQueue, "PullMessageThread_");
 
-                            private AtomicInteger threadIndex = new AtomicInteger(0);
+            this.coldReadMessageExecutor =
+                    newBoundedThreadPool(this.brokerConfig.getColdReadThreadPoolNums(),
+                        this.coldReadThreadPoolQueue, "ColdReadMessageThread_");
 
+            this.queryMessageExecutor =
+                    newBoundedThreadPool(this.brokerConfig.getQueryMessageThreadPoolNums(),
+                        this.queryThreadPoolQueue, "QueryMessageThread_");
 
-                            @Override
-                            public Thread newThread(Runnable r) {
-                                return new Thread(r, "PullMessageThread_" + this.threadIndex.incrementAndGet());
-                            }
-                        });
+            this.clientManageExecutor =
+                    newBoundedThreadPool(this.brokerConfig.getClientManageThreadPoolNums(),
+                        this.clientManagerThreadPoolQueue, "ClientManageThread_");
 
             this.adminBrokerExecutor =
                     Executors.newFixedThreadPool(this.brokerConfig.getAdminBrokerThreadPoolNums(),
@@ -256,6 +315,19 @@ public class BrokerController {
                 }
             }, 1000 * 10, this.brokerConfig.getFlushConsumerOffsetHistoryInterval(), TimeUnit.MILLISECONDS);
 
+            // ʱڵĶ
+            this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        BrokerController.this.rebalanceLockManager.scanExpiredLock();
+                    }
+                    catch (Exception e) {
+                        log.error("", e);
+                    }
+                }
+            }, 1000 * 60, 1000 * 60, TimeUnit.MILLISECONDS);
+
             // slave
             if (BrokerRole.SLAVE == this.messageStoreConfig.getBrokerRole()) {
                 if (this.messageStoreConfig.getMasterAddress() != null
@@ -273,23 +345,28 @@ public class BrokerController {
 
 
     public void registerProcessor() {
-        this.remotingServer.registerProcessor(MQProtos.MQRequestCode.SEND_MESSAGE_VALUE, new SendMessageProcessor(
-            this), this.sendMessageExecutor);
+        NettyRequestProcessor sendProcessor = new SendMessageProcessor(this);
+        this.remotingServer.registerProcessor(MQProtos.MQRequestCode.SEND_MESSAGE_VALUE, sendProcessor,
+            this.sendMessageExecutor);
+        this.remotingServer.registerProcessor(MQProtos.MQRequestCode.SEND_BATCH_MESSAGE_VALUE, sendProcessor,
+            this.sendMessageExecutor);
 
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.PULL_MESSAGE_VALUE,
             this.pullMessageProcessor, this.pullMessageExecutor);
 
         NettyRequestProcessor queryProcessor = new QueryMessageProcessor(this);
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.QUERY_MESSAGE_VALUE, queryProcessor,
-            this.pullMessageExecutor);
+            this.queryMessageExecutor);
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.VIEW_MESSAGE_BY_ID_VALUE, queryProcessor,
-            this.pullMessageExecutor);
+            this.queryMessageExecutor);
 
         NettyRequestProcessor clientProcessor = new ClientManageProcessor(this);
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.HEART_BEAT_VALUE, clientProcessor,
-            this.adminBrokerExecutor);
+            this.clientManageExecutor);
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.UNREGISTER_CLIENT_VALUE, clientProcessor,
-            this.adminBrokerExecutor);
+            this.clientManageExecutor);
+        this.remotingServer.registerProcessor(MQProtos.MQRequestCode.GET_CONSUMER_LIST_BY_GROUP_VALUE,
+            clientProcessor, this.clientManageExecutor);
 
         this.remotingServer.registerProcessor(MQProtos.MQRequestCode.END_TRANSACTION_VALUE,
             new EndTransactionProcessor(this), this.sendMessageExecutor);
@@ -314,10 +391,30 @@ public class BrokerController {
         if (this.clientHousekeepingService != null) {
             this.clientHousekeepingService.start();
         }
+
+        if (this.brokerFastFailure != null) {
+            this.brokerFastFailure.start();
+        }
+
+        if (this.brokerStatsManager != null) {
+            this.brokerStatsManager.start();
+        }
+
+        if (this.flushConsumerOffsetLogService != null) {
+            this.flushConsumerOffsetLogService.start();
+        }
     }
 
 
     public void shutdown() {
+        if (this.brokerStatsManager != null) {
+            this.brokerStatsManager.shutdown();
+        }
+
+        if (this.brokerFastFailure != null) {
+            this.brokerFastFailure.shutdown();
+        }
+
         if (this.clientHousekeepingService != null) {
             this.clientHousekeepingService.shutdown();
         }
@@ -344,11 +441,28 @@ public class BrokerController {
             this.pullMessageExecutor.shutdown();
         }
 
+        if (this.coldReadMessageExecutor != null) {
+            this.coldReadMessageExecutor.shutdown();
+        }
+
+        if (this.queryMessageExecutor != null) {
+            this.queryMessageExecutor.shutdown();
+        }
+
+        if (this.clientManageExecutor != null) {
+            this.clientManageExecutor.shutdown();
+        }
+
         if (this.adminBrokerExecutor != null) {
             this.adminBrokerExecutor.shutdown();
         }
 
-        this.consumerOffsetManager.flush();
+        // ֹͣˢ̺߳consumerOffsetManagerдĽ
+        if (this.flushConsumerOffsetLogService != null) {
+            this.flushConsumerOffsetLogService.shutdown();
+        }
+
+        this.consumerOffsetManager.shutdown();
     }
 
 
@@ -474,6 +588,11 @@ public class BrokerController {
     }
 
 
+    public RebalanceLockManager getRebalanceLockManager() {
+        return rebalanceLockManager;
+    }
+
+
     public ProducerManager getProducerManager() {
         return producerManager;
     }
@@ -482,4 +601,67 @@ public class BrokerController {
     public DefaultTransactionCheckExecuter getDefaultTransactionCheckExecuter() {
         return defaultTransactionCheckExecuter;
     }
+
+
+    public BrokerStatsManager getBrokerStatsManager() {
+        return brokerStatsManager;
+    }
+
+
+    public BlockingQueue<Runnable> getSendThreadPoolQueue() {
+        return sendThreadPoolQueue;
+    }
+
+
+    public BlockingQueue<Runnable> getPullThreadPoolQueue() {
+        return pullThreadPoolQueue;
+    }
+
+
+    public ExecutorService getColdReadMessageExecutor() {
+        return coldReadMessageExecutor;
+    }
+
+
+    public BlockingQueue<Runnable> getColdReadThreadPoolQueue() {
+        return coldReadThreadPoolQueue;
+    }
+
+
+    public BlockingQueue<Runnable> getQueryThreadPoolQueue() {
+        return queryThreadPoolQueue;
+    }
+
+
+    public BlockingQueue<Runnable> getClientManagerThreadPoolQueue() {
+        return clientManagerThreadPoolQueue;
+    }
+
+
+    /**
+     * ̳߳صĶгȡͷȴʱ
+     */
+    public HashMap<String, String> getThreadPoolQueueRuntimeInfo() {
+        HashMap<String, String> result = new HashMap<String, String>();
+        this.putQueueRuntimeInfo(result, "send", this.sendThreadPoolQueue,
+            this.brokerConfig.getSendThreadPoolQueueCapacity());
+        this.putQueueRuntimeInfo(result, "pull", this.pullThreadPoolQueue,
+            this.brokerConfig.getPullThreadPoolQueueCapacity());
+        this.putQueueRuntimeInfo(result, "coldRead", this.coldReadThreadPoolQueue,
+            this.brokerConfig.getColdReadThreadPoolQueueCapacity());
+        this.putQueueRuntimeInfo(result, "query", this.queryThreadPoolQueue,
+            this.brokerConfig.getQueryThreadPoolQueueCapacity());
+        this.putQueueRuntimeInfo(result, "clientManage", this.clientManagerThreadPoolQueue,
+            this.brokerConfig.getClientManagerThreadPoolQueueCapacity());
+        return result;
+    }
+
+
+    private void putQueueRuntimeInfo(final HashMap<String, String> result, final String name,
+            final BlockingQueue<Runnable> queue, final int capacity) {
+        result.put(name + "ThreadPoolQueueSize", String.valueOf(queue.size()));
+        result.put(name + "ThreadPoolQueueCapacity", String.valueOf(capacity));
+        result.put(name + "ThreadPoolQueueHeadWaitTimeMills",
+            String.valueOf(BrokerFastFailure.headWaitTimeMills(queue)));
+    }
 }
@@ -5,6 +5,9 @@ package com.alibaba.rocketmq.broker.client;
 
 import io.netty.channel.Channel;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -44,21 +47,56 @@ public class ConsumerGroupInfo {
     }
 
 
-    public void unregisterChannel(final ClientChannelInfo clientChannelInfo) {
+    /**
+     * ConsumerID򣬱֤ͬһConsumer˳һ
+     */
+    public List<String> getAllClientId() {
+        List<String> result = new ArrayList<String>();
+        for (ClientChannelInfo info : this.channelInfoTable.values()) {
+            result.add(info.getClientId());
+        }
+
+        Collections.sort(result);
+        return result;
+    }
+
+
+    public List<Channel> getAllChannel() {
+        List<Channel> result = new ArrayList<Channel>();
+        for (ClientChannelInfo info : this.channelInfoTable.values()) {
+            result.add(info.getChannel());
+        }
+        return result;
+    }
+
+
+    /**
+     * ֵʾǷ
+     */
+    public boolean unregisterChannel(final ClientChannelInfo clientChannelInfo) {
         ClientChannelInfo old = this.channelInfoTable.remove(clientChannelInfo.getChannel().id());
         if (old != null) {
             log.info("unregister a consumer[{}] from consumerGroupInfo {}", this.groupName, old.toString());
+            return true;
         }
+
+        return false;
     }
 
 
-    public void doChannelCloseEvent(final String remoteAddr, final Channel channel) {
+    /**
+     * ֵʾǷ
+     */
+    public boolean doChannelCloseEvent(final String remoteAddr, final Channel channel) {
         final ClientChannelInfo info = this.channelInfoTable.remove(channel.id());
         if (info != null) {
             log.warn(
                 "NETTY EVENT: remove not active channel[{}] from ConsumerGroupInfo groupChannelTable, consumer group: {}",
                 info.toString(), groupName);
+            return true;
         }
+
+        return false;
     }
 
 
@@ -71,7 +109,7 @@ public class ConsumerGroupInfo {
         this.consumeType = consumeType;
         this.messageModel = messageModel;
         ClientChannelInfo info = this.channelInfoTable.get(clientChannelInfo.getChannel().id());
-        if (info != null) {
+        if (null == info) {
             ClientChannelInfo prev =
                     this.channelInfoTable.put(clientChannelInfo.getChannel().id(), clientChannelInfo);
             if (null == prev) {
@@ -0,0 +1,24 @@
+/**
+ * $Id: ConsumerIdsChangeListener.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.client;
+
+import io.netty.channel.Channel;
+
+import java.util.List;
+
+
+/**
+ * Consumer仯ߡߣʱص
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public interface ConsumerIdsChangeListener {
+    /**
+     * @param group
+     *            
+     * @param channels
+     *            ڵǰConsumer
+     */
+    public void consumerIdsChanged(final String group, final List<Channel> channels);
+}
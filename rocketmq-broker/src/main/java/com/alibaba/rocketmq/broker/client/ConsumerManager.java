@@ -22,6 +22,12 @@ import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
 public class ConsumerManager {
     private final ConcurrentHashMap<String/* Group */, ConsumerGroupInfo> consumerTable =
             new ConcurrentHashMap<String, ConsumerGroupInfo>(1024);
+    private final ConsumerIdsChangeListener consumerIdsChangeListener;
+
+
+    public ConsumerManager(final ConsumerIdsChangeListener consumerIdsChangeListener) {
+        this.consumerIdsChangeListener = consumerIdsChangeListener;
+    }
 
 
     public ConsumerGroupInfo getConsumerGroupInfo(final String group) {
@@ -33,7 +39,10 @@ public class ConsumerManager {
         for (String group : this.consumerTable.keySet()) {
             final ConsumerGroupInfo info = this.consumerTable.get(group);
             if (info != null) {
-                info.doChannelCloseEvent(remoteAddr, channel);
+                boolean removed = info.doChannelCloseEvent(remoteAddr, channel);
+                if (removed) {
+                    this.consumerIdsChangeListener.consumerIdsChanged(group, info.getAllChannel());
+                }
             }
         }
     }
@@ -53,6 +62,12 @@ public class ConsumerManager {
 
         boolean r1 = consumerGroupInfo.updateChannel(clientChannelInfo, consumeType, messageModel);
         boolean r2 = consumerGroupInfo.updateSubscription(subList);
+
+        // µConsumer룬ConsumerҪ¸ؾ
+        if (r1) {
+            this.consumerIdsChangeListener.consumerIdsChanged(group, consumerGroupInfo.getAllChannel());
+        }
+
         return r1 || r2;
     }
 
@@ -60,7 +75,10 @@ public class ConsumerManager {
     public void unregisterConsumer(final String group, final ClientChannelInfo clientChannelInfo) {
         ConsumerGroupInfo consumerGroupInfo = this.consumerTable.get(group);
         if (null != consumerGroupInfo) {
-            consumerGroupInfo.unregisterChannel(clientChannelInfo);
+            boolean removed = consumerGroupInfo.unregisterChannel(clientChannelInfo);
+            if (removed) {
+                this.consumerIdsChangeListener.consumerIdsChanged(group, consumerGroupInfo.getAllChannel());
+            }
         }
     }
 }
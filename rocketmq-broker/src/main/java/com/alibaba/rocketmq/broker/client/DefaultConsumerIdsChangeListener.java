@@ -0,0 +1,59 @@
+/**
+ * $Id: DefaultConsumerIdsChangeListener.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.client;
+
+import io.netty.channel.Channel;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
+import com.alibaba.rocketmq.common.protocol.header.NotifyConsumerIdsChangedRequestHeader;
+import com.alibaba.rocketmq.remoting.common.RemotingHelper;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+
+
+/**
+ * Consumer仯ʱ֪ͨConsumer¸ؾ⣬صȶʱ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class DefaultConsumerIdsChangeListener implements ConsumerIdsChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    private final BrokerController brokerController;
+
+
+    public DefaultConsumerIdsChangeListener(BrokerController brokerController) {
+        this.brokerController = brokerController;
+    }
+
+
+    @Override
+    public void consumerIdsChanged(final String group, final List<Channel> channels) {
+        if (channels == null || this.brokerController.getRemotingServer() == null) {
+            return;
+        }
+
+        for (Channel channel : channels) {
+            NotifyConsumerIdsChangedRequestHeader requestHeader = new NotifyConsumerIdsChangedRequestHeader();
+            requestHeader.setConsumerGroup(group);
+            RemotingCommand request =
+                    RemotingCommand.createRequestCommand(MQRequestCode.NOTIFY_CONSUMER_IDS_CHANGED_VALUE,
+                        requestHeader);
+
+            // ֻ֪ͨConsumerжʱؾⶵףʧܲ
+            try {
+                this.brokerController.getRemotingServer().invokeOneway(channel, request, 10);
+            }
+            catch (Exception e) {
+                log.warn("notifyConsumerIdsChanged exception, Group: " + group + " Channel: "
+                        + RemotingHelper.parseChannelRemoteAddr(channel), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * $Id: RebalanceLockManager.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.client;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
+
+
+/**
+ * ˳ʱBrokerϵ<br>
+ * RebalanceУһֻھɵConsumerں󣬲ܱµConsumerסͬһͬʱConsumer
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RebalanceLockManager {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    // ConsumerʱʱûΪѾʧЧ
+    private final static long RebalanceLockMaxLiveTime = Long.parseLong(System.getProperty(
+        "rocketmq.broker.rebalance.lockMaxLiveTime", "60000"));
+
+    private final Lock lock = new ReentrantLock();
+    private final ConcurrentHashMap<String/* group */, ConcurrentHashMap<MessageQueue, LockEntry>> mqLockTable =
+            new ConcurrentHashMap<String, ConcurrentHashMap<MessageQueue, LockEntry>>(1024);
+
+    static class LockEntry {
+        private String clientId;
+        private volatile long lastUpdateTimestamp = System.currentTimeMillis();
+
+
+        public boolean isLocked(final String clientId) {
+            boolean eq = this.clientId.equals(clientId);
+            return eq && !this.isExpired();
+        }
+
+
+        public boolean isExpired() {
+            return (System.currentTimeMillis() - this.lastUpdateTimestamp) > RebalanceLockMaxLiveTime;
+        }
+
+
+        public String getClientId() {
+            return clientId;
+        }
+
+
+        public void setClientId(String clientId) {
+            this.clientId = clientId;
+        }
+
+
+        public long getLastUpdateTimestamp() {
+            return lastUpdateTimestamp;
+        }
+
+
+        public void setLastUpdateTimestamp(long lastUpdateTimestamp) {
+            this.lastUpdateTimestamp = lastUpdateTimestamp;
+        }
+    }
+
+
+    /**
+     * ǰClientѾֻڣҪȫ
+     */
+    private boolean isLocked(final String group, final MessageQueue mq, final String clientId) {
+        ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
+        if (groupValue != null) {
+            LockEntry lockEntry = groupValue.get(mq);
+            if (lockEntry != null) {
+                boolean locked = lockEntry.isLocked(clientId);
+                if (locked) {
+                    lockEntry.setLastUpdateTimestamp(System.currentTimeMillis());
+                }
+
+                return locked;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * 
+     *
+     * @return ɹĶм
+     */
+    public Set<MessageQueue> tryLockBatch(final String group, final Set<MessageQueue> mqs,
+            final String clientId) {
+        Set<MessageQueue> lockedMqs = new HashSet<MessageQueue>(mqs.size());
+        Set<MessageQueue> notLockedMqs = new HashSet<MessageQueue>(mqs.size());
+
+        for (MessageQueue mq : mqs) {
+            if (this.isLocked(group, mq, clientId)) {
+                lockedMqs.add(mq);
+            }
+            else {
+                notLockedMqs.add(mq);
+            }
+        }
+
+        if (!notLockedMqs.isEmpty()) {
+            this.lock.lock();
+            try {
+                ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
+                if (null == groupValue) {
+                    groupValue = new ConcurrentHashMap<MessageQueue, LockEntry>(32);
+                    this.mqLockTable.put(group, groupValue);
+                }
+
+                for (MessageQueue mq : notLockedMqs) {
+                    LockEntry lockEntry = groupValue.get(mq);
+                    if (null == lockEntry) {
+                        lockEntry = new LockEntry();
+                        lockEntry.setClientId(clientId);
+                        groupValue.put(mq, lockEntry);
+                        log.info("tryLockBatch, message queue not locked, I got it. Group: {} NewClientId: {} {}",
+                            new Object[] { group, clientId, mq });
+                    }
+
+                    if (lockEntry.isLocked(clientId)) {
+                        lockEntry.setLastUpdateTimestamp(System.currentTimeMillis());
+                        lockedMqs.add(mq);
+                        continue;
+                    }
+
+                    String oldClientId = lockEntry.getClientId();
+
+                    // Ѿڣռ
+                    if (lockEntry.isExpired()) {
+                        lockEntry.setClientId(clientId);
+                        lockEntry.setLastUpdateTimestamp(System.currentTimeMillis());
+                        log.warn(
+                            "tryLockBatch, message queue lock expired, I got it. Group: {} OldClientId: {} NewClientId: {} {}",
+                            new Object[] { group, oldClientId, clientId, mq });
+                        lockedMqs.add(mq);
+                        continue;
+                    }
+
+                    // Client
+                    log.warn(
+                        "tryLockBatch, message queue locked by other client. Group: {} OtherClientId: {} NewClientId: {} {}",
+                        new Object[] { group, oldClientId, clientId, mq });
+                }
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+
+        return lockedMqs;
+    }
+
+
+    /**
+     * УֻǰClientе
+     */
+    public void unlockBatch(final String group, final Set<MessageQueue> mqs, final String clientId) {
+        this.lock.lock();
+        try {
+            ConcurrentHashMap<MessageQueue, LockEntry> groupValue = this.mqLockTable.get(group);
+            if (null == groupValue) {
+                log.warn("unlockBatch, group not exist, Group: {} ClientId: {}", group, clientId);
+                return;
+            }
+
+            for (MessageQueue mq : mqs) {
+                LockEntry lockEntry = groupValue.get(mq);
+                if (null == lockEntry) {
+                    continue;
+                }
+
+                if (lockEntry.getClientId().equals(clientId)) {
+                    groupValue.remove(mq);
+                    log.info("unlockBatch, Group: {} ClientId: {} {}", new Object[] { group, clientId, mq });
+                }
+                else {
+                    log.warn("unlockBatch, but mq locked by other client: {}, Group: {} ClientId: {} {}",
+                        new Object[] { lockEntry.getClientId(), group, clientId, mq });
+                }
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+
+    /**
+     * ڵֹConsumerߺһֱ
+     */
+    public void scanExpiredLock() {
+        this.lock.lock();
+        try {
+            for (Entry<String, ConcurrentHashMap<MessageQueue, LockEntry>> next : this.mqLockTable.entrySet()) {
+                Iterator<Entry<MessageQueue, LockEntry>> it = next.getValue().entrySet().iterator();
+                while (it.hasNext()) {
+                    Entry<MessageQueue, LockEntry> entry = it.next();
+                    if (entry.getValue().isExpired()) {
+                        it.remove();
+                        log.info("scanExpiredLock, remove expired lock, Group: {} ClientId: {} {}",
+                            new Object[] { next.getKey(), entry.getValue().getClientId(), entry.getKey() });
+                    }
+                }
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+}
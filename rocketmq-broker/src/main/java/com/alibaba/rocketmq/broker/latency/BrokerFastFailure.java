@@ -0,0 +1,159 @@
+/**
+ * $Id: BrokerFastFailure.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.latency;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.remoting.netty.RequestTask;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+
+
+/**
+ * Brokerʧܣ̳߳ضеȴõֱӷϵͳæ<br>
+ * ͻ˵ȵʱŷ֣ͻյӦBroker
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerFastFailure {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    private final BrokerController brokerController;
+    private final ScheduledExecutorService scheduledExecutorService = Executors
+        .newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "BrokerFastFailureScheduledThread");
+            }
+        });
+
+
+    public BrokerFastFailure(final BrokerController brokerController) {
+        this.brokerController = brokerController;
+    }
+
+
+    /**
+     * ̳߳صRunnableȡRequestTaskRequestTasknull
+     */
+    public static RequestTask castRunnable(final Runnable runnable) {
+        if (runnable instanceof RequestTask) {
+            return (RequestTask) runnable;
+        }
+
+        return null;
+    }
+
+
+    /**
+     * ͷѾȴʱ䣬Ϊշ0
+     */
+    public static long headWaitTimeMills(final BlockingQueue<Runnable> q) {
+        if (q != null) {
+            final Runnable peek = q.peek();
+            if (peek != null) {
+                RequestTask rt = castRunnable(peek);
+                if (rt != null) {
+                    return System.currentTimeMillis() - rt.getCreateTimestamp();
+                }
+            }
+        }
+
+        return 0;
+    }
+
+
+    public void start() {
+        this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (brokerController.getBrokerConfig().isBrokerFastFailureEnable()) {
+                        cleanExpiredRequest();
+                    }
+                }
+                catch (Exception e) {
+                    log.error("cleanExpiredRequest exception", e);
+                }
+            }
+        }, 1000, 10, TimeUnit.MILLISECONDS);
+    }
+
+
+    private void cleanExpiredRequest() {
+        // PageCacheæʱͶеȫʧ
+        while (this.brokerController.getMessageStore().isOSPageCacheBusy()) {
+            final Runnable runnable = this.brokerController.getSendThreadPoolQueue().poll();
+            if (null == runnable) {
+                break;
+            }
+
+            final RequestTask rt = castRunnable(runnable);
+            if (rt != null) {
+                rt.returnResponse(ResponseCode.SYSTEM_BUSY_VALUE, String.format(
+                    "[PCBUSY_CLEAN_QUEUE]broker busy, start flow control for a while, period in queue: %sms, "
+                            + "size of queue: %d", System.currentTimeMillis() - rt.getCreateTimestamp(),
+                    this.brokerController.getSendThreadPoolQueue().size()));
+            }
+        }
+
+        this.cleanExpiredRequestInQueue(this.brokerController.getSendThreadPoolQueue(),
+            this.brokerController.getBrokerConfig().getWaitTimeMillsInSendQueue());
+
+        this.cleanExpiredRequestInQueue(this.brokerController.getPullThreadPoolQueue(),
+            this.brokerController.getBrokerConfig().getWaitTimeMillsInPullQueue());
+
+        this.cleanExpiredRequestInQueue(this.brokerController.getQueryThreadPoolQueue(),
+            this.brokerController.getBrokerConfig().getWaitTimeMillsInQueryQueue());
+
+        this.cleanExpiredRequestInQueue(this.brokerController.getClientManagerThreadPoolQueue(),
+            this.brokerController.getBrokerConfig().getWaitTimeMillsInHeartbeatQueue());
+    }
+
+
+    /**
+     * FIFOģֻҪͷͷûгʱҲûгʱ
+     */
+    void cleanExpiredRequestInQueue(final BlockingQueue<Runnable> blockingQueue, final long maxWaitTimeMillsInQueue) {
+        if (null == blockingQueue) {
+            return;
+        }
+
+        while (true) {
+            final Runnable runnable = blockingQueue.peek();
+            if (null == runnable) {
+                break;
+            }
+
+            final RequestTask rt = castRunnable(runnable);
+            if (rt == null || rt.isStopRun()) {
+                break;
+            }
+
+            final long behind = System.currentTimeMillis() - rt.getCreateTimestamp();
+            if (behind < maxWaitTimeMillsInQueue) {
+                break;
+            }
+
+            // пѾҵ߳ȡߣremoveʧ
+            if (blockingQueue.remove(runnable)) {
+                rt.returnResponse(ResponseCode.SYSTEM_BUSY_VALUE, String.format(
+                    "[TIMEOUT_CLEAN_QUEUE]broker busy, start flow control for a while, period in queue: %sms, "
+                            + "size of queue: %d", behind, blockingQueue.size()));
+            }
+        }
+    }
+
+
+    public void shutdown() {
+        this.scheduledExecutorService.shutdown();
+    }
+}
@@ -4,6 +4,9 @@
 package com.alibaba.rocketmq.broker.offset;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,7 +20,8 @@ import com.alibaba.rocketmq.common.MixAll;
 
 
 /**
- * Consumerѽȹ
+ * Consumerѽȹ<br>
+ * ȰTopicύѯʱƴtopic@groupװ
  * 
  * @author shijia.wxr<vintage.wang@gmail.com>
  * 
@@ -28,21 +32,57 @@ public class ConsumerOffsetManager {
     private static final String TOPIC_GROUP_SEPARATOR = "@";
     private static final String QUEUEID_OFFSET_SEPARATOR = ":";
     private static final String OFFSETS_SEPARATOR = " ";
-    private final ConcurrentHashMap<String/* topic@group */, ConcurrentHashMap<Integer, Long>> offsetTable =
-            new ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>>(512);
+    // topic -> group -> 
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, TopicGroupOffset>> offsetTable =
+            new ConcurrentHashMap<String, ConcurrentHashMap<String, TopicGroupOffset>>(512);
 
-    private volatile ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> offsetTableLastLast;
-    private volatile ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> offsetTableLast;
+    // Ŵţʱ飬ʱ
+    private volatile TopicGroupOffset[] topicGroupOffsets = new TopicGroupOffset[0];
+    private final Object createLock = new Object();
+    private volatile long lastRecordPullTPSTimestamp = 0;
 
     private final BrokerController brokerController;
 
+    // ƴ洢δʱΪnullʹıļ
+    private final ConsumerOffsetStore consumerOffsetStore;
+
 
     public ConsumerOffsetManager(BrokerController brokerController) {
         this.brokerController = brokerController;
+        if (brokerController.getBrokerConfig().isConsumerOffsetStoreEnable()) {
+            this.consumerOffsetStore =
+                    new ConsumerOffsetStore(brokerController.getBrokerConfig().getConsumerOffsetStorePath(),
+                        brokerController.getBrokerConfig().getConsumerOffsetLogFileSize());
+        }
+        else {
+            this.consumerOffsetStore = null;
+        }
     }
 
 
     public boolean load() {
+        if (null == this.consumerOffsetStore) {
+            return this.loadProperties();
+        }
+
+        try {
+            // һοƴ洢ıļǨ
+            if (!this.consumerOffsetStore.load(this)) {
+                this.loadProperties();
+            }
+        }
+        catch (IOException e) {
+            log.error("load consumer offset store failed", e);
+            return false;
+        }
+
+        // غ·˱ţд¿գ֮־ʹ±
+        this.consumerOffsetStore.compact(this);
+        return true;
+    }
+
+
+    private boolean loadProperties() {
         try {
             String fileName = this.brokerController.getBrokerConfig().getConsumerOffsetPath();
             String content = MixAll.file2String(fileName);
@@ -73,7 +113,7 @@ public class ConsumerOffsetManager {
                         try {
                             int queueId = Integer.parseInt(pair[0]);
                             long offset = Long.parseLong(pair[1]);
-                            this.commitOffset(key, queueId, offset);
+                            this.putOffset(key, queueId, offset);
                         }
                         catch (NumberFormatException e) {
                             e.printStackTrace();
@@ -87,57 +127,29 @@ public class ConsumerOffsetManager {
     }
 
 
-    private static ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> cloneOffsetTable(
-            final ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> input) {
-        ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> out =
-                new ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>>(input.size());
-
-        for (String topicgroup : input.keySet()) {
-            ConcurrentHashMap<Integer, Long> map = input.get(topicgroup);
-            if (map != null) {
-                ConcurrentHashMap<Integer, Long> mapNew = new ConcurrentHashMap<Integer, Long>(map.size());
-                for (Integer queueId : map.keySet()) {
-                    Long offset = map.get(queueId);
-                    Integer queueIdNew = new Integer(queueId.intValue());
-                    Long offsetNew = new Long(offset.longValue());
-                    map.put(queueIdNew, offsetNew);
-                }
-
-                String topicgroupNew = new String(topicgroup);
-                out.put(topicgroupNew, mapNew);
-            }
-        }
-
-        return out;
-    }
-
-
     private String encode() {
         StringBuilder result = new StringBuilder();
 
-        for (String topicgroup : this.offsetTable.keySet()) {
-            ConcurrentHashMap<Integer, Long> map = this.offsetTable.get(topicgroup);
-            if (map != null) {
-                StringBuilder sb = new StringBuilder();
-                sb.append(topicgroup);
-                sb.append("=");
-                boolean first = true;
-                for (Integer queueId : map.keySet()) {
-                    Long offset = map.get(queueId);
-                    if (offset != null) {
-                        String item = queueId + QUEUEID_OFFSET_SEPARATOR + offset;
-                        if (!first) {
-                            sb.append(OFFSETS_SEPARATOR);
-                        }
-                        sb.append(item);
-                        first = false;
+        for (TopicGroupOffset topicGroupOffset : this.topicGroupOffsets) {
+            long[] offsets = topicGroupOffset.snapshot();
+            StringBuilder sb = new StringBuilder();
+            sb.append(topicGroupOffset.getKey());
+            sb.append("=");
+            boolean first = true;
+            for (int queueId = 0; queueId < offsets.length; queueId++) {
+                if (offsets[queueId] != TopicGroupOffset.NoOffset) {
+                    String item = queueId + QUEUEID_OFFSET_SEPARATOR + offsets[queueId];
+                    if (!first) {
+                        sb.append(OFFSETS_SEPARATOR);
                     }
+                    sb.append(item);
+                    first = false;
                 }
+            }
 
-                if (!first) {
-                    sb.append(IOUtils.LINE_SEPARATOR);
-                    result.append(sb.toString());
-                }
+            if (!first) {
+                sb.append(IOUtils.LINE_SEPARATOR);
+                result.append(sb.toString());
             }
         }
 
@@ -146,9 +158,17 @@ public class ConsumerOffsetManager {
 
 
     /**
-     * жʱ̶߳ʱˢ
+     * жʱ̶߳ʱˢ̣ʹöƴ洢ʱֻ־ʱѹ
      */
     public void flush() {
+        if (this.consumerOffsetStore != null) {
+            if (this.consumerOffsetStore.isCompactNeeded()) {
+                this.consumerOffsetStore.compact(this);
+            }
+            this.consumerOffsetStore.flush(this);
+            return;
+        }
+
         String content = this.encode();
         if (content != null && content.length() > 0) {
             String fileName = this.brokerController.getBrokerConfig().getConsumerOffsetPath();
@@ -159,9 +179,33 @@ public class ConsumerOffsetManager {
 
 
     /**
-     * жʱ̶߳ʱˢ
+     * ƴ洢־׷ˢ̣Ϊ뼶
+     */
+    public void flushLog() {
+        if (this.consumerOffsetStore != null) {
+            this.consumerOffsetStore.flush(this);
+        }
+    }
+
+
+    /**
+     * жʱ̶߳ʱˢ̣ʹöƴ洢ʱʷ¼ҲǶƿ
      */
     public void flushHistory() {
+        if (this.consumerOffsetStore != null) {
+            String fileName =
+                    this.brokerController.getBrokerConfig().getConsumerOffsetHistoryDir() + File.separator
+                            + System.currentTimeMillis();
+            try {
+                this.consumerOffsetStore.writeSnapshot(fileName, this);
+                log.info("flush consumer history offset, " + fileName + " OK");
+            }
+            catch (IOException e) {
+                log.error("flush consumer history offset, " + fileName + " Failed", e);
+            }
+            return;
+        }
+
         String content = this.encode();
         if (content != null && content.length() > 0) {
             String fileName =
@@ -173,77 +217,123 @@ public class ConsumerOffsetManager {
     }
 
 
-    public long computePullTPS(final String topicgroup) {
-        ConcurrentHashMap<Integer, Long> mapLast = this.offsetTableLast.get(topicgroup);
-        ConcurrentHashMap<Integer, Long> mapLastLast = this.offsetTableLastLast.get(topicgroup);
-        long totalMsgs = 0;
-        if (mapLast != null && mapLastLast != null) {
-            for (Integer queueIdLast : mapLast.keySet()) {
-                Long offsetLast = mapLast.get(queueIdLast);
-                Long offsetLastLast = mapLastLast.get(queueIdLast);
-                if (offsetLast != null && offsetLastLast != null) {
-                    long diff = offsetLast - offsetLastLast;
-                    totalMsgs += diff;
-                }
-            }
+    /**
+     * @return һͳƵȡTPSûнʱ0
+     */
+    public long computePullTPS(final String group, final String topic) {
+        TopicGroupOffset topicGroupOffset = this.findTopicGroupOffset(topic, group, false);
+        if (topicGroupOffset != null) {
+            return topicGroupOffset.getPullTps();
         }
 
-        if (0 == totalMsgs)
-            return 0;
+        return 0;
+    }
 
-        double pullTps =
-                totalMsgs / this.brokerController.getBrokerConfig().getFlushConsumerOffsetHistoryInterval();
-        pullTps *= 1000;
 
-        return Double.valueOf(pullTps).longValue();
+    /**
+     * ÿֻһν飬ϴͳƵõTPS
+     */
+    public void recordPullTPS() {
+        final long now = System.currentTimeMillis();
+        final long interval = now - this.lastRecordPullTPSTimestamp;
+        this.lastRecordPullTPSTimestamp = now;
+
+        for (TopicGroupOffset topicGroupOffset : this.topicGroupOffsets) {
+            if (topicGroupOffset.recordPullTps(interval)) {
+                log.info(topicGroupOffset.getKey() + " pull tps, " + topicGroupOffset.getPullTps());
+            }
+        }
     }
 
 
-    public void recordPullTPS() {
-        ConcurrentHashMap<String, ConcurrentHashMap<Integer, Long>> snapshotNow =
-                cloneOffsetTable(this.offsetTable);
-        this.offsetTableLastLast = this.offsetTableLast;
-        this.offsetTableLast = snapshotNow;
-
-        if (this.offsetTableLast != null && this.offsetTableLastLast != null) {
-            for (String topicgroupLast : this.offsetTableLast.keySet()) {
-                long tps = this.computePullTPS(topicgroupLast);
-                log.info(topicgroupLast + " pull tps, " + tps);
+    /**
+     * ҶTopicϵĽ
+     *
+     * @param create
+     *            ʱǷ񴴽
+     */
+    public TopicGroupOffset findTopicGroupOffset(final String topic, final String group,
+            final boolean create) {
+        ConcurrentHashMap<String, TopicGroupOffset> groupTable = this.offsetTable.get(topic);
+        if (groupTable != null) {
+            TopicGroupOffset topicGroupOffset = groupTable.get(group);
+            if (topicGroupOffset != null || !create) {
+                return topicGroupOffset;
             }
         }
+        else if (!create) {
+            return null;
+        }
+
+        synchronized (this.createLock) {
+            groupTable = this.offsetTable.get(topic);
+            if (null == groupTable) {
+                groupTable = new ConcurrentHashMap<String, TopicGroupOffset>(16);
+                this.offsetTable.put(topic, groupTable);
+            }
+
+            TopicGroupOffset topicGroupOffset = groupTable.get(group);
+            if (null == topicGroupOffset) {
+                final TopicGroupOffset[] old = this.topicGroupOffsets;
+                topicGroupOffset =
+                        new TopicGroupOffset(old.length, topic, group, topic + TOPIC_GROUP_SEPARATOR + group);
+                TopicGroupOffset[] array = Arrays.copyOf(old, old.length + 1);
+                array[old.length] = topicGroupOffset;
+                this.topicGroupOffsets = array;
+                groupTable.put(group, topicGroupOffset);
+            }
+            return topicGroupOffset;
+        }
     }
 
 
     public void commitOffset(final String group, final String topic, final int queueId, final long offset) {
-        // topic@group
-        String key = topic + TOPIC_GROUP_SEPARATOR + group;
-        this.commitOffset(key, queueId, offset);
+        TopicGroupOffset topicGroupOffset = this.findTopicGroupOffset(topic, group, true);
+        topicGroupOffset.putOffset(queueId, offset);
+        // ȸڴٱǣд־ʱ½
+        if (this.consumerOffsetStore != null) {
+            this.consumerOffsetStore.markDirty(topicGroupOffset);
+        }
     }
 
 
     public long queryOffset(final String group, final String topic, final int queueId) {
-        // topic@group
-        String key = topic + TOPIC_GROUP_SEPARATOR + group;
-        ConcurrentHashMap<Integer, Long> map = this.offsetTable.get(key);
-        if (null != map) {
-            Long offset = map.get(queueId);
-            if (offset != null)
-                return offset;
+        TopicGroupOffset topicGroupOffset = this.findTopicGroupOffset(topic, group, false);
+        if (topicGroupOffset != null) {
+            return topicGroupOffset.getOffset(queueId);
         }
 
         return -1;
     }
 
 
-    private void commitOffset(final String key, final int queueId, final long offset) {
-        ConcurrentHashMap<Integer, Long> map = this.offsetTable.get(key);
-        if (null == map) {
-            map = new ConcurrentHashMap<Integer, Long>(32);
-            map.put(queueId, offset);
-            this.offsetTable.put(key, map);
+    /**
+     * ʱʹãkeyΪtopic@group
+     */
+    void putOffset(final String key, final int queueId, final long offset) {
+        final int index = key.indexOf(TOPIC_GROUP_SEPARATOR);
+        if (index <= 0) {
+            log.warn("illegal consumer offset key, " + key);
+            return;
         }
-        else {
-            map.put(queueId, offset);
+
+        this.findTopicGroupOffset(key.substring(0, index), key.substring(index + 1), true).putOffset(queueId,
+            offset);
+    }
+
+
+    /**
+     * еȫȣֻ
+     */
+    public List<TopicGroupOffset> getOffsetTable() {
+        return Arrays.asList(this.topicGroupOffsets);
+    }
+
+
+    public void shutdown() {
+        this.flush();
+        if (this.consumerOffsetStore != null) {
+            this.consumerOffsetStore.shutdown(this);
         }
     }
 }
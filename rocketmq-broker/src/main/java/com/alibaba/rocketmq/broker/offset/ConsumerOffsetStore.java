@@ -0,0 +1,464 @@
+/**
+ * $Id: ConsumerOffsetStore.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.offset;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.UtilALl;
+
+
+/**
+ * ѽȵĶƴ洢ļ׷־ļ<br>
+ * ύʱֻѶдУÿԱڴеĽдĽȣ
+ * ڴӳ־׷ӱ仯ĶУÿһ21ֽڵļ¼Ȼˢ<br>
+ * ־дһ󣬰ڴеȫѹɿգ־¿ʼ<br>
+ * topic@groupһдʱдһּ¼¼ֻдţżTopicGroupOffsetı
+ *
+ * <pre>
+ * ־ļMAGIC(4) GENERATION(8) ¼...
+ * ļMAGIC(4) NEXT_GENERATION(8) ¼...
+ * ּ¼TYPE(1)=1 ID(4) LENGTH(2) topic@group CRC(4)
+ * ȼ¼TYPE(1)=2 ID(4) QUEUEID(4) OFFSET(8) CRC(4)
+ * </pre>
+ *
+ * CRCǼ¼CRC֮ǰȫֽڣ¼ҳʱˢ;ֻһҳ̣
+ * Уʧܵļ¼ڼʱ<br>
+ * ռ¼֮νӵ־־ѹǰľݣʱ<br>
+ * غ·䣬ԼɺҪѹһ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumerOffsetStore {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    private static final Charset Utf8 = Charset.forName("UTF-8");
+
+    private static final int LogMagicCode = 0xCAFE0F01;
+    private static final int SnapshotMagicCode = 0xCAFE0F02;
+    private static final int HeaderSize = 4 + 8;
+    private static final byte RecordEnd = 0;
+    private static final byte RecordName = 1;
+    private static final byte RecordOffset = 2;
+    private static final int CRCSize = 4;
+    private static final int OffsetRecordSize = 1 + 4 + 4 + 8 + CRCSize;
+
+    private final String snapshotFileName;
+    private final String logFileName;
+    private final int logFileSize;
+
+    // нȱ仯Ķ飬ÿһ
+    private final ConcurrentLinkedQueue<TopicGroupOffset> dirtyQueue =
+            new ConcurrentLinkedQueue<TopicGroupOffset>();
+
+    // 뵱ǰ־дּ¼ıţд־ѹʱб
+    private final BitSet namedIds = new BitSet();
+    private long generation = 0;
+    private RandomAccessFile logFile;
+    private MappedByteBuffer logBuffer;
+    private volatile int writePosition = HeaderSize;
+    private volatile int flushedPosition = HeaderSize;
+
+
+    public ConsumerOffsetStore(final String storePath, final int logFileSize) {
+        this.snapshotFileName = storePath + File.separator + "offset.snapshot";
+        this.logFileName = storePath + File.separator + "offset.log";
+        this.logFileSize = logFileSize;
+    }
+
+
+    /**
+     * ؿղط־дmanager
+     *
+     * @return ǷѴ洢Ľȣûʱɵ÷ıļǨ
+     */
+    public synchronized boolean load(final ConsumerOffsetManager manager) throws IOException {
+        new File(this.logFileName).getParentFile().mkdirs();
+
+        final Map<Integer, String> idTable = new HashMap<Integer, String>();
+        boolean exist = false;
+
+        File snapshot = new File(this.snapshotFileName);
+        // ѹ滻յ;ɿջbakļ
+        File bak = new File(this.snapshotFileName + ".bak");
+        if (!snapshot.exists() && bak.exists()) {
+            snapshot = bak;
+        }
+
+        if (snapshot.exists()) {
+            RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+            try {
+                ByteBuffer buffer = file.getChannel().map(MapMode.READ_ONLY, 0, file.length());
+                if (buffer.remaining() < HeaderSize || buffer.getInt() != SnapshotMagicCode) {
+                    throw new IOException("consumer offset snapshot illegal, " + snapshot);
+                }
+                this.generation = buffer.getLong();
+                this.replay(buffer, idTable, manager);
+                exist = true;
+            }
+            finally {
+                file.close();
+            }
+        }
+
+        this.logFile = new RandomAccessFile(this.logFileName, "rw");
+        if (this.logFile.length() < this.logFileSize) {
+            this.logFile.setLength(this.logFileSize);
+        }
+        this.logBuffer = this.logFile.getChannel().map(MapMode.READ_WRITE, 0, this.logFileSize);
+
+        if (this.logBuffer.getInt(0) == LogMagicCode && this.logBuffer.getLong(4) == this.generation) {
+            ByteBuffer buffer = this.logBuffer.duplicate();
+            buffer.position(HeaderSize);
+            this.replay(buffer, idTable, manager);
+            this.writePosition = buffer.position();
+            this.flushedPosition = this.writePosition;
+            exist = exist || this.writePosition > HeaderSize;
+        }
+        else {
+            this.resetLog(this.logFileSize);
+        }
+
+        log.info("load consumer offset store OK, generation {}, log position {}", this.generation,
+            this.writePosition);
+        return exist;
+    }
+
+
+    /**
+     * ǡռ䲻㡢¼Уʧʱֹͣbufferͣһ¼֮
+     */
+    private void replay(final ByteBuffer buffer, final Map<Integer, String> idTable,
+            final ConsumerOffsetManager manager) {
+        while (buffer.remaining() >= 1) {
+            final int position = buffer.position();
+            final byte type = buffer.get();
+            if (RecordName == type && buffer.remaining() >= 4 + 2) {
+                final int id = buffer.getInt();
+                final int length = buffer.getShort();
+                if (length >= 0 && buffer.remaining() >= length + CRCSize) {
+                    byte[] name = new byte[length];
+                    buffer.get(name);
+                    if (checkRecord(buffer, position)) {
+                        idTable.put(id, new String(name, Utf8));
+                        continue;
+                    }
+                }
+            }
+            else if (RecordOffset == type && buffer.remaining() >= OffsetRecordSize - 1) {
+                final int id = buffer.getInt();
+                final int queueId = buffer.getInt();
+                final long offset = buffer.getLong();
+                if (checkRecord(buffer, position)) {
+                    final String key = idTable.get(id);
+                    if (key != null) {
+                        manager.putOffset(key, queueId, offset);
+                    }
+                    continue;
+                }
+            }
+
+            buffer.position(position);
+            break;
+        }
+    }
+
+
+    /**
+     * ȡ¼ĩβCRCbeginǰλõݱȽ
+     */
+    private static boolean checkRecord(final ByteBuffer buffer, final int begin) {
+        final int end = buffer.position();
+        byte[] data = new byte[end - begin];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = buffer.get(begin + i);
+        }
+
+        final int crc = buffer.getInt();
+        if (crc != UtilALl.crc32(data)) {
+            log.warn("consumer offset record CRC check failed, position {}", begin);
+            return false;
+        }
+        return true;
+    }
+
+
+    private static void putNameRecord(final ByteBuffer buffer, final int id, final byte[] name) {
+        final int begin = buffer.position();
+        buffer.put(RecordName);
+        buffer.putInt(id);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(UtilALl.crc32(buffer.array(), begin, buffer.position() - begin));
+    }
+
+
+    private static void putOffsetRecord(final ByteBuffer buffer, final int id, final int queueId,
+            final long offset) {
+        final int begin = buffer.position();
+        buffer.put(RecordOffset);
+        buffer.putInt(id);
+        buffer.putInt(queueId);
+        buffer.putLong(offset);
+        buffer.putInt(UtilALl.crc32(buffer.array(), begin, buffer.position() - begin));
+    }
+
+
+    /**
+     * õ־дļͷļͷдǰʱ־
+     */
+    private void resetLog(final int usedPosition) {
+        for (int i = HeaderSize; i < usedPosition; i++) {
+            this.logBuffer.put(i, RecordEnd);
+        }
+        this.logBuffer.putInt(0, LogMagicCode);
+        this.logBuffer.putLong(4, this.generation);
+        this.logBuffer.force();
+        this.writePosition = HeaderSize;
+        this.flushedPosition = HeaderSize;
+    }
+
+
+    /**
+     * ύȺãڴдʱظ
+     */
+    public void markDirty(final TopicGroupOffset topicGroupOffset) {
+        if (!topicGroupOffset.dirty.get() && topicGroupOffset.dirty.compareAndSet(false, true)) {
+            this.dirtyQueue.offer(topicGroupOffset);
+        }
+    }
+
+
+    /**
+     * ־׷һ¼ռ䲻ʱfalse
+     */
+    private boolean writeRecord(final TopicGroupOffset topicGroupOffset, final int queueId,
+            final long offset) {
+        final int id = topicGroupOffset.getId();
+        byte[] name = null;
+        int size = OffsetRecordSize;
+        if (!this.namedIds.get(id)) {
+            name = topicGroupOffset.getKey().getBytes(Utf8);
+            size += 1 + 4 + 2 + name.length + CRCSize;
+        }
+
+        if (this.writePosition + size > this.logFileSize) {
+            return false;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(size);
+        if (name != null) {
+            putNameRecord(record, id, name);
+            this.namedIds.set(id);
+        }
+        putOffsetRecord(record, id, queueId, offset);
+
+        ByteBuffer buffer = this.logBuffer.duplicate();
+        buffer.position(this.writePosition);
+        buffer.put(record.array());
+        this.writePosition += size;
+        return true;
+    }
+
+
+    /**
+     * ʱб仯Ľ׷ӵ־ˢ̣־дʱmanagerеĽѹ
+     */
+    public void flush(final ConsumerOffsetManager manager) {
+        synchronized (this) {
+            if (null == this.logBuffer) {
+                return;
+            }
+
+            TopicGroupOffset topicGroupOffset;
+            boolean failed = false;
+            while (!failed && (topicGroupOffset = this.dirtyQueue.poll()) != null) {
+                // ٶȣ֮ύ·
+                topicGroupOffset.dirty.set(false);
+                final long[] offsets = topicGroupOffset.snapshot();
+                if (topicGroupOffset.loggedOffsets.length < offsets.length) {
+                    topicGroupOffset.loggedOffsets =
+                            newLoggedOffsets(topicGroupOffset.loggedOffsets, offsets.length);
+                }
+
+                final long[] logged = topicGroupOffset.loggedOffsets;
+                for (int queueId = 0; queueId < offsets.length; queueId++) {
+                    if (offsets[queueId] == logged[queueId]) {
+                        continue;
+                    }
+
+                    if (!this.writeRecord(topicGroupOffset, queueId, offsets[queueId])) {
+                        // հȫ
+                        if (!this.compact(manager)) {
+                            // ־ûдɿգŻضе´дඩҲڶ
+                            this.markDirty(topicGroupOffset);
+                            failed = true;
+                        }
+                        break;
+                    }
+                    logged[queueId] = offsets[queueId];
+                }
+            }
+        }
+
+        final int position = this.writePosition;
+        if (position != this.flushedPosition) {
+            this.logBuffer.force();
+            this.flushedPosition = position;
+        }
+    }
+
+
+    private static long[] newLoggedOffsets(final long[] old, final int length) {
+        long[] logged = new long[length];
+        System.arraycopy(old, 0, logged, 0, old.length);
+        for (int i = old.length; i < length; i++) {
+            logged[i] = TopicGroupOffset.NoOffset;
+        }
+        return logged;
+    }
+
+
+    public boolean isCompactNeeded() {
+        return this.writePosition > this.logFileSize / 2;
+    }
+
+
+    /**
+     * managerеȫдɿգ־
+     *
+     * @return Ƿ滻ɹ
+     */
+    public synchronized boolean compact(final ConsumerOffsetManager manager) {
+        if (null == this.logBuffer) {
+            return false;
+        }
+
+        final long begin = System.currentTimeMillis();
+        final long nextGeneration = this.generation + 1;
+        final File tmp = new File(this.snapshotFileName + ".tmp");
+        final List<long[]> snapshots;
+        try {
+            snapshots = this.writeSnapshot(tmp, nextGeneration, manager);
+            File snapshot = new File(this.snapshotFileName);
+            if (!tmp.renameTo(snapshot)) {
+                // ĿʱܸǣWindowsɿȸ¿վλɾ
+                File bak = new File(this.snapshotFileName + ".bak");
+                bak.delete();
+                if (snapshot.exists() && !snapshot.renameTo(bak)) {
+                    throw new IOException("rename consumer offset snapshot to bak failed, " + snapshot);
+                }
+                if (!tmp.renameTo(snapshot)) {
+                    if (bak.exists() && !bak.renameTo(snapshot)) {
+                        log.error("restore consumer offset snapshot failed, {}", bak);
+                    }
+                    throw new IOException("rename consumer offset snapshot failed, " + tmp);
+                }
+                bak.delete();
+            }
+        }
+        catch (IOException e) {
+            // û滻ɹʹþɿ뵱ǰ־
+            log.error("compact consumer offset store failed", e);
+            return false;
+        }
+
+        // еĽȼдĽȣֻ֮׷ӱ仯Ķ
+        final List<TopicGroupOffset> offsetTable = manager.getOffsetTable();
+        this.namedIds.clear();
+        for (int i = 0; i < snapshots.size(); i++) {
+            offsetTable.get(i).loggedOffsets = snapshots.get(i);
+            this.namedIds.set(i);
+        }
+
+        this.generation = nextGeneration;
+        this.resetLog(this.writePosition);
+        log.info("compact consumer offset store OK, generation {}, {} names, cost {}ms", this.generation,
+            snapshots.size(), System.currentTimeMillis() - begin);
+        return true;
+    }
+
+
+    /**
+     * managerеȫдɿգʷ¼
+     */
+    public synchronized void writeSnapshot(final String fileName, final ConsumerOffsetManager manager)
+            throws IOException {
+        this.writeSnapshot(new File(fileName), this.generation, manager);
+    }
+
+
+    /**
+     * @return еġдյĽ
+     */
+    private List<long[]> writeSnapshot(final File file, final long nextGeneration,
+            final ConsumerOffsetManager manager) throws IOException {
+        file.getParentFile().mkdirs();
+        final List<TopicGroupOffset> offsetTable = manager.getOffsetTable();
+        final List<long[]> snapshots = new ArrayList<long[]>(offsetTable.size());
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1024 * 64));
+            out.writeInt(SnapshotMagicCode);
+            out.writeLong(nextGeneration);
+
+            final ByteBuffer offsetRecord = ByteBuffer.allocate(OffsetRecordSize);
+            for (TopicGroupOffset topicGroupOffset : offsetTable) {
+                byte[] name = topicGroupOffset.getKey().getBytes(Utf8);
+                ByteBuffer nameRecord = ByteBuffer.allocate(1 + 4 + 2 + name.length + CRCSize);
+                putNameRecord(nameRecord, topicGroupOffset.getId(), name);
+                out.write(nameRecord.array());
+
+                final long[] offsets = topicGroupOffset.snapshot();
+                for (int queueId = 0; queueId < offsets.length; queueId++) {
+                    if (offsets[queueId] != TopicGroupOffset.NoOffset) {
+                        offsetRecord.clear();
+                        putOffsetRecord(offsetRecord, topicGroupOffset.getId(), queueId, offsets[queueId]);
+                        out.write(offsetRecord.array());
+                    }
+                }
+                snapshots.add(offsets);
+            }
+
+            out.writeByte(RecordEnd);
+            out.flush();
+            fos.getFD().sync();
+        }
+        finally {
+            fos.close();
+        }
+
+        return snapshots;
+    }
+
+
+    public synchronized void shutdown(final ConsumerOffsetManager manager) {
+        if (this.logFile != null) {
+            this.flush(manager);
+            try {
+                this.logFile.close();
+            }
+            catch (IOException e) {
+                log.error("close consumer offset log failed", e);
+            }
+        }
+    }
+}
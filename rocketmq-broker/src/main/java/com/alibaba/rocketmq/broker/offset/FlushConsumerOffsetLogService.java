@@ -0,0 +1,52 @@
+/**
+ * $Id: FlushConsumerOffsetLogService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.offset;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+
+
+/**
+ * ѽȶ־׷ˢ̣Ϊ뼶<br>
+ * ʹọ̈߳ܶʱ߳ѹдʷ¼ȺʱӰ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class FlushConsumerOffsetLogService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    private final BrokerController brokerController;
+
+
+    public FlushConsumerOffsetLogService(final BrokerController brokerController) {
+        this.brokerController = brokerController;
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        while (!this.isStoped()) {
+            try {
+                this.waitForRunning(this.brokerController.getBrokerConfig().getFlushConsumerOffsetLogInterval());
+                this.brokerController.getConsumerOffsetManager().flushLog();
+            }
+            catch (Exception e) {
+                log.warn(this.getServiceName() + " service has exception. ", e);
+            }
+        }
+
+        log.info(this.getServiceName() + " service end");
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return FlushConsumerOffsetLogService.class.getSimpleName();
+    }
+}
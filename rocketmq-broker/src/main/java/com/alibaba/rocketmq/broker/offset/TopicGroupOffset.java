@@ -0,0 +1,196 @@
+/**
+ * $Id: TopicGroupOffset.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.offset;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * һһTopicϵѽȣԶкΪ±long<br>
+ * ύѯȲװ䣬кų鳤ʱ<br>
+ * ConsumerOffsetManager䣬0ʼƴ洢ñŴtopic@group
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class TopicGroupOffset {
+    // ûύ
+    public static final long NoOffset = -1;
+    // ʱѾƵλãдȴ鷢
+    private static final long Moved = Long.MIN_VALUE;
+    private static final int InitialQueueNums = 16;
+
+    private final int id;
+    private final String topic;
+    private final String group;
+    // topic@group
+    private final String key;
+    private volatile AtomicLongArray offsetArray;
+
+    // ƴ洢ʹãǷڴд
+    final AtomicBoolean dirty = new AtomicBoolean(false);
+    // ƴ洢ʹãд־յĽȣֻڴ洢ڷ
+    long[] loggedOffsets = new long[0];
+
+    // ϴͳȡTPSʱĽȣֻͳ߳з
+    private long[] lastOffsets;
+    private volatile long pullTps = 0;
+
+
+    public TopicGroupOffset(final int id, final String topic, final String group, final String key) {
+        this.id = id;
+        this.topic = topic;
+        this.group = group;
+        this.key = key;
+        this.offsetArray = newOffsetArray(InitialQueueNums);
+    }
+
+
+    private static AtomicLongArray newOffsetArray(final int length) {
+        AtomicLongArray array = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            array.set(i, NoOffset);
+        }
+        return array;
+    }
+
+
+    public void putOffset(final int queueId, final long offset) {
+        if (queueId < 0) {
+            return;
+        }
+
+        for (;;) {
+            final AtomicLongArray array = this.offsetArray;
+            if (queueId >= array.length()) {
+                this.grow(queueId + 1);
+                continue;
+            }
+
+            final long current = array.get(queueId);
+            if (Moved == current) {
+                Thread.yield();
+                continue;
+            }
+
+            if (array.compareAndSet(queueId, current, offset)) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * @return ûύʱNoOffset
+     */
+    public long getOffset(final int queueId) {
+        if (queueId < 0) {
+            return NoOffset;
+        }
+
+        for (;;) {
+            final AtomicLongArray array = this.offsetArray;
+            if (queueId >= array.length()) {
+                return NoOffset;
+            }
+
+            final long offset = array.get(queueId);
+            if (offset != Moved) {
+                return offset;
+            }
+            Thread.yield();
+        }
+    }
+
+
+    /**
+     * ƾʱѾλñΪMoved֮ھϵύȴԵ
+     */
+    private synchronized void grow(final int length) {
+        final AtomicLongArray old = this.offsetArray;
+        if (old.length() >= length) {
+            return;
+        }
+
+        final AtomicLongArray array = newOffsetArray(Math.max(length, old.length() * 2));
+        for (int i = 0; i < old.length(); i++) {
+            array.set(i, old.getAndSet(i, Moved));
+        }
+        this.offsetArray = array;
+    }
+
+
+    /**
+     * жнȵĸ±ΪкţûнȵĶΪNoOffset
+     */
+    public long[] snapshot() {
+        for (;;) {
+            final AtomicLongArray array = this.offsetArray;
+            final long[] offsets = new long[array.length()];
+            boolean moved = false;
+            for (int i = 0; i < offsets.length && !moved; i++) {
+                offsets[i] = array.get(i);
+                moved = Moved == offsets[i];
+            }
+
+            if (!moved) {
+                return offsets;
+            }
+            Thread.yield();
+        }
+    }
+
+
+    /**
+     * ϴͳ֮ĽȡTPSֻͳ߳е
+     *
+     * @param interval
+     *            ϴͳƵĺ
+     * @return ûϴͳʱfalse
+     */
+    boolean recordPullTps(final long interval) {
+        final long[] offsets = this.snapshot();
+        final long[] last = this.lastOffsets;
+        this.lastOffsets = offsets;
+        if (null == last) {
+            return false;
+        }
+
+        long totalMsgs = 0;
+        final int length = Math.min(offsets.length, last.length);
+        for (int i = 0; i < length; i++) {
+            if (offsets[i] != NoOffset && last[i] != NoOffset) {
+                totalMsgs += offsets[i] - last[i];
+            }
+        }
+
+        this.pullTps = interval > 0 ? totalMsgs * 1000 / interval : 0;
+        return true;
+    }
+
+
+    public int getId() {
+        return id;
+    }
+
+
+    public String getTopic() {
+        return topic;
+    }
+
+
+    public String getGroup() {
+        return group;
+    }
+
+
+    public String getKey() {
+        return key;
+    }
+
+
+    public long getPullTps() {
+        return pullTps;
+    }
+}
@@ -12,6 +12,8 @@ import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import com.alibaba.rocketmq.store.GetMessageResult;
+import com.alibaba.rocketmq.store.MapedFile;
+import com.alibaba.rocketmq.store.SelectMapedBufferResult;
 
 
 /**
@@ -21,6 +23,8 @@ import com.alibaba.rocketmq.store.GetMessageResult;
 public class ManyMessageTransfer extends AbstractReferenceCounted implements FileRegion {
     private final ByteBuffer byteBufferHeader;
     private final GetMessageResult getMessageResult;
+    // ֹJITԤ
+    private long touchedChecksum = 0;
 
 
     public ManyMessageTransfer(ByteBuffer byteBufferHeader, GetMessageResult getMessageResult) {
@@ -64,6 +68,29 @@ public class ManyMessageTransfer extends AbstractReferenceCounted implements Fil
     }
 
 
+    /**
+     * ҳһֽڣѲPageCacheеϢڴ棬֮Netty IO߳дʱٶ
+     *
+     * @return ʵҳ
+     */
+    public int touchPages() {
+        int pages = 0;
+        long checksum = 0;
+        for (SelectMapedBufferResult result : this.getMessageResult.getMessageMapedList()) {
+            final ByteBuffer bb = result.getByteBuffer();
+            final long startOffset = result.getStartOffset();
+            int pos = 0;
+            while (pos < result.getSize()) {
+                checksum += bb.get(pos);
+                pages++;
+                pos += MapedFile.OS_PAGE_SIZE - (int) ((startOffset + pos) % MapedFile.OS_PAGE_SIZE);
+            }
+        }
+        this.touchedChecksum += checksum;
+        return pages;
+    }
+
+
     public void close() {
         this.deallocate();
     }
@@ -6,20 +6,28 @@ package com.alibaba.rocketmq.broker.processor;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
 import java.util.Properties;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.TopicConfig;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
+import com.alibaba.rocketmq.common.protocol.body.BrokerStatsData;
+import com.alibaba.rocketmq.common.protocol.body.LockBatchRequestBody;
+import com.alibaba.rocketmq.common.protocol.body.LockBatchResponseBody;
+import com.alibaba.rocketmq.common.protocol.body.UnlockBatchRequestBody;
 import com.alibaba.rocketmq.common.protocol.header.CreateTopicRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.DeleteTopicRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetAllTopicConfigResponseHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetBrokerConfigResponseHeader;
+import com.alibaba.rocketmq.common.protocol.header.GetBrokerStatsDataRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetEarliestMsgStoretimeRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetEarliestMsgStoretimeResponseHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetMaxOffsetRequestHeader;
@@ -95,7 +103,16 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
 
             // ȡBrokerʱϢ
         case GET_BROKER_RUNTIME_INFO:
-            break;
+            return this.getBrokerRuntimeInfo(ctx, request);
+            // ȡTopicСάȵͳ
+        case GET_BROKER_STATS_DATA:
+            return this.getBrokerStatsData(ctx, request);
+
+            // ˳ʱ
+        case LOCK_BATCH_MQ:
+            return this.lockBatchMQ(ctx, request);
+        case UNLOCK_BATCH_MQ:
+            return this.unlockBatchMQ(ctx, request);
 
         case PULL_ALL_CONSUMER_OFFSET:
             break;
@@ -263,9 +280,92 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
     }
 
 
+    private RemotingCommand getBrokerStatsData(ChannelHandlerContext ctx, RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        final GetBrokerStatsDataRequestHeader requestHeader =
+                (GetBrokerStatsDataRequestHeader) request
+                    .decodeCommandCustomHeader(GetBrokerStatsDataRequestHeader.class);
+
+        // ûκιʱвչֶ
+        String topic = null;
+        String group = null;
+        if (requestHeader != null) {
+            topic = requestHeader.getTopic();
+            group = requestHeader.getConsumerGroup();
+        }
+
+        BrokerStatsData statsData =
+                this.brokerController.getBrokerStatsManager().buildBrokerStatsData(topic, group);
+        response.setBody(statsData.encode());
+        response.setCode(ResponseCode.SUCCESS_VALUE);
+        response.setRemark(null);
+        return response;
+    }
+
+
+    private RemotingCommand lockBatchMQ(ChannelHandlerContext ctx, RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        LockBatchRequestBody requestBody = LockBatchRequestBody.decode(request.getBody(), LockBatchRequestBody.class);
+
+        Set<MessageQueue> lockOKMQSet = this.brokerController.getRebalanceLockManager().tryLockBatch(//
+            requestBody.getConsumerGroup(),//
+            requestBody.getMqSet(),//
+            requestBody.getClientId());
+
+        LockBatchResponseBody responseBody = new LockBatchResponseBody();
+        responseBody.setLockOKMQSet(lockOKMQSet);
+
+        response.setBody(responseBody.encode());
+        response.setCode(ResponseCode.SUCCESS_VALUE);
+        response.setRemark(null);
+        return response;
+    }
+
+
+    private RemotingCommand unlockBatchMQ(ChannelHandlerContext ctx, RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        UnlockBatchRequestBody requestBody =
+                UnlockBatchRequestBody.decode(request.getBody(), UnlockBatchRequestBody.class);
+
+        this.brokerController.getRebalanceLockManager().unlockBatch(//
+            requestBody.getConsumerGroup(),//
+            requestBody.getMqSet(),//
+            requestBody.getClientId());
+
+        response.setCode(ResponseCode.SUCCESS_VALUE);
+        response.setRemark(null);
+        return response;
+    }
+
+
     private RemotingCommand getBrokerRuntimeInfo(ChannelHandlerContext ctx, RemotingCommand request) {
         final RemotingCommand response = RemotingCommand.createResponseCommand(null);
 
+        Properties properties = new Properties();
+        // 洢ͳϢ
+        HashMap<String, String> storeRuntimeInfo = this.brokerController.getMessageStore().getRuntimeInfo();
+        if (storeRuntimeInfo != null) {
+            properties.putAll(storeRuntimeInfo);
+        }
+
+        // ̳߳ضжѻ
+        properties.putAll(this.brokerController.getThreadPoolQueueRuntimeInfo());
+
+        String content = MixAll.properties2String(properties);
+        try {
+            response.setBody(content.getBytes(MixAll.DEFAULT_CHARSET));
+        }
+        catch (UnsupportedEncodingException e) {
+            log.error("", e);
+
+            response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+            response.setRemark("UnsupportedEncodingException " + e);
+            return response;
+        }
+
         response.setCode(ResponseCode.SUCCESS_VALUE);
         response.setRemark(null);
         return response;
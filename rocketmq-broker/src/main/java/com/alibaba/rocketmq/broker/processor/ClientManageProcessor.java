@@ -5,13 +5,18 @@ package com.alibaba.rocketmq.broker.processor;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.broker.BrokerController;
 import com.alibaba.rocketmq.broker.client.ClientChannelInfo;
+import com.alibaba.rocketmq.broker.client.ConsumerGroupInfo;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
+import com.alibaba.rocketmq.common.protocol.body.GetConsumerListByGroupResponseBody;
+import com.alibaba.rocketmq.common.protocol.header.GetConsumerListByGroupRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageResponseHeader;
 import com.alibaba.rocketmq.common.protocol.header.UnregisterClientRequestHeader;
@@ -53,6 +58,8 @@ public class ClientManageProcessor implements NettyRequestProcessor {
             return this.heartBeat(ctx, request);
         case UNREGISTER_CLIENT:
             return this.unregisterClient(ctx, request);
+        case GET_CONSUMER_LIST_BY_GROUP:
+            return this.getConsumerListByGroup(ctx, request);
         default:
             break;
         }
@@ -60,6 +67,41 @@ public class ClientManageProcessor implements NettyRequestProcessor {
     }
 
 
+    public RemotingCommand getConsumerListByGroup(ChannelHandlerContext ctx, RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        final GetConsumerListByGroupRequestHeader requestHeader =
+                (GetConsumerListByGroupRequestHeader) request
+                    .decodeCommandCustomHeader(GetConsumerListByGroupRequestHeader.class);
+
+        ConsumerGroupInfo consumerGroupInfo =
+                this.brokerController.getConsumerManager().getConsumerGroupInfo(requestHeader.getConsumerGroup());
+        if (consumerGroupInfo != null) {
+            List<String> clientIds = consumerGroupInfo.getAllClientId();
+            if (!clientIds.isEmpty()) {
+                GetConsumerListByGroupResponseBody body = new GetConsumerListByGroupResponseBody();
+                body.setConsumerIdList(clientIds);
+                response.setBody(body.encode());
+                response.setCode(ResponseCode.SUCCESS_VALUE);
+                response.setRemark(null);
+                return response;
+            }
+            else {
+                log.warn("getAllClientId failed, {} {}", requestHeader.getConsumerGroup(),
+                    RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+            }
+        }
+        else {
+            log.warn("getConsumerGroupInfo failed, {} {}", requestHeader.getConsumerGroup(),
+                RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+        }
+
+        response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+        response.setRemark("no consumer for this group, " + requestHeader.getConsumerGroup());
+        return response;
+    }
+
+
     public RemotingCommand unregisterClient(ChannelHandlerContext ctx, RemotingCommand request)
             throws RemotingCommandException {
         final RemotingCommand response =
@@ -84,7 +126,7 @@ public class ClientManageProcessor implements NettyRequestProcessor {
         }
 
         // עConsumer
-        final String consumerGroup = requestHeader.getProducerGroup();
+        final String consumerGroup = requestHeader.getConsumerGroup();
         if (consumerGroup != null) {
             this.brokerController.getConsumerManager().unregisterConsumer(consumerGroup, clientChannelInfo);
         }
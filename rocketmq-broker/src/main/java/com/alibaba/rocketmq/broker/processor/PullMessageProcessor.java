@@ -7,7 +7,8 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.FileRegion;
+
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +81,65 @@ public class PullMessageProcessor implements NettyRequestProcessor {
     }
 
 
+    /**
+     * ͨsendfileϢɺͷϢ
+     *
+     * @param touchPages
+     *            ǰǷȰϢPageCache
+     */
+    private void transferMessage(final Channel channel, final RemotingCommand response,
+            final GetMessageResult getMessageResult, final boolean touchPages) {
+        try {
+            ManyMessageTransfer fileRegion =
+                    new ManyMessageTransfer(response.encodeHeader(getMessageResult.getBufferTotalSize()),
+                        getMessageResult);
+            if (touchPages) {
+                fileRegion.touchPages();
+            }
+
+            channel.sendFile(fileRegion).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    getMessageResult.release();
+                    if (!future.isSuccess()) {
+                        log.error("transfer many message by pagecache failed, " + channel.remoteAddress(),
+                            future.cause());
+                    }
+                }
+            });
+        }
+        catch (Throwable e) {
+            log.error("", e);
+            getMessageResult.release();
+        }
+    }
+
+
+    /**
+     * ̳߳ԤϢ̳߳ضʱͷϢ
+     *
+     * @return false
+     */
+    private boolean transferMessageByColdRead(final Channel channel, final RemotingCommand response,
+            final GetMessageResult getMessageResult) {
+        try {
+            this.brokerController.getColdReadMessageExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    transferMessage(channel, response, getMessageResult, true);
+                }
+            });
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("too many pulling requests on disk, cold read thread pool is full, "
+                    + channel.remoteAddress());
+            getMessageResult.release();
+            return false;
+        }
+    }
+
+
     private RemotingCommand processRequest(final Channel channel, RemotingCommand request,
             boolean brokerAllowSuspend) throws RemotingCommandException {
         RemotingCommand response = RemotingCommand.createResponseCommand(PullMessageResponseHeader.class);
@@ -188,26 +248,23 @@ public class PullMessageProcessor implements NettyRequestProcessor {
 
             switch (response.getCode()) {
             case ResponseCode.SUCCESS_VALUE:
-                try {
-                    FileRegion fileRegion =
-                            new ManyMessageTransfer(response.encodeHeader(getMessageResult.getBufferTotalSize()),
-                                getMessageResult);
-                    channel.sendFile(fileRegion).addListener(new ChannelFutureListener() {
-                        @Override
-                        public void operationComplete(ChannelFuture future) throws Exception {
-                            getMessageResult.release();
-                            if (!future.isSuccess()) {
-                                log.error("transfer many message by pagecache failed, " + channel.remoteAddress(),
-                                    future.cause());
-                            }
-                        }
-                    });
+                // Ϣڴ棬̳߳жPageCacheٷͣNetty IO߳
+                if (getMessageResult.isMessageInDisk()
+                        && this.brokerController.getBrokerConfig().isColdReadIsolationEnable()) {
+                    if (!this.transferMessageByColdRead(channel, response, getMessageResult)) {
+                        response.setCode(ResponseCode.SYSTEM_BUSY_VALUE);
+                        response.setRemark("[COLD_READ]broker busy, too many pulling requests on disk");
+                        break;
+                    }
                 }
-                catch (Throwable e) {
-                    log.error("", e);
-                    getMessageResult.release();
+                else {
+                    this.transferMessage(channel, response, getMessageResult, false);
                 }
 
+                // ܾʱϢûзͳ
+                this.brokerController.getBrokerStatsManager().incGroupGet(requestHeader.getConsumerGroup(),
+                    requestHeader.getTopic(), requestHeader.getQueueId(), getMessageResult.getMessageCount(),
+                    getMessageResult.getBufferTotalSize());
                 response = null;
                 break;
             case MQResponseCode.PULL_NOT_FOUND_VALUE:
@@ -123,8 +123,10 @@ public class QueryMessageProcessor implements NettyRequestProcessor {
         // ʹsendfileԱҪ
         response.setOpaque(request.getOpaque());
 
+        // ϢеϢOffsetλϢڼеţϣɿͻչ
+        final long phyOffset = requestHeader.getOffset() & MessageDecoder.MessageSetPhysicOffsetMask;
         final SelectMapedBufferResult selectMapedBufferResult =
-                this.brokerController.getMessageStore().selectOneMessageByOffset(requestHeader.getOffset());
+                this.brokerController.getMessageStore().selectOneMessageByOffset(phyOffset);
         if (selectMapedBufferResult != null) {
             // УMessageϷ
             MessageExt msgExt = MessageDecoder.decode(selectMapedBufferResult.getByteBuffer(), true);
@@ -7,20 +7,31 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.Message;
 import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.TopicConfig;
 import com.alibaba.rocketmq.common.TopicFilterType;
+import com.alibaba.rocketmq.common.compress.CompressionCodecs;
+import com.alibaba.rocketmq.common.compress.CompressionType;
 import com.alibaba.rocketmq.common.help.FAQUrl;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
+import com.alibaba.rocketmq.common.protocol.body.SendBatchMessageResponseBody;
+import com.alibaba.rocketmq.common.protocol.header.SendBatchMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageResponseHeader;
 import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
@@ -28,8 +39,10 @@ import com.alibaba.rocketmq.remoting.exception.RemotingCommandException;
 import com.alibaba.rocketmq.remoting.netty.NettyRequestProcessor;
 import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
 import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+import com.alibaba.rocketmq.store.AppendMessageResult;
 import com.alibaba.rocketmq.store.MessageExtBrokerInner;
 import com.alibaba.rocketmq.store.PutMessageResult;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
 
 
 /**
@@ -57,71 +70,438 @@ public class SendMessageProcessor implements NettyRequestProcessor {
     @Override
     public RemotingCommand processRequest(final ChannelHandlerContext ctx, final RemotingCommand request)
             throws RemotingCommandException {
-        final RemotingCommand response = RemotingCommand.createResponseCommand(SendMessageResponseHeader.class);
-        final SendMessageResponseHeader responseHeader = (SendMessageResponseHeader) response.getCustomHeader();
-        final SendMessageRequestHeader requestHeader =
-                (SendMessageRequestHeader) request.decodeCommandCustomHeader(SendMessageRequestHeader.class);
-
-        // ֱӷص߼ԱҪ
-        response.setOpaque(request.getOpaque());
+        // дCommitLogã˵OS PageCacheæֱӾܾͻ˻Broker
+        if (this.brokerController.getMessageStore().isOSPageCacheBusy()) {
+            final RemotingCommand response =
+                    RemotingCommand.createResponseCommand(ResponseCode.SYSTEM_BUSY_VALUE,
+                        "[PC_SYNCHRONIZED]broker busy, start flow control for a while");
+            response.setOpaque(request.getOpaque());
+            return response;
+        }
 
-        if (log.isDebugEnabled()) {
-            log.debug("receive SendMessage request command, " + request);
+        MQRequestCode code = MQRequestCode.valueOf(request.getCode());
+        switch (code) {
+        case SEND_BATCH_MESSAGE:
+            return this.sendBatchMessage(ctx, request);
+        default:
+            break;
         }
 
+        return this.sendMessage(ctx, request);
+    }
+
+
+    /**
+     * BrokerTopicдȨԼЧԣTopicʱԶ
+     *
+     * @return ʧʱresponsenull
+     */
+    private TopicConfig checkTopicAndQueue(final ChannelHandlerContext ctx, final RemotingCommand response,
+            final String topic, final String defaultTopic, final int defaultTopicQueueNums, final int queueId) {
         // BrokerȨ
         if (!MixAll.isWriteable(this.brokerController.getBrokerConfig().getBrokerPermission())) {
             response.setCode(MQResponseCode.NO_PERMISSION_VALUE);
             response.setRemark("the broker[" + this.brokerController.getBrokerConfig().getBrokerIP1()
                     + "] sending message is forbidden");
-            return response;
+            return null;
         }
 
-        final byte[] body = request.getBody();
-
         // TopicǷ뱣ֶγͻ
-        if (!this.brokerController.getTopicConfigManager().isTopicCanSendMessage(requestHeader.getTopic())) {
-            String errorMsg =
-                    "the topic[" + requestHeader.getTopic() + "] is conflict with system reserved words.";
+        if (!this.brokerController.getTopicConfigManager().isTopicCanSendMessage(topic)) {
+            String errorMsg = "the topic[" + topic + "] is conflict with system reserved words.";
             log.warn(errorMsg);
             response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
             response.setRemark(errorMsg);
-            return response;
+            return null;
         }
 
         // topicǷ
-        TopicConfig topicConfig =
-                this.brokerController.getTopicConfigManager().selectTopicConfig(requestHeader.getTopic());
+        TopicConfig topicConfig = this.brokerController.getTopicConfigManager().selectTopicConfig(topic);
         if (null == topicConfig) {
-            log.warn("the topic " + requestHeader.getTopic() + " not exist, producer: "
-                    + ctx.channel().remoteAddress());
+            log.warn("the topic " + topic + " not exist, producer: " + ctx.channel().remoteAddress());
             topicConfig =
-                    this.brokerController.getTopicConfigManager().createTopicInSendMessageMethod(
-                        requestHeader.getTopic(), requestHeader.getDefaultTopic(), ctx,
-                        requestHeader.getDefaultTopicQueueNums());
+                    this.brokerController.getTopicConfigManager().createTopicInSendMessageMethod(topic,
+                        defaultTopic, ctx, defaultTopicQueueNums);
             if (null == topicConfig) {
                 response.setCode(MQResponseCode.TOPIC_NOT_EXIST_VALUE);
                 response.setRemark("topic not exist, apply first please!\n" + FAQUrl.APPLY_TOPIC_URL);
-                return response;
+                return null;
             }
         }
 
         // topicȨ
         if (!MixAll.isWriteable(topicConfig.getPerm())) {
             response.setCode(MQResponseCode.NO_PERMISSION_VALUE);
-            response.setRemark("the topic[" + requestHeader.getTopic() + "] sending message is forbidden");
-            return response;
+            response.setRemark("the topic[" + topic + "] sending message is forbidden");
+            return null;
         }
 
         // Ч
-        int queueIdInt = requestHeader.getQueueId();
-        if (queueIdInt >= topicConfig.getWriteQueueNums()) {
+        if (queueId >= topicConfig.getWriteQueueNums()) {
             String errorInfo =
-                    "queueId[" + queueIdInt + "] is illagal, topicConfig.writeQueueNums: "
+                    "queueId[" + queueId + "] is illagal, topicConfig.writeQueueNums: "
                             + topicConfig.getWriteQueueNums() + " producer: " + ctx.channel().remoteAddress();
             log.warn(errorInfo);
             response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
             response.setRemark(errorInfo);
+            return null;
+        }
+
+        return topicConfig;
+    }
+
+
+    /**
+     * 洢תΪӦ
+     *
+     * @return ϢǷ洢ɹ
+     */
+    private boolean putMessageResult2Response(final PutMessageResult putMessageResult,
+            final RemotingCommand response) {
+        boolean sendOK = false;
+
+        switch (putMessageResult.getPutMessageStatus()) {
+        // Success
+        case PUT_OK:
+            sendOK = true;
+            response.setCode(ResponseCode.SUCCESS_VALUE);
+            break;
+        case FLUSH_DISK_TIMEOUT:
+            response.setCode(MQResponseCode.FLUSH_DISK_TIMEOUT_VALUE);
+            sendOK = true;
+            break;
+        case FLUSH_SLAVE_TIMEOUT:
+            response.setCode(MQResponseCode.FLUSH_SLAVE_TIMEOUT_VALUE);
+            sendOK = true;
+            break;
+        case SLAVE_NOT_AVAILABLE:
+            response.setCode(MQResponseCode.SLAVE_NOT_AVAILABLE_VALUE);
+            sendOK = true;
+            break;
+
+        // Failed
+        case CREATE_MAPEDFILE_FAILED:
+            response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+            response.setRemark("create maped file failed.");
+            break;
+        case MESSAGE_ILLEGAL:
+            response.setCode(MQResponseCode.MESSAGE_ILLEGAL_VALUE);
+            response.setRemark("the message is illegal, maybe length not matched.");
+            break;
+        case SERVICE_NOT_AVAILABLE:
+            response.setCode(MQResponseCode.SERVICE_NOT_AVAILABLE_VALUE);
+            response.setRemark("service not available now.");
+            break;
+        case UNKNOWN_ERROR:
+            response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+            response.setRemark("UNKNOWN_ERROR");
+            break;
+        default:
+            response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+            response.setRemark("UNKNOWN_ERROR DEFAULT");
+            break;
+        }
+
+        return sendOK;
+    }
+
+
+    /**
+     * ֱͻдӦ𣬲Remoting
+     */
+    private void writeResponse(final ChannelHandlerContext ctx, final RemotingCommand request,
+            final RemotingCommand response) {
+        if (!request.isOnewayRPC()) {
+            try {
+                ctx.write(response).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (!future.isSuccess()) {
+                            log.error("SendMessageProcessor response to " + future.channel().remoteAddress()
+                                    + " failed", future.cause());
+                            log.error(request.toString());
+                            log.error(response.toString());
+                        }
+                    }
+                });
+            }
+            catch (Throwable e) {
+                log.error("SendMessageProcessor process request over, but response failed", e);
+                log.error(request.toString());
+                log.error(response.toString());
+            }
+        }
+    }
+
+
+    /**
+     * ϢϢһдCommitLogӦдÿϢĽ
+     */
+    private RemotingCommand sendBatchMessage(final ChannelHandlerContext ctx, final RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(null);
+        final SendBatchMessageRequestHeader requestHeader =
+                (SendBatchMessageRequestHeader) request
+                    .decodeCommandCustomHeader(SendBatchMessageRequestHeader.class);
+
+        // ֱӷص߼ԱҪ
+        response.setOpaque(request.getOpaque());
+
+        int queueIdInt = requestHeader.getQueueId();
+        TopicConfig topicConfig =
+                this.checkTopicAndQueue(ctx, response, requestHeader.getTopic(), requestHeader.getDefaultTopic(),
+                    requestHeader.getDefaultTopicQueueNums(), queueIdInt);
+        if (null == topicConfig) {
+            return response;
+        }
+
+        // ָһ
+        if (queueIdInt < 0) {
+            queueIdInt = Math.abs(this.random.nextInt()) % topicConfig.getWriteQueueNums();
+        }
+
+        // ͻ˷ԭ洢ǶƸʽ
+        final List<byte[]> propertiesDataList = new ArrayList<byte[]>();
+        final List<MessageExt> msgs =
+                null == request.getBody() ? null : MessageDecoder.decodeBatchMessages(
+                    ByteBuffer.wrap(request.getBody()), propertiesDataList);
+        if (null == msgs || msgs.isEmpty()) {
+            response.setCode(MQResponseCode.MESSAGE_ILLEGAL_VALUE);
+            response.setRemark("the batch message body is illegal.");
+            return response;
+        }
+
+        final List<MessageExtBrokerInner> msgInners = new ArrayList<MessageExtBrokerInner>(msgs.size());
+        for (int i = 0; i < msgs.size(); i++) {
+            final MessageExt msg = msgs.get(i);
+            int sysFlag = msg.getSysFlag();
+            // ǩҪλ
+            if (TopicFilterType.MULTI_TAG == topicConfig.getTopicFilterType()) {
+                sysFlag |= MessageSysFlag.MultiTagsFlag;
+            }
+
+            MessageExtBrokerInner msgInner = new MessageExtBrokerInner();
+            msgInner.setTopic(requestHeader.getTopic());
+            msgInner.setBody(msg.getBody());
+            msgInner.setFlag(msg.getFlag());
+            // лԣ洢õԴԭʼɨ
+            msgInner.setPropertiesData(propertiesDataList.get(i));
+            msgInner.setTagsCode(MessageExtBrokerInner.tagsString2tagsCode(topicConfig.getTopicFilterType(),
+                msgInner.getTags()));
+
+            msgInner.setQueueId(queueIdInt);
+            msgInner.setSysFlag(sysFlag);
+            msgInner.setBornTimestamp(requestHeader.getBornTimestamp());
+            msgInner.setBornHost(ctx.channel().remoteAddress());
+            msgInner.setStoreHost(this.getStoreHost());
+
+            msgInner.setReconsumeTimes(0);
+            msgInners.add(msgInner);
+        }
+
+        // ϢѹһϢϴ洢CommitLog紫
+        MessageExtBrokerInner messageSet = null;
+        if (this.canStoreAsMessageSet(msgInners)) {
+            messageSet = this.buildMessageSet(request.getBody(), msgInners);
+        }
+
+        final List<PutMessageResult> putMessageResults =
+                null == messageSet ? this.brokerController.getMessageStore().putMessages(msgInners) : this
+                    .putMessageSet(messageSet, msgInners.size());
+
+        final SendBatchMessageResponseBody responseBody = new SendBatchMessageResponseBody();
+        responseBody.setQueueId(queueIdInt);
+
+        // ӦȡһʧϢĽȫɹȡˢ̽
+        boolean allOK = true;
+        int wroteNums = 0;
+        int wroteBytes = 0;
+        long maxLogicsOffset = -1;
+        for (PutMessageResult putMessageResult : putMessageResults) {
+            if (putMessageResult != null && putMessageResult.isOk()) {
+                AppendMessageResult result = putMessageResult.getAppendMessageResult();
+                responseBody.getMsgIdList().add(result.getMsgId());
+                responseBody.getQueueOffsetList().add(result.getLogicsOffset());
+                wroteNums++;
+                wroteBytes += result.getWroteBytes();
+                maxLogicsOffset = Math.max(maxLogicsOffset, result.getLogicsOffset());
+                if (allOK) {
+                    this.putMessageResult2Response(putMessageResult, response);
+                }
+            }
+            else {
+                responseBody.getMsgIdList().add(null);
+                responseBody.getQueueOffsetList().add(-1L);
+                if (allOK) {
+                    allOK = false;
+                    if (null == putMessageResult) {
+                        response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
+                        response.setRemark("store putMessages return null");
+                    }
+                    else {
+                        this.putMessageResult2Response(putMessageResult, response);
+                    }
+                }
+            }
+        }
+
+        response.setBody(responseBody.encode());
+
+        if (wroteNums > 0) {
+            this.brokerController.getBrokerStatsManager().incTopicPut(requestHeader.getTopic(), queueIdInt,
+                wroteNums, wroteBytes);
+        }
+
+        this.writeResponse(ctx, request, response);
+
+        if (maxLogicsOffset >= 0) {
+            this.brokerController.getPullRequestHoldService().notifyMessageArriving(requestHeader.getTopic(),
+                queueIdInt, maxLogicsOffset);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * ʱϢϢBrokerҪܷϢ<br>
+     * ʱϢIDеŻϢ洢
+     */
+    private boolean canStoreAsMessageSet(final List<MessageExtBrokerInner> msgInners) {
+        final MessageStoreConfig storeConfig = this.brokerController.getMessageStoreConfig();
+        if (!storeConfig.isMessageSetCompressEnable()
+                || msgInners.size() < storeConfig.getMessageSetCompressMinMessages()
+                || msgInners.size() > MessageDecoder.MessageSetMaxMessages) {
+            return false;
+        }
+
+        for (MessageExtBrokerInner msgInner : msgInners) {
+            if (msgInner.getDelayTimeLevel() > 0) {
+                return false;
+            }
+
+            final int tranType = MessageSysFlag.getTransactionValue(msgInner.getSysFlag());
+            if (tranType != MessageSysFlag.TransactionNotType) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * ѿͻ˷ϢѹһϢϣÿϢtagsCodeѹԱַConsumeQueue<br>
+     * ѹûбСKeyʱnullϢ洢
+     */
+    private MessageExtBrokerInner buildMessageSet(final byte[] batchBody,
+            final List<MessageExtBrokerInner> msgInners) {
+        byte[] compressed = null;
+        try {
+            compressed = CompressionCodecs.getCodec(CompressionType.LZ4, 0).compress(batchBody);
+        }
+        catch (IOException e) {
+            log.warn("compress message set error", e);
+            return null;
+        }
+
+        final long[] tagsCodes = new long[msgInners.size()];
+        final StringBuilder keys = new StringBuilder();
+        for (int i = 0; i < msgInners.size(); i++) {
+            MessageExtBrokerInner msgInner = msgInners.get(i);
+            tagsCodes[i] = msgInner.getTagsCode();
+            if (msgInner.getKeys() != null && msgInner.getKeys().length() > 0) {
+                if (keys.length() > 0) {
+                    keys.append(Message.KEY_SEPARATOR);
+                }
+                keys.append(msgInner.getKeys());
+            }
+        }
+
+        final byte[] body = MessageDecoder.encodeMessageSetBody(tagsCodes, compressed);
+        if (body.length >= batchBody.length) {
+            return null;
+        }
+
+        final MessageExtBrokerInner first = msgInners.get(0);
+        final MessageExtBrokerInner messageSet = new MessageExtBrokerInner();
+        messageSet.setTopic(first.getTopic());
+        messageSet.setBody(body);
+        messageSet.setFlag(0);
+        // иϢKeyϲһ𣬰Keyѯʱܲ鵽
+        if (keys.length() > 0) {
+            messageSet.setKeys(keys.toString());
+        }
+        messageSet.setPropertiesString(MessageDecoder.messageProperties2String(messageSet.getProperties()));
+        if (messageSet.getPropertiesString().length() > Short.MAX_VALUE / 2) {
+            return null;
+        }
+
+        messageSet.setTagsCode(tagsCodes[0]);
+        messageSet.setQueueId(first.getQueueId());
+        messageSet.setSysFlag(MessageSysFlag.MessageSetFlag //
+                | (CompressionType.LZ4.getValue() << MessageSysFlag.CompressionTypeShift) //
+                | (first.getSysFlag() & MessageSysFlag.MultiTagsFlag));
+        messageSet.setBornTimestamp(first.getBornTimestamp());
+        messageSet.setBornHost(first.getBornHost());
+        messageSet.setStoreHost(first.getStoreHost());
+        messageSet.setReconsumeTimes(0);
+        return messageSet;
+    }
+
+
+    /**
+     * дϢϣѽչÿϢԵĽputMessagesķֵһ
+     */
+    private List<PutMessageResult> putMessageSet(final MessageExtBrokerInner messageSet, final int count) {
+        final PutMessageResult putMessageResult = this.brokerController.getMessageStore().putMessage(messageSet);
+        final List<PutMessageResult> results = new ArrayList<PutMessageResult>(count);
+        if (null == putMessageResult || !putMessageResult.isOk()) {
+            for (int i = 0; i < count; i++) {
+                results.add(putMessageResult);
+            }
+            return results;
+        }
+
+        final AppendMessageResult setResult = putMessageResult.getAppendMessageResult();
+        final ByteBuffer byteBufferMsgId = ByteBuffer.allocate(MessageDecoder.MSG_ID_LENGTH);
+        for (int i = 0; i < count; i++) {
+            String msgId =
+                    MessageDecoder.createMessageId(byteBufferMsgId, messageSet.getStoreHostBytes(),
+                        MessageDecoder.messageSetInnerOffset(setResult.getWroteOffset(), i));
+            // дֻֽڵһϢϣͳʱظۼ
+            AppendMessageResult result =
+                    new AppendMessageResult(setResult.getStatus(), setResult.getWroteOffset(),
+                        i == 0 ? setResult.getWroteBytes() : 0, msgId, setResult.getStoreTimestamp(),
+                        setResult.getLogicsOffset() + i);
+            results.add(new PutMessageResult(putMessageResult.getPutMessageStatus(), result));
+        }
+
+        return results;
+    }
+
+
+    private RemotingCommand sendMessage(final ChannelHandlerContext ctx, final RemotingCommand request)
+            throws RemotingCommandException {
+        final RemotingCommand response = RemotingCommand.createResponseCommand(SendMessageResponseHeader.class);
+        final SendMessageResponseHeader responseHeader = (SendMessageResponseHeader) response.getCustomHeader();
+        final SendMessageRequestHeader requestHeader =
+                (SendMessageRequestHeader) request.decodeCommandCustomHeader(SendMessageRequestHeader.class);
+
+        // ֱӷص߼ԱҪ
+        response.setOpaque(request.getOpaque());
+
+        if (log.isDebugEnabled()) {
+            log.debug("receive SendMessage request command, " + request);
+        }
+
+        final byte[] body = request.getBody();
+
+        int queueIdInt = requestHeader.getQueueId();
+        TopicConfig topicConfig =
+                this.checkTopicAndQueue(ctx, response, requestHeader.getTopic(), requestHeader.getDefaultTopic(),
+                    requestHeader.getDefaultTopicQueueNums(), queueIdInt);
+        if (null == topicConfig) {
             return response;
         }
 
@@ -140,7 +520,7 @@ public class SendMessageProcessor implements NettyRequestProcessor {
         msgInner.setTopic(requestHeader.getTopic());
         msgInner.setBody(body);
         msgInner.setFlag(requestHeader.getFlag());
-        msgInner.setProperties(MessageDecoder.string2messageProperties(requestHeader.getProperties()));
+        // лԣ洢õԴԭʼɨ
         msgInner.setPropertiesString(requestHeader.getProperties());
         msgInner.setTagsCode(MessageExtBrokerInner.tagsString2tagsCode(topicConfig.getTopicFilterType(),
             msgInner.getTags()));
@@ -155,50 +535,7 @@ public class SendMessageProcessor implements NettyRequestProcessor {
 
         PutMessageResult putMessageResult = this.brokerController.getMessageStore().putMessage(msgInner);
         if (putMessageResult != null) {
-            boolean sendOK = false;
-
-            switch (putMessageResult.getPutMessageStatus()) {
-            // Success
-            case PUT_OK:
-                sendOK = true;
-                response.setCode(ResponseCode.SUCCESS_VALUE);
-                break;
-            case FLUSH_DISK_TIMEOUT:
-                response.setCode(MQResponseCode.FLUSH_DISK_TIMEOUT_VALUE);
-                sendOK = true;
-                break;
-            case FLUSH_SLAVE_TIMEOUT:
-                response.setCode(MQResponseCode.FLUSH_SLAVE_TIMEOUT_VALUE);
-                sendOK = true;
-                break;
-            case SLAVE_NOT_AVAILABLE:
-                response.setCode(MQResponseCode.SLAVE_NOT_AVAILABLE_VALUE);
-                sendOK = true;
-                break;
-
-            // Failed
-            case CREATE_MAPEDFILE_FAILED:
-                response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
-                response.setRemark("create maped file failed.");
-                break;
-            case MESSAGE_ILLEGAL:
-                response.setCode(MQResponseCode.MESSAGE_ILLEGAL_VALUE);
-                response.setRemark("the message is illegal, maybe length not matched.");
-                break;
-            case SERVICE_NOT_AVAILABLE:
-                response.setCode(MQResponseCode.SERVICE_NOT_AVAILABLE_VALUE);
-                response.setRemark("service not available now.");
-                break;
-            case UNKNOWN_ERROR:
-                response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
-                response.setRemark("UNKNOWN_ERROR");
-                break;
-            default:
-                response.setCode(ResponseCode.SYSTEM_ERROR_VALUE);
-                response.setRemark("UNKNOWN_ERROR DEFAULT");
-                break;
-            }
-
+            boolean sendOK = this.putMessageResult2Response(putMessageResult, response);
             if (sendOK) {
                 response.setRemark(null);
 
@@ -206,27 +543,11 @@ public class SendMessageProcessor implements NettyRequestProcessor {
                 responseHeader.setQueueId(queueIdInt);
                 responseHeader.setQueueOffset(putMessageResult.getAppendMessageResult().getLogicsOffset());
 
+                this.brokerController.getBrokerStatsManager().incTopicPut(requestHeader.getTopic(), queueIdInt,
+                    1, putMessageResult.getAppendMessageResult().getWroteBytes());
+
                 // ֱӷ
-                if (!request.isOnewayRPC()) {
-                    try {
-                        ctx.write(response).addListener(new ChannelFutureListener() {
-                            @Override
-                            public void operationComplete(ChannelFuture future) throws Exception {
-                                if (!future.isSuccess()) {
-                                    log.error("SendMessageProcessor response to "
-                                            + future.channel().remoteAddress() + " failed", future.cause());
-                                    log.error(request.toString());
-                                    log.error(response.toString());
-                                }
-                            }
-                        });
-                    }
-                    catch (Throwable e) {
-                        log.error("SendMessageProcessor process request over, but response failed", e);
-                        log.error(request.toString());
-                        log.error(response.toString());
-                    }
-                }
+                this.writeResponse(ctx, request, response);
 
                 this.brokerController.getPullRequestHoldService().notifyMessageArriving(requestHeader.getTopic(),
                     queueIdInt, putMessageResult.getAppendMessageResult().getLogicsOffset());
@@ -0,0 +1,260 @@
+/**
+ * $Id: BrokerStatsManager.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.stats;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.broker.offset.TopicGroupOffset;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.protocol.body.BrokerStatsData;
+import com.alibaba.rocketmq.common.protocol.body.BrokerStatsItem;
+
+
+/**
+ * BrokerTopicСάȵͳƣϢֽTPSԼѶѻ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerStatsManager {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+    // ConsumerOffsetManagerkeyһ
+    public static final String KEY_SEPARATOR = "@";
+    // 
+    private static final long SamplingInterval = 1000 * 10;
+
+    private final BrokerController brokerController;
+
+    // Topicάд룬߳̾ңֶ
+    private final StatsItemSet topicPutStats;
+    // άд롢ȡоңֶΣʡڴ
+    private final StatsItemSet queuePutStats;
+    private final StatsItemSet queueGetStats;
+    // άȶȡkey: topic@group
+    private final StatsItemSet groupGetStats;
+
+    private final ScheduledExecutorService scheduledExecutorService = Executors
+        .newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "BrokerStatsScheduledThread");
+            }
+        });
+
+
+    public BrokerStatsManager(final BrokerController brokerController) {
+        this.brokerController = brokerController;
+        final int maxItemNums = brokerController.getBrokerConfig().getStatsItemMaxNums();
+        this.topicPutStats = new StatsItemSet("TOPIC_PUT", 4, maxItemNums);
+        this.queuePutStats = new StatsItemSet("QUEUE_PUT", 1, maxItemNums);
+        this.queueGetStats = new StatsItemSet("QUEUE_GET", 1, maxItemNums);
+        this.groupGetStats = new StatsItemSet("GROUP_GET", 4, maxItemNums);
+    }
+
+
+    public static String buildKey(final String first, final String second) {
+        return first + KEY_SEPARATOR + second;
+    }
+
+
+    /**
+     * Ϣɹ
+     */
+    public void incTopicPut(final String topic, final int queueId, final int nums, final int bytes) {
+        if (this.brokerController.getBrokerConfig().isBrokerStatsEnable()) {
+            this.topicPutStats.addValue(topic, nums, bytes);
+            this.queuePutStats.addValue(buildKey(topic, String.valueOf(queueId)), nums, bytes);
+        }
+    }
+
+
+    /**
+     * ȡϢ
+     */
+    public void incGroupGet(final String group, final String topic, final int queueId, final int nums,
+            final int bytes) {
+        if (this.brokerController.getBrokerConfig().isBrokerStatsEnable()) {
+            this.groupGetStats.addValue(buildKey(topic, group), nums, bytes);
+            this.queueGetStats.addValue(buildKey(topic, String.valueOf(queueId)), nums, bytes);
+        }
+    }
+
+
+    public void start() {
+        this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    samplingAll();
+                }
+                catch (Throwable e) {
+                    log.error("BrokerStatsManager sampling exception", e);
+                }
+            }
+        }, SamplingInterval, SamplingInterval, TimeUnit.MILLISECONDS);
+
+        this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    removeIdleItems();
+                }
+                catch (Throwable e) {
+                    log.error("BrokerStatsManager remove idle items exception", e);
+                }
+            }
+        }, 1000 * 60, 1000 * 60, TimeUnit.MILLISECONDS);
+    }
+
+
+    public void shutdown() {
+        this.scheduledExecutorService.shutdown();
+    }
+
+
+    private void samplingAll() {
+        final long now = System.currentTimeMillis();
+        this.topicPutStats.samplingAll(now);
+        this.queuePutStats.samplingAll(now);
+        this.queueGetStats.samplingAll(now);
+        this.groupGetStats.samplingAll(now);
+    }
+
+
+    private void removeIdleItems() {
+        final long now = System.currentTimeMillis();
+        final long idle = this.brokerController.getBrokerConfig().getStatsItemIdleTimeMills();
+        this.topicPutStats.removeIdleItems(now, idle);
+        this.queuePutStats.removeIdleItems(now, idle);
+        this.queueGetStats.removeIdleItems(now, idle);
+        this.groupGetStats.removeIdleItems(now, idle);
+    }
+
+
+    private static boolean matchTopic(final String key, final String topic) {
+        return null == topic || key.equals(topic) || key.startsWith(topic + KEY_SEPARATOR);
+    }
+
+
+    private static boolean matchGroup(final String key, final String group) {
+        return null == group || key.endsWith(KEY_SEPARATOR + group);
+    }
+
+
+    private static BrokerStatsItem buildStatsItem(final StatsItem statsItem) {
+        BrokerStatsItem item = new BrokerStatsItem();
+        item.setKey(statsItem.getKey());
+        item.setMsgNums(statsItem.getNums());
+        item.setMsgBytes(statsItem.getBytes());
+        double[] tps = statsItem.computeTpsInMinute();
+        item.setTps(tps[0]);
+        item.setBytesTps(tps[1]);
+        return item;
+    }
+
+
+    private static void fillStatsItems(final StatsItemSet statsItemSet, final String topic,
+            final List<BrokerStatsItem> result) {
+        for (StatsItem statsItem : statsItemSet.getStatsItemTable().values()) {
+            if (matchTopic(statsItem.getKey(), topic)) {
+                result.add(buildStatsItem(statsItem));
+            }
+        }
+    }
+
+
+    /**
+     * 㶩ѶѻÿеOffsetѽ֮ĺ
+     */
+    public long computeLag(final String topic, final long[] offsets) {
+        long lag = 0;
+        for (int queueId = 0; queueId < offsets.length; queueId++) {
+            if (TopicGroupOffset.NoOffset == offsets[queueId]) {
+                continue;
+            }
+            long maxOffset = this.brokerController.getMessageStore().getMaxOffsetInQuque(topic, queueId);
+            long diff = maxOffset - offsets[queueId];
+            if (diff > 0) {
+                lag += diff;
+            }
+        }
+
+        return lag;
+    }
+
+
+    /**
+     * ͳݣtopicgroupΪnullʾ
+     */
+    public BrokerStatsData buildBrokerStatsData(final String topic, final String group) {
+        BrokerStatsData data = new BrokerStatsData();
+        if (null == group) {
+            fillStatsItems(this.topicPutStats, topic, data.getTopicPutStats());
+            fillStatsItems(this.queuePutStats, topic, data.getQueuePutStats());
+            fillStatsItems(this.queueGetStats, topic, data.getQueueGetStats());
+        }
+
+        // ѽȱΪ׼ûȡĶҲҪѻ
+        HashMap<String, BrokerStatsItem> groupItems = new HashMap<String, BrokerStatsItem>();
+        for (TopicGroupOffset topicGroupOffset : this.brokerController.getConsumerOffsetManager()
+            .getOffsetTable()) {
+            final String key = topicGroupOffset.getKey();
+            if (!matchTopic(key, topic) || !matchGroup(key, group)) {
+                continue;
+            }
+
+            StatsItem statsItem = this.groupGetStats.getStatsItem(key);
+            BrokerStatsItem item = null;
+            if (statsItem != null) {
+                item = buildStatsItem(statsItem);
+            }
+            else {
+                item = new BrokerStatsItem();
+                item.setKey(key);
+            }
+            item.setLag(this.computeLag(topicGroupOffset.getTopic(), topicGroupOffset.snapshot()));
+            groupItems.put(key, item);
+        }
+
+        for (StatsItem statsItem : this.groupGetStats.getStatsItemTable().values()) {
+            final String key = statsItem.getKey();
+            if (!groupItems.containsKey(key) && matchTopic(key, topic) && matchGroup(key, group)) {
+                groupItems.put(key, buildStatsItem(statsItem));
+            }
+        }
+        data.getGroupGetStats().addAll(groupItems.values());
+
+        data.setDroppedItemTimes(this.topicPutStats.getDroppedTimes() + this.queuePutStats.getDroppedTimes()
+                + this.queueGetStats.getDroppedTimes() + this.groupGetStats.getDroppedTimes());
+        return data;
+    }
+
+
+    public StatsItemSet getTopicPutStats() {
+        return topicPutStats;
+    }
+
+
+    public StatsItemSet getQueuePutStats() {
+        return queuePutStats;
+    }
+
+
+    public StatsItemSet getQueueGetStats() {
+        return queueGetStats;
+    }
+
+
+    public StatsItemSet getGroupGetStats() {
+        return groupGetStats;
+    }
+}
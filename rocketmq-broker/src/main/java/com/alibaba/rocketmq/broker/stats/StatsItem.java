@@ -0,0 +1,110 @@
+/**
+ * $Id: StatsItem.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.stats;
+
+import com.alibaba.rocketmq.common.stats.StripedCounter;
+
+
+/**
+ * һͳۼϢֽ<br>
+ * д·ֻзֶμۼӣͳ̶߳ʱһӵĲTPS
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StatsItem {
+    // ÿ10һΣ7㣬һ
+    public static final int SnapshotNums = 7;
+
+    private final String key;
+    private final StripedCounter nums;
+    private final StripedCounter bytes;
+
+    // 㻷飬ֻsynchronizedз
+    private final long[] snapshotTimestamp = new long[SnapshotNums];
+    private final long[] snapshotNums = new long[SnapshotNums];
+    private final long[] snapshotBytes = new long[SnapshotNums];
+    private int snapshotIndex = 0;
+    private int snapshotCount = 0;
+
+    // һβʱб仯ʱ䣬ڲԾͳ
+    private volatile long lastActiveTimestamp = System.currentTimeMillis();
+
+
+    public StatsItem(final String key, final int stripes) {
+        this.key = key;
+        this.nums = new StripedCounter(stripes);
+        this.bytes = new StripedCounter(stripes);
+    }
+
+
+    public void add(final long incNums, final long incBytes) {
+        this.nums.add(incNums);
+        this.bytes.add(incBytes);
+    }
+
+
+    /**
+     * ͳ̶߳ʱ
+     */
+    public synchronized void sampling(final long now) {
+        final long currentNums = this.nums.get();
+        final long currentBytes = this.bytes.get();
+
+        if (this.snapshotCount > 0) {
+            final int last = (this.snapshotIndex + SnapshotNums - 1) % SnapshotNums;
+            if (currentNums != this.snapshotNums[last] || currentBytes != this.snapshotBytes[last]) {
+                this.lastActiveTimestamp = now;
+            }
+        }
+
+        this.snapshotTimestamp[this.snapshotIndex] = now;
+        this.snapshotNums[this.snapshotIndex] = currentNums;
+        this.snapshotBytes[this.snapshotIndex] = currentBytes;
+        this.snapshotIndex = (this.snapshotIndex + 1) % SnapshotNums;
+        if (this.snapshotCount < SnapshotNums) {
+            this.snapshotCount++;
+        }
+    }
+
+
+    /**
+     * һڵÿÿֽ㲻ʱ0
+     * 
+     * @return [tps, bytesTps]
+     */
+    public synchronized double[] computeTpsInMinute() {
+        double[] result = new double[] { 0, 0 };
+        if (this.snapshotCount >= 2) {
+            final int newest = (this.snapshotIndex + SnapshotNums - 1) % SnapshotNums;
+            final int oldest = (this.snapshotIndex + SnapshotNums - this.snapshotCount) % SnapshotNums;
+            final long interval = this.snapshotTimestamp[newest] - this.snapshotTimestamp[oldest];
+            if (interval > 0) {
+                result[0] = (this.snapshotNums[newest] - this.snapshotNums[oldest]) * 1000.0 / interval;
+                result[1] = (this.snapshotBytes[newest] - this.snapshotBytes[oldest]) * 1000.0 / interval;
+            }
+        }
+
+        return result;
+    }
+
+
+    public String getKey() {
+        return key;
+    }
+
+
+    public long getNums() {
+        return this.nums.get();
+    }
+
+
+    public long getBytes() {
+        return this.bytes.get();
+    }
+
+
+    public long getLastActiveTimestamp() {
+        return lastActiveTimestamp;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * $Id: StatsItemSet.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.stats;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MixAll;
+
+
+/**
+ * ͬһͳļϣͳޣ޵keyͳƣֻ¼
+ * ڲԾͳᱻ֤TopicܶʱڴҲн
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StatsItemSet {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.BrokerLoggerName);
+
+    private final String statsName;
+    // ÿͳķֶ
+    private final int stripes;
+    private final int maxItemNums;
+    private final ConcurrentHashMap<String, StatsItem> statsItemTable;
+    private final AtomicLong droppedTimes = new AtomicLong(0);
+
+
+    public StatsItemSet(final String statsName, final int stripes, final int maxItemNums) {
+        this.statsName = statsName;
+        this.stripes = stripes;
+        this.maxItemNums = maxItemNums;
+        this.statsItemTable = new ConcurrentHashMap<String, StatsItem>(Math.min(maxItemNums, 1024));
+    }
+
+
+    public void addValue(final String key, final long incNums, final long incBytes) {
+        StatsItem statsItem = this.getAndCreateStatsItem(key);
+        if (statsItem != null) {
+            statsItem.add(incNums, incBytes);
+        }
+    }
+
+
+    /**
+     * ͳﵽʱnull
+     */
+    public StatsItem getAndCreateStatsItem(final String key) {
+        StatsItem statsItem = this.statsItemTable.get(key);
+        if (null == statsItem) {
+            if (this.statsItemTable.size() >= this.maxItemNums) {
+                if (this.droppedTimes.getAndIncrement() % 10000 == 0) {
+                    log.warn("stats[" + this.statsName + "] item nums reach the limit " + this.maxItemNums
+                            + ", ignore key " + key);
+                }
+                return null;
+            }
+
+            statsItem = new StatsItem(key, this.stripes);
+            StatsItem prev = this.statsItemTable.putIfAbsent(key, statsItem);
+            if (prev != null) {
+                statsItem = prev;
+            }
+        }
+
+        return statsItem;
+    }
+
+
+    public void samplingAll(final long now) {
+        for (StatsItem statsItem : this.statsItemTable.values()) {
+            statsItem.sampling(now);
+        }
+    }
+
+
+    /**
+     * idleTimeMillsûб仯ͳ
+     * 
+     * @return ĸ
+     */
+    public int removeIdleItems(final long now, final long idleTimeMills) {
+        int removed = 0;
+        Iterator<Entry<String, StatsItem>> it = this.statsItemTable.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<String, StatsItem> next = it.next();
+            if ((now - next.getValue().getLastActiveTimestamp()) > idleTimeMills) {
+                it.remove();
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            log.info("stats[" + this.statsName + "] remove " + removed + " idle items, remain "
+                    + this.statsItemTable.size());
+        }
+
+        return removed;
+    }
+
+
+    public StatsItem getStatsItem(final String key) {
+        return this.statsItemTable.get(key);
+    }
+
+
+    public ConcurrentHashMap<String, StatsItem> getStatsItemTable() {
+        return statsItemTable;
+    }
+
+
+    public long getDroppedTimes() {
+        return droppedTimes.get();
+    }
+
+
+    public String getStatsName() {
+        return statsName;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * $Id: ConsumerManagerTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundMessageHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedMessageChannel;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.protocol.heartbeat.ConsumeType;
+import com.alibaba.rocketmq.common.protocol.heartbeat.MessageModel;
+import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.LanguageCode;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumerManagerTest {
+    private static final String Group = "test_consumer_group";
+
+    private final List<Integer> notifyChannelCounts = new ArrayList<Integer>();
+    private final ConsumerManager consumerManager = new ConsumerManager(new ConsumerIdsChangeListener() {
+        @Override
+        public void consumerIdsChanged(String group, List<Channel> channels) {
+            notifyChannelCounts.add(channels.size());
+        }
+    });
+
+
+    private static Channel newChannel() {
+        return new EmbeddedMessageChannel(new ChannelInboundMessageHandlerAdapter<Object>() {
+            @Override
+            public void messageReceived(ChannelHandlerContext ctx, Object msg) throws Exception {
+            }
+        });
+    }
+
+
+    private boolean register(final ClientChannelInfo clientChannelInfo) {
+        return this.consumerManager.registerConsumer(Group, clientChannelInfo, ConsumeType.CONSUME_PASSIVELY,
+            MessageModel.CLUSTERING, new HashSet<SubscriptionData>());
+    }
+
+
+    @Test
+    public void test_consumerIdsChanged() {
+        ClientChannelInfo c1 = new ClientChannelInfo(newChannel(), "127.0.0.1@c1", LanguageCode.JAVA, 0);
+        ClientChannelInfo c2 = new ClientChannelInfo(newChannel(), "127.0.0.1@c2", LanguageCode.JAVA, 0);
+
+        assertTrue(this.register(c2));
+        assertTrue(this.register(c1));
+        // ֪ͨ
+        assertFalse(this.register(c1));
+        assertEquals(2, this.notifyChannelCounts.size());
+        assertEquals(2, this.notifyChannelCounts.get(1).intValue());
+
+        List<String> cids = this.consumerManager.getConsumerGroupInfo(Group).getAllClientId();
+        assertEquals(2, cids.size());
+        assertEquals("127.0.0.1@c1", cids.get(0));
+
+        this.consumerManager.unregisterConsumer(Group, c1);
+        assertEquals(3, this.notifyChannelCounts.size());
+        assertEquals(1, this.notifyChannelCounts.get(2).intValue());
+
+        this.consumerManager.doChannelCloseEvent("127.0.0.1", c2.getChannel());
+        assertEquals(4, this.notifyChannelCounts.size());
+        assertEquals(0, this.notifyChannelCounts.get(3).intValue());
+
+        // ѾƳٴιرղ֪ͨ
+        this.consumerManager.doChannelCloseEvent("127.0.0.1", c2.getChannel());
+        assertEquals(4, this.notifyChannelCounts.size());
+    }
+}
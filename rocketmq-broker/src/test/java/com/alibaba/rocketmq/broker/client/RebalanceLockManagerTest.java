@@ -0,0 +1,63 @@
+/**
+ * $Id: RebalanceLockManagerTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.MessageQueue;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RebalanceLockManagerTest {
+    private static Set<MessageQueue> buildMessageQueues(final int begin, final int nums) {
+        Set<MessageQueue> mqs = new HashSet<MessageQueue>();
+        for (int i = begin; i < begin + nums; i++) {
+            mqs.add(new MessageQueue("TopicTest", "broker-a", i));
+        }
+        return mqs;
+    }
+
+
+    @Test
+    public void test_tryLockBatch_oneQueueOneClient() {
+        RebalanceLockManager lockManager = new RebalanceLockManager();
+
+        Set<MessageQueue> lockedA = lockManager.tryLockBatch("GroupA", buildMessageQueues(0, 4), "clientA");
+        assertEquals(4, lockedA.size());
+
+        // ѾclientAסĶУclientB
+        Set<MessageQueue> lockedB = lockManager.tryLockBatch("GroupA", buildMessageQueues(2, 4), "clientB");
+        assertEquals(buildMessageQueues(4, 2), lockedB);
+
+        // 
+        lockedA = lockManager.tryLockBatch("GroupA", buildMessageQueues(0, 4), "clientA");
+        assertEquals(4, lockedA.size());
+
+        // ͬĶ黥Ӱ
+        assertEquals(4, lockManager.tryLockBatch("GroupB", buildMessageQueues(0, 4), "clientB").size());
+    }
+
+
+    @Test
+    public void test_unlockBatch_onlyOwner() {
+        RebalanceLockManager lockManager = new RebalanceLockManager();
+        lockManager.tryLockBatch("GroupA", buildMessageQueues(0, 4), "clientA");
+
+        // Լⲻ
+        lockManager.unlockBatch("GroupA", buildMessageQueues(0, 4), "clientB");
+        assertTrue(lockManager.tryLockBatch("GroupA", buildMessageQueues(0, 4), "clientB").isEmpty());
+
+        lockManager.unlockBatch("GroupA", buildMessageQueues(0, 2), "clientA");
+        assertEquals(buildMessageQueues(0, 2),
+            lockManager.tryLockBatch("GroupA", buildMessageQueues(0, 4), "clientB"));
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * $Id: BrokerFastFailureTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.latency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.BrokerConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.remoting.netty.RequestTask;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerFastFailureTest {
+    private static RequestTask newOnewayTask() {
+        RemotingCommand request = RemotingCommand.createRequestCommand(10, null);
+        request.markOnewayRPC();
+        return new RequestTask(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, null, request);
+    }
+
+
+    @Test
+    public void test_cleanExpiredRequestInQueue() throws Exception {
+        BrokerController brokerController =
+                new BrokerController(new BrokerConfig(), new NettyServerConfig(), new MessageStoreConfig());
+        BrokerFastFailure brokerFastFailure = new BrokerFastFailure(brokerController);
+
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>(100);
+        RequestTask expired = newOnewayTask();
+        queue.add(expired);
+        Thread.sleep(50);
+        RequestTask fresh = newOnewayTask();
+        queue.add(fresh);
+
+        assertTrue(BrokerFastFailure.headWaitTimeMills(queue) >= 50);
+
+        brokerFastFailure.cleanExpiredRequestInQueue(queue, 30);
+
+        // ֻȴֵ
+        assertEquals(1, queue.size());
+        assertTrue(expired.isStopRun());
+        assertTrue(!fresh.isStopRun());
+        assertTrue(queue.peek() == fresh);
+    }
+}
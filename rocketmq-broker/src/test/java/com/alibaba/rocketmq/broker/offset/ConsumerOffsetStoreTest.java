@@ -0,0 +1,177 @@
+/**
+ * $Id: ConsumerOffsetStoreTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.offset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.BrokerConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumerOffsetStoreTest {
+    private static ConsumerOffsetManager createConsumerOffsetManager(final String storePath) {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setConsumerOffsetPath(storePath + File.separator + "consumeroffset.properties");
+        brokerConfig.setConsumerOffsetStorePath(storePath);
+        // ־Сύжѹ
+        brokerConfig.setConsumerOffsetLogFileSize(1024);
+        BrokerController brokerController =
+                new BrokerController(brokerConfig, new NettyServerConfig(), new MessageStoreConfig());
+        return new ConsumerOffsetManager(brokerController);
+    }
+
+
+    private static Map<String, String> toMap(final ConsumerOffsetManager manager) {
+        Map<String, String> map = new HashMap<String, String>();
+        for (TopicGroupOffset topicGroupOffset : manager.getOffsetTable()) {
+            // 鳤˳йأֻȽнȵĲ
+            long[] offsets = topicGroupOffset.snapshot();
+            int length = offsets.length;
+            while (length > 0 && TopicGroupOffset.NoOffset == offsets[length - 1]) {
+                length--;
+            }
+            map.put(topicGroupOffset.getKey(), Arrays.toString(Arrays.copyOf(offsets, length)));
+        }
+        return map;
+    }
+
+
+    @Test
+    public void test_commitAndReload() throws Exception {
+        final String storePath =
+                System.getProperty("java.io.tmpdir") + File.separator + "consumeroffset_"
+                        + System.currentTimeMillis();
+
+        ConsumerOffsetManager manager = createConsumerOffsetManager(storePath);
+        assertTrue(manager.load());
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            manager.commitOffset("GROUP_" + random.nextInt(10), "TOPIC_" + random.nextInt(3),
+                random.nextInt(40), i);
+        }
+        manager.flushLog();
+
+        // shutdownģ̱¼
+        ConsumerOffsetManager reloaded = createConsumerOffsetManager(storePath);
+        assertTrue(reloaded.load());
+        assertEquals(toMap(manager), toMap(reloaded));
+
+        // ѹ׷ӣٴμ
+        reloaded.commitOffset("GROUP_0", "TOPIC_0", 0, 100000);
+        reloaded.shutdown();
+        ConsumerOffsetManager again = createConsumerOffsetManager(storePath);
+        assertTrue(again.load());
+        assertEquals(100000, again.queryOffset("GROUP_0", "TOPIC_0", 0));
+        assertEquals(toMap(reloaded), toMap(again));
+    }
+
+
+    @Test
+    public void test_tornRecord() throws Exception {
+        final String storePath =
+                System.getProperty("java.io.tmpdir") + File.separator + "consumeroffset_torn_"
+                        + System.currentTimeMillis();
+
+        ConsumerOffsetManager manager = createConsumerOffsetManager(storePath);
+        assertTrue(manager.load());
+        manager.commitOffset("GROUP_A", "TOPIC_A", 0, 100);
+        manager.flushLog();
+        manager.commitOffset("GROUP_A", "TOPIC_A", 1, 200);
+        manager.flushLog();
+
+        // ־ļͷּ¼0Ľȼ¼1Ľȼ¼ģһ¼ֻһ
+        final int nameRecordSize = 1 + 4 + 2 + "TOPIC_A@GROUP_A".length() + 4;
+        final int offsetRecordSize = 1 + 4 + 4 + 8 + 4;
+        RandomAccessFile logFile = new RandomAccessFile(storePath + File.separator + "offset.log", "rw");
+        try {
+            logFile.seek(4 + 8 + nameRecordSize + offsetRecordSize + 9);
+            logFile.writeLong(0);
+        }
+        finally {
+            logFile.close();
+        }
+
+        // Уʧܵļ¼ԣ֮ǰļ¼
+        ConsumerOffsetManager reloaded = createConsumerOffsetManager(storePath);
+        assertTrue(reloaded.load());
+        assertEquals(100, reloaded.queryOffset("GROUP_A", "TOPIC_A", 0));
+        assertEquals(TopicGroupOffset.NoOffset, reloaded.queryOffset("GROUP_A", "TOPIC_A", 1));
+
+        reloaded.commitOffset("GROUP_A", "TOPIC_A", 1, 300);
+        reloaded.flushLog();
+        ConsumerOffsetManager again = createConsumerOffsetManager(storePath);
+        assertTrue(again.load());
+        assertEquals(100, again.queryOffset("GROUP_A", "TOPIC_A", 0));
+        assertEquals(300, again.queryOffset("GROUP_A", "TOPIC_A", 1));
+    }
+
+
+    @Test
+    public void test_compactFailedWhenLogFull() throws Exception {
+        final String storePath =
+                System.getProperty("java.io.tmpdir") + File.separator + "consumeroffset_compact_"
+                        + System.currentTimeMillis();
+
+        ConsumerOffsetManager manager = createConsumerOffsetManager(storePath);
+        assertTrue(manager.load());
+
+        // ʱļλñĿ¼ռãѹʧ
+        File tmp = new File(storePath + File.separator + "offset.snapshot.tmp");
+        assertTrue(tmp.mkdirs());
+
+        // ־ŲȫеĽ
+        for (int queueId = 0; queueId < 100; queueId++) {
+            manager.commitOffset("GROUP_A", "TOPIC_A", queueId, queueId * 10 + 1);
+        }
+        manager.flushLog();
+
+        // ûдȥĽȻڴдУѹָд
+        assertTrue(tmp.delete());
+        manager.flushLog();
+
+        ConsumerOffsetManager reloaded = createConsumerOffsetManager(storePath);
+        assertTrue(reloaded.load());
+        for (int queueId = 0; queueId < 100; queueId++) {
+            assertEquals(queueId * 10 + 1, reloaded.queryOffset("GROUP_A", "TOPIC_A", queueId));
+        }
+    }
+
+
+    @Test
+    public void test_loadBakSnapshot() throws Exception {
+        final String storePath =
+                System.getProperty("java.io.tmpdir") + File.separator + "consumeroffset_bak_"
+                        + System.currentTimeMillis();
+
+        ConsumerOffsetManager manager = createConsumerOffsetManager(storePath);
+        assertTrue(manager.load());
+        manager.commitOffset("GROUP_A", "TOPIC_A", 0, 100);
+        manager.shutdown();
+
+        // ģ滻ʱɿѸΪbak¿ջûλʱ
+        File snapshot = new File(storePath + File.separator + "offset.snapshot");
+        assertTrue(snapshot.renameTo(new File(storePath + File.separator + "offset.snapshot.bak")));
+
+        ConsumerOffsetManager reloaded = createConsumerOffsetManager(storePath);
+        assertTrue(reloaded.load());
+        assertEquals(100, reloaded.queryOffset("GROUP_A", "TOPIC_A", 0));
+        assertTrue(snapshot.exists());
+    }
+}
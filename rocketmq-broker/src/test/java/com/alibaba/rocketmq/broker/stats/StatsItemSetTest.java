@@ -0,0 +1,70 @@
+/**
+ * $Id: StatsItemSetTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.broker.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StatsItemSetTest {
+    @Test
+    public void test_maxItemNums() {
+        StatsItemSet set = new StatsItemSet("TEST", 1, 2);
+        set.addValue("TopicA", 1, 100);
+        set.addValue("TopicB", 1, 100);
+        set.addValue("TopicC", 1, 100);
+        set.addValue("TopicA", 1, 100);
+
+        assertEquals(2, set.getStatsItemTable().size());
+        assertNull(set.getStatsItem("TopicC"));
+        assertEquals(1, set.getDroppedTimes());
+        assertEquals(2, set.getStatsItem("TopicA").getNums());
+        assertEquals(200, set.getStatsItem("TopicA").getBytes());
+    }
+
+
+    @Test
+    public void test_tpsInMinute() {
+        StatsItemSet set = new StatsItemSet("TEST", 4, 100);
+        StatsItem item = set.getAndCreateStatsItem("TopicA");
+        long now = 1000000;
+        set.samplingAll(now);
+        // ֻһ
+        assertEquals(0, item.computeTpsInMinute()[0], 0.001);
+
+        // 10ڣÿ1001000ֽڣֻһ
+        for (int i = 1; i <= 10; i++) {
+            item.add(100, 1000);
+            set.samplingAll(now + i * 10000);
+        }
+
+        double[] tps = item.computeTpsInMinute();
+        assertEquals(10, tps[0], 0.001);
+        assertEquals(100, tps[1], 0.001);
+    }
+
+
+    @Test
+    public void test_removeIdleItems() {
+        StatsItemSet set = new StatsItemSet("TEST", 1, 100);
+        long now = System.currentTimeMillis();
+        set.addValue("TopicA", 1, 1);
+        set.addValue("TopicB", 1, 1);
+        set.samplingAll(now);
+
+        // TopicAһֱݣTopicBٱ仯
+        set.addValue("TopicA", 1, 1);
+        set.samplingAll(now + 60000);
+
+        assertEquals(1, set.removeIdleItems(now + 60000, 30000));
+        assertTrue(set.getStatsItem("TopicA") != null);
+        assertNull(set.getStatsItem("TopicB"));
+    }
+}
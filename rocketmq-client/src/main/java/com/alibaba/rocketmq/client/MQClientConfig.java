@@ -22,6 +22,8 @@ public class MQClientConfig {
     private String clientIP = RemotingUtil.getLocalAddress();
     private String instanceName = System.getProperty("rocketmq.client.name", "DEFAULT");
     private int clientCallbackExecutorThreads = 5;
+    // ÿBroker
+    private int clientChannelPoolSize = 1;
     private int pollNameServerInteval = 1000 * 30;
     private int heartbeatBrokerInterval = 1000 * 30;
     private int uploadConsumerOffsetInterval = 1000 * 5;
@@ -93,6 +95,16 @@ public class MQClientConfig {
     }
 
 
+    public int getClientChannelPoolSize() {
+        return clientChannelPoolSize;
+    }
+
+
+    public void setClientChannelPoolSize(int clientChannelPoolSize) {
+        this.clientChannelPoolSize = clientChannelPoolSize;
+    }
+
+
     public int getPollNameServerInteval() {
         return pollNameServerInteval;
     }
@@ -127,8 +139,9 @@ public class MQClientConfig {
     public String toString() {
         return "MQClientConfig [namesrvAddr=" + namesrvAddr + ", logFileName=" + logFileName + ", logLevel="
                 + logLevel + ", clientIP=" + clientIP + ", instanceName=" + instanceName
-                + ", clientCallbackExecutorThreads=" + clientCallbackExecutorThreads + ", pollNameServerInteval="
-                + pollNameServerInteval + ", heartbeatBrokerInterval=" + heartbeatBrokerInterval
+                + ", clientCallbackExecutorThreads=" + clientCallbackExecutorThreads + ", clientChannelPoolSize="
+                + clientChannelPoolSize + ", pollNameServerInteval=" + pollNameServerInteval
+                + ", heartbeatBrokerInterval=" + heartbeatBrokerInterval
                 + ", uploadConsumerOffsetInterval=" + uploadConsumerOffsetInterval + "]";
     }
 
@@ -138,6 +151,7 @@ public class MQClientConfig {
         final int prime = 31;
         int result = 1;
         result = prime * result + clientCallbackExecutorThreads;
+        result = prime * result + clientChannelPoolSize;
         result = prime * result + ((clientIP == null) ? 0 : clientIP.hashCode());
         result = prime * result + heartbeatBrokerInterval;
         result = prime * result + ((instanceName == null) ? 0 : instanceName.hashCode());
@@ -161,6 +175,8 @@ public class MQClientConfig {
         MQClientConfig other = (MQClientConfig) obj;
         if (clientCallbackExecutorThreads != other.clientCallbackExecutorThreads)
             return false;
+        if (clientChannelPoolSize != other.clientChannelPoolSize)
+            return false;
         if (clientIP == null) {
             if (other.clientIP != null)
                 return false;
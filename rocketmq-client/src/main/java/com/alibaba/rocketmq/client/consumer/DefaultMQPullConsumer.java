@@ -11,6 +11,7 @@ import com.alibaba.rocketmq.client.MQClientConfig;
 import com.alibaba.rocketmq.client.QueryResult;
 import com.alibaba.rocketmq.client.exception.MQBrokerException;
 import com.alibaba.rocketmq.client.exception.MQClientException;
+import com.alibaba.rocketmq.client.consumer.loadbalance.AllocateMessageQueueAveragely;
 import com.alibaba.rocketmq.client.impl.consumer.DefaultMQPullConsumerImpl;
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MixAll;
@@ -54,10 +55,19 @@ public class DefaultMQPullConsumer implements MQPullConsumer {
      * б仯
      */
     private MessageQueueListener messageQueueListener;
+    /**
+     * з㷨fetchMessageQueuesInBalanceʹ
+     */
+    private AllocateMessageQueueStrategy allocateMessageQueueStrategy = new AllocateMessageQueueAveragely();
     /**
      * ҪЩTopicĶб仯
      */
     private Set<String> registerTopics = new HashSet<String>();
+    /**
+     * ϢǷӳٽ룬ϢֱӦݣֶڵһηʱŽ<br>
+     * ʺֻȡϢ򲿷ֶεĳϢͨLazyMessageExt.getBodyBuffer޿ȡ
+     */
+    private boolean decodeMessageLazily = false;
 
     private final transient DefaultMQPullConsumerImpl defaultMQPullConsumerImpl = new DefaultMQPullConsumerImpl(
         this);
@@ -244,6 +254,16 @@ public class DefaultMQPullConsumer implements MQPullConsumer {
     }
 
 
+    public AllocateMessageQueueStrategy getAllocateMessageQueueStrategy() {
+        return allocateMessageQueueStrategy;
+    }
+
+
+    public void setAllocateMessageQueueStrategy(AllocateMessageQueueStrategy allocateMessageQueueStrategy) {
+        this.allocateMessageQueueStrategy = allocateMessageQueueStrategy;
+    }
+
+
     public MessageQueueListener getMessageQueueListener() {
         return messageQueueListener;
     }
@@ -278,4 +298,14 @@ public class DefaultMQPullConsumer implements MQPullConsumer {
     public void setConsumeFromWhichNode(ConsumeFromWhichNode consumeFromWhichNode) {
         this.consumeFromWhichNode = consumeFromWhichNode;
     }
+
+
+    public boolean isDecodeMessageLazily() {
+        return decodeMessageLazily;
+    }
+
+
+    public void setDecodeMessageLazily(boolean decodeMessageLazily) {
+        this.decodeMessageLazily = decodeMessageLazily;
+    }
 }
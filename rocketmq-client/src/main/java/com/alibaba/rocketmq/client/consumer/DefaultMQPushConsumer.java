@@ -18,6 +18,7 @@ import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.TopicFilterType;
+import com.alibaba.rocketmq.common.protocol.heartbeat.MessageModel;
 import com.alibaba.rocketmq.remoting.exception.RemotingException;
 
 
@@ -36,6 +37,10 @@ public class DefaultMQPushConsumer implements MQPushConsumer {
      * ͬConsumerΪͬһGroupӦñã֤Ψһ
      */
     private String consumerGroup = MixAll.DEFAULT_CONSUMER_GROUP;
+    /**
+     * ϢģͣȺʱͬһGroupConsumer̯У㲥ʱÿConsumerж
+     */
+    private MessageModel messageModel = MessageModel.CLUSTERING;
     /**
      * ConsumerMasterSlaveϢ
      */
@@ -72,6 +77,18 @@ public class DefaultMQPushConsumer implements MQPushConsumer {
      * Ϣһ
      */
     private int pullBatchSize = 32;
+    /**
+     * ϢضлϢ
+     */
+    private int pullThresholdForQueue = 1000;
+    /**
+     * ϢضлϢСλMB
+     */
+    private int pullThresholdSizeForQueue = 100;
+    /**
+     * ѣʧܵϢڱѵӡ־
+     */
+    private int maxReconsumeTimes = 16;
 
     private final transient DefaultMQPushConsumerImpl defaultMQPushConsumerImpl = new DefaultMQPushConsumerImpl(
         this);
@@ -89,120 +106,205 @@ public class DefaultMQPushConsumer implements MQPushConsumer {
 
     @Override
     public void sendMessageBack(MessageExt msg, MessageQueue mq, int delayLevel) {
-        // TODO Auto-generated method stub
+        this.defaultMQPushConsumerImpl.sendMessageBack(msg, mq, delayLevel);
     }
 
 
     @Override
     public void createTopic(String key, String newTopic, int queueNum, TopicFilterType topicFilterType,
             boolean order) throws MQClientException {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.createTopic(key, newTopic, queueNum, topicFilterType, order);
     }
 
 
     @Override
     public long searchOffset(MessageQueue mq, long timestamp) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        return this.defaultMQPushConsumerImpl.searchOffset(mq, timestamp);
     }
 
 
     @Override
     public long getMaxOffset(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        return this.defaultMQPushConsumerImpl.getMaxOffset(mq);
     }
 
 
     @Override
     public long getMinOffset(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        return this.defaultMQPushConsumerImpl.getMinOffset(mq);
     }
 
 
     @Override
     public long getEarliestMsgStoreTime(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        return this.defaultMQPushConsumerImpl.getEarliestMsgStoreTime(mq);
     }
 
 
     @Override
     public MessageExt viewMessage(String msgId) throws RemotingException, MQBrokerException, InterruptedException,
             MQClientException {
-        // TODO Auto-generated method stub
-        return null;
+        return this.defaultMQPushConsumerImpl.viewMessage(msgId);
     }
 
 
     @Override
     public QueryResult queryMessage(String topic, String key, int maxNum, long begin, long end)
             throws MQClientException, InterruptedException {
-        // TODO Auto-generated method stub
-        return null;
+        return this.defaultMQPushConsumerImpl.queryMessage(topic, key, maxNum, begin, end);
     }
 
 
     @Override
-    public void start() {
-        // TODO Auto-generated method stub
-
+    public void start() throws MQClientException {
+        this.defaultMQPushConsumerImpl.start();
     }
 
 
     @Override
     public void shutdown() {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.shutdown();
     }
 
 
     @Override
     public void registerMessageListener(MessageListener messageListener) {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.registerMessageListener(messageListener);
     }
 
 
     @Override
     public void subscribe(String topic, String subExpression) {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.subscribe(topic, subExpression);
     }
 
 
     @Override
     public void unsubscribe(String topic) {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.unsubscribe(topic);
     }
 
 
     @Override
     public void suspend() {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.suspend();
     }
 
 
     @Override
     public void resume() {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumerImpl.resume();
     }
 
 
     @Override
     public List<MessageQueue> fetchSubscribeMessageQueues(String topic) throws MQClientException {
-        // TODO Auto-generated method stub
-        return null;
+        return this.defaultMQPushConsumerImpl.fetchSubscribeMessageQueues(topic);
     }
 
 
     // ////////////////////////////////////////////////////////////////////////
 
+    public MQClientConfig getMQClientConfig() {
+        return mQClientConfig;
+    }
+
+
+    public void setMQClientConfig(MQClientConfig mQClientConfig) {
+        this.mQClientConfig = mQClientConfig;
+    }
+
+
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+
+    public void setConsumerGroup(String consumerGroup) {
+        this.consumerGroup = consumerGroup;
+    }
+
+
+    public ConsumeFromWhichNode getConsumeFromWhichNode() {
+        return consumeFromWhichNode;
+    }
+
+
+    public void setConsumeFromWhichNode(ConsumeFromWhichNode consumeFromWhichNode) {
+        this.consumeFromWhichNode = consumeFromWhichNode;
+    }
+
+
+    public ConsumeFromWhereOffset getConsumeFromWhereOffset() {
+        return consumeFromWhereOffset;
+    }
+
+
+    public void setConsumeFromWhereOffset(ConsumeFromWhereOffset consumeFromWhereOffset) {
+        this.consumeFromWhereOffset = consumeFromWhereOffset;
+    }
+
+
+    public AllocateMessageQueueStrategy getAllocateMessageQueueStrategy() {
+        return allocateMessageQueueStrategy;
+    }
+
+
+    public void setAllocateMessageQueueStrategy(AllocateMessageQueueStrategy allocateMessageQueueStrategy) {
+        this.allocateMessageQueueStrategy = allocateMessageQueueStrategy;
+    }
+
+
+    public Map<String, String> getSubscription() {
+        return subscription;
+    }
+
+
+    public void setSubscription(Map<String, String> subscription) {
+        this.subscription = subscription;
+    }
+
+
+    public MessageListener getMessageListener() {
+        return messageListener;
+    }
+
+
+    public void setMessageListener(MessageListener messageListener) {
+        this.messageListener = messageListener;
+    }
+
+
+    public int getConsumeThreadCount() {
+        return consumeThreadCount;
+    }
+
+
+    public void setConsumeThreadCount(int consumeThreadCount) {
+        this.consumeThreadCount = consumeThreadCount;
+    }
+
+
+    public int getConsumeConcurrentlyMaxSpan() {
+        return consumeConcurrentlyMaxSpan;
+    }
+
+
+    public void setConsumeConcurrentlyMaxSpan(int consumeConcurrentlyMaxSpan) {
+        this.consumeConcurrentlyMaxSpan = consumeConcurrentlyMaxSpan;
+    }
+
+
+    public int getConsumeMessageBatchMaxSize() {
+        return consumeMessageBatchMaxSize;
+    }
+
+
+    public void setConsumeMessageBatchMaxSize(int consumeMessageBatchMaxSize) {
+        this.consumeMessageBatchMaxSize = consumeMessageBatchMaxSize;
+    }
+
+
     public int getPullBatchSize() {
         return pullBatchSize;
     }
@@ -212,4 +314,49 @@ public class DefaultMQPushConsumer implements MQPushConsumer {
         this.pullBatchSize = pullBatchSize;
     }
 
+
+    public int getPullThresholdForQueue() {
+        return pullThresholdForQueue;
+    }
+
+
+    public void setPullThresholdForQueue(int pullThresholdForQueue) {
+        this.pullThresholdForQueue = pullThresholdForQueue;
+    }
+
+
+    public int getPullThresholdSizeForQueue() {
+        return pullThresholdSizeForQueue;
+    }
+
+
+    public void setPullThresholdSizeForQueue(int pullThresholdSizeForQueue) {
+        this.pullThresholdSizeForQueue = pullThresholdSizeForQueue;
+    }
+
+
+    public MessageModel getMessageModel() {
+        return messageModel;
+    }
+
+
+    public void setMessageModel(MessageModel messageModel) {
+        this.messageModel = messageModel;
+    }
+
+
+    public int getMaxReconsumeTimes() {
+        return maxReconsumeTimes;
+    }
+
+
+    public void setMaxReconsumeTimes(int maxReconsumeTimes) {
+        this.maxReconsumeTimes = maxReconsumeTimes;
+    }
+
+
+
+    public DefaultMQPushConsumerImpl getDefaultMQPushConsumerImpl() {
+        return defaultMQPushConsumerImpl;
+    }
 }
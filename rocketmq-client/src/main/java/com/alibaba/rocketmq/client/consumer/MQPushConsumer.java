@@ -4,6 +4,7 @@
 package com.alibaba.rocketmq.client.consumer;
 
 import com.alibaba.rocketmq.client.consumer.listener.MessageListener;
+import com.alibaba.rocketmq.client.exception.MQClientException;
 
 /**
  * ߣʽ
@@ -13,8 +14,10 @@ import com.alibaba.rocketmq.client.consumer.listener.MessageListener;
 public interface MQPushConsumer extends MQConsumer {
     /**
      * 񣬵֮ǰȷregisterMessageListenersubscribeѾ
+     * 
+     * @throws MQClientException
      */
-    public void start();
+    public void start() throws MQClientException;
 
 
     /**
@@ -16,6 +16,7 @@ import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
 import com.alibaba.rocketmq.common.protocol.header.CheckTransactionStateRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.EndTransactionRequestHeader;
+import com.alibaba.rocketmq.common.protocol.header.NotifyConsumerIdsChangedRequestHeader;
 import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
 import com.alibaba.rocketmq.remoting.common.RemotingHelper;
 import com.alibaba.rocketmq.remoting.exception.RemotingCommandException;
@@ -46,6 +47,8 @@ public class ClientRemotingProcessor implements NettyRequestProcessor {
         switch (code) {
         case CHECK_TRANSACTION_STATE:
             return this.checkTransactionState(ctx, request);
+        case NOTIFY_CONSUMER_IDS_CHANGED:
+            return this.notifyConsumerIdsChanged(ctx, request);
         default:
             break;
         }
@@ -53,6 +56,21 @@ public class ClientRemotingProcessor implements NettyRequestProcessor {
     }
 
 
+    /**
+     * OnewayãԱ仯¸ؾ
+     */
+    public RemotingCommand notifyConsumerIdsChanged(ChannelHandlerContext ctx, RemotingCommand request)
+            throws RemotingCommandException {
+        final NotifyConsumerIdsChangedRequestHeader requestHeader =
+                (NotifyConsumerIdsChangedRequestHeader) request
+                    .decodeCommandCustomHeader(NotifyConsumerIdsChangedRequestHeader.class);
+        log.info("receive broker's notification[{}], the consumer group: {} changed, rebalance immediately",
+            RemotingHelper.parseChannelRemoteAddr(ctx.channel()), requestHeader.getConsumerGroup());
+        this.mqClientFactory.rebalanceImmediately();
+        return null;
+    }
+
+
     /**
      * Onewayã޷ֵ
      */
@@ -6,7 +6,12 @@ package com.alibaba.rocketmq.client.impl;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.client.consumer.PullCallback;
 import com.alibaba.rocketmq.client.consumer.PullResult;
@@ -14,6 +19,7 @@ import com.alibaba.rocketmq.client.consumer.PullStatus;
 import com.alibaba.rocketmq.client.exception.MQBrokerException;
 import com.alibaba.rocketmq.client.exception.MQClientException;
 import com.alibaba.rocketmq.client.impl.consumer.PullResultExt;
+import com.alibaba.rocketmq.client.impl.producer.SendBatchCallback;
 import com.alibaba.rocketmq.client.producer.SendCallback;
 import com.alibaba.rocketmq.client.producer.SendResult;
 import com.alibaba.rocketmq.client.producer.SendStatus;
@@ -21,13 +27,20 @@ import com.alibaba.rocketmq.common.Message;
 import com.alibaba.rocketmq.common.MessageDecoder;
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.MQVersion;
 import com.alibaba.rocketmq.common.TopicConfig;
 import com.alibaba.rocketmq.common.namesrv.TopAddressing;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
+import com.alibaba.rocketmq.common.protocol.body.GetConsumerListByGroupResponseBody;
+import com.alibaba.rocketmq.common.protocol.body.LockBatchRequestBody;
+import com.alibaba.rocketmq.common.protocol.body.LockBatchResponseBody;
+import com.alibaba.rocketmq.common.protocol.body.SendBatchMessageResponseBody;
+import com.alibaba.rocketmq.common.protocol.body.UnlockBatchRequestBody;
 import com.alibaba.rocketmq.common.protocol.header.CreateTopicRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.EndTransactionRequestHeader;
+import com.alibaba.rocketmq.common.protocol.header.GetConsumerListByGroupRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetEarliestMsgStoretimeRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetEarliestMsgStoretimeResponseHeader;
 import com.alibaba.rocketmq.common.protocol.header.GetMaxOffsetRequestHeader;
@@ -41,6 +54,7 @@ import com.alibaba.rocketmq.common.protocol.header.QueryConsumerOffsetResponseHe
 import com.alibaba.rocketmq.common.protocol.header.QueryMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SearchOffsetRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SearchOffsetResponseHeader;
+import com.alibaba.rocketmq.common.protocol.header.SendBatchMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageRequestHeader;
 import com.alibaba.rocketmq.common.protocol.header.SendMessageResponseHeader;
 import com.alibaba.rocketmq.common.protocol.header.UnregisterClientRequestHeader;
@@ -52,6 +66,7 @@ import com.alibaba.rocketmq.common.protocol.heartbeat.HeartbeatData;
 import com.alibaba.rocketmq.common.protocol.route.BrokerData;
 import com.alibaba.rocketmq.common.protocol.route.QueueData;
 import com.alibaba.rocketmq.common.protocol.route.TopicRouteData;
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
 import com.alibaba.rocketmq.remoting.InvokeCallback;
 import com.alibaba.rocketmq.remoting.RemotingClient;
 import com.alibaba.rocketmq.remoting.exception.RemotingCommandException;
@@ -71,6 +86,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
  * 
  */
 public class MQClientAPIImpl {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
     private final RemotingClient remotingClient;
     private final TopAddressing topAddressing = new TopAddressing();
     private String nameSrvAddr = null;
@@ -92,6 +108,8 @@ public class MQClientAPIImpl {
          */
         this.remotingClient.registerProcessor(MQRequestCode.CHECK_TRANSACTION_STATE_VALUE,
             this.clientRemotingProcessor, null);
+        this.remotingClient.registerProcessor(MQRequestCode.NOTIFY_CONSUMER_IDS_CHANGED_VALUE,
+            this.clientRemotingProcessor, null);
     }
 
 
@@ -123,6 +141,14 @@ public class MQClientAPIImpl {
     }
 
 
+    /**
+     * ԤȽBroker
+     */
+    public void preWarmChannels(final String addr) {
+        this.remotingClient.preWarmChannels(addr);
+    }
+
+
     public void updateNameServerAddressList(final String addrs) {
         List<String> lst = new ArrayList<String>();
         String[] addrArray = addrs.split(";");
@@ -302,6 +328,158 @@ public class MQClientAPIImpl {
     }
 
 
+    /**
+     * Ϣֻ֧첽ʽӦ𵽴ص
+     *
+     * @param body
+     *            ʹMessageDecoder.encodeBatchMessageϢ
+     * @param sendCallbacks
+     *            bodyеϢһһӦ
+     */
+    public void sendBatchMessage(//
+            final String addr,// 1
+            final String brokerName,// 2
+            final SendBatchMessageRequestHeader requestHeader,// 3
+            final byte[] body,// 4
+            final List<SendCallback> sendCallbacks,// 5
+            final long timeoutMillis,// 6
+            final SendBatchCallback sendBatchCallback// 7
+    ) throws RemotingException, InterruptedException {
+        RemotingCommand request =
+                RemotingCommand.createRequestCommand(MQRequestCode.SEND_BATCH_MESSAGE_VALUE, requestHeader);
+        request.setBody(body);
+
+        this.remotingClient.invokeAsync(addr, request, timeoutMillis, new InvokeCallback() {
+            @Override
+            public void operationComplete(ResponseFuture responseFuture) {
+                boolean retried = false;
+                try {
+                    RemotingCommand response = responseFuture.getResponseCommand();
+                    if (response != null) {
+                        retried =
+                                MQClientAPIImpl.this.processSendBatchResponse(brokerName, requestHeader.getTopic(),
+                                    response, sendCallbacks, sendBatchCallback);
+                    }
+                    else {
+                        MQClientException exception = null;
+                        if (!responseFuture.isSendRequestOK()) {
+                            exception = new MQClientException("send request failed", responseFuture.getCause());
+                        }
+                        else if (responseFuture.isTimeout()) {
+                            exception =
+                                    new MQClientException("wait response timeout", responseFuture.getCause());
+                        }
+                        else {
+                            exception = new MQClientException("unknow reseaon", responseFuture.getCause());
+                        }
+
+                        retried = sendBatchCallback != null && sendBatchCallback.onBatchException(exception);
+                        if (!retried) {
+                            for (SendCallback sendCallback : sendCallbacks) {
+                                MQClientAPIImpl.this.invokeSendCallbackOnException(sendCallback, exception);
+                            }
+                        }
+                    }
+                }
+                finally {
+                    if (!retried && sendBatchCallback != null) {
+                        sendBatchCallback.onBatchComplete();
+                    }
+                }
+            }
+        });
+    }
+
+
+    private void invokeSendCallbackOnException(final SendCallback sendCallback, final Throwable e) {
+        if (sendCallback != null) {
+            try {
+                sendCallback.onException(e);
+            }
+            catch (Throwable ex) {
+                log.warn("execute sendCallback.onException exception", ex);
+            }
+        }
+    }
+
+
+    /**
+     * @return ʧܲѾʱtrue
+     */
+    private boolean processSendBatchResponse(//
+            final String brokerName,//
+            final String topic,//
+            final RemotingCommand response,//
+            final List<SendCallback> sendCallbacks,//
+            final SendBatchCallback sendBatchCallback//
+    ) {
+        SendBatchMessageResponseBody responseBody = null;
+        if (response.getBody() != null) {
+            try {
+                responseBody =
+                        SendBatchMessageResponseBody.decode(response.getBody(), SendBatchMessageResponseBody.class);
+            }
+            catch (Exception e) {
+                log.warn("decode SendBatchMessageResponseBody exception", e);
+            }
+        }
+
+        // ʧܣBrokerûдȨ
+        if (null == responseBody || responseBody.getMsgIdList().size() != sendCallbacks.size()) {
+            MQBrokerException exception = new MQBrokerException(response.getCode(), response.getRemark());
+            if (sendBatchCallback != null && sendBatchCallback.onBatchException(exception)) {
+                return true;
+            }
+
+            for (SendCallback sendCallback : sendCallbacks) {
+                this.invokeSendCallbackOnException(sendCallback, exception);
+            }
+            return false;
+        }
+
+        // ɹ洢Ϣˢ̡ͬSlaveⶼΪͳɹ
+        SendStatus sendStatus = SendStatus.SEND_OK;
+        switch (response.getCode()) {
+        case MQResponseCode.FLUSH_DISK_TIMEOUT_VALUE:
+            sendStatus = SendStatus.FLUSH_DISK_TIMEOUT;
+            break;
+        case MQResponseCode.FLUSH_SLAVE_TIMEOUT_VALUE:
+            sendStatus = SendStatus.FLUSH_SLAVE_TIMEOUT;
+            break;
+        case MQResponseCode.SLAVE_NOT_AVAILABLE_VALUE:
+            sendStatus = SendStatus.SLAVE_NOT_AVAILABLE;
+            break;
+        default:
+            break;
+        }
+
+        MessageQueue messageQueue = new MessageQueue(topic, brokerName, responseBody.getQueueId());
+        for (int i = 0; i < sendCallbacks.size(); i++) {
+            SendCallback sendCallback = sendCallbacks.get(i);
+            if (null == sendCallback) {
+                continue;
+            }
+
+            String msgId = responseBody.getMsgIdList().get(i);
+            if (msgId != null) {
+                try {
+                    sendCallback.onSuccess(new SendResult(sendStatus, msgId, messageQueue, responseBody
+                        .getQueueOffsetList().get(i)));
+                }
+                catch (Throwable e) {
+                    log.warn("execute sendCallback.onSuccess exception", e);
+                }
+            }
+            else {
+                this.invokeSendCallbackOnException(sendCallback,
+                    new MQBrokerException(response.getCode(), response.getRemark()));
+            }
+        }
+
+        return false;
+    }
+
+
     private PullResult processPullResponse(final RemotingCommand response) throws MQBrokerException,
             RemotingCommandException {
         PullStatus pullStatus = PullStatus.NO_NEW_MSG;
@@ -426,7 +604,18 @@ public class MQClientAPIImpl {
         switch (response.getCode()) {
         case ResponseCode.SUCCESS_VALUE: {
             ByteBuffer byteBuffer = ByteBuffer.wrap(response.getBody());
-            return MessageDecoder.decode(byteBuffer);
+            MessageExt msgExt = MessageDecoder.decode(byteBuffer);
+            // BrokerصϢϣȡһ
+            if (msgExt != null && (msgExt.getSysFlag() & MessageSysFlag.MessageSetFlag) != 0) {
+                List<MessageExt> msgExts = MessageDecoder.decodeMessageSet(msgExt);
+                final int index = (int) (phyoffset >>> MessageDecoder.MessageSetIndexShift);
+                if (null == msgExts || index >= msgExts.size()) {
+                    throw new MQBrokerException(ResponseCode.SYSTEM_ERROR_VALUE,
+                        "message set decode error, offset " + phyoffset);
+                }
+                return msgExts.get(index);
+            }
+            return msgExt;
         }
         default:
             break;
@@ -661,6 +850,98 @@ public class MQClientAPIImpl {
     }
 
 
+    /**
+     * ȡConsumerIDб
+     */
+    public List<String> getConsumerIdListByGroup(//
+            final String addr,//
+            final String consumerGroup,//
+            final long timeoutMillis//
+    ) throws RemotingException, MQBrokerException, InterruptedException {
+        GetConsumerListByGroupRequestHeader requestHeader = new GetConsumerListByGroupRequestHeader();
+        requestHeader.setConsumerGroup(consumerGroup);
+        RemotingCommand request =
+                RemotingCommand.createRequestCommand(MQRequestCode.GET_CONSUMER_LIST_BY_GROUP_VALUE,
+                    requestHeader);
+        RemotingCommand response = this.remotingClient.invokeSync(addr, request, timeoutMillis);
+        assert response != null;
+        switch (response.getCode()) {
+        case ResponseCode.SUCCESS_VALUE: {
+            if (response.getBody() != null) {
+                GetConsumerListByGroupResponseBody body =
+                        GetConsumerListByGroupResponseBody.decode(response.getBody(),
+                            GetConsumerListByGroupResponseBody.class);
+                return body.getConsumerIdList();
+            }
+        }
+        default:
+            break;
+        }
+
+        throw new MQBrokerException(response.getCode(), response.getRemark());
+    }
+
+
+    /**
+     * ˳ʱBrokerϵĶ
+     *
+     * @return ɹĶм
+     */
+    public Set<MessageQueue> lockBatchMQ(//
+            final String addr,//
+            final LockBatchRequestBody requestBody,//
+            final long timeoutMillis//
+    ) throws RemotingException, MQBrokerException, InterruptedException {
+        RemotingCommand request = RemotingCommand.createRequestCommand(MQRequestCode.LOCK_BATCH_MQ_VALUE, null);
+        request.setBody(requestBody.encode());
+        RemotingCommand response = this.remotingClient.invokeSync(addr, request, timeoutMillis);
+        assert response != null;
+        switch (response.getCode()) {
+        case ResponseCode.SUCCESS_VALUE: {
+            LockBatchResponseBody responseBody =
+                    LockBatchResponseBody.decode(response.getBody(), LockBatchResponseBody.class);
+            Set<MessageQueue> messageQueues = responseBody.getLockOKMQSet();
+            return messageQueues != null ? messageQueues : new HashSet<MessageQueue>();
+        }
+        default:
+            break;
+        }
+
+        throw new MQBrokerException(response.getCode(), response.getRemark());
+    }
+
+
+    /**
+     * ˳ʱBrokerϵĶ
+     */
+    public void unlockBatchMQ(//
+            final String addr,//
+            final UnlockBatchRequestBody requestBody,//
+            final long timeoutMillis,//
+            final boolean oneway//
+    ) throws RemotingException, MQBrokerException, InterruptedException {
+        RemotingCommand request = RemotingCommand.createRequestCommand(MQRequestCode.UNLOCK_BATCH_MQ_VALUE, null);
+        request.setBody(requestBody.encode());
+
+        if (oneway) {
+            this.remotingClient.invokeOneway(addr, request, timeoutMillis);
+        }
+        else {
+            RemotingCommand response = this.remotingClient.invokeSync(addr, request, timeoutMillis);
+            assert response != null;
+            switch (response.getCode()) {
+            case ResponseCode.SUCCESS_VALUE: {
+                return;
+            }
+            default:
+                break;
+            }
+
+            throw new MQBrokerException(response.getCode(), response.getRemark());
+        }
+    }
+
+
     /**
      * ύ߻ع
      */
@@ -0,0 +1,259 @@
+/**
+ * $Id: ConsumeMessageConcurrentlyService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
+
+
+/**
+ * ϢͬһеϢɶ̲߳<br>
+ * ѳɹϢProcessQueueƳʣСOffsetΪѽȣ֤ȲԽδѳɹϢ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumeMessageConcurrentlyService implements ConsumeMessageService {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
+    // ʧܻ̳߳ؾܾԺѵʱ
+    private static final long ConsumeRetryDelayMills = 1000 * 5;
+
+    private final DefaultMQPushConsumerImpl defaultMQPushConsumerImpl;
+    private final DefaultMQPushConsumer defaultMQPushConsumer;
+    private final MessageListenerConcurrently messageListener;
+    // ϢѾСأĶвҪ
+    private final BlockingQueue<Runnable> consumeRequestQueue;
+    private final ThreadPoolExecutor consumeExecutor;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+
+    public ConsumeMessageConcurrentlyService(DefaultMQPushConsumerImpl defaultMQPushConsumerImpl,
+            MessageListenerConcurrently messageListener) {
+        this.defaultMQPushConsumerImpl = defaultMQPushConsumerImpl;
+        this.messageListener = messageListener;
+        this.defaultMQPushConsumer = this.defaultMQPushConsumerImpl.getDefaultMQPushConsumer();
+
+        this.consumeRequestQueue = new LinkedBlockingQueue<Runnable>();
+        this.consumeExecutor = new ThreadPoolExecutor(//
+            this.defaultMQPushConsumer.getConsumeThreadCount(),//
+            this.defaultMQPushConsumer.getConsumeThreadCount(),//
+            1000 * 60,//
+            TimeUnit.MILLISECONDS,//
+            this.consumeRequestQueue,//
+            new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "ConsumeMessageThread_" + this.threadIndex.incrementAndGet());
+                }
+            });
+
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "ConsumeMessageScheduledThread");
+            }
+        });
+    }
+
+
+    @Override
+    public void start() {
+    }
+
+
+    @Override
+    public void shutdown() {
+        this.scheduledExecutorService.shutdown();
+        this.consumeExecutor.shutdown();
+    }
+
+
+    @Override
+    public boolean awaitTermination(final long timeoutMillis) {
+        try {
+            return this.consumeExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            log.warn("awaitTermination interrupted", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+
+    @Override
+    public void submitConsumeRequest(final List<MessageExt> msgs, final ProcessQueue processQueue,
+            final MessageQueue messageQueue, final boolean dispatchToConsume) {
+        final int consumeBatchSize = Math.max(1, this.defaultMQPushConsumer.getConsumeMessageBatchMaxSize());
+        if (msgs.size() <= consumeBatchSize) {
+            this.submitConsumeRequest(new ConsumeRequest(msgs, processQueue, messageQueue));
+        }
+        else {
+            for (int total = 0; total < msgs.size();) {
+                List<MessageExt> msgThis = new ArrayList<MessageExt>(consumeBatchSize);
+                for (int i = 0; i < consumeBatchSize && total < msgs.size(); i++, total++) {
+                    msgThis.add(msgs.get(total));
+                }
+
+                this.submitConsumeRequest(new ConsumeRequest(msgThis, processQueue, messageQueue));
+            }
+        }
+    }
+
+
+    private void submitConsumeRequest(final ConsumeRequest consumeRequest) {
+        try {
+            this.consumeExecutor.submit(consumeRequest);
+        }
+        catch (RejectedExecutionException e) {
+            this.submitConsumeRequestLater(consumeRequest);
+        }
+    }
+
+
+    private void submitConsumeRequestLater(final ConsumeRequest consumeRequest) {
+        try {
+            this.scheduledExecutorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ConsumeMessageConcurrentlyService.this.submitConsumeRequest(consumeRequest);
+                }
+            }, ConsumeRetryDelayMills, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            // ConsumerѾرգϢProcessQueueУѽȲԽ
+            log.warn("submitConsumeRequestLater rejected, the consumer maybe shutdown");
+        }
+    }
+
+
+    /**
+     * ѽѳɹύȣʧܵϢProcessQueueУԺڱ<br>
+     * ѳmaxReconsumeTimesεϢһֱʧܵϢῨסѽȣProcessQueueҲԽԽ
+     */
+    private void processConsumeResult(final ConsumeConcurrentlyStatus status,
+            final ConsumeConcurrentlyContext context, final ConsumeRequest consumeRequest) {
+        switch (status) {
+        case CONSUME_SUCCESS:
+            long offset = consumeRequest.getProcessQueue().removeMessage(consumeRequest.getMsgs());
+            if (offset >= 0) {
+                this.defaultMQPushConsumerImpl.updateConsumeOffset(consumeRequest.getMessageQueue(),
+                    consumeRequest.getProcessQueue(), offset, true);
+            }
+            break;
+        case RECONSUME_LATER:
+            List<MessageExt> msgsRetry = new ArrayList<MessageExt>(consumeRequest.getMsgs().size());
+            List<MessageExt> msgsSkip = new ArrayList<MessageExt>();
+            for (MessageExt msg : consumeRequest.getMsgs()) {
+                msg.setReconsumeTimes(msg.getReconsumeTimes() + 1);
+                if (msg.getReconsumeTimes() > this.defaultMQPushConsumer.getMaxReconsumeTimes()) {
+                    msgsSkip.add(msg);
+                }
+                else {
+                    msgsRetry.add(msg);
+                }
+            }
+
+            if (!msgsSkip.isEmpty()) {
+                for (MessageExt msg : msgsSkip) {
+                    log.error("consume message failed too many times, skip it, Group: "
+                            + this.defaultMQPushConsumer.getConsumerGroup() + " " + msg);
+                }
+
+                long skipOffset = consumeRequest.getProcessQueue().removeMessage(msgsSkip);
+                if (skipOffset >= 0) {
+                    this.defaultMQPushConsumerImpl.updateConsumeOffset(consumeRequest.getMessageQueue(),
+                        consumeRequest.getProcessQueue(), skipOffset, true);
+                }
+            }
+
+            // ϢProcessQueueУʱ5ڱ
+            if (!msgsRetry.isEmpty()) {
+                this.submitConsumeRequestLater(new ConsumeRequest(msgsRetry, consumeRequest.getProcessQueue(),
+                    consumeRequest.getMessageQueue()));
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    class ConsumeRequest implements Runnable {
+        private final List<MessageExt> msgs;
+        private final ProcessQueue processQueue;
+        private final MessageQueue messageQueue;
+
+
+        public ConsumeRequest(List<MessageExt> msgs, ProcessQueue processQueue, MessageQueue messageQueue) {
+            this.msgs = msgs;
+            this.processQueue = processQueue;
+            this.messageQueue = messageQueue;
+        }
+
+
+        @Override
+        public void run() {
+            if (this.processQueue.isDropped()) {
+                log.info("the message queue not be able to consume, because it's dropped, " + this.messageQueue);
+                return;
+            }
+
+            final ConsumeConcurrentlyContext context = new ConsumeConcurrentlyContext(this.messageQueue);
+            ConsumeConcurrentlyStatus status = null;
+            try {
+                status = ConsumeMessageConcurrentlyService.this.messageListener.consumeMessage(this.msgs, context);
+            }
+            catch (Throwable e) {
+                log.warn("consumeMessage exception, Group: "
+                        + ConsumeMessageConcurrentlyService.this.defaultMQPushConsumer.getConsumerGroup() + " "
+                        + this.messageQueue, e);
+            }
+
+            if (null == status) {
+                status = ConsumeConcurrentlyStatus.RECONSUME_LATER;
+            }
+
+            if (!this.processQueue.isDropped()) {
+                ConsumeMessageConcurrentlyService.this.processConsumeResult(status, context, this);
+            }
+        }
+
+
+        public List<MessageExt> getMsgs() {
+            return msgs;
+        }
+
+
+        public ProcessQueue getProcessQueue() {
+            return processQueue;
+        }
+
+
+        public MessageQueue getMessageQueue() {
+            return messageQueue;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/**
+ * $Id: ConsumeMessageOrderlyService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyContext;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
+
+
+/**
+ * ˳ϢͬһеϢͬһʱֻһ߳<br>
+ * жйһ̳߳أÿͬһʱֻһ߳ѭProcessQueue˳ȡϢ
+ * һѳһʱύ̳߳ŶӣϢĶгռס߳
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumeMessageOrderlyService implements ConsumeMessageService {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
+    // һѵʱ䣬ó߳
+    private final static long MaxTimeConsumeContinuously = Long.parseLong(System.getProperty(
+        "rocketmq.client.maxTimeConsumeContinuously", "1000"));
+    // ûסʱȴúٳ
+    private static final long DelayMillsWhenNotLocked = 100;
+    // ʧʱȴúٳ
+    private static final long DelayMillsWhenLockFailed = 3000;
+
+    private final DefaultMQPushConsumerImpl defaultMQPushConsumerImpl;
+    private final DefaultMQPushConsumer defaultMQPushConsumer;
+    private final MessageListenerOrderly messageListener;
+    // ÿһ󣬶вҪ
+    private final BlockingQueue<Runnable> consumeRequestQueue;
+    private final ThreadPoolExecutor consumeExecutor;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+
+    public ConsumeMessageOrderlyService(DefaultMQPushConsumerImpl defaultMQPushConsumerImpl,
+            MessageListenerOrderly messageListener) {
+        this.defaultMQPushConsumerImpl = defaultMQPushConsumerImpl;
+        this.messageListener = messageListener;
+        this.defaultMQPushConsumer = this.defaultMQPushConsumerImpl.getDefaultMQPushConsumer();
+
+        this.consumeRequestQueue = new LinkedBlockingQueue<Runnable>();
+        this.consumeExecutor = new ThreadPoolExecutor(//
+            this.defaultMQPushConsumer.getConsumeThreadCount(),//
+            this.defaultMQPushConsumer.getConsumeThreadCount(),//
+            1000 * 60,//
+            TimeUnit.MILLISECONDS,//
+            this.consumeRequestQueue,//
+            new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "ConsumeMessageThread_" + this.threadIndex.incrementAndGet());
+                }
+            });
+
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "ConsumeMessageScheduledThread");
+            }
+        });
+    }
+
+
+    @Override
+    public void start() {
+    }
+
+
+    @Override
+    public void shutdown() {
+        this.scheduledExecutorService.shutdown();
+        this.consumeExecutor.shutdown();
+    }
+
+
+    @Override
+    public boolean awaitTermination(final long timeoutMillis) {
+        try {
+            return this.consumeExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            log.warn("awaitTermination interrupted", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+
+    @Override
+    public void submitConsumeRequest(final List<MessageExt> msgs, final ProcessQueue processQueue,
+            final MessageQueue messageQueue, final boolean dispatchToConsume) {
+        // ѾУϢᱻȡ
+        if (dispatchToConsume) {
+            this.submitConsumeRequest(new ConsumeRequest(processQueue, messageQueue));
+        }
+    }
+
+
+    private void submitConsumeRequest(final ConsumeRequest consumeRequest) {
+        try {
+            this.consumeExecutor.submit(consumeRequest);
+        }
+        catch (RejectedExecutionException e) {
+            this.submitConsumeRequestLater(consumeRequest, DelayMillsWhenLockFailed);
+        }
+    }
+
+
+    private void submitConsumeRequestLater(final ConsumeRequest consumeRequest, final long delayMills) {
+        try {
+            this.scheduledExecutorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ConsumeMessageOrderlyService.this.submitConsumeRequest(consumeRequest);
+                }
+            }, delayMills, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("submitConsumeRequestLater rejected, the consumer maybe shutdown");
+        }
+    }
+
+
+    /**
+     * BrokerûסУ
+     */
+    private void tryLockLaterAndReconsume(final ConsumeRequest consumeRequest, final long delayMills) {
+        try {
+            this.scheduledExecutorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ConsumeMessageOrderlyService.this.lockAndReconsume(consumeRequest);
+                }
+            }, delayMills, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("tryLockLaterAndReconsume rejected, the consumer maybe shutdown");
+        }
+    }
+
+
+    /**
+     * סкύ<br>
+     * ѾRebalanceʱûҲû˽⣬µConsumerҪڲ
+     *
+     * @return Ƿύ
+     */
+    boolean lockAndReconsume(final ConsumeRequest consumeRequest) {
+        final ProcessQueue processQueue = consumeRequest.getProcessQueue();
+        final MessageQueue mq = consumeRequest.getMessageQueue();
+        if (processQueue.isDropped()) {
+            log.info("the message queue is dropped, not lock it again, " + mq);
+            return false;
+        }
+
+        boolean lockOK = this.defaultMQPushConsumerImpl.lock(mq);
+        // ڼбʱĽμٽһΣ
+        // ûжĶУɶʱύȺٽ
+        if (processQueue.isDropped()) {
+            if (lockOK && this.defaultMQPushConsumerImpl.isProcessQueueRemoved(mq, processQueue)) {
+                this.defaultMQPushConsumerImpl.unlock(mq, true);
+            }
+            log.info("the message queue is dropped while locking, " + mq);
+            return false;
+        }
+
+        if (lockOK) {
+            this.submitConsumeRequest(consumeRequest);
+        }
+        else {
+            this.submitConsumeRequestLater(consumeRequest, DelayMillsWhenLockFailed);
+        }
+        return true;
+    }
+
+
+    /**
+     * ѽ
+     *
+     * @return ǷкϢ
+     */
+    private boolean processConsumeResult(final List<MessageExt> msgs, final ConsumeOrderlyStatus status,
+            final ConsumeOrderlyContext context, final ConsumeRequest consumeRequest) {
+        final ProcessQueue processQueue = consumeRequest.getProcessQueue();
+        boolean continueConsume = true;
+        long commitOffset = -1L;
+        if (context.isAutoCommit()) {
+            switch (status) {
+            case COMMIT:
+            case ROLLBACK:
+                log.warn("the message queue consume result is illegal, we think you want to ack these message, "
+                        + consumeRequest.getMessageQueue());
+            case SUCCESS:
+                commitOffset = processQueue.commit();
+                break;
+            case RETRY_IMMEDIATELY:
+                processQueue.makeMessageToCosumeAgain(msgs);
+                break;
+            case SUSPEND_CURRENT_QUEUE_A_MOMENT:
+                processQueue.makeMessageToCosumeAgain(msgs);
+                this.submitConsumeRequestLater(consumeRequest, context.getSuspendCurrentQueueTimeMillis());
+                continueConsume = false;
+                break;
+            default:
+                break;
+            }
+        }
+        else {
+            switch (status) {
+            case SUCCESS:
+                // ӦԼʱύϢʱTreeMap
+                break;
+            case COMMIT:
+                commitOffset = processQueue.commit();
+                break;
+            case ROLLBACK:
+                processQueue.rollback();
+                this.submitConsumeRequestLater(consumeRequest, context.getSuspendCurrentQueueTimeMillis());
+                continueConsume = false;
+                break;
+            case RETRY_IMMEDIATELY:
+                processQueue.makeMessageToCosumeAgain(msgs);
+                break;
+            case SUSPEND_CURRENT_QUEUE_A_MOMENT:
+                processQueue.makeMessageToCosumeAgain(msgs);
+                this.submitConsumeRequestLater(consumeRequest, context.getSuspendCurrentQueueTimeMillis());
+                continueConsume = false;
+                break;
+            default:
+                break;
+            }
+        }
+
+        if (commitOffset >= 0) {
+            this.defaultMQPushConsumerImpl.updateConsumeOffset(consumeRequest.getMessageQueue(),
+                consumeRequest.getProcessQueue(), commitOffset, false);
+        }
+
+        return continueConsume;
+    }
+
+    class ConsumeRequest implements Runnable {
+        private final ProcessQueue processQueue;
+        private final MessageQueue messageQueue;
+
+
+        public ConsumeRequest(ProcessQueue processQueue, MessageQueue messageQueue) {
+            this.processQueue = processQueue;
+            this.messageQueue = messageQueue;
+        }
+
+
+        @Override
+        public void run() {
+            if (this.processQueue.isDropped()) {
+                log.info("the message queue not be able to consume, because it's dropped, " + this.messageQueue);
+                return;
+            }
+
+            final int consumeBatchSize =
+                    Math.max(1, ConsumeMessageOrderlyService.this.defaultMQPushConsumer
+                        .getConsumeMessageBatchMaxSize());
+            final long beginTime = System.currentTimeMillis();
+
+            this.processQueue.getLockConsume().lock();
+            try {
+                for (boolean continueConsume = true; continueConsume;) {
+                    if (this.processQueue.isDropped()) {
+                        log.info("the message queue not be able to consume, because it's dropped, "
+                                + this.messageQueue);
+                        break;
+                    }
+
+                    // ֻBrokerסĶвѣֹRebalanceͬһбConsumerͬʱ
+                    if (!this.processQueue.isLocked() || this.processQueue.isLockExpired()) {
+                        ConsumeMessageOrderlyService.this.tryLockLaterAndReconsume(this, DelayMillsWhenNotLocked);
+                        break;
+                    }
+
+                    // ọ́߳ѵĻ
+                    if ((System.currentTimeMillis() - beginTime) > MaxTimeConsumeContinuously) {
+                        ConsumeMessageOrderlyService.this.submitConsumeRequest(this);
+                        break;
+                    }
+
+                    List<MessageExt> msgs = this.processQueue.takeMessags(consumeBatchSize);
+                    if (msgs.isEmpty()) {
+                        break;
+                    }
+
+                    final ConsumeOrderlyContext context = new ConsumeOrderlyContext(this.messageQueue);
+                    ConsumeOrderlyStatus status = null;
+                    try {
+                        status =
+                                ConsumeMessageOrderlyService.this.messageListener.consumeMessage(
+                                    Collections.unmodifiableList(msgs), context);
+                    }
+                    catch (Throwable e) {
+                        log.warn("consumeMessage exception, Group: "
+                                + ConsumeMessageOrderlyService.this.defaultMQPushConsumer.getConsumerGroup() + " "
+                                + this.messageQueue, e);
+                    }
+
+                    if (null == status) {
+                        status = ConsumeOrderlyStatus.SUSPEND_CURRENT_QUEUE_A_MOMENT;
+                    }
+
+                    continueConsume =
+                            ConsumeMessageOrderlyService.this.processConsumeResult(msgs, status, context, this);
+                }
+            }
+            finally {
+                this.processQueue.getLockConsume().unlock();
+            }
+        }
+
+
+        public ProcessQueue getProcessQueue() {
+            return processQueue;
+        }
+
+
+        public MessageQueue getMessageQueue() {
+            return messageQueue;
+        }
+    }
+}
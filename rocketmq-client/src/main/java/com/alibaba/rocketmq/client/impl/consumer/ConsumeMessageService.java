@@ -0,0 +1,43 @@
+/**
+ * $Id: ConsumeMessageService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import java.util.List;
+
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.MessageQueue;
+
+
+/**
+ * ϢȡϢӦõļ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public interface ConsumeMessageService {
+    public void start();
+
+
+    public void shutdown();
+
+
+    /**
+     * ȴڽеѽshutdown֮
+     *
+     * @return ʱǰ߳ȫtrue
+     */
+    public boolean awaitTermination(final long timeoutMillis);
+
+
+    /**
+     * ύ󣬲
+     *
+     * @param dispatchToConsume
+     *            ProcessQueue.putMessageķֵ˳ֻΪtrueʱύ߳ԼProcessQueueȡϢ
+     */
+    public void submitConsumeRequest(//
+            final List<MessageExt> msgs,//
+            final ProcessQueue processQueue,//
+            final MessageQueue messageQueue,//
+            final boolean dispatchToConsume);
+}
@@ -3,27 +3,31 @@
  */
 package com.alibaba.rocketmq.client.impl.consumer;
 
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.alibaba.rocketmq.client.QueryResult;
 import com.alibaba.rocketmq.client.consumer.DefaultMQPullConsumer;
+import com.alibaba.rocketmq.client.consumer.MessageQueueListener;
 import com.alibaba.rocketmq.client.consumer.PullCallback;
 import com.alibaba.rocketmq.client.consumer.PullResult;
-import com.alibaba.rocketmq.client.consumer.PullStatus;
 import com.alibaba.rocketmq.client.exception.MQBrokerException;
 import com.alibaba.rocketmq.client.exception.MQClientException;
 import com.alibaba.rocketmq.client.impl.CommunicationMode;
 import com.alibaba.rocketmq.client.impl.FindBrokerResult;
 import com.alibaba.rocketmq.client.impl.MQClientManager;
 import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
-import com.alibaba.rocketmq.common.MessageDecoder;
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.ServiceState;
 import com.alibaba.rocketmq.common.TopicFilterType;
 import com.alibaba.rocketmq.common.protocol.header.QueryConsumerOffsetRequestHeader;
@@ -31,6 +35,7 @@ import com.alibaba.rocketmq.common.protocol.header.UpdateConsumerOffsetRequestHe
 import com.alibaba.rocketmq.common.protocol.heartbeat.ConsumeType;
 import com.alibaba.rocketmq.common.protocol.heartbeat.MessageModel;
 import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
+import com.alibaba.rocketmq.common.protocol.route.TopicRouteData;
 import com.alibaba.rocketmq.common.sysflag.PullSysFlag;
 import com.alibaba.rocketmq.remoting.exception.RemotingException;
 
@@ -39,6 +44,7 @@ import com.alibaba.rocketmq.remoting.exception.RemotingException;
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
 public class DefaultMQPullConsumerImpl implements MQConsumerInner {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
     private ServiceState serviceState = ServiceState.CREATE_JUST;
     private final DefaultMQPullConsumer defaultMQPullConsumer;
     private MQClientFactory mQClientFactory;
@@ -46,6 +52,16 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
 
     private ConcurrentHashMap<MessageQueue, AtomicLong> offsetTable =
             new ConcurrentHashMap<MessageQueue, AtomicLong>();
+    /**
+     * עTopicЩ
+     */
+    private final ConcurrentHashMap<String/* topic */, Set<MessageQueue>> topicSubscribeInfoTable =
+            new ConcurrentHashMap<String, Set<MessageQueue>>();
+    /**
+     * ؾԼĶ
+     */
+    private final ConcurrentHashMap<String/* topic */, List<MessageQueue>> allocateResultTable =
+            new ConcurrentHashMap<String, List<MessageQueue>>();
 
 
     public DefaultMQPullConsumerImpl(final DefaultMQPullConsumer defaultMQPullConsumer) {
@@ -66,6 +82,7 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
                 mQClientFactory,//
                 this.defaultMQPullConsumer.getConsumerGroup(),//
                 this.defaultMQPullConsumer.getConsumeFromWhichNode());
+            this.pullAPIWrapper.setDecodeMessageLazily(this.defaultMQPullConsumer.isDecodeMessageLazily());
 
             boolean registerOK =
                     mQClientFactory.registerConsumer(this.defaultMQPullConsumer.getConsumerGroup(), this);
@@ -76,6 +93,15 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
             }
 
             mQClientFactory.start();
+
+            Set<String> topics = this.defaultMQPullConsumer.getRegisterTopics();
+            synchronized (topics) {
+                for (String topic : topics) {
+                    this.mQClientFactory.updateTopicRouteInfoFromNameServer(topic);
+                }
+            }
+            mQClientFactory.sendHeartbeatToAllBrokerWithLock();
+            mQClientFactory.rebalanceImmediately();
             break;
         case RUNNING:
             break;
@@ -192,27 +218,7 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
                     this.defaultMQPullConsumer.getBrokerSuspendMaxTimeMillis(), timeoutMillis,
                     CommunicationMode.SYNC, null);
 
-        return this.processPullResult(mq, pullResult);
-    }
-
-
-    /**
-     * ȡдҪϢл
-     */
-    private PullResult processPullResult(final MessageQueue mq, final PullResult pullResult) {
-        PullResultExt pullResultExt = (PullResultExt) pullResult;
-
-        this.pullAPIWrapper.updatePullFromWhichNode(mq, pullResultExt.isSuggestPullingFromSlave());
-        if (PullStatus.FOUND == pullResult.getPullStatus()) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(pullResultExt.getMessageBinary());
-            List<MessageExt> msgList = MessageDecoder.decodes(byteBuffer);
-            pullResultExt.setMsgFoundList(msgList);
-        }
-
-        // GCͷڴ
-        pullResultExt.setMessageBinary(null);
-
-        return pullResult;
+        return this.pullAPIWrapper.processPullResult(mq, pullResult, offset);
     }
 
 
@@ -258,7 +264,8 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
 
                     @Override
                     public void onSuccess(PullResult pullResult) {
-                        pullCallback.onSuccess(DefaultMQPullConsumerImpl.this.processPullResult(mq, pullResult));
+                        pullCallback.onSuccess(DefaultMQPullConsumerImpl.this.pullAPIWrapper.processPullResult(mq,
+                            pullResult, offset));
                     }
 
 
@@ -356,8 +363,118 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
 
 
     public List<MessageQueue> fetchMessageQueuesInBalance(String topic) {
-        // TODO Auto-generated method stub
-        return null;
+        if (this.serviceState != ServiceState.RUNNING) {
+            return null;
+        }
+
+        List<MessageQueue> result = this.allocateResultTable.get(topic);
+        if (null == result) {
+            this.rebalanceByTopic(topic);
+            result = this.allocateResultTable.get(topic);
+        }
+
+        return result != null ? new ArrayList<MessageQueue>(result) : null;
+    }
+
+
+    private Set<MessageQueue> findTopicSubscribeInfo(final String topic) {
+        Set<MessageQueue> mqSet = this.topicSubscribeInfoTable.get(topic);
+        if (null == mqSet) {
+            this.mQClientFactory.updateTopicRouteInfoFromNameServer(topic);
+            TopicRouteData topicRouteData = this.mQClientFactory.getAnExistTopicRouteData(topic);
+            if (topicRouteData != null) {
+                mqSet =
+                        new HashSet<MessageQueue>(MQClientFactory.topicRouteData2TopicSubscribeInfo(topic,
+                            topicRouteData));
+                this.topicSubscribeInfoTable.put(topic, mqSet);
+            }
+        }
+
+        return mqSet;
+    }
+
+
+    /**
+     * ¼ԼĶУ仯ʱύԼĶеĽȣ֪ͨӦ
+     */
+    private synchronized void rebalanceByTopic(final String topic) {
+        Set<MessageQueue> mqSet = this.findTopicSubscribeInfo(topic);
+        if (null == mqSet) {
+            log.warn("doRebalance, " + this.defaultMQPullConsumer.getConsumerGroup() + ", but the topic[" + topic
+                    + "] not exist.");
+            return;
+        }
+
+        List<String> cidAll =
+                this.mQClientFactory.findConsumerIdList(topic, this.defaultMQPullConsumer.getConsumerGroup());
+        if (null == cidAll || cidAll.isEmpty()) {
+            log.warn("doRebalance, " + this.defaultMQPullConsumer.getConsumerGroup() + " " + topic
+                    + ", get consumer id list failed");
+            return;
+        }
+
+        cidAll = new ArrayList<String>(cidAll);
+        Collections.sort(cidAll);
+        if (!cidAll.contains(this.mQClientFactory.getClientId())) {
+            log.warn("doRebalance, " + this.defaultMQPullConsumer.getConsumerGroup() + " " + topic
+                    + ", the consumer id list not contains myself, " + cidAll);
+            return;
+        }
+
+        List<MessageQueue> mqAll = new ArrayList<MessageQueue>(mqSet);
+        Collections.sort(mqAll);
+
+        List<MessageQueue> allocateResult = null;
+        try {
+            allocateResult =
+                    this.defaultMQPullConsumer.getAllocateMessageQueueStrategy().allocate(
+                        this.defaultMQPullConsumer.getConsumerGroup(), topic, this.mQClientFactory.getClientId(),
+                        mqAll, cidAll);
+        }
+        catch (Throwable e) {
+            log.error("AllocateMessageQueueStrategy.allocate Exception", e);
+            return;
+        }
+
+        if (null == allocateResult) {
+            allocateResult = new ArrayList<MessageQueue>();
+        }
+
+        List<MessageQueue> old = this.allocateResultTable.put(topic, allocateResult);
+        if (old != null && new HashSet<MessageQueue>(old).equals(new HashSet<MessageQueue>(allocateResult))) {
+            return;
+        }
+
+        // ٷԼĶУύȣµConsumerܴȷλÿʼ
+        if (old != null) {
+            for (MessageQueue mq : old) {
+                if (!allocateResult.contains(mq)) {
+                    AtomicLong offset = this.offsetTable.remove(mq);
+                    if (offset != null) {
+                        try {
+                            this.updateConsumeOffsetToBroker(mq, offset.get());
+                        }
+                        catch (Exception e) {
+                            log.error("doRebalance, updateConsumeOffsetToBroker exception, " + mq, e);
+                        }
+                    }
+                    log.info("doRebalance, " + this.defaultMQPullConsumer.getConsumerGroup() + ", remove " + mq);
+                }
+            }
+        }
+
+        log.info("doRebalance, " + this.defaultMQPullConsumer.getConsumerGroup() + " " + topic + ", allocate "
+                + allocateResult);
+
+        MessageQueueListener messageQueueListener = this.defaultMQPullConsumer.getMessageQueueListener();
+        if (messageQueueListener != null) {
+            try {
+                messageQueueListener.messageQueueChanged(topic, mqAll, allocateResult);
+            }
+            catch (Throwable e) {
+                log.error("messageQueueChanged exception", e);
+            }
+        }
     }
 
 
@@ -418,4 +535,44 @@ public class DefaultMQPullConsumerImpl implements MQConsumerInner {
             }
         }
     }
+
+
+    @Override
+    public void updateTopicSubscribeInfo(String topic, Set<MessageQueue> info) {
+        // ֻӦעTopic
+        Set<String> topics = this.defaultMQPullConsumer.getRegisterTopics();
+        boolean registered = false;
+        synchronized (topics) {
+            registered = topics.contains(topic);
+        }
+
+        if (registered) {
+            Set<MessageQueue> old = this.topicSubscribeInfoTable.put(topic, info);
+            if (null == old || !old.equals(info)) {
+                this.mQClientFactory.rebalanceImmediately();
+            }
+        }
+    }
+
+
+    @Override
+    public void doRebalance() {
+        if (this.serviceState != ServiceState.RUNNING) {
+            return;
+        }
+
+        Set<String> topics = null;
+        synchronized (this.defaultMQPullConsumer.getRegisterTopics()) {
+            topics = new HashSet<String>(this.defaultMQPullConsumer.getRegisterTopics());
+        }
+
+        for (String topic : topics) {
+            try {
+                this.rebalanceByTopic(topic);
+            }
+            catch (Exception e) {
+                log.warn("rebalanceByTopic exception, " + topic, e);
+            }
+        }
+    }
 }
@@ -3,45 +3,113 @@
  */
 package com.alibaba.rocketmq.client.impl.consumer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.client.QueryResult;
+import com.alibaba.rocketmq.client.consumer.AllocateMessageQueueStrategy;
+import com.alibaba.rocketmq.client.consumer.ConsumeFromWhereOffset;
 import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
 import com.alibaba.rocketmq.client.consumer.MQPushConsumer;
 import com.alibaba.rocketmq.client.consumer.PullCallback;
 import com.alibaba.rocketmq.client.consumer.PullResult;
 import com.alibaba.rocketmq.client.consumer.listener.MessageListener;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerOrderly;
 import com.alibaba.rocketmq.client.exception.MQBrokerException;
 import com.alibaba.rocketmq.client.exception.MQClientException;
 import com.alibaba.rocketmq.client.impl.CommunicationMode;
+import com.alibaba.rocketmq.client.impl.FindBrokerResult;
+import com.alibaba.rocketmq.client.impl.MQClientManager;
 import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.ServiceState;
 import com.alibaba.rocketmq.common.TopicFilterType;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
+import com.alibaba.rocketmq.common.protocol.body.LockBatchRequestBody;
+import com.alibaba.rocketmq.common.protocol.body.UnlockBatchRequestBody;
+import com.alibaba.rocketmq.common.protocol.header.QueryConsumerOffsetRequestHeader;
+import com.alibaba.rocketmq.common.protocol.header.UpdateConsumerOffsetRequestHeader;
 import com.alibaba.rocketmq.common.protocol.heartbeat.ConsumeType;
 import com.alibaba.rocketmq.common.protocol.heartbeat.MessageModel;
 import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
+import com.alibaba.rocketmq.common.protocol.route.TopicRouteData;
 import com.alibaba.rocketmq.common.sysflag.PullSysFlag;
 import com.alibaba.rocketmq.remoting.exception.RemotingException;
 
 
 /**
+ * Pushʽѵڲʵ<br>
+ * ÿͬʱֻһȡ;ȡغ̷һȡ
+ * ϢProcessQueue̳߳زѣProcessQueueѹֵʱʱȡ<br>
+ * ˳ʱֻȡBrokerסĶУʱвٷԼʱȽ
+ *
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
 public class DefaultMQPushConsumerImpl implements MQPushConsumer, MQConsumerInner {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
+    // Ϣ쳣ʱӳһʱ
+    private static final long PullTimeDelayMillsWhenException = 3000;
+    // ʱӳһʱ
+    private static final long PullTimeDelayMillsWhenFlowControl = 50;
+    // ͣʱӳһʱ
+    private static final long PullTimeDelayMillsWhenSuspend = 1000;
+    // ѯģʽBrokerʱ
+    private static final long BrokerSuspendMaxTimeMillis = 1000 * 15;
+    // ѯģʽConsumerʱʱ䣨ҪbrokerSuspendMaxTimeMillis
+    private static final long ConsumerTimeoutMillisWhenSuspend = 1000 * 30;
+    // ˳ѣʱBrokerļ
+    private static final long LockAllIntervalMillis = Long.parseLong(System.getProperty(
+        "rocketmq.client.rebalance.lockInterval", "20000"));
+    // رʱȴڽеѽʱ
+    private static final long AwaitConsumeTerminationMillis = 1000 * 10;
+
     private final DefaultMQPushConsumer defaultMQPushConsumer;
-    private ServiceState serviceState = ServiceState.CREATE_JUST;
+    private volatile ServiceState serviceState = ServiceState.CREATE_JUST;
     private MQClientFactory mQClientFactory;
     private PullAPIWrapper pullAPIWrapper;
+    private ConsumeMessageService consumeMessageService;
+    // Ƿ˳
+    private boolean consumeOrderly = false;
+    // ͣϢ
+    private volatile boolean pause = false;
+    // شֻϢ߳޸ģڿ־Ƶ
+    private long flowControlTimes = 0;
 
+    /**
+     * Ĺϵ
+     */
+    private final ConcurrentHashMap<String/* topic */, SubscriptionData> subscriptionInner =
+            new ConcurrentHashMap<String, SubscriptionData>();
+    /**
+     * ĵTopicЩ
+     */
+    private final ConcurrentHashMap<String/* topic */, Set<MessageQueue>> topicSubscribeInfoTable =
+            new ConcurrentHashMap<String, Set<MessageQueue>>();
     /**
      * Ϣ洢
      */
-    private ConcurrentHashMap<MessageQueue, ProcessQueue> processQueueTable =
+    private final ConcurrentHashMap<MessageQueue, ProcessQueue> processQueueTable =
             new ConcurrentHashMap<MessageQueue, ProcessQueue>(64);
+    /**
+     * ѽȣʱϴBrokerϢʱҲ˳ύ
+     */
+    private final ConcurrentHashMap<MessageQueue, AtomicLong> offsetTable =
+            new ConcurrentHashMap<MessageQueue, AtomicLong>(64);
 
 
     public DefaultMQPushConsumerImpl(DefaultMQPushConsumer defaultMQPushConsumer) {
@@ -49,128 +117,284 @@ public class DefaultMQPushConsumerImpl implements MQPushConsumer, MQConsumerInne
     }
 
 
+    private void checkConfig() throws MQClientException {
+        if (null == this.defaultMQPushConsumer.getConsumerGroup()) {
+            throw new MQClientException("consumerGroup is null", null);
+        }
+
+        if (null == this.defaultMQPushConsumer.getMessageListener()) {
+            throw new MQClientException("messageListener is null, registerMessageListener first please", null);
+        }
+
+        if (!(this.defaultMQPushConsumer.getMessageListener() instanceof MessageListenerConcurrently)
+                && !(this.defaultMQPushConsumer.getMessageListener() instanceof MessageListenerOrderly)) {
+            throw new MQClientException("messageListener type not supported, "
+                    + this.defaultMQPushConsumer.getMessageListener().getClass().getName(), null);
+        }
+
+        if (null == this.defaultMQPushConsumer.getMessageModel()
+                || MessageModel.UNKNOWNS == this.defaultMQPushConsumer.getMessageModel()) {
+            throw new MQClientException("messageModel must be CLUSTERING or BROADCASTING", null);
+        }
+
+        // ˳BrokerϰGroupӵĶ㲥ʱͬһGroupConsumerụ
+        if (MessageModel.BROADCASTING == this.defaultMQPushConsumer.getMessageModel()
+                && this.defaultMQPushConsumer.getMessageListener() instanceof MessageListenerOrderly) {
+            throw new MQClientException("orderly consumption not supported in BROADCASTING messageModel", null);
+        }
+
+        if (null == this.defaultMQPushConsumer.getAllocateMessageQueueStrategy()) {
+            throw new MQClientException("allocateMessageQueueStrategy is null", null);
+        }
+
+        if (this.defaultMQPushConsumer.getConsumeThreadCount() <= 0) {
+            throw new MQClientException("consumeThreadCount <= 0", null);
+        }
+    }
+
+
+    @Override
+    public void start() throws MQClientException {
+        switch (this.serviceState) {
+        case CREATE_JUST:
+            this.checkConfig();
+
+            this.serviceState = ServiceState.RUNNING;
+
+            // Ӧͨ÷ʽõĶĹϵ
+            if (this.defaultMQPushConsumer.getSubscription() != null) {
+                for (Entry<String, String> entry : this.defaultMQPushConsumer.getSubscription().entrySet()) {
+                    this.subscribe(entry.getKey(), entry.getValue());
+                }
+            }
+
+            this.mQClientFactory =
+                    MQClientManager.getInstance().getAndCreateMQClientFactory(
+                        this.defaultMQPushConsumer.getMQClientConfig());
+
+            this.pullAPIWrapper = new PullAPIWrapper(//
+                mQClientFactory,//
+                this.defaultMQPushConsumer.getConsumerGroup(),//
+                this.defaultMQPushConsumer.getConsumeFromWhichNode());
+
+            if (this.defaultMQPushConsumer.getMessageListener() instanceof MessageListenerOrderly) {
+                this.consumeOrderly = true;
+                this.consumeMessageService =
+                        new ConsumeMessageOrderlyService(this,
+                            (MessageListenerOrderly) this.defaultMQPushConsumer.getMessageListener());
+            }
+            else {
+                this.consumeOrderly = false;
+                this.consumeMessageService =
+                        new ConsumeMessageConcurrentlyService(this,
+                            (MessageListenerConcurrently) this.defaultMQPushConsumer.getMessageListener());
+            }
+            this.consumeMessageService.start();
+
+            boolean registerOK =
+                    mQClientFactory.registerConsumer(this.defaultMQPushConsumer.getConsumerGroup(), this);
+            if (!registerOK) {
+                this.serviceState = ServiceState.CREATE_JUST;
+                this.consumeMessageService.shutdown();
+                throw new MQClientException("The consumer group[" + this.defaultMQPushConsumer.getConsumerGroup()
+                        + "] has created already, specifed another name please.", null);
+            }
+
+            mQClientFactory.start();
+
+            this.updateTopicSubscribeInfoWhenSubscriptionChanged();
+            // Broker֪ԼĴڣؾʱܲ鵽ԼID
+            mQClientFactory.sendHeartbeatToAllBrokerWithLock();
+            mQClientFactory.rebalanceImmediately();
+
+            if (this.consumeOrderly) {
+                this.startScheduledTaskLockAll();
+            }
+
+            log.info("the consumer [" + this.defaultMQPushConsumer.getConsumerGroup() + "] start OK");
+            break;
+        case RUNNING:
+            break;
+        case SHUTDOWN_ALREADY:
+            break;
+        default:
+            break;
+        }
+    }
+
+
+    @Override
+    public void shutdown() {
+        switch (this.serviceState) {
+        case CREATE_JUST:
+            break;
+        case RUNNING:
+            // ϢFactoryã״̬лConsumerٷµȡ
+            this.serviceState = ServiceState.SHUTDOWN_ALREADY;
+            // ѵϢ꣬ǵĽȲһύ
+            this.consumeMessageService.shutdown();
+            boolean terminated = this.consumeMessageService.awaitTermination(AwaitConsumeTerminationMillis);
+            if (!terminated) {
+                log.warn("the consumer [" + this.defaultMQPushConsumer.getConsumerGroup()
+                        + "] consume threads not terminated in " + AwaitConsumeTerminationMillis + "ms");
+            }
+            this.uploadConsumerOffsetsToBroker();
+            // ˳ѣύܽConsumerӾɽȿʼظ
+            if (this.consumeOrderly) {
+                if (terminated) {
+                    this.unlockAll(false);
+                }
+                else {
+                    this.unlockIdleProcessQueues();
+                }
+            }
+            for (ProcessQueue pq : this.processQueueTable.values()) {
+                pq.setDropped(true);
+            }
+            this.mQClientFactory.unregisterConsumer(this.defaultMQPushConsumer.getConsumerGroup());
+            this.mQClientFactory.shutdown();
+            log.info("the consumer [" + this.defaultMQPushConsumer.getConsumerGroup() + "] shutdown OK");
+            break;
+        case SHUTDOWN_ALREADY:
+            break;
+        default:
+            break;
+        }
+    }
+
+
+    private void makeSureStateOK() throws MQClientException {
+        if (this.serviceState != ServiceState.RUNNING) {
+            throw new MQClientException("The consumer service state not OK", null);
+        }
+    }
+
+
     @Override
     public void sendMessageBack(MessageExt msg, MessageQueue mq, int delayLevel) {
-        // TODO Auto-generated method stub
+        // Broker֧CONSUMER_SEND_MSG_BACKܾĬԣ÷ΪϢѷأسɹϢͶ
+        throw new UnsupportedOperationException("sendMessageBack is not supported by the broker yet, "
+                + "return RECONSUME_LATER to consume the message again locally");
     }
 
 
     @Override
     public List<MessageQueue> fetchSubscribeMessageQueues(String topic) throws MQClientException {
-        // TODO Auto-generated method stub
-        return null;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().fetchSubscribeMessageQueues(topic);
     }
 
 
     @Override
     public void createTopic(String key, String newTopic, int queueNum, TopicFilterType topicFilterType,
             boolean order) throws MQClientException {
-        // TODO Auto-generated method stub
-
+        this.makeSureStateOK();
+        this.mQClientFactory.getMQAdminImpl().createTopic(key, newTopic, queueNum, topicFilterType, order);
     }
 
 
     @Override
     public long searchOffset(MessageQueue mq, long timestamp) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().searchOffset(mq, timestamp);
     }
 
 
     @Override
     public long getMaxOffset(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().getMaxOffset(mq);
     }
 
 
     @Override
     public long getMinOffset(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().getMinOffset(mq);
     }
 
 
     @Override
     public long getEarliestMsgStoreTime(MessageQueue mq) throws MQClientException {
-        // TODO Auto-generated method stub
-        return 0;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().getEarliestMsgStoreTime(mq);
     }
 
 
     @Override
     public MessageExt viewMessage(String msgId) throws RemotingException, MQBrokerException, InterruptedException,
             MQClientException {
-        // TODO Auto-generated method stub
-        return null;
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().viewMessage(msgId);
     }
 
 
     @Override
     public QueryResult queryMessage(String topic, String key, int maxNum, long begin, long end)
             throws MQClientException, InterruptedException {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-
-    @Override
-    public void start() {
-        // TODO Auto-generated method stub
-
-    }
-
-
-    @Override
-    public void shutdown() {
-        // TODO Auto-generated method stub
-
+        this.makeSureStateOK();
+        return this.mQClientFactory.getMQAdminImpl().queryMessage(topic, key, maxNum, begin, end);
     }
 
 
     @Override
     public void registerMessageListener(MessageListener messageListener) {
-        // TODO Auto-generated method stub
-
+        this.defaultMQPushConsumer.setMessageListener(messageListener);
     }
 
 
     @Override
     public void subscribe(String topic, String subExpression) {
-        // TODO Auto-generated method stub
+        String subString = subExpression != null ? subExpression : SubscriptionData.SUB_ALL;
+        SubscriptionData subscriptionData = new SubscriptionData(topic, subString, null, false);
+        this.subscriptionInner.put(topic, subscriptionData);
 
+        if (this.serviceState == ServiceState.RUNNING && this.mQClientFactory != null) {
+            this.updateTopicSubscribeInfoWhenSubscriptionChanged();
+        }
     }
 
 
     @Override
     public void unsubscribe(String topic) {
-        // TODO Auto-generated method stub
-
+        this.subscriptionInner.remove(topic);
+        this.topicSubscribeInfoTable.remove(topic);
+        synchronized (this) {
+            Iterator<Entry<MessageQueue, ProcessQueue>> it = this.processQueueTable.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<MessageQueue, ProcessQueue> entry = it.next();
+                if (entry.getKey().getTopic().equals(topic)
+                        && this.dropProcessQueue(entry.getKey(), entry.getValue())) {
+                    it.remove();
+                }
+            }
+        }
     }
 
 
     @Override
     public void suspend() {
-        // TODO Auto-generated method stub
-
+        this.pause = true;
+        log.info("suspend this consumer, " + this.defaultMQPushConsumer.getConsumerGroup());
     }
 
 
     @Override
     public void resume() {
-        // TODO Auto-generated method stub
+        this.pause = false;
+        log.info("resume this consumer, " + this.defaultMQPushConsumer.getConsumerGroup());
     }
 
 
     @Override
     public String getGroupName() {
-        return null;
+        return this.defaultMQPushConsumer.getConsumerGroup();
     }
 
 
     @Override
     public MessageModel getMessageModel() {
-        return null;
+        return this.defaultMQPushConsumer.getMessageModel();
     }
 
 
@@ -182,78 +406,805 @@ public class DefaultMQPushConsumerImpl implements MQPushConsumer, MQConsumerInne
 
     @Override
     public Set<SubscriptionData> getMQSubscriptions() {
-        return null;
+        return new HashSet<SubscriptionData>(this.subscriptionInner.values());
+    }
+
+
+    private void updateTopicSubscribeInfoWhenSubscriptionChanged() {
+        for (String topic : this.subscriptionInner.keySet()) {
+            this.mQClientFactory.updateTopicRouteInfoFromNameServer(topic);
+
+            // ·ϢѾͬһFactoryڵConsumerProducerȡʱصһ
+            TopicRouteData topicRouteData = this.mQClientFactory.getAnExistTopicRouteData(topic);
+            if (topicRouteData != null) {
+                Set<MessageQueue> subscribeInfo =
+                        new HashSet<MessageQueue>(MQClientFactory.topicRouteData2TopicSubscribeInfo(topic,
+                            topicRouteData));
+                this.updateTopicSubscribeInfo(topic, subscribeInfo);
+            }
+        }
+    }
+
+
+    @Override
+    public void updateTopicSubscribeInfo(String topic, Set<MessageQueue> info) {
+        if (this.serviceState != ServiceState.RUNNING) {
+            return;
+        }
+
+        if (this.subscriptionInner.containsKey(topic)) {
+            Set<MessageQueue> old = this.topicSubscribeInfoTable.put(topic, info);
+            // ڸؾ߳·Уռø·ɵ
+            if (null == old || !old.equals(info)) {
+                this.mQClientFactory.rebalanceImmediately();
+            }
+        }
+    }
+
+
+    @Override
+    public void doRebalance() {
+        if (this.serviceState != ServiceState.RUNNING) {
+            return;
+        }
+
+        this.dropPendingProcessQueues();
+
+        for (String topic : this.subscriptionInner.keySet()) {
+            try {
+                this.rebalanceByTopic(topic);
+            }
+            catch (Exception e) {
+                log.warn("rebalanceByTopic exception, " + topic, e);
+            }
+        }
+    }
+
+
+    /**
+     * ΪǰConsumerУ·Ķ̿ʼϢԼĶֹͣȡύ<br>
+     * ֻ¾ɷĲ죬ûб仯ĶвӰ죻֤ͬһʱֻһ߳ؾ
+     */
+    private synchronized void rebalanceByTopic(final String topic) {
+        Set<MessageQueue> mqSet = this.topicSubscribeInfoTable.get(topic);
+        if (null == mqSet) {
+            log.warn("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup()
+                    + ", but the topic[" + topic + "] not exist.");
+            return;
+        }
+
+        Set<MessageQueue> allocateResultSet = new HashSet<MessageQueue>();
+        // 㲥ѣÿConsumerж
+        if (MessageModel.BROADCASTING == this.defaultMQPushConsumer.getMessageModel()) {
+            allocateResultSet.addAll(mqSet);
+        }
+        else {
+            List<MessageQueue> allocateResult = this.allocateClustering(topic, mqSet);
+            if (null == allocateResult) {
+                return;
+            }
+            allocateResultSet.addAll(allocateResult);
+        }
+
+        // ٷԼĶ
+        Iterator<Entry<MessageQueue, ProcessQueue>> it = this.processQueueTable.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<MessageQueue, ProcessQueue> entry = it.next();
+            MessageQueue mq = entry.getKey();
+            if (mq.getTopic().equals(topic) && !allocateResultSet.contains(mq)) {
+                if (this.dropProcessQueue(mq, entry.getValue())) {
+                    it.remove();
+                    log.info("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup() + ", remove " + mq);
+                }
+                else {
+                    log.info("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup()
+                            + ", remove later because still consuming, " + mq);
+                }
+            }
+        }
+
+        // ·ԼĶ
+        for (MessageQueue mq : allocateResultSet) {
+            if (!this.processQueueTable.containsKey(mq)) {
+                // ˳ѣпܻConsumerס´θؾʱ
+                if (this.consumeOrderly && !this.lock(mq)) {
+                    log.warn("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup()
+                            + ", add a new mq failed, because lock failed, " + mq);
+                    continue;
+                }
+
+                long nextOffset = this.computePullFromWhere(mq);
+                if (nextOffset >= 0) {
+                    ProcessQueue pq = new ProcessQueue();
+                    if (this.consumeOrderly) {
+                        pq.setLocked(true);
+                        pq.setLastLockTimestamp(System.currentTimeMillis());
+                    }
+                    this.processQueueTable.put(mq, pq);
+                    this.updateConsumeOffset(mq, pq, nextOffset, false);
+
+                    PullRequest pullRequest = new PullRequest();
+                    pullRequest.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+                    pullRequest.setMessageQueue(mq);
+                    pullRequest.setNextOffset(nextOffset);
+                    pullRequest.setProcessQueue(pq);
+
+                    this.mQClientFactory.getPullMessageService().executePullRequestImmediately(pullRequest);
+                    log.info("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup() + ", add " + mq
+                            + ", nextOffset " + nextOffset);
+                }
+                else {
+                    // ´θؾʱ
+                    log.warn("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup()
+                            + ", compute offset failed, " + mq);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * ȺѣշͬһGroupConsumer̯֮
+     *
+     * @return nullʾβܷ䣬з
+     */
+    private List<MessageQueue> allocateClustering(final String topic, final Set<MessageQueue> mqSet) {
+        List<MessageQueue> mqAll = new ArrayList<MessageQueue>(mqSet);
+        Collections.sort(mqAll);
+
+        List<String> cidAll =
+                this.mQClientFactory.findConsumerIdList(topic, this.defaultMQPushConsumer.getConsumerGroup());
+        if (null == cidAll || cidAll.isEmpty()) {
+            log.warn("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup() + " " + topic
+                    + ", get consumer id list failed");
+            return null;
+        }
+
+        // BrokerûյԼз䣬´θؾ
+        cidAll = new ArrayList<String>(cidAll);
+        Collections.sort(cidAll);
+        if (!cidAll.contains(this.mQClientFactory.getClientId())) {
+            log.warn("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup() + " " + topic
+                    + ", the consumer id list not contains myself, " + cidAll);
+            return null;
+        }
+
+        AllocateMessageQueueStrategy strategy = this.defaultMQPushConsumer.getAllocateMessageQueueStrategy();
+        List<MessageQueue> allocateResult = null;
+        try {
+            allocateResult =
+                    strategy.allocate(this.defaultMQPushConsumer.getConsumerGroup(), topic,
+                        this.mQClientFactory.getClientId(), mqAll, cidAll);
+        }
+        catch (Throwable e) {
+            log.error("AllocateMessageQueueStrategy.allocate Exception", e);
+            return null;
+        }
+
+        return allocateResult != null ? allocateResult : new ArrayList<MessageQueue>();
+    }
+
+
+    /**
+     * ϴθؾʱѡûжɹĶУٳһ
+     */
+    private synchronized void dropPendingProcessQueues() {
+        Iterator<Entry<MessageQueue, ProcessQueue>> it = this.processQueueTable.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<MessageQueue, ProcessQueue> entry = it.next();
+            if (entry.getValue().isDropped() && this.dropProcessQueue(entry.getKey(), entry.getValue())) {
+                it.remove();
+                log.info("doRebalance, " + this.defaultMQPushConsumer.getConsumerGroup() + ", remove "
+                        + entry.getKey());
+            }
+        }
+    }
+
+
+    /**
+     * ԼĶУύ<br>
+     * ˳ѣڽеѽύȺٽµConsumerܴȷĽȿʼѣ
+     * ڸؾڵãȴлʱfalseprocessQueueTableе´θؾٶ
+     *
+     * @return ǷѾԴprocessQueueTableƳ
+     */
+    private boolean dropProcessQueue(final MessageQueue mq, final ProcessQueue pq) {
+        pq.setDropped(true);
+
+        if (this.consumeOrderly && !pq.getLockConsume().tryLock()) {
+            return false;
+        }
+
+        try {
+            // 㲥ѵĽֻڱأٴηԼʱ
+            AtomicLong offset = this.isOffsetStoredInBroker() ? this.offsetTable.remove(mq) : null;
+            if (offset != null) {
+                try {
+                    this.updateConsumeOffsetToBroker(mq, offset.get());
+                }
+                catch (Exception e) {
+                    log.error("dropProcessQueue, updateConsumeOffsetToBroker exception, " + mq, e);
+                }
+            }
+
+            if (this.consumeOrderly) {
+                this.unlock(mq, true);
+            }
+        }
+        finally {
+            if (this.consumeOrderly) {
+                pq.getLockConsume().unlock();
+            }
+        }
+
+        return true;
+    }
+
+
+    private void startScheduledTaskLockAll() {
+        this.mQClientFactory.getScheduledExecutorService().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                if (DefaultMQPushConsumerImpl.this.serviceState != ServiceState.RUNNING) {
+                    return;
+                }
+
+                try {
+                    DefaultMQPushConsumerImpl.this.lockAll();
+                }
+                catch (Exception e) {
+                    log.error("ScheduledTask lockAll exception", e);
+                }
+            }
+        }, 1000 * 1, LockAllIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    private HashMap<String/* brokerName */, Set<MessageQueue>> buildProcessQueueTableByBrokerName() {
+        HashMap<String, Set<MessageQueue>> result = new HashMap<String, Set<MessageQueue>>();
+        for (MessageQueue mq : this.processQueueTable.keySet()) {
+            Set<MessageQueue> mqs = result.get(mq.getBrokerName());
+            if (null == mqs) {
+                mqs = new HashSet<MessageQueue>();
+                result.put(mq.getBrokerName(), mqs);
+            }
+
+            mqs.add(mq);
+        }
+
+        return result;
     }
 
 
     /**
-     * ̵߳
+     * ˳ѣBrokerסһ
      */
-    private ProcessQueue getAndCreateProcessQueue(final MessageQueue mq) {
-        ProcessQueue pq = this.processQueueTable.get(mq);
-        if (null == pq) {
-            pq = new ProcessQueue();
-            this.processQueueTable.put(mq, pq);
+    public boolean lock(final MessageQueue mq) {
+        FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
+        if (findBrokerResult != null) {
+            LockBatchRequestBody requestBody = new LockBatchRequestBody();
+            requestBody.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+            requestBody.setClientId(this.mQClientFactory.getClientId());
+            requestBody.getMqSet().add(mq);
+
+            try {
+                Set<MessageQueue> lockedMq =
+                        this.mQClientFactory.getMQClientAPIImpl().lockBatchMQ(findBrokerResult.getBrokerAddr(),
+                            requestBody, 1000);
+                for (MessageQueue mmqq : lockedMq) {
+                    ProcessQueue processQueue = this.processQueueTable.get(mmqq);
+                    if (processQueue != null) {
+                        processQueue.setLocked(true);
+                        processQueue.setLastLockTimestamp(System.currentTimeMillis());
+                    }
+                }
+
+                return lockedMq.contains(mq);
+            }
+            catch (Exception e) {
+                log.error("lockBatchMQ exception, " + mq, e);
+            }
         }
 
-        return pq;
+        return false;
+    }
+
+
+    /**
+     * ˳ѣʱBrokerûסĶͣ
+     */
+    public void lockAll() {
+        HashMap<String, Set<MessageQueue>> brokerMqs = this.buildProcessQueueTableByBrokerName();
+        for (Entry<String, Set<MessageQueue>> entry : brokerMqs.entrySet()) {
+            final String brokerName = entry.getKey();
+            final Set<MessageQueue> mqs = entry.getValue();
+            if (mqs.isEmpty()) {
+                continue;
+            }
+
+            FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(brokerName);
+            if (findBrokerResult != null) {
+                LockBatchRequestBody requestBody = new LockBatchRequestBody();
+                requestBody.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+                requestBody.setClientId(this.mQClientFactory.getClientId());
+                requestBody.setMqSet(mqs);
+
+                try {
+                    Set<MessageQueue> lockOKMQSet =
+                            this.mQClientFactory.getMQClientAPIImpl().lockBatchMQ(
+                                findBrokerResult.getBrokerAddr(), requestBody, 1000);
+
+                    for (MessageQueue mq : mqs) {
+                        ProcessQueue processQueue = this.processQueueTable.get(mq);
+                        if (processQueue != null) {
+                            if (lockOKMQSet.contains(mq)) {
+                                processQueue.setLocked(true);
+                                processQueue.setLastLockTimestamp(System.currentTimeMillis());
+                            }
+                            else {
+                                processQueue.setLocked(false);
+                                log.warn("the message queue locked failed, Group: "
+                                        + this.defaultMQPushConsumer.getConsumerGroup() + " " + mq);
+                            }
+                        }
+                    }
+                }
+                catch (Exception e) {
+                    log.error("lockBatchMQ exception, " + brokerName, e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * ˳ѣBrokerϽһ
+     */
+    public void unlock(final MessageQueue mq, final boolean oneway) {
+        FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
+        if (findBrokerResult != null) {
+            UnlockBatchRequestBody requestBody = new UnlockBatchRequestBody();
+            requestBody.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+            requestBody.setClientId(this.mQClientFactory.getClientId());
+            requestBody.getMqSet().add(mq);
+
+            try {
+                this.mQClientFactory.getMQClientAPIImpl().unlockBatchMQ(findBrokerResult.getBrokerAddr(),
+                    requestBody, 1000, oneway);
+                log.info("unlockBatchMQ OK, Group: " + this.defaultMQPushConsumer.getConsumerGroup() + " " + mq);
+            }
+            catch (Exception e) {
+                log.error("unlockBatchMQ exception, " + mq, e);
+            }
+        }
+    }
+
+
+    /**
+     * ˳ѣConsumerرʱжУConsumerҪ
+     */
+    public void unlockAll(final boolean oneway) {
+        HashMap<String, Set<MessageQueue>> brokerMqs = this.buildProcessQueueTableByBrokerName();
+        for (Entry<String, Set<MessageQueue>> entry : brokerMqs.entrySet()) {
+            final String brokerName = entry.getKey();
+            final Set<MessageQueue> mqs = entry.getValue();
+            if (mqs.isEmpty()) {
+                continue;
+            }
+
+            FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(brokerName);
+            if (findBrokerResult != null) {
+                UnlockBatchRequestBody requestBody = new UnlockBatchRequestBody();
+                requestBody.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+                requestBody.setClientId(this.mQClientFactory.getClientId());
+                requestBody.setMqSet(mqs);
+
+                try {
+                    this.mQClientFactory.getMQClientAPIImpl().unlockBatchMQ(findBrokerResult.getBrokerAddr(),
+                        requestBody, 1000, oneway);
+
+                    for (MessageQueue mq : mqs) {
+                        ProcessQueue processQueue = this.processQueueTable.get(mq);
+                        if (processQueue != null) {
+                            processQueue.setLocked(false);
+                        }
+                    }
+                }
+                catch (Exception e) {
+                    log.error("unlockBatchMQ exception, " + brokerName, e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * ˳ѣرʱ߳ûмʱֻûѵĶУĵBrokerϵ
+     */
+    private void unlockIdleProcessQueues() {
+        for (Entry<MessageQueue, ProcessQueue> entry : this.processQueueTable.entrySet()) {
+            final ProcessQueue pq = entry.getValue();
+            if (pq.getLockConsume().tryLock()) {
+                try {
+                    this.unlock(entry.getKey(), false);
+                    pq.setLocked(false);
+                }
+                finally {
+                    pq.getLockConsume().unlock();
+                }
+            }
+            else {
+                log.warn("the message queue still consuming, not unlock it, " + entry.getKey());
+            }
+        }
+    }
+
+
+    /**
+     * ·д￪ʼ
+     *
+     * @return С0ʾʧ
+     */
+    private long computePullFromWhere(final MessageQueue mq) {
+        try {
+            switch (this.defaultMQPushConsumer.getConsumeFromWhereOffset()) {
+            case CONSUME_FROM_LAST_OFFSET:
+            case CONSUME_FROM_LAST_OFFSET_AND_FROM_MIN_WHEN_BOOT_FIRST:
+                if (this.isOffsetStoredInBroker()) {
+                    try {
+                        return this.fetchConsumeOffsetFromBroker(mq);
+                    }
+                    catch (MQBrokerException e) {
+                        // һBrokerûѽ
+                        if (e.getResponseCode() != MQResponseCode.QUERY_NOT_FOUND_VALUE) {
+                            throw e;
+                        }
+                    }
+                }
+                else {
+                    AtomicLong offset = this.offsetTable.get(mq);
+                    if (offset != null && offset.get() >= 0) {
+                        return offset.get();
+                    }
+                }
+
+                if (ConsumeFromWhereOffset.CONSUME_FROM_LAST_OFFSET == this.defaultMQPushConsumer
+                    .getConsumeFromWhereOffset()) {
+                    return this.mQClientFactory.getMQAdminImpl().getMaxOffset(mq);
+                }
+                return this.mQClientFactory.getMQAdminImpl().getMinOffset(mq);
+            case CONSUME_FROM_MIN_OFFSET:
+                return this.mQClientFactory.getMQAdminImpl().getMinOffset(mq);
+            case CONSUME_FROM_MAX_OFFSET:
+                return this.mQClientFactory.getMQAdminImpl().getMaxOffset(mq);
+            default:
+                break;
+            }
+        }
+        catch (Exception e) {
+            log.warn("computePullFromWhere exception, " + mq, e);
+        }
+
+        return -1;
     }
 
 
     public void pullMessage(final PullRequest pullRequest) {
-        int sysFlag = PullSysFlag.buildSysFlag(//
-            false, // commitOffset
-            true, // suspend
-            false// subscription
-            );
+        final ProcessQueue processQueue = pullRequest.getProcessQueue();
+        if (processQueue.isDropped()) {
+            log.info("the pull request[" + pullRequest + "] is dropped.");
+            return;
+        }
 
-        PullCallback pullCallback = new PullCallback() {
+        processQueue.setLastPullTimestamp(System.currentTimeMillis());
 
+        if (this.serviceState != ServiceState.RUNNING) {
+            log.warn("pullMessage, but the consumer service state not OK, " + pullRequest);
+            return;
+        }
+
+        if (this.pause) {
+            this.mQClientFactory.getPullMessageService().executePullRequestLater(pullRequest,
+                PullTimeDelayMillsWhenSuspend);
+            return;
+        }
+
+        // أδѵϢ
+        if (processQueue.getMsgCount() > this.defaultMQPushConsumer.getPullThresholdForQueue()) {
+            this.executePullRequestLaterWhenFlowControl(pullRequest, "msgCount", processQueue.getMsgCount());
+            return;
+        }
+
+        // أδѵϢС
+        if (processQueue.getMsgSize() > this.defaultMQPushConsumer.getPullThresholdSizeForQueue() * 1024L * 1024L) {
+            this.executePullRequestLaterWhenFlowControl(pullRequest, "msgSize", processQueue.getMsgSize());
+            return;
+        }
+
+        if (!this.consumeOrderly) {
+            // أϢʱѲɹúϢƵضѻ
+            if (processQueue.getMaxSpan() > this.defaultMQPushConsumer.getConsumeConcurrentlyMaxSpan()) {
+                this.executePullRequestLaterWhenFlowControl(pullRequest, "maxSpan", processQueue.getMaxSpan());
+                return;
+            }
+        }
+        else {
+            // ˳ѣûסĶвϢȶʱɹ
+            if (!processQueue.isLocked()) {
+                this.mQClientFactory.getPullMessageService().executePullRequestLater(pullRequest,
+                    PullTimeDelayMillsWhenException);
+                log.info("pull message later because not locked in broker, " + pullRequest);
+                return;
+            }
+        }
+
+        final SubscriptionData subscriptionData =
+                this.subscriptionInner.get(pullRequest.getMessageQueue().getTopic());
+        if (null == subscriptionData) {
+            this.mQClientFactory.getPullMessageService().executePullRequestLater(pullRequest,
+                PullTimeDelayMillsWhenException);
+            log.warn("find the consumer's subscription failed, " + pullRequest);
+            return;
+        }
+
+        PullCallback pullCallback = new PullCallback() {
             @Override
             public void onSuccess(PullResult pullResult) {
+                // ѯڼпѱ·䣬ٸѽȣḲߵĽ
+                if (processQueue.isDropped()) {
+                    log.info("the pull request[" + pullRequest + "] is dropped when pull result returned.");
+                    return;
+                }
+
+                if (pullResult != null) {
+                    pullResult =
+                            DefaultMQPushConsumerImpl.this.pullAPIWrapper.processPullResult(
+                                pullRequest.getMessageQueue(), pullResult, pullRequest.getNextOffset());
+
+                    switch (pullResult.getPullStatus()) {
+                    case FOUND:
+                        pullRequest.setNextOffset(pullResult.getNextBeginOffset());
+                        if (pullResult.getMsgFoundList() != null && !pullResult.getMsgFoundList().isEmpty()) {
+                            boolean dispatchToConsume = processQueue.putMessage(pullResult.getMsgFoundList());
+                            DefaultMQPushConsumerImpl.this.consumeMessageService.submitConsumeRequest(//
+                                pullResult.getMsgFoundList(), //
+                                processQueue, //
+                                pullRequest.getMessageQueue(), //
+                                dispatchToConsume);
+                        }
+
+                        DefaultMQPushConsumerImpl.this.executePullRequestImmediately(pullRequest);
+                        break;
+                    case NO_NEW_MSG:
+                    case NO_MATCHED_MSG:
+                        pullRequest.setNextOffset(pullResult.getNextBeginOffset());
+                        // ûδϢѽȿֱƽ´ȡλ
+                        if (processQueue.getMsgCount() == 0) {
+                            DefaultMQPushConsumerImpl.this.updateConsumeOffset(pullRequest.getMessageQueue(),
+                                processQueue, pullRequest.getNextOffset(), true);
+                        }
+
+                        DefaultMQPushConsumerImpl.this.executePullRequestImmediately(pullRequest);
+                        break;
+                    case OFFSET_ILLEGAL:
+                        log.warn("the pull request offset illegal, " + pullRequest + " " + pullResult);
+                        pullRequest.setNextOffset(pullResult.getNextBeginOffset());
+                        if (processQueue.getMsgCount() == 0) {
+                            DefaultMQPushConsumerImpl.this.updateConsumeOffset(pullRequest.getMessageQueue(),
+                                processQueue, pullRequest.getNextOffset(), false);
+                        }
+
+                        DefaultMQPushConsumerImpl.this.executePullRequestImmediately(pullRequest);
+                        break;
+                    default:
+                        break;
+                    }
+                }
             }
 
 
             @Override
             public void onException(Throwable e) {
+                log.warn("execute the pull request exception, " + pullRequest, e);
+                DefaultMQPushConsumerImpl.this.mQClientFactory.getPullMessageService().executePullRequestLater(
+                    pullRequest, PullTimeDelayMillsWhenException);
             }
         };
 
+        // ˳ύѽȣٵύRPC
+        boolean commitOffsetEnable = false;
+        long commitOffsetValue = 0L;
+        AtomicLong offset = this.offsetTable.get(pullRequest.getMessageQueue());
+        if (offset != null && offset.get() >= 0 && this.isOffsetStoredInBroker()) {
+            commitOffsetEnable = true;
+            commitOffsetValue = offset.get();
+        }
+
+        int sysFlag = PullSysFlag.buildSysFlag(//
+            commitOffsetEnable, // commitOffset
+            true, // suspend
+            true// subscription
+            );
+
         try {
             this.pullAPIWrapper.pullKernelImpl(//
                 pullRequest.getMessageQueue(), // 1
-                null, // 2
+                subscriptionData.getSubString(), // 2
                 pullRequest.getNextOffset(), // 3
                 this.defaultMQPushConsumer.getPullBatchSize(), // 4
                 sysFlag, // 5
-                0,// 6
-                1000 * 10, // 7
-                1000 * 20, // 8
+                commitOffsetValue,// 6
+                BrokerSuspendMaxTimeMillis, // 7
+                ConsumerTimeoutMillisWhenSuspend, // 8
                 CommunicationMode.ASYNC, // 9
                 pullCallback// 10
                 );
         }
-        catch (MQClientException e) {
-            e.printStackTrace();
+        catch (Exception e) {
+            log.error("pullKernelImpl exception", e);
+            this.mQClientFactory.getPullMessageService().executePullRequestLater(pullRequest,
+                PullTimeDelayMillsWhenException);
+        }
+    }
+
+
+    private void executePullRequestImmediately(final PullRequest pullRequest) {
+        this.mQClientFactory.getPullMessageService().executePullRequestImmediately(pullRequest);
+    }
+
+
+    private void executePullRequestLaterWhenFlowControl(final PullRequest pullRequest, final String reason,
+            final long value) {
+        this.mQClientFactory.getPullMessageService().executePullRequestLater(pullRequest,
+            PullTimeDelayMillsWhenFlowControl);
+        if ((this.flowControlTimes++ % 1000) == 0) {
+            log.warn("the consumer message buffer is full, so do flow control, " + reason + " " + value + " "
+                    + pullRequest + " flowControlTimes " + this.flowControlTimes);
+        }
+    }
+
+
+    /**
+     * ±ѽ<br>
+     * б·󣬾ProcessQueueϳٵѽд룬ḲߵĽȣ
+     * ˳ѳ߳⣬ҪͷύȺͽ
+     *
+     * @param increaseOnly
+     *            Ϊtrueʱֻ󣬶߳ύʱ
+     */
+    public void updateConsumeOffset(final MessageQueue mq, final ProcessQueue pq, final long offset,
+            final boolean increaseOnly) {
+        if (this.processQueueTable.get(mq) != pq || this.isDroppedForOffset(pq)) {
+            return;
+        }
+
+        AtomicLong offsetOld = this.offsetTable.get(mq);
+        if (null == offsetOld) {
+            AtomicLong offsetNew = new AtomicLong(offset);
+            offsetOld = this.offsetTable.putIfAbsent(mq, offsetNew);
+            if (null == offsetOld) {
+                // ֮ǡñдĽ
+                if (this.isDroppedForOffset(pq)) {
+                    this.offsetTable.remove(mq, offsetNew);
+                }
+                return;
+            }
+        }
+
+        if (increaseOnly) {
+            for (;;) {
+                long prev = offsetOld.get();
+                if (offset <= prev || offsetOld.compareAndSet(prev, offset)) {
+                    break;
+                }
+            }
+        }
+        else {
+            offsetOld.set(offset);
+        }
+    }
+
+
+    /**
+     * ѾprocessQueueTableƳʱύȺͽ
+     */
+    boolean isProcessQueueRemoved(final MessageQueue mq, final ProcessQueue pq) {
+        return this.processQueueTable.get(mq) != pq;
+    }
+
+
+    private boolean isDroppedForOffset(final ProcessQueue pq) {
+        return pq.isDropped() && !pq.getLockConsume().isHeldByCurrentThread();
+    }
+
+
+    /**
+     * 㲥ѣÿConsumerϢֻڱڴУύGroupõBroker
+     */
+    private boolean isOffsetStoredInBroker() {
+        return MessageModel.BROADCASTING != this.defaultMQPushConsumer.getMessageModel();
+    }
+
+
+    private void updateConsumeOffsetToBroker(MessageQueue mq, long offset) throws RemotingException,
+            MQBrokerException, InterruptedException, MQClientException {
+        FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
+        if (null == findBrokerResult) {
+            this.mQClientFactory.updateTopicRouteInfoFromNameServer(mq.getTopic());
+            findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
+        }
+
+        if (findBrokerResult != null) {
+            UpdateConsumerOffsetRequestHeader requestHeader = new UpdateConsumerOffsetRequestHeader();
+            requestHeader.setTopic(mq.getTopic());
+            requestHeader.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+            requestHeader.setQueueId(mq.getQueueId());
+            requestHeader.setCommitOffset(offset);
+
+            this.mQClientFactory.getMQClientAPIImpl().updateConsumerOffset(findBrokerResult.getBrokerAddr(),
+                requestHeader, 1000 * 5);
         }
-        catch (RemotingException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+        else {
+            throw new MQClientException("The broker[" + mq.getBrokerName() + "] not exist", null);
         }
-        catch (MQBrokerException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+    }
+
+
+    private long fetchConsumeOffsetFromBroker(MessageQueue mq) throws RemotingException, MQBrokerException,
+            InterruptedException, MQClientException {
+        FindBrokerResult findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
+        if (null == findBrokerResult) {
+            this.mQClientFactory.updateTopicRouteInfoFromNameServer(mq.getTopic());
+            findBrokerResult = this.mQClientFactory.findBrokerAddressInAdmin(mq.getBrokerName());
         }
-        catch (InterruptedException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+
+        if (findBrokerResult != null) {
+            QueryConsumerOffsetRequestHeader requestHeader = new QueryConsumerOffsetRequestHeader();
+            requestHeader.setTopic(mq.getTopic());
+            requestHeader.setConsumerGroup(this.defaultMQPushConsumer.getConsumerGroup());
+            requestHeader.setQueueId(mq.getQueueId());
+
+            return this.mQClientFactory.getMQClientAPIImpl().queryConsumerOffset(findBrokerResult.getBrokerAddr(),
+                requestHeader, 1000 * 5);
+        }
+        else {
+            throw new MQClientException("The broker[" + mq.getBrokerName() + "] not exist", null);
         }
     }
 
 
     @Override
     public void uploadConsumerOffsetsToBroker() {
-        // TODO Auto-generated method stub
+        if (!this.isOffsetStoredInBroker()) {
+            return;
+        }
+
+        for (MessageQueue mq : this.offsetTable.keySet()) {
+            // ѲԼĶУµ߸ύ
+            if (!this.processQueueTable.containsKey(mq)) {
+                continue;
+            }
+
+            AtomicLong offset = this.offsetTable.get(mq);
+            if (offset != null) {
+                try {
+                    this.updateConsumeOffsetToBroker(mq, offset.get());
+                    log.debug("updateConsumeOffsetToBroker " + mq + " " + offset.get());
+                }
+                catch (Exception e) {
+                    log.warn("updateConsumeOffsetToBroker exception, " + mq, e);
+                }
+            }
+        }
+    }
+
+
+    public DefaultMQPushConsumer getDefaultMQPushConsumer() {
+        return defaultMQPushConsumer;
+    }
+
 
+    public ConcurrentHashMap<MessageQueue, ProcessQueue> getProcessQueueTable() {
+        return processQueueTable;
     }
 }
@@ -5,6 +5,7 @@ package com.alibaba.rocketmq.client.impl.consumer;
 
 import java.util.Set;
 
+import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.protocol.heartbeat.ConsumeType;
 import com.alibaba.rocketmq.common.protocol.heartbeat.MessageModel;
 import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
@@ -28,4 +29,16 @@ public interface MQConsumerInner {
 
 
     public void uploadConsumerOffsetsToBroker();
+
+
+    /**
+     * Topic·ɷ仯ʱ¶ĶϢ
+     */
+    public void updateTopicSubscribeInfo(final String topic, final Set<MessageQueue> info);
+
+
+    /**
+     * ·Уɸؾ
+     */
+    public void doRebalance();
 }
@@ -1,23 +1,230 @@
 package com.alibaba.rocketmq.client.impl.consumer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.alibaba.rocketmq.common.MessageExt;
 
 
 /**
- * ڱѵĶУϢ
- * 
+ * ڱѵĶУϢ<br>
+ * ȡϢOffsetTreeMapѳɹƳTreeMapСOffsetΪύѽ<br>
+ * ˳ʱϢOffsetСȡʱTreeMapcommitɣrollbackŻ
+ *
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
 public class ProcessQueue {
+    // ˳ʱBrokerϵʱûڣΪѾʧЧ
+    private final static long RebalanceLockMaxLiveTime = Long.parseLong(System.getProperty(
+        "rocketmq.client.rebalance.lockMaxLiveTime", "30000"));
+
+    // ˳ʱǷѾBrokerס
     private volatile boolean locked = false;
+    private volatile long lastLockTimestamp = System.currentTimeMillis();
+    // ˳ʱ֤ͬһʱֻһ߳УRebalanceʱҲҪõٽBrokerϵĶ
+    private final ReentrantLock lockConsume = new ReentrantLock();
     private final ReadWriteLock lockTreeMap = new ReentrantReadWriteLock();
     private final TreeMap<Long, MessageExt> msgTreeMap = new TreeMap<Long, MessageExt>();
+    // ˳ʱѾȡѡûcommitϢ
+    private final TreeMap<Long, MessageExt> msgTreeMapTemp = new TreeMap<Long, MessageExt>();
+    // ǷѾڴУֻд޸
+    private volatile boolean consuming = false;
+    // ǰδϢϢֽ
     private final AtomicLong msgCount = new AtomicLong();
+    private final AtomicLong msgSize = new AtomicLong();
+    // ѾOffsetֻд޸
+    private volatile long queueOffsetMax = -1L;
+    // б·ConsumerConsumerرպΪtrueȡύ
+    private volatile boolean dropped = false;
+    private volatile long lastPullTimestamp = System.currentTimeMillis();
+
+
+    private static long bodySize(final MessageExt msg) {
+        return msg.getBody() != null ? msg.getBody().length : 0;
+    }
+
+
+    public boolean isLockExpired() {
+        return (System.currentTimeMillis() - this.lastLockTimestamp) > RebalanceLockMaxLiveTime;
+    }
+
+
+    /**
+     * ȡϢ
+     *
+     * @return ǷҪύµµϢ벢ҵǰûڴʱtrue
+     */
+    public boolean putMessage(final List<MessageExt> msgs) {
+        boolean dispatchToConsume = false;
+        boolean hasNewMessage = false;
+        this.lockTreeMap.writeLock().lock();
+        try {
+            for (MessageExt msg : msgs) {
+                MessageExt old = this.msgTreeMap.put(msg.getQueueOffset(), msg);
+                if (null == old) {
+                    hasNewMessage = true;
+                    this.msgCount.incrementAndGet();
+                    this.msgSize.addAndGet(bodySize(msg));
+                }
+                if (msg.getQueueOffset() > this.queueOffsetMax) {
+                    this.queueOffsetMax = msg.getQueueOffset();
+                }
+            }
+
+            if (hasNewMessage && !this.consuming) {
+                dispatchToConsume = true;
+                this.consuming = true;
+            }
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+
+        return dispatchToConsume;
+    }
+
+
+    /**
+     * ѳɹƳ
+     *
+     * @return ύѽȣʣϢСOffsetΪʱѷOffset + 1δϢ-1
+     */
+    public long removeMessage(final List<MessageExt> msgs) {
+        long result = -1;
+        this.lockTreeMap.writeLock().lock();
+        try {
+            if (!this.msgTreeMap.isEmpty()) {
+                for (MessageExt msg : msgs) {
+                    MessageExt prev = this.msgTreeMap.remove(msg.getQueueOffset());
+                    if (prev != null) {
+                        this.msgCount.decrementAndGet();
+                        this.msgSize.addAndGet(-bodySize(prev));
+                    }
+                }
+            }
+
+            if (!this.msgTreeMap.isEmpty()) {
+                result = this.msgTreeMap.firstKey();
+            }
+            else if (this.queueOffsetMax >= 0) {
+                result = this.queueOffsetMax + 1;
+            }
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+
+        return result;
+    }
+
+
+    /**
+     * δϢOffsetȣȹ˵ϢʱѲɹҪ
+     */
+    public long getMaxSpan() {
+        this.lockTreeMap.readLock().lock();
+        try {
+            if (!this.msgTreeMap.isEmpty()) {
+                return this.msgTreeMap.lastKey() - this.msgTreeMap.firstKey();
+            }
+        }
+        finally {
+            this.lockTreeMap.readLock().unlock();
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * ˳ѣOffsetСȡϢûϢȡʱconsuming־Ϣύ
+     */
+    public List<MessageExt> takeMessags(final int batchSize) {
+        List<MessageExt> result = new ArrayList<MessageExt>(batchSize);
+        this.lockTreeMap.writeLock().lock();
+        try {
+            for (int i = 0; i < batchSize && !this.msgTreeMap.isEmpty(); i++) {
+                Entry<Long, MessageExt> entry = this.msgTreeMap.pollFirstEntry();
+                this.msgTreeMapTemp.put(entry.getKey(), entry.getValue());
+                result.add(entry.getValue());
+            }
+
+            if (result.isEmpty()) {
+                this.consuming = false;
+            }
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+
+        return result;
+    }
+
+
+    /**
+     * ˳ѣύѾȡϢ
+     *
+     * @return ύѽȣûпύϢ-1
+     */
+    public long commit() {
+        this.lockTreeMap.writeLock().lock();
+        try {
+            if (this.msgTreeMapTemp.isEmpty()) {
+                return -1;
+            }
+
+            long offset = this.msgTreeMapTemp.lastKey();
+            long size = 0;
+            for (MessageExt msg : this.msgTreeMapTemp.values()) {
+                size += bodySize(msg);
+            }
+            this.msgCount.addAndGet(-this.msgTreeMapTemp.size());
+            this.msgSize.addAndGet(-size);
+            this.msgTreeMapTemp.clear();
+            return offset + 1;
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * ˳ѣѾȡûcommitϢȫŻأ
+     */
+    public void rollback() {
+        this.lockTreeMap.writeLock().lock();
+        try {
+            this.msgTreeMap.putAll(this.msgTreeMapTemp);
+            this.msgTreeMapTemp.clear();
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * ˳ѣȡϢŻأ
+     */
+    public void makeMessageToCosumeAgain(final List<MessageExt> msgs) {
+        this.lockTreeMap.writeLock().lock();
+        try {
+            for (MessageExt msg : msgs) {
+                this.msgTreeMapTemp.remove(msg.getQueueOffset());
+                this.msgTreeMap.put(msg.getQueueOffset(), msg);
+            }
+        }
+        finally {
+            this.lockTreeMap.writeLock().unlock();
+        }
+    }
 
 
     public boolean isLocked() {
@@ -30,8 +237,62 @@ public class ProcessQueue {
     }
 
 
+    public long getLastLockTimestamp() {
+        return lastLockTimestamp;
+    }
+
+
+    public void setLastLockTimestamp(long lastLockTimestamp) {
+        this.lastLockTimestamp = lastLockTimestamp;
+    }
+
+
+    public ReentrantLock getLockConsume() {
+        return lockConsume;
+    }
+
+
+    public boolean isConsuming() {
+        return consuming;
+    }
+
+
     public TreeMap<Long, MessageExt> getMsgTreeMap() {
         return msgTreeMap;
     }
 
+
+    public long getMsgCount() {
+        return msgCount.get();
+    }
+
+
+    public long getMsgSize() {
+        return msgSize.get();
+    }
+
+
+    public long getQueueOffsetMax() {
+        return queueOffsetMax;
+    }
+
+
+    public boolean isDropped() {
+        return dropped;
+    }
+
+
+    public void setDropped(boolean dropped) {
+        this.dropped = dropped;
+    }
+
+
+    public long getLastPullTimestamp() {
+        return lastPullTimestamp;
+    }
+
+
+    public void setLastPullTimestamp(long lastPullTimestamp) {
+        this.lastPullTimestamp = lastPullTimestamp;
+    }
 }
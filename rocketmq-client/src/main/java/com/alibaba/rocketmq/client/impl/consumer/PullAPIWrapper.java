@@ -3,17 +3,23 @@
  */
 package com.alibaba.rocketmq.client.impl.consumer;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.alibaba.rocketmq.client.consumer.PullCallback;
 import com.alibaba.rocketmq.client.consumer.ConsumeFromWhichNode;
 import com.alibaba.rocketmq.client.consumer.PullResult;
+import com.alibaba.rocketmq.client.consumer.PullStatus;
 import com.alibaba.rocketmq.client.exception.MQBrokerException;
 import com.alibaba.rocketmq.client.exception.MQClientException;
 import com.alibaba.rocketmq.client.impl.CommunicationMode;
 import com.alibaba.rocketmq.client.impl.FindBrokerResult;
 import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
+import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.protocol.header.PullMessageRequestHeader;
 import com.alibaba.rocketmq.common.sysflag.PullSysFlag;
@@ -33,6 +39,8 @@ public class PullAPIWrapper {
     private final MQClientFactory mQClientFactory;
     private final String consumerGroup;
     private final ConsumeFromWhichNode consumeFromWhichNode;
+    // ϢֶǷڵһηʱŽ
+    private volatile boolean decodeMessageLazily = false;
 
 
     public PullAPIWrapper(MQClientFactory mQClientFactory, String consumerGroup,
@@ -54,6 +62,49 @@ public class PullAPIWrapper {
     }
 
 
+    /**
+     * ȡдҪϢл
+     *
+     * @param offset
+     *            ȡʼOffsetBrokerϢΪλϢҪ˵вȡΧڵϢ
+     */
+    public PullResult processPullResult(final MessageQueue mq, final PullResult pullResult, final long offset) {
+        PullResultExt pullResultExt = (PullResultExt) pullResult;
+
+        this.updatePullFromWhichNode(mq, pullResultExt.isSuggestPullingFromSlave());
+        if (PullStatus.FOUND == pullResult.getPullStatus()) {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(pullResultExt.getMessageBinary());
+            List<MessageExt> msgList =
+                    this.decodeMessageLazily ? MessageDecoder.decodesLazily(byteBuffer) : MessageDecoder
+                        .decodes(byteBuffer);
+
+            List<MessageExt> msgListFilterAgain = new ArrayList<MessageExt>(msgList.size());
+            for (MessageExt msg : msgList) {
+                if (msg.getQueueOffset() >= offset && msg.getQueueOffset() < pullResult.getNextBeginOffset()) {
+                    msgListFilterAgain.add(msg);
+                }
+            }
+
+            pullResultExt.setMsgFoundList(msgListFilterAgain);
+        }
+
+        // GCͷڴ
+        pullResultExt.setMessageBinary(null);
+
+        return pullResult;
+    }
+
+
+    public boolean isDecodeMessageLazily() {
+        return decodeMessageLazily;
+    }
+
+
+    public void setDecodeMessageLazily(boolean decodeMessageLazily) {
+        this.decodeMessageLazily = decodeMessageLazily;
+    }
+
+
     /**
      * ÿжӦӦıĸ
      */
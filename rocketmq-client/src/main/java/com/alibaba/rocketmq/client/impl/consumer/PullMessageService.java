@@ -4,12 +4,16 @@
 package com.alibaba.rocketmq.client.impl.consumer;
 
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.alibaba.rocketmq.client.impl.CommunicationMode;
 import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
+import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.ServiceThread;
-import com.alibaba.rocketmq.common.sysflag.PullSysFlag;
 
 
 /**
@@ -18,6 +22,7 @@ import com.alibaba.rocketmq.common.sysflag.PullSysFlag;
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
 public class PullMessageService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
     private final LinkedBlockingQueue<PullRequest> pullRequestQueue = new LinkedBlockingQueue<PullRequest>();
     private final MQClientFactory mQClientFactory;
     // Factoryһʱ
@@ -30,6 +35,37 @@ public class PullMessageService extends ServiceThread {
     }
 
 
+    /**
+     * ʱһʱػȡ쳣
+     */
+    public void executePullRequestLater(final PullRequest pullRequest, final long timeDelay) {
+        try {
+            this.scheduledExecutorService.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    PullMessageService.this.executePullRequestImmediately(pullRequest);
+                }
+            }, timeDelay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            log.warn("executePullRequestLater rejected, the client factory maybe shutdown, " + pullRequest);
+        }
+    }
+
+
+    /**
+     * һȡغϷһȡÿͬʱֻһȡ;
+     */
+    public void executePullRequestImmediately(final PullRequest pullRequest) {
+        try {
+            this.pullRequestQueue.put(pullRequest);
+        }
+        catch (InterruptedException e) {
+            log.error("executePullRequestImmediately pullRequestQueue.put", e);
+        }
+    }
+
+
     private void pullMessage(final PullRequest pullRequest) {
         final MQConsumerInner consumer = this.mQClientFactory.selectConsumer(pullRequest.getConsumerGroup());
         if (consumer != null) {
@@ -37,13 +73,15 @@ public class PullMessageService extends ServiceThread {
             impl.pullMessage(pullRequest);
         }
         else {
-            // TODO log
+            log.warn("No matched consumer for the PullRequest " + pullRequest + ", drop it");
         }
     }
 
 
     @Override
     public void run() {
+        log.info(this.getServiceName() + " service started");
+
         while (!this.isStoped()) {
             try {
                 PullRequest pullRequest = this.pullRequestQueue.take();
@@ -51,10 +89,14 @@ public class PullMessageService extends ServiceThread {
                     this.pullMessage(pullRequest);
                 }
             }
+            catch (InterruptedException e) {
+            }
             catch (Exception e) {
-                // TODO log
+                log.error("Pull Message Service Run Method exception", e);
             }
         }
+
+        log.info(this.getServiceName() + " service end");
     }
 
 
@@ -14,6 +14,8 @@ public class PullRequest {
     private MessageQueue messageQueue;
     // hashCodeequalsֶ
     private long nextOffset;
+    // hashCodeequalsֶ
+    private ProcessQueue processQueue;
 
 
     public String getConsumerGroup() {
@@ -46,6 +48,16 @@ public class PullRequest {
     }
 
 
+    public ProcessQueue getProcessQueue() {
+        return processQueue;
+    }
+
+
+    public void setProcessQueue(ProcessQueue processQueue) {
+        this.processQueue = processQueue;
+    }
+
+
     @Override
     public String toString() {
         return "PullRequest [consumerGroup=" + consumerGroup + ", messageQueue=" + messageQueue + ", nextOffset="
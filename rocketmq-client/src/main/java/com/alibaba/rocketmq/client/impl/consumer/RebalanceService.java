@@ -0,0 +1,55 @@
+/**
+ * $Id: RebalanceService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+
+
+/**
+ * Consumerؾ񣬶ʱΪConsumer·<br>
+ * Broker֪ͨԱ仯Topic·ɱ仯ʱ̻ѣصȵһ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RebalanceService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
+    // ʱؾļBroker֪ͨʧ
+    private static final long WaitInterval = Long.parseLong(System.getProperty(
+        "rocketmq.client.rebalance.waitInterval", "20000"));
+    private final MQClientFactory mQClientFactory;
+
+
+    public RebalanceService(MQClientFactory mQClientFactory) {
+        this.mQClientFactory = mQClientFactory;
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        while (!this.isStoped()) {
+            this.waitForRunning(WaitInterval);
+            try {
+                this.mQClientFactory.doRebalance();
+            }
+            catch (Exception e) {
+                log.error("Rebalance Service Run Method exception", e);
+            }
+        }
+
+        log.info(this.getServiceName() + " service end");
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return RebalanceService.class.getSimpleName();
+    }
+}
@@ -31,6 +31,8 @@ import com.alibaba.rocketmq.client.impl.FindBrokerResult;
 import com.alibaba.rocketmq.client.impl.MQAdminImpl;
 import com.alibaba.rocketmq.client.impl.MQClientAPIImpl;
 import com.alibaba.rocketmq.client.impl.consumer.MQConsumerInner;
+import com.alibaba.rocketmq.client.impl.consumer.PullMessageService;
+import com.alibaba.rocketmq.client.impl.consumer.RebalanceService;
 import com.alibaba.rocketmq.client.impl.producer.DefaultMQProducerImpl;
 import com.alibaba.rocketmq.client.impl.producer.MQProducerInner;
 import com.alibaba.rocketmq.client.impl.producer.TopicPublishInfo;
@@ -101,6 +103,11 @@ public class MQClientFactory {
     // 
     private final ClientRemotingProcessor clientRemotingProcessor;
 
+    // ϢPushʽConsumer
+    private final PullMessageService pullMessageService;
+    // Consumerؾ
+    private final RebalanceService rebalanceService;
+
     // һUDP˿ڣֹͬһFactoryݣпֲܷڶJVMУ
     private DatagramSocket datagramSocket;
 
@@ -111,6 +118,7 @@ public class MQClientFactory {
         this.factoryIndex = factoryIndex;
         this.nettyClientConfig = new NettyClientConfig();
         this.nettyClientConfig.setClientCallbackExecutorThreads(mQClientConfig.getClientCallbackExecutorThreads());
+        this.nettyClientConfig.setClientChannelPoolSize(mQClientConfig.getClientChannelPoolSize());
         this.clientRemotingProcessor = new ClientRemotingProcessor(this, this.log);
         this.mQClientAPIImpl = new MQClientAPIImpl(this.nettyClientConfig, this.clientRemotingProcessor);
 
@@ -123,6 +131,10 @@ public class MQClientFactory {
 
         this.mQAdminImpl = new MQAdminImpl(this);
 
+        this.pullMessageService = new PullMessageService(this);
+
+        this.rebalanceService = new RebalanceService(this);
+
         log.info("created a new client fatory, FactoryIndex: {} ClinetID: {}", this.factoryIndex, this.clientId);
     }
 
@@ -233,6 +245,8 @@ public class MQClientFactory {
 
                 this.startScheduledTask();
                 this.mQClientAPIImpl.start();
+                this.pullMessageService.start();
+                this.rebalanceService.start();
                 break;
             case RUNNING:
                 break;
@@ -261,6 +275,8 @@ public class MQClientFactory {
             case RUNNING:
                 this.serviceState = ServiceState.SHUTDOWN_ALREADY;
                 // TODO
+                this.pullMessageService.shutdown(true);
+                this.rebalanceService.shutdown();
                 this.scheduledExecutorService.shutdown();
                 this.mQClientAPIImpl.shutdown();
 
@@ -373,7 +389,7 @@ public class MQClientFactory {
     }
 
 
-    private void sendHeartbeatToAllBrokerWithLock() {
+    public void sendHeartbeatToAllBrokerWithLock() {
         if (this.lockHeartbeat.tryLock()) {
             try {
                 this.sendHeartbeatToAllBroker();
@@ -714,6 +730,11 @@ public class MQClientFactory {
                             // BrokerַϢ
                             for (BrokerData bd : topicRouteData.getBrokerDatas()) {
                                 this.brokerAddrTable.put(bd.getBrokerName(), bd.getBrokerAddrs());
+                                // ǰMasterӣһȴ
+                                String masterAddr = bd.getBrokerAddrs().get(MixAll.MASTER_ID);
+                                if (masterAddr != null) {
+                                    this.mQClientAPIImpl.preWarmChannels(masterAddr);
+                                }
                             }
 
                             // ·Ϣ
@@ -725,10 +746,19 @@ public class MQClientFactory {
                                 }
                             }
 
+                            this.topicRouteTable.put(topic, topicRouteData);
+
                             // ¶ĶϢ
-                            // TODO
+                            Set<MessageQueue> subscribeInfo =
+                                    new HashSet<MessageQueue>(topicRouteData2TopicSubscribeInfo(topic,
+                                        topicRouteData));
+                            for (String g : this.consumerTable.keySet()) {
+                                MQConsumerInner impl = this.consumerTable.get(g);
+                                if (impl != null) {
+                                    impl.updateTopicSubscribeInfo(topic, subscribeInfo);
+                                }
+                            }
 
-                            this.topicRouteTable.put(topic, topicRouteData);
                             return true;
                         }
                     }
@@ -758,6 +788,73 @@ public class MQClientFactory {
     }
 
 
+    /**
+     * ̻Ѹؾ񣬶λѻϲһ
+     */
+    public void rebalanceImmediately() {
+        this.rebalanceService.wakeup();
+    }
+
+
+    /**
+     * Consumerؾ⣬ɸؾ̵߳
+     */
+    public void doRebalance() {
+        for (MQConsumerInner impl : this.consumerTable.values()) {
+            if (impl != null) {
+                try {
+                    impl.doRebalance();
+                }
+                catch (Exception e) {
+                    log.error("doRebalance exception, " + impl.getGroupName(), e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * TopicҵһBrokerַͬһTopicConsumerBroker
+     */
+    private String findBrokerAddrByTopic(final String topic) {
+        TopicRouteData topicRouteData = this.topicRouteTable.get(topic);
+        if (topicRouteData != null) {
+            List<BrokerData> brokers = topicRouteData.getBrokerDatas();
+            if (brokers != null && !brokers.isEmpty()) {
+                BrokerData bd = brokers.get(0);
+                return bd.getOneBrokerAddr();
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * ѯConsumerID
+     * 
+     * @return ʧܷnull
+     */
+    public List<String> findConsumerIdList(final String topic, final String group) {
+        String brokerAddr = this.findBrokerAddrByTopic(topic);
+        if (null == brokerAddr) {
+            this.updateTopicRouteInfoFromNameServer(topic);
+            brokerAddr = this.findBrokerAddrByTopic(topic);
+        }
+
+        if (null != brokerAddr) {
+            try {
+                return this.mQClientAPIImpl.getConsumerIdListByGroup(brokerAddr, group, 3000);
+            }
+            catch (Exception e) {
+                log.warn("getConsumerIdListByGroup exception, " + brokerAddr + " " + group, e);
+            }
+        }
+
+        return null;
+    }
+
+
     public MQClientAPIImpl getMQClientAPIImpl() {
         return mQClientAPIImpl;
     }
@@ -781,4 +878,9 @@ public class MQClientFactory {
     public ScheduledExecutorService getScheduledExecutorService() {
         return scheduledExecutorService;
     }
+
+
+    public PullMessageService getPullMessageService() {
+        return pullMessageService;
+    }
 }
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -43,7 +44,8 @@ import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.ServiceState;
 import com.alibaba.rocketmq.common.TopicFilterType;
-import com.alibaba.rocketmq.common.UtilALl;
+import com.alibaba.rocketmq.common.compress.CompressionCodec;
+import com.alibaba.rocketmq.common.compress.CompressionCodecs;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
 import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
 import com.alibaba.rocketmq.common.protocol.header.CheckTransactionStateRequestHeader;
@@ -73,6 +75,11 @@ public class DefaultMQProducerImpl implements MQProducerInner {
 
     private MQClientFactory mQClientFactory;
 
+    /**
+     * 
+     */
+    private MessageAccumulator messageAccumulator;
+
     /**
      * 
      */
@@ -137,6 +144,11 @@ public class DefaultMQProducerImpl implements MQProducerInner {
             this.topicPublishInfoTable.put(this.defaultMQProducer.getCreateTopicKey(), new TopicPublishInfo());
 
             mQClientFactory.start();
+
+            if (this.defaultMQProducer.isSendMessageInBatch()) {
+                this.messageAccumulator = new MessageAccumulator(this.defaultMQProducer, this.mQClientFactory);
+                this.messageAccumulator.start();
+            }
             break;
         case RUNNING:
             break;
@@ -154,6 +166,22 @@ public class DefaultMQProducerImpl implements MQProducerInner {
             break;
         case RUNNING:
             this.serviceState = ServiceState.SHUTDOWN_ALREADY;
+            // ȰŵϢȷͽغٹرӣЩϢSendCallbackᱻص
+            if (this.messageAccumulator != null) {
+                this.messageAccumulator.shutdown();
+                try {
+                    // ʧܻỻBrokerԣԴȴ
+                    if (!this.messageAccumulator.awaitInflightBatches(this.defaultMQProducer.getSendMsgTimeout()
+                            * MessageAccumulator.RetryTimesWhenSendFailed)) {
+                        log.warn("wait batch send result timeout when shutdown, "
+                                + this.defaultMQProducer.getProducerGroup());
+                    }
+                }
+                catch (InterruptedException e) {
+                    log.warn("wait batch send result interrupted when shutdown", e);
+                    Thread.currentThread().interrupt();
+                }
+            }
             this.mQClientFactory.unregisterProducer(this.defaultMQProducer.getProducerGroup());
             this.mQClientFactory.shutdown();
             break;
@@ -262,24 +290,32 @@ public class DefaultMQProducerImpl implements MQProducerInner {
     }
 
 
-    private boolean tryToCompressMessage(final Message msg) {
+    /**
+     * ѹϢ
+     *
+     * @return ѹɹҪõSysFlag򷵻0
+     */
+    private int tryToCompressMessage(final Message msg) {
         byte[] body = msg.getBody();
         if (body != null) {
             if (body.length >= this.defaultMQProducer.getCompressMsgBodyOverHowmuch()) {
                 try {
-                    byte[] data = UtilALl.compress(body, 9);
+                    CompressionCodec codec =
+                            CompressionCodecs.getCodec(this.defaultMQProducer.getCompressType(),
+                                this.defaultMQProducer.getCompressLevel());
+                    byte[] data = codec.compress(body);
                     if (data != null) {
                         msg.setBody(data);
-                        return true;
+                        return CompressionCodecs.toSysFlag(codec.getType());
                     }
                 }
                 catch (IOException e) {
-                    // TODO log
+                    log.warn("compress message body exception, send it uncompressed", e);
                 }
             }
         }
 
-        return false;
+        return 0;
     }
 
 
@@ -337,6 +373,7 @@ public class DefaultMQProducerImpl implements MQProducerInner {
                         case MQResponseCode.TOPIC_NOT_EXIST_VALUE:
                         case MQResponseCode.SERVICE_NOT_AVAILABLE_VALUE:
                         case ResponseCode.SYSTEM_ERROR_VALUE:
+                        case ResponseCode.SYSTEM_BUSY_VALUE:
                         case MQResponseCode.NO_PERMISSION_VALUE:
                             continue;
                         default:
@@ -384,9 +421,7 @@ public class DefaultMQProducerImpl implements MQProducerInner {
             byte[] prevBody = msg.getBody();
             try {
                 int sysFlag = 0;
-                if (this.tryToCompressMessage(msg)) {
-                    sysFlag |= MessageSysFlag.CompressedFlag;
-                }
+                sysFlag |= this.tryToCompressMessage(msg);
 
                 final String tranMsg = msg.getProperty(Message.PROPERTY_TRANSACTION_PREPARED);
                 if (tranMsg != null && Boolean.parseBoolean(tranMsg)) {
@@ -457,7 +492,7 @@ public class DefaultMQProducerImpl implements MQProducerInner {
     /**
      * ѰTopic·ϢûName ServerңûУȡĬTopic
      */
-    private TopicPublishInfo tryToFindTopicPublishInfo(final String topic) {
+    TopicPublishInfo tryToFindTopicPublishInfo(final String topic) {
         TopicPublishInfo topicPublishInfo = this.topicPublishInfoTable.get(topic);
         if (null == topicPublishInfo) {
             this.topicPublishInfoTable.putIfAbsent(topic, new TopicPublishInfo());
@@ -474,6 +509,124 @@ public class DefaultMQProducerImpl implements MQProducerInner {
     }
 
 
+    /**
+     * ǷͣϢPreparedϢ
+     */
+    private boolean isSendInBatch(final Message msg) {
+        if (null == this.messageAccumulator) {
+            return false;
+        }
+
+        final String tranMsg = msg.getProperty(Message.PROPERTY_TRANSACTION_PREPARED);
+        return !(tranMsg != null && Boolean.parseBoolean(tranMsg));
+    }
+
+
+    /**
+     * ѡк󽻸MessageAccumulatorͨsendCallback
+     */
+    private void sendBatchImpl(final Message msg, final SendCallback sendCallback) throws MQClientException {
+        TopicPublishInfo topicPublishInfo = this.tryToFindTopicPublishInfo(msg.getTopic());
+        if (null == topicPublishInfo || !topicPublishInfo.ok()) {
+            throw new MQClientException("No route info of this topic, " + msg.getTopic(), null);
+        }
+
+        MessageQueue mq = topicPublishInfo.selectOneMessageQueue(null);
+        if (null == mq) {
+            throw new MQClientException("select message queue return null.", null);
+        }
+
+        byte[] prevBody = msg.getBody();
+        try {
+            int sysFlag = 0;
+            sysFlag |= this.tryToCompressMessage(msg);
+
+            final byte[] propertiesData = this.encodeProperties(msg);
+            this.messageAccumulator.append(mq, sysFlag, msg.getFlag(), msg.getBody(), propertiesData,
+                sendCallback);
+        }
+        finally {
+            msg.setBody(prevBody);
+        }
+    }
+
+
+    /**
+     * ϢԳshort洢ڽ֮ǰܾ
+     */
+    private byte[] encodeProperties(final Message msg) throws MQClientException {
+        byte[] propertiesData = null;
+        if (!this.defaultMQProducer.isCompactPropertiesEnable()) {
+            propertiesData = MessageDecoder.messageProperties2String(msg.getProperties()).getBytes();
+        }
+        else {
+            try {
+                propertiesData = MessageDecoder.messageProperties2Bytes(msg.getProperties());
+            }
+            catch (IllegalArgumentException e) {
+                throw new MQClientException("the message properties illegal, " + e.getMessage(), e);
+            }
+        }
+
+        if (propertiesData.length > Short.MAX_VALUE) {
+            throw new MQClientException("the message properties length " + propertiesData.length
+                    + " exceed the max length " + Short.MAX_VALUE, null);
+        }
+
+        return propertiesData;
+    }
+
+
+    /**
+     * ͬʱȴϢڵ
+     */
+    private SendResult sendBatchSyncImpl(final Message msg) throws MQClientException, RemotingException,
+            MQBrokerException, InterruptedException {
+        final CountDownLatch countDownLatch = new CountDownLatch(1);
+        final SendResult[] sendResult = new SendResult[1];
+        final Throwable[] exception = new Throwable[1];
+
+        this.sendBatchImpl(msg, new SendCallback() {
+            @Override
+            public void onSuccess(SendResult result) {
+                sendResult[0] = result;
+                countDownLatch.countDown();
+            }
+
+
+            @Override
+            public void onException(Throwable e) {
+                exception[0] = e;
+                countDownLatch.countDown();
+            }
+        });
+
+        boolean ok =
+                countDownLatch.await(this.defaultMQProducer.getSendMsgTimeout()
+                        * MessageAccumulator.RetryTimesWhenSendFailed
+                        + this.defaultMQProducer.getBatchLingerMillis(), TimeUnit.MILLISECONDS);
+        if (!ok) {
+            throw new MQClientException("wait batch send result timeout", null);
+        }
+
+        if (exception[0] != null) {
+            if (exception[0] instanceof MQClientException) {
+                throw (MQClientException) exception[0];
+            }
+            else if (exception[0] instanceof MQBrokerException) {
+                throw (MQBrokerException) exception[0];
+            }
+            else if (exception[0] instanceof RemotingException) {
+                throw (RemotingException) exception[0];
+            }
+
+            throw new MQClientException("send batch message exception", exception[0]);
+        }
+
+        return sendResult[0];
+    }
+
+
     /**
      * DEFAULT SYNC -------------------------------------------------------
      */
@@ -483,6 +636,10 @@ public class DefaultMQProducerImpl implements MQProducerInner {
 
         this.checkMessage(msg);
 
+        if (this.isSendInBatch(msg)) {
+            return this.sendBatchSyncImpl(msg);
+        }
+
         return this.sendDefaultImpl(msg, CommunicationMode.SYNC, null);
     }
 
@@ -496,6 +653,11 @@ public class DefaultMQProducerImpl implements MQProducerInner {
 
         this.checkMessage(msg);
 
+        if (this.isSendInBatch(msg)) {
+            this.sendBatchImpl(msg, sendCallback);
+            return;
+        }
+
         try {
             this.sendDefaultImpl(msg, CommunicationMode.ASYNC, sendCallback);
         }
@@ -0,0 +1,398 @@
+/**
+ * $Id: MessageAccumulator.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.producer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.client.exception.MQBrokerException;
+import com.alibaba.rocketmq.client.exception.MQClientException;
+import com.alibaba.rocketmq.client.impl.factory.MQClientFactory;
+import com.alibaba.rocketmq.client.producer.DefaultMQProducer;
+import com.alibaba.rocketmq.client.producer.SendCallback;
+import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQResponseCode;
+import com.alibaba.rocketmq.common.protocol.header.SendBatchMessageRequestHeader;
+import com.alibaba.rocketmq.remoting.exception.RemotingException;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+
+
+/**
+ * ʱ<br>
+ * һϢֽﵽʱɷֱ߳ӷɺ̨߳ڵȴbatchLingerMillis󷢳
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageAccumulator extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.ClientLoggerName);
+    // ʧʱ෢͵Ĵ뵥һ
+    public static final int RetryTimesWhenSendFailed = 3;
+    private final DefaultMQProducer defaultMQProducer;
+    private final MQClientFactory mQClientFactory;
+    private final ConcurrentHashMap<MessageQueue, MessageBatch> batchTable =
+            new ConcurrentHashMap<MessageQueue, MessageBatch>();
+    // ѾSendCallbackûлصرʱȴǷ
+    private final AtomicInteger inflightBatches = new AtomicInteger(0);
+    private final Object inflightLock = new Object();
+
+    /**
+     * ͬһܵһϢҪͬ
+     */
+    static class MessageBatch {
+        private final MessageQueue messageQueue;
+        private final long createTimestamp = System.currentTimeMillis();
+        private final List<Integer> sysFlagList = new ArrayList<Integer>();
+        private final List<Integer> flagList = new ArrayList<Integer>();
+        private final List<byte[]> bodyList = new ArrayList<byte[]>();
+        private final List<byte[]> propertiesList = new ArrayList<byte[]>();
+        private final List<SendCallback> sendCallbacks = new ArrayList<SendCallback>();
+        private int totalBytes = 0;
+        // Ѿ׷
+        private boolean closed = false;
+
+
+        public MessageBatch(MessageQueue messageQueue) {
+            this.messageQueue = messageQueue;
+        }
+
+
+        public void add(final int sysFlag, final int flag, final byte[] body, final byte[] properties,
+                final int length, final SendCallback sendCallback) {
+            this.sysFlagList.add(sysFlag);
+            this.flagList.add(flag);
+            this.bodyList.add(body);
+            this.propertiesList.add(properties);
+            this.sendCallbacks.add(sendCallback);
+            this.totalBytes += length;
+        }
+
+
+        public byte[] encode() {
+            ByteBuffer byteBuffer = ByteBuffer.allocate(this.totalBytes);
+            for (int i = 0; i < this.bodyList.size(); i++) {
+                MessageDecoder.encodeBatchMessage(byteBuffer, this.sysFlagList.get(i), this.flagList.get(i),
+                    this.bodyList.get(i), this.propertiesList.get(i));
+            }
+            return byteBuffer.array();
+        }
+
+
+        public int getMessageCount() {
+            return this.sendCallbacks.size();
+        }
+
+
+        public int getTotalBytes() {
+            return totalBytes;
+        }
+
+
+        public MessageQueue getMessageQueue() {
+            return messageQueue;
+        }
+
+
+        public long getCreateTimestamp() {
+            return createTimestamp;
+        }
+
+
+        public List<SendCallback> getSendCallbacks() {
+            return sendCallbacks;
+        }
+
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+
+        public void setClosed(boolean closed) {
+            this.closed = closed;
+        }
+    }
+
+
+    public MessageAccumulator(final DefaultMQProducer defaultMQProducer, final MQClientFactory mQClientFactory) {
+        this.defaultMQProducer = defaultMQProducer;
+        this.mQClientFactory = mQClientFactory;
+    }
+
+
+    /**
+     * ׷һϢbodyѾѹϢ壬propertiesDataѾл
+     */
+    public void append(final MessageQueue mq, final int sysFlag, final int flag, final byte[] body,
+            final byte[] propertiesData, final SendCallback sendCallback) {
+        final int length = MessageDecoder.batchMessageLength(body, propertiesData);
+
+        boolean appended = false;
+        while (!appended) {
+            MessageBatch batch = this.batchTable.get(mq);
+            if (null == batch) {
+                batch = new MessageBatch(mq);
+                MessageBatch prev = this.batchTable.putIfAbsent(mq, batch);
+                if (prev != null) {
+                    batch = prev;
+                }
+            }
+
+            MessageBatch readyBatch = null;
+            synchronized (batch) {
+                // Ѿ̷߳ȡ
+                if (batch.isClosed()) {
+                    continue;
+                }
+
+                // Ų£Ȱѵǰ
+                if (batch.getMessageCount() > 0
+                        && (batch.getTotalBytes() + length) > this.defaultMQProducer.getBatchMaxBytes()) {
+                    readyBatch = batch;
+                }
+                else {
+                    batch.add(sysFlag, flag, body, propertiesData, length, sendCallback);
+                    appended = true;
+                    if (batch.getMessageCount() >= this.defaultMQProducer.getBatchMaxMessages()
+                            || batch.getTotalBytes() >= this.defaultMQProducer.getBatchMaxBytes()) {
+                        readyBatch = batch;
+                    }
+                }
+
+                if (readyBatch != null) {
+                    readyBatch.setClosed(true);
+                    this.batchTable.remove(mq, readyBatch);
+                }
+            }
+
+            if (readyBatch != null) {
+                this.sendBatch(readyBatch);
+            }
+        }
+    }
+
+
+    /**
+     * ȴʱ䳬batchLingerMillisforceΪtrueʱȫ
+     */
+    private void sendExpiredBatch(final boolean force) {
+        final long now = System.currentTimeMillis();
+        for (MessageBatch batch : this.batchTable.values()) {
+            if (!force && (now - batch.getCreateTimestamp()) < this.defaultMQProducer.getBatchLingerMillis()) {
+                continue;
+            }
+
+            boolean ready = false;
+            synchronized (batch) {
+                if (!batch.isClosed()) {
+                    batch.setClosed(true);
+                    this.batchTable.remove(batch.getMessageQueue(), batch);
+                    ready = batch.getMessageCount() > 0;
+                }
+            }
+
+            if (ready) {
+                this.sendBatch(batch);
+            }
+        }
+    }
+
+
+    private void sendBatch(final MessageBatch batch) {
+        this.inflightBatches.incrementAndGet();
+        this.sendBatch(batch, batch.getMessageQueue(), batch.encode(), 1, System.currentTimeMillis());
+    }
+
+
+    /**
+     * һϢʧʱ뵥һBroker
+     *
+     * @param times
+     *            ڼηͣ1ʼ
+     * @param beginTimestamp
+     *            һη͵ʱ
+     */
+    private void sendBatch(final MessageBatch batch, final MessageQueue mq, final byte[] body, final int times,
+            final long beginTimestamp) {
+        try {
+            String brokerAddr = this.mQClientFactory.findBrokerAddressInPublish(mq.getBrokerName());
+            if (null == brokerAddr) {
+                this.mQClientFactory.updateTopicRouteInfoFromNameServer(mq.getTopic());
+                brokerAddr = this.mQClientFactory.findBrokerAddressInPublish(mq.getBrokerName());
+            }
+
+            if (null == brokerAddr) {
+                throw new MQClientException("The broker[" + mq.getBrokerName() + "] not exist", null);
+            }
+
+            SendBatchMessageRequestHeader requestHeader = new SendBatchMessageRequestHeader();
+            requestHeader.setProducerGroup(this.defaultMQProducer.getProducerGroup());
+            requestHeader.setTopic(mq.getTopic());
+            requestHeader.setDefaultTopic(this.defaultMQProducer.getCreateTopicKey());
+            requestHeader.setDefaultTopicQueueNums(this.defaultMQProducer.getDefaultTopicQueueNums());
+            requestHeader.setQueueId(mq.getQueueId());
+            requestHeader.setBornTimestamp(System.currentTimeMillis());
+
+            this.mQClientFactory.getMQClientAPIImpl().sendBatchMessage(//
+                brokerAddr,// 1
+                mq.getBrokerName(),// 2
+                requestHeader,// 3
+                body,// 4
+                batch.getSendCallbacks(),// 5
+                this.defaultMQProducer.getSendMsgTimeout(),// 6
+                new SendBatchCallback() {// 7
+                    @Override
+                    public boolean onBatchException(Throwable e) {
+                        return MessageAccumulator.this.retrySendBatch(batch, mq, body, times, beginTimestamp, e);
+                    }
+
+
+                    @Override
+                    public void onBatchComplete() {
+                        MessageAccumulator.this.batchComplete();
+                    }
+                });
+        }
+        catch (Exception e) {
+            if (this.retrySendBatch(batch, mq, body, times, beginTimestamp, e)) {
+                return;
+            }
+
+            log.warn("send batch message exception, " + mq + " batch size " + batch.getMessageCount(), e);
+            for (SendCallback sendCallback : batch.getSendCallbacks()) {
+                if (sendCallback != null) {
+                    try {
+                        sendCallback.onException(e);
+                    }
+                    catch (Throwable ex) {
+                        log.warn("execute sendCallback.onException exception", ex);
+                    }
+                }
+            }
+            this.batchComplete();
+        }
+    }
+
+
+    /**
+     * ʧʱ͵ĹһBrokerĶط<br>
+     * ɹ洢ֻвϢʧܵԣʧܵϢͨԵSendCallback쳣
+     *
+     * @return Ѿطtrue
+     */
+    private boolean retrySendBatch(final MessageBatch batch, final MessageQueue mq, final byte[] body,
+            final int times, final long beginTimestamp, final Throwable e) {
+        if (times >= RetryTimesWhenSendFailed
+                || (System.currentTimeMillis() - beginTimestamp) >= this.defaultMQProducer.getSendMsgTimeout()
+                || !isRetryable(e)) {
+            return false;
+        }
+
+        TopicPublishInfo topicPublishInfo =
+                this.defaultMQProducer.getDefaultMQProducerImpl().tryToFindTopicPublishInfo(mq.getTopic());
+        if (null == topicPublishInfo || !topicPublishInfo.ok()) {
+            return false;
+        }
+
+        MessageQueue next = topicPublishInfo.selectOneMessageQueue(mq.getBrokerName());
+        if (null == next) {
+            return false;
+        }
+
+        log.warn("send batch message to " + mq + " failed, retry " + times + " times, send to " + next
+                + " again, batch size " + batch.getMessageCount(), e);
+        this.sendBatch(batch, next, body, times + 1, beginTimestamp);
+        return true;
+    }
+
+
+    /**
+     * 뵥ͿԵ쳣һ
+     */
+    private static boolean isRetryable(final Throwable e) {
+        if (e instanceof RemotingException || e instanceof MQClientException) {
+            return true;
+        }
+
+        if (e instanceof MQBrokerException) {
+            switch (((MQBrokerException) e).getResponseCode()) {
+            case MQResponseCode.TOPIC_NOT_EXIST_VALUE:
+            case MQResponseCode.SERVICE_NOT_AVAILABLE_VALUE:
+            case ResponseCode.SYSTEM_ERROR_VALUE:
+            case ResponseCode.SYSTEM_BUSY_VALUE:
+            case MQResponseCode.NO_PERMISSION_VALUE:
+                return true;
+            default:
+                break;
+            }
+        }
+
+        return false;
+    }
+
+
+    private void batchComplete() {
+        if (this.inflightBatches.decrementAndGet() <= 0) {
+            synchronized (this.inflightLock) {
+                this.inflightLock.notifyAll();
+            }
+        }
+    }
+
+
+    /**
+     * ȴѾؽshutdown֮ãرǰ֤SendCallbackܱص
+     *
+     * @return ʱǰѷ
+     */
+    public boolean awaitInflightBatches(final long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this.inflightLock) {
+            while (this.inflightBatches.get() > 0) {
+                long remain = deadline - System.currentTimeMillis();
+                if (remain <= 0) {
+                    return false;
+                }
+                this.inflightLock.wait(remain);
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        final long interval = Math.max(1, this.defaultMQProducer.getBatchLingerMillis() / 2);
+        while (!this.isStoped()) {
+            try {
+                this.waitForRunning(interval);
+                this.sendExpiredBatch(false);
+            }
+            catch (Exception e) {
+                log.warn(this.getServiceName() + " service has exception. ", e);
+            }
+        }
+
+        // ˳ǰʣϢ
+        this.sendExpiredBatch(true);
+
+        log.info(this.getServiceName() + " service end");
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return MessageAccumulator.class.getSimpleName();
+    }
+}
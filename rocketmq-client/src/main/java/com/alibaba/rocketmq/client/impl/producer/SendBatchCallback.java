@@ -0,0 +1,25 @@
+/**
+ * $Id: SendBatchCallback.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.producer;
+
+/**
+ * ĻصÿϢĽȻͨԵSendCallback
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ *
+ */
+public interface SendBatchCallback {
+    /**
+     * ʧܣûзȴӦʱBrokerܾ
+     *
+     * @return trueʾѾԣٻصη͵SendCallbackonBatchComplete
+     */
+    public boolean onBatchException(final Throwable e);
+
+
+    /**
+     * ÿϢSendCallbackѻص
+     */
+    public void onBatchComplete();
+}
@@ -17,6 +17,7 @@ import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.MessageQueue;
 import com.alibaba.rocketmq.common.TopicFilterType;
+import com.alibaba.rocketmq.common.compress.CompressionType;
 import com.alibaba.rocketmq.remoting.exception.RemotingException;
 
 
@@ -50,6 +51,14 @@ public class DefaultMQProducer implements MQProducer {
      * Message BodyСֵѹ
      */
     private int compressMsgBodyOverHowmuch = 1024 * 4;
+    /**
+     * Ϣѹ㷨LZ4ZLIBܶ࣬ϰ汾ConsumerܽѹҪConsumer
+     */
+    private CompressionType compressType = CompressionType.ZLIB;
+    /**
+     * ZLIBѹ0-9ԽѹԽߣCPUҲԽ
+     */
+    private int compressLevel = 9;
     /**
      * ϢѾɹдMasterˢ̳ʱͬSlaveʧܣһBroker޸Ĭֵ<br>
      * ˳ϢЧ
@@ -59,6 +68,28 @@ public class DefaultMQProducer implements MQProducer {
      * ϢСĬ512K
      */
     private int maxMessageSize = 1024 * 512;
+    /**
+     * Ƿָͣеͬ첽ͣϢȰһη͵Broker<br>
+     * ʺϢСĳϢķʱӣΪbatchLingerMillis
+     */
+    private boolean sendMessageInBatch = false;
+    /**
+     * һϢ
+     */
+    private int batchMaxMessages = 128;
+    /**
+     * һϢֽ
+     */
+    private int batchMaxBytes = 1024 * 256;
+    /**
+     * һϢȴþͷͣλ
+     */
+    private long batchLingerMillis = 5;
+    /**
+     * ʱϢʹöƸʽΪ1ֽڣBrokerConsumer<br>
+     * ϰ汾ConsumerܽҪConsumer
+     */
+    private boolean compactPropertiesEnable = false;
 
     protected final transient DefaultMQProducerImpl defaultMQProducerImpl = new DefaultMQProducerImpl(this);
 
@@ -247,6 +278,26 @@ public class DefaultMQProducer implements MQProducer {
     }
 
 
+    public CompressionType getCompressType() {
+        return compressType;
+    }
+
+
+    public void setCompressType(CompressionType compressType) {
+        this.compressType = compressType;
+    }
+
+
+    public int getCompressLevel() {
+        return compressLevel;
+    }
+
+
+    public void setCompressLevel(int compressLevel) {
+        this.compressLevel = compressLevel;
+    }
+
+
     public DefaultMQProducerImpl getDefaultMQProducerImpl() {
         return defaultMQProducerImpl;
     }
@@ -286,4 +337,54 @@ public class DefaultMQProducer implements MQProducer {
             throws MQClientException {
         throw new NotImplementedException();
     }
+
+
+    public boolean isSendMessageInBatch() {
+        return sendMessageInBatch;
+    }
+
+
+    public void setSendMessageInBatch(boolean sendMessageInBatch) {
+        this.sendMessageInBatch = sendMessageInBatch;
+    }
+
+
+    public int getBatchMaxMessages() {
+        return batchMaxMessages;
+    }
+
+
+    public void setBatchMaxMessages(int batchMaxMessages) {
+        this.batchMaxMessages = batchMaxMessages;
+    }
+
+
+    public int getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+
+    public void setBatchMaxBytes(int batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+
+    public long getBatchLingerMillis() {
+        return batchLingerMillis;
+    }
+
+
+    public void setBatchLingerMillis(long batchLingerMillis) {
+        this.batchLingerMillis = batchLingerMillis;
+    }
+
+
+    public boolean isCompactPropertiesEnable() {
+        return compactPropertiesEnable;
+    }
+
+
+    public void setCompactPropertiesEnable(boolean compactPropertiesEnable) {
+        this.compactPropertiesEnable = compactPropertiesEnable;
+    }
 }
@@ -0,0 +1,111 @@
+/**
+ * $Id: ConsumeMessageOrderlyServiceTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyContext;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.MessageQueue;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumeMessageOrderlyServiceTest {
+    private final MessageQueue mq = new MessageQueue("TopicTest", "broker-a", 0);
+    private final AtomicInteger lockTimes = new AtomicInteger(0);
+    private final AtomicInteger unlockTimes = new AtomicInteger(0);
+    private volatile boolean lockResult = true;
+    // Ϊnullʱڼڼ䶪
+    private volatile ProcessQueue dropWhenLock;
+
+    private ConsumeMessageOrderlyService service;
+
+
+    @Before
+    public void setUp() {
+        DefaultMQPushConsumerImpl impl = new DefaultMQPushConsumerImpl(new DefaultMQPushConsumer("TestGroup")) {
+            @Override
+            public boolean lock(MessageQueue mq) {
+                lockTimes.incrementAndGet();
+                if (dropWhenLock != null) {
+                    dropWhenLock.setDropped(true);
+                }
+                return lockResult;
+            }
+
+
+            @Override
+            public void unlock(MessageQueue mq, boolean oneway) {
+                unlockTimes.incrementAndGet();
+            }
+        };
+
+        this.service = new ConsumeMessageOrderlyService(impl, new MessageListenerOrderly() {
+            @Override
+            public ConsumeOrderlyStatus consumeMessage(List<MessageExt> msgs, ConsumeOrderlyContext context) {
+                return ConsumeOrderlyStatus.SUCCESS;
+            }
+        });
+    }
+
+
+    @After
+    public void tearDown() {
+        this.service.shutdown();
+    }
+
+
+    @Test
+    public void test_lockAndReconsume_droppedBeforeLock() {
+        ProcessQueue pq = new ProcessQueue();
+        pq.setDropped(true);
+
+        assertFalse(this.service.lockAndReconsume(this.service.new ConsumeRequest(pq, this.mq)));
+        assertEquals(0, this.lockTimes.get());
+        assertEquals(0, this.unlockTimes.get());
+    }
+
+
+    @Test
+    public void test_lockAndReconsume_droppedWhileLocking() {
+        ProcessQueue pq = new ProcessQueue();
+        this.dropWhenLock = pq;
+
+        // ѾRebalanceƳõûٽ⣬
+        assertFalse(this.service.lockAndReconsume(this.service.new ConsumeRequest(pq, this.mq)));
+        assertEquals(1, this.lockTimes.get());
+        assertEquals(1, this.unlockTimes.get());
+    }
+
+
+    @Test
+    public void test_lockAndReconsume_notDropped() {
+        ProcessQueue pq = new ProcessQueue();
+        // ύûϢѣ
+        pq.setLocked(true);
+        pq.setLastLockTimestamp(System.currentTimeMillis());
+
+        assertTrue(this.service.lockAndReconsume(this.service.new ConsumeRequest(pq, this.mq)));
+        assertEquals(1, this.lockTimes.get());
+
+        this.lockResult = false;
+        assertTrue(this.service.lockAndReconsume(this.service.new ConsumeRequest(pq, this.mq)));
+        assertEquals(2, this.lockTimes.get());
+        assertEquals(0, this.unlockTimes.get());
+    }
+}
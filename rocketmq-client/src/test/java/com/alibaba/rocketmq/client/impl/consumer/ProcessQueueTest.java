@@ -0,0 +1,101 @@
+/**
+ * $Id: ProcessQueueTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.client.impl.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.MessageExt;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ProcessQueueTest {
+    private static List<MessageExt> buildMessages(final long beginOffset, final int nums) {
+        List<MessageExt> msgs = new ArrayList<MessageExt>();
+        for (int i = 0; i < nums; i++) {
+            MessageExt msg = new MessageExt();
+            msg.setQueueOffset(beginOffset + i);
+            msg.setBody(new byte[10]);
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+
+
+    @Test
+    public void test_removeMessage_commitLowestOffset() {
+        ProcessQueue pq = new ProcessQueue();
+        assertEquals(-1, pq.removeMessage(new ArrayList<MessageExt>()));
+
+        List<MessageExt> msgs = buildMessages(100, 10);
+        assertTrue(pq.putMessage(msgs));
+        assertFalse(pq.putMessage(msgs.subList(0, 3)));
+        assertEquals(10, pq.getMsgCount());
+        assertEquals(100, pq.getMsgSize());
+        assertEquals(9, pq.getMaxSpan());
+
+        // Ϣ꣬ȲԽСδϢ
+        assertEquals(100, pq.removeMessage(msgs.subList(5, 10)));
+        assertEquals(100, pq.removeMessage(msgs.subList(1, 3)));
+        assertEquals(3, pq.getMsgCount());
+
+        assertEquals(103, pq.removeMessage(msgs.subList(0, 1)));
+
+        // ȫ꣬Offset + 1
+        assertEquals(110, pq.removeMessage(msgs.subList(3, 5)));
+        assertEquals(0, pq.getMsgCount());
+        assertEquals(0, pq.getMsgSize());
+        assertEquals(0, pq.getMaxSpan());
+
+        // ظƳӰ
+        assertEquals(110, pq.removeMessage(msgs.subList(3, 5)));
+        assertEquals(0, pq.getMsgCount());
+    }
+
+
+    @Test
+    public void test_takeMessags_orderly() {
+        ProcessQueue pq = new ProcessQueue();
+        List<MessageExt> msgs = buildMessages(0, 10);
+
+        // һηҪύ֮ѵȡ
+        assertTrue(pq.putMessage(msgs.subList(5, 10)));
+        assertFalse(pq.putMessage(msgs.subList(0, 5)));
+
+        List<MessageExt> taken = pq.takeMessags(4);
+        assertEquals(4, taken.size());
+        assertEquals(0, taken.get(0).getQueueOffset());
+        assertEquals(3, taken.get(3).getQueueOffset());
+
+        // ѵϢŻغ˳ٴȡ
+        pq.makeMessageToCosumeAgain(taken.subList(2, 4));
+        taken = pq.takeMessags(1);
+        assertEquals(2, taken.get(0).getQueueOffset());
+
+        assertEquals(3, pq.commit());
+        assertEquals(7, pq.getMsgCount());
+
+        taken = pq.takeMessags(3);
+        pq.rollback();
+        assertEquals(3, pq.takeMessags(1).get(0).getQueueOffset());
+        assertEquals(4, pq.commit());
+
+        pq.takeMessags(100);
+        assertEquals(10, pq.commit());
+        assertEquals(0, pq.getMsgCount());
+        assertEquals(-1, pq.commit());
+
+        // ȡպconsuming־ϢҪύ
+        assertTrue(pq.takeMessags(1).isEmpty());
+        assertTrue(pq.putMessage(buildMessages(10, 1)));
+    }
+}
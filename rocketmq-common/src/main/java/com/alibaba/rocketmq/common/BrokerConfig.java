@@ -37,6 +37,35 @@ public class BrokerConfig {
     private int pullMessageThreadPoolNums = Runtime.getRuntime().availableProcessors() * 6;
     private int adminBrokerThreadPoolNums = 8;
 
+    // ѯϢ̳߳أϢ̳߳طֹֿѯӰ
+    private int queryMessageThreadPoolNums = 8 + Runtime.getRuntime().availableProcessors();
+    // עͻ̳߳
+    private int clientManageThreadPoolNums = 16;
+    // ̳߳صĶгȣֱӾܾ
+    private int sendThreadPoolQueueCapacity = 10000;
+    private int pullThreadPoolQueueCapacity = 100000;
+    private int queryThreadPoolQueueCapacity = 20000;
+    private int clientManagerThreadPoolQueueCapacity = 50000;
+    // ȡϢڴʱڶ̳߳жPageCacheٽNettyֹͣIO߳
+    private boolean coldReadIsolationEnable = true;
+    private int coldReadThreadPoolNums = 8;
+    // ܾ󣬷ϵͳæ
+    private int coldReadThreadPoolQueueCapacity = 10000;
+    // ̳߳ضеȴãֱӷϵͳæÿͻ˾
+    private boolean brokerFastFailureEnable = true;
+    // ڸеȴʱ䣬λ
+    private long waitTimeMillsInSendQueue = 200;
+    private long waitTimeMillsInPullQueue = 5000;
+    private long waitTimeMillsInQueryQueue = 3000;
+    private long waitTimeMillsInHeartbeatQueue = 31000;
+
+    // ǷTopicСάȵͳ
+    private boolean brokerStatsEnable = true;
+    // ÿͳµͳͳ
+    private int statsItemMaxNums = 50000;
+    // ͳʱûб仯λ
+    private long statsItemIdleTimeMills = 1000 * 60 * 30;
+
     private String topicConfigPath = System.getProperty("user.home") + File.separator + "store" + File.separator
             + "config" + File.separator + "topics.properties";
 
@@ -50,6 +79,19 @@ public class BrokerConfig {
 
     private int flushConsumerOffsetHistoryInterval = 1000 * 60;
 
+    // ѽԶ׷־洢涨ʱȫдconsumerOffsetPathıļ
+    private boolean consumerOffsetStoreEnable = true;
+
+    // ƴ洢Ŀ¼ļ׷־ļ
+    private String consumerOffsetStorePath = System.getProperty("user.home") + File.separator + "store"
+            + File.separator + "config" + File.separator + "consumeroffset";
+
+    // ׷־ļСдѹɿ
+    private int consumerOffsetLogFileSize = 1024 * 1024 * 4;
+
+    // ׷־ˢ̼λ
+    private int flushConsumerOffsetLogInterval = 10;
+
     private String configFilePath = System.getProperty("user.home") + File.separator + "store" + File.separator
             + "config" + File.separator + "broker.properties";
 
@@ -264,4 +306,214 @@ public class BrokerConfig {
     public void setBrokerId(long brokerId) {
         this.brokerId = brokerId;
     }
+
+
+    public int getQueryMessageThreadPoolNums() {
+        return queryMessageThreadPoolNums;
+    }
+
+
+    public void setQueryMessageThreadPoolNums(int queryMessageThreadPoolNums) {
+        this.queryMessageThreadPoolNums = queryMessageThreadPoolNums;
+    }
+
+
+    public int getClientManageThreadPoolNums() {
+        return clientManageThreadPoolNums;
+    }
+
+
+    public void setClientManageThreadPoolNums(int clientManageThreadPoolNums) {
+        this.clientManageThreadPoolNums = clientManageThreadPoolNums;
+    }
+
+
+    public int getSendThreadPoolQueueCapacity() {
+        return sendThreadPoolQueueCapacity;
+    }
+
+
+    public void setSendThreadPoolQueueCapacity(int sendThreadPoolQueueCapacity) {
+        this.sendThreadPoolQueueCapacity = sendThreadPoolQueueCapacity;
+    }
+
+
+    public int getPullThreadPoolQueueCapacity() {
+        return pullThreadPoolQueueCapacity;
+    }
+
+
+    public void setPullThreadPoolQueueCapacity(int pullThreadPoolQueueCapacity) {
+        this.pullThreadPoolQueueCapacity = pullThreadPoolQueueCapacity;
+    }
+
+
+    public int getQueryThreadPoolQueueCapacity() {
+        return queryThreadPoolQueueCapacity;
+    }
+
+
+    public void setQueryThreadPoolQueueCapacity(int queryThreadPoolQueueCapacity) {
+        this.queryThreadPoolQueueCapacity = queryThreadPoolQueueCapacity;
+    }
+
+
+    public int getClientManagerThreadPoolQueueCapacity() {
+        return clientManagerThreadPoolQueueCapacity;
+    }
+
+
+    public void setClientManagerThreadPoolQueueCapacity(int clientManagerThreadPoolQueueCapacity) {
+        this.clientManagerThreadPoolQueueCapacity = clientManagerThreadPoolQueueCapacity;
+    }
+
+
+    public boolean isBrokerFastFailureEnable() {
+        return brokerFastFailureEnable;
+    }
+
+
+    public void setBrokerFastFailureEnable(boolean brokerFastFailureEnable) {
+        this.brokerFastFailureEnable = brokerFastFailureEnable;
+    }
+
+
+    public long getWaitTimeMillsInSendQueue() {
+        return waitTimeMillsInSendQueue;
+    }
+
+
+    public void setWaitTimeMillsInSendQueue(long waitTimeMillsInSendQueue) {
+        this.waitTimeMillsInSendQueue = waitTimeMillsInSendQueue;
+    }
+
+
+    public long getWaitTimeMillsInPullQueue() {
+        return waitTimeMillsInPullQueue;
+    }
+
+
+    public void setWaitTimeMillsInPullQueue(long waitTimeMillsInPullQueue) {
+        this.waitTimeMillsInPullQueue = waitTimeMillsInPullQueue;
+    }
+
+
+    public long getWaitTimeMillsInQueryQueue() {
+        return waitTimeMillsInQueryQueue;
+    }
+
+
+    public void setWaitTimeMillsInQueryQueue(long waitTimeMillsInQueryQueue) {
+        this.waitTimeMillsInQueryQueue = waitTimeMillsInQueryQueue;
+    }
+
+
+    public long getWaitTimeMillsInHeartbeatQueue() {
+        return waitTimeMillsInHeartbeatQueue;
+    }
+
+
+    public void setWaitTimeMillsInHeartbeatQueue(long waitTimeMillsInHeartbeatQueue) {
+        this.waitTimeMillsInHeartbeatQueue = waitTimeMillsInHeartbeatQueue;
+    }
+
+
+    public boolean isBrokerStatsEnable() {
+        return brokerStatsEnable;
+    }
+
+
+    public void setBrokerStatsEnable(boolean brokerStatsEnable) {
+        this.brokerStatsEnable = brokerStatsEnable;
+    }
+
+
+    public int getStatsItemMaxNums() {
+        return statsItemMaxNums;
+    }
+
+
+    public void setStatsItemMaxNums(int statsItemMaxNums) {
+        this.statsItemMaxNums = statsItemMaxNums;
+    }
+
+
+    public long getStatsItemIdleTimeMills() {
+        return statsItemIdleTimeMills;
+    }
+
+
+    public void setStatsItemIdleTimeMills(long statsItemIdleTimeMills) {
+        this.statsItemIdleTimeMills = statsItemIdleTimeMills;
+    }
+
+
+    public boolean isConsumerOffsetStoreEnable() {
+        return consumerOffsetStoreEnable;
+    }
+
+
+    public void setConsumerOffsetStoreEnable(boolean consumerOffsetStoreEnable) {
+        this.consumerOffsetStoreEnable = consumerOffsetStoreEnable;
+    }
+
+
+    public String getConsumerOffsetStorePath() {
+        return consumerOffsetStorePath;
+    }
+
+
+    public void setConsumerOffsetStorePath(String consumerOffsetStorePath) {
+        this.consumerOffsetStorePath = consumerOffsetStorePath;
+    }
+
+
+    public int getConsumerOffsetLogFileSize() {
+        return consumerOffsetLogFileSize;
+    }
+
+
+    public void setConsumerOffsetLogFileSize(int consumerOffsetLogFileSize) {
+        this.consumerOffsetLogFileSize = consumerOffsetLogFileSize;
+    }
+
+
+    public int getFlushConsumerOffsetLogInterval() {
+        return flushConsumerOffsetLogInterval;
+    }
+
+
+    public void setFlushConsumerOffsetLogInterval(int flushConsumerOffsetLogInterval) {
+        this.flushConsumerOffsetLogInterval = flushConsumerOffsetLogInterval;
+    }
+
+
+    public boolean isColdReadIsolationEnable() {
+        return coldReadIsolationEnable;
+    }
+
+
+    public void setColdReadIsolationEnable(boolean coldReadIsolationEnable) {
+        this.coldReadIsolationEnable = coldReadIsolationEnable;
+    }
+
+
+    public int getColdReadThreadPoolNums() {
+        return coldReadThreadPoolNums;
+    }
+
+
+    public void setColdReadThreadPoolNums(int coldReadThreadPoolNums) {
+        this.coldReadThreadPoolNums = coldReadThreadPoolNums;
+    }
+
+
+    public int getColdReadThreadPoolQueueCapacity() {
+        return coldReadThreadPoolQueueCapacity;
+    }
+
+
+    public void setColdReadThreadPoolQueueCapacity(int coldReadThreadPoolQueueCapacity) {
+        this.coldReadThreadPoolQueueCapacity = coldReadThreadPoolQueueCapacity;
+    }
 }
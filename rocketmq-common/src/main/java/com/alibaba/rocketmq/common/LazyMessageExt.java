@@ -0,0 +1,332 @@
+/**
+ * $Id: LazyMessageExt.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import com.alibaba.rocketmq.common.compress.CompressionCodecs;
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+
+
+/**
+ * ӳٽϢֱϢӦֽ飬<br>
+ * ֵֶڴʱTopicϢ塢ԡַϢIDڵһηʱŽ<br>
+ * ע⣺ֻҪһϢδͷţӦֽ鶼ᱻGC
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LazyMessageExt extends MessageExt {
+    /**
+     * 洢¼ֶԼ¼ʼλ
+     */
+    private final static int BornHostPostion = 48;
+    private final static int StoreHostPostion = 64;
+    private final static int BodyLengthPostion = 84;
+
+    private final byte[] data;
+    private final int bodyPostion;
+    private final int bodyLength;
+    private final int topicPostion;
+    private final int topicLength;
+    private final int propertiesPostion;
+    private final int propertiesLength;
+    private final int storeHostPostion;
+    private final int bornHostPostion;
+
+    // ߳̿ͬʱʣдֶλ
+    private volatile boolean topicDecoded = false;
+    private volatile boolean bodyDecoded = false;
+    private volatile boolean propertiesDecoded = false;
+    private volatile boolean bornHostDecoded = false;
+    private volatile boolean storeHostDecoded = false;
+    private volatile boolean msgIdDecoded = false;
+
+
+    /**
+     * @param data
+     *            ϢӦֽ
+     * @param offset
+     *            ϢеĿʼλ
+     * @throws IllegalArgumentException
+     *             Ϣʽȷ
+     */
+    public LazyMessageExt(final byte[] data, final int offset) {
+        this.data = data;
+        ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+
+        // 1 TOTALSIZE
+        final int storeSize = byteBuffer.getInt(offset);
+        if (storeSize <= BodyLengthPostion + 4 || offset + storeSize > data.length) {
+            throw new IllegalArgumentException("message store size illegal, " + storeSize);
+        }
+        this.setStoreSize(storeSize);
+
+        // 3 BODYCRC
+        this.setBodyCRC(byteBuffer.getInt(offset + 8));
+        // 4 QUEUEID
+        this.setQueueId(byteBuffer.getInt(offset + 12));
+        // 5 FLAG
+        this.setFlag(byteBuffer.getInt(offset + MessageDecoder.MessageFlagPostion));
+        // 6 QUEUEOFFSET
+        this.setQueueOffset(byteBuffer.getLong(offset + 20));
+        // 7 PHYSICALOFFSET
+        this.setCommitLogOffset(byteBuffer.getLong(offset + MessageDecoder.MessagePhysicOffsetPostion));
+        // 8 SYSFLAG
+        this.setSysFlag(byteBuffer.getInt(offset + 36));
+        // 9 BORNTIMESTAMP
+        this.setBornTimestamp(byteBuffer.getLong(offset + 40));
+        // 11 STORETIMESTAMP
+        this.setStoreTimestamp(byteBuffer.getLong(offset + MessageDecoder.MessageStoreTimestampPostion));
+        // 13 RECONSUMETIMES
+        this.setReconsumeTimes(byteBuffer.getInt(offset + 72));
+        // 14 Prepared Transaction Offset
+        this.setPreparedTransactionOffset(byteBuffer.getLong(offset + 76));
+
+        this.bornHostPostion = offset + BornHostPostion;
+        this.storeHostPostion = offset + StoreHostPostion;
+
+        // 15 BODY
+        this.bodyLength = Math.max(0, byteBuffer.getInt(offset + BodyLengthPostion));
+        this.bodyPostion = offset + BodyLengthPostion + 4;
+
+        // 16 TOPIC
+        this.topicLength = byteBuffer.get(this.bodyPostion + this.bodyLength);
+        this.topicPostion = this.bodyPostion + this.bodyLength + 1;
+
+        // 17 properties
+        this.propertiesLength = Math.max(0, byteBuffer.getShort(this.topicPostion + this.topicLength));
+        this.propertiesPostion = this.topicPostion + this.topicLength + 2;
+
+        if (this.topicLength < 0 || this.propertiesPostion + this.propertiesLength > offset + storeSize) {
+            throw new IllegalArgumentException("message fields length illegal, " + storeSize);
+        }
+    }
+
+
+    private SocketAddress decodeHost(final int postion) {
+        byte[] host = new byte[4];
+        System.arraycopy(this.data, postion, host, 0, 4);
+        int port = ByteBuffer.wrap(this.data).getInt(postion + 4);
+        try {
+            return new InetSocketAddress(InetAddress.getByAddress(host), port);
+        }
+        catch (UnknownHostException e) {
+            // 4ֽڵĵִַ쳣
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * ϢֻͼδѹϢ
+     */
+    public ByteBuffer getBodyBuffer() {
+        if (this.bodyDecoded
+                || (this.getSysFlag() & MessageSysFlag.CompressedFlag) == MessageSysFlag.CompressedFlag) {
+            byte[] body = this.getBody();
+            return null == body ? null : ByteBuffer.wrap(body).asReadOnlyBuffer();
+        }
+
+        if (this.bodyLength <= 0) {
+            return null;
+        }
+
+        return ByteBuffer.wrap(this.data, this.bodyPostion, this.bodyLength).slice().asReadOnlyBuffer();
+    }
+
+
+    @Override
+    public String getTopic() {
+        if (!this.topicDecoded) {
+            super.setTopic(new String(this.data, this.topicPostion, this.topicLength));
+            this.topicDecoded = true;
+        }
+        return super.getTopic();
+    }
+
+
+    @Override
+    public void setTopic(String topic) {
+        super.setTopic(topic);
+        this.topicDecoded = true;
+    }
+
+
+    /**
+     * ѹʧʱ׳IllegalStateException
+     */
+    @Override
+    public byte[] getBody() {
+        if (!this.bodyDecoded) {
+            if (this.bodyLength > 0) {
+                byte[] body = new byte[this.bodyLength];
+                System.arraycopy(this.data, this.bodyPostion, body, 0, this.bodyLength);
+                try {
+                    super.setBody(CompressionCodecs.uncompress(this.getSysFlag(), body));
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException("uncompress message body error, " + this.getMsgId(), e);
+                }
+            }
+            this.bodyDecoded = true;
+        }
+        return super.getBody();
+    }
+
+
+    @Override
+    public void setBody(byte[] body) {
+        super.setBody(body);
+        this.bodyDecoded = true;
+    }
+
+
+    private void decodeProperties() {
+        if (!this.propertiesDecoded) {
+            synchronized (this) {
+                if (!this.propertiesDecoded) {
+                    if (this.propertiesLength > 0) {
+                        super.setProperties(MessageDecoder.bytes2messageProperties(this.data,
+                            this.propertiesPostion, this.propertiesLength));
+                    }
+                    this.propertiesDecoded = true;
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public Map<String, String> getProperties() {
+        this.decodeProperties();
+        return super.getProperties();
+    }
+
+
+    @Override
+    public void setProperties(Map<String, String> properties) {
+        super.setProperties(properties);
+        this.propertiesDecoded = true;
+    }
+
+
+    @Override
+    public String getProperty(String name) {
+        this.decodeProperties();
+        return super.getProperty(name);
+    }
+
+
+    @Override
+    public void putProperty(String name, String value) {
+        this.decodeProperties();
+        super.putProperty(name, value);
+    }
+
+
+    @Override
+    public void clearProperty(String name) {
+        this.decodeProperties();
+        super.clearProperty(name);
+    }
+
+
+    @Override
+    public SocketAddress getBornHost() {
+        if (!this.bornHostDecoded) {
+            super.setBornHost(this.decodeHost(this.bornHostPostion));
+            this.bornHostDecoded = true;
+        }
+        return super.getBornHost();
+    }
+
+
+    @Override
+    public void setBornHost(SocketAddress bornHost) {
+        super.setBornHost(bornHost);
+        this.bornHostDecoded = true;
+    }
+
+
+    @Override
+    public String getBornHostString() {
+        this.getBornHost();
+        return super.getBornHostString();
+    }
+
+
+    @Override
+    public ByteBuffer getBornHostBytes() {
+        this.getBornHost();
+        return super.getBornHostBytes();
+    }
+
+
+    @Override
+    public SocketAddress getStoreHost() {
+        if (!this.storeHostDecoded) {
+            super.setStoreHost(this.decodeHost(this.storeHostPostion));
+            this.storeHostDecoded = true;
+        }
+        return super.getStoreHost();
+    }
+
+
+    @Override
+    public void setStoreHost(SocketAddress storeHost) {
+        super.setStoreHost(storeHost);
+        this.storeHostDecoded = true;
+    }
+
+
+    @Override
+    public ByteBuffer getStoreHostBytes() {
+        if (!this.storeHostDecoded) {
+            // عInetSocketAddressֱȡ洢8ֽ
+            ByteBuffer byteBuffer = ByteBuffer.allocate(8);
+            byteBuffer.put(this.data, this.storeHostPostion, 8);
+            byteBuffer.flip();
+            return byteBuffer;
+        }
+        return super.getStoreHostBytes();
+    }
+
+
+    @Override
+    public String getMsgId() {
+        if (!this.msgIdDecoded) {
+            ByteBuffer byteBufferMsgId = ByteBuffer.allocate(MessageDecoder.MSG_ID_LENGTH);
+            super.setMsgId(MessageDecoder.createMessageId(byteBufferMsgId, this.getStoreHostBytes(),
+                this.getCommitLogOffset()));
+            this.msgIdDecoded = true;
+        }
+        return super.getMsgId();
+    }
+
+
+    @Override
+    public void setMsgId(String msgId) {
+        super.setMsgId(msgId);
+        this.msgIdDecoded = true;
+    }
+
+
+    @Override
+    public String toString() {
+        // ֱӷֶΣӡǰȫ
+        this.getTopic();
+        this.getBody();
+        this.getProperties();
+        this.getBornHost();
+        this.getStoreHost();
+        this.getMsgId();
+        return super.toString();
+    }
+}
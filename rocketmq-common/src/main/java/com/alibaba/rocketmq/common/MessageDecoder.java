@@ -3,12 +3,14 @@
  */
 package com.alibaba.rocketmq.common;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +19,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.alibaba.rocketmq.common.compress.CompressionCodecs;
 import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
 
 
@@ -152,9 +155,7 @@ public class MessageDecoder {
                     byteBuffer.get(body);
 
                     // uncompress body
-                    if ((sysFlag & MessageSysFlag.CompressedFlag) == MessageSysFlag.CompressedFlag) {
-                        body = UtilALl.uncompress(body);
-                    }
+                    body = CompressionCodecs.uncompress(sysFlag, body);
 
                     msgExt.setBody(body);
                 }
@@ -174,8 +175,7 @@ public class MessageDecoder {
             if (propertiesLength > 0) {
                 byte[] properties = new byte[propertiesLength];
                 byteBuffer.get(properties);
-                String propertiesString = new String(properties);
-                Map<String, String> map = string2messageProperties(propertiesString);
+                Map<String, String> map = bytes2messageProperties(properties, 0, propertiesLength);
                 msgExt.setProperties(map);
             }
 
@@ -214,7 +214,20 @@ public class MessageDecoder {
         while (byteBuffer.hasRemaining()) {
             MessageExt msgExt = decode(byteBuffer, readBody);
             if (null != msgExt) {
-                msgExts.add(msgExt);
+                // Brokerѹ洢һϢչɶ
+                final boolean isMessageSet =
+                        (msgExt.getSysFlag() & MessageSysFlag.MessageSetFlag) == MessageSysFlag.MessageSetFlag;
+                if (readBody && isMessageSet) {
+                    List<MessageExt> innerMsgExts = decodeMessageSet(msgExt);
+                    if (null == innerMsgExts) {
+                        log.warn("message set decode error, " + msgExt.getMsgId());
+                        break;
+                    }
+                    msgExts.addAll(innerMsgExts);
+                }
+                else {
+                    msgExts.add(msgExt);
+                }
             }
             else {
                 log.warn("message decode error.");
@@ -224,6 +237,242 @@ public class MessageDecoder {
         return msgExts;
     }
 
+
+    /**
+     * ͻʹãӳٽ룬ϢֱbyteBufferĵײ飬ֶڵһηʱŽ<br>
+     * Brokerѹ洢ϢȻչ
+     */
+    public static List<MessageExt> decodesLazily(final ByteBuffer byteBuffer) {
+        if (!byteBuffer.hasArray()) {
+            return decodes(byteBuffer, true);
+        }
+
+        List<MessageExt> msgExts = new ArrayList<MessageExt>();
+        while (byteBuffer.hasRemaining()) {
+            LazyMessageExt msgExt = null;
+            try {
+                final int offset = byteBuffer.arrayOffset() + byteBuffer.position();
+                msgExt = new LazyMessageExt(byteBuffer.array(), offset);
+            }
+            catch (RuntimeException e) {
+                log.warn("message decode error.", e);
+                break;
+            }
+
+            if (msgExt.getStoreSize() > byteBuffer.remaining()) {
+                log.warn("message decode error, store size " + msgExt.getStoreSize());
+                break;
+            }
+
+            byteBuffer.position(byteBuffer.position() + msgExt.getStoreSize());
+            if ((msgExt.getSysFlag() & MessageSysFlag.MessageSetFlag) == MessageSysFlag.MessageSetFlag) {
+                List<MessageExt> innerMsgExts = decodeMessageSet(msgExt);
+                if (null == innerMsgExts) {
+                    log.warn("message set decode error, " + msgExt.getMsgId());
+                    break;
+                }
+                msgExts.addAll(innerMsgExts);
+            }
+            else {
+                msgExts.add(msgExt);
+            }
+        }
+        return msgExts;
+    }
+
+    /**
+     * ʱһϢĳ<br>
+     * TOTALSIZE(4) + SYSFLAG(4) + FLAG(4) + BODY(4 + N) + PROPERTIES(2 + N)
+     */
+    public static int batchMessageLength(final byte[] body, final byte[] properties) {
+        return 4 + 4 + 4 //
+                + 4 + (body == null ? 0 : body.length) //
+                + 2 + (properties == null ? 0 : properties.length);
+    }
+
+
+    /**
+     * ʱһϢ
+     */
+    public static void encodeBatchMessage(final ByteBuffer byteBuffer, final int sysFlag, final int flag,
+            final byte[] body, final byte[] properties) {
+        final int bodyLength = body == null ? 0 : body.length;
+        final int propertiesLength = properties == null ? 0 : properties.length;
+
+        byteBuffer.putInt(batchMessageLength(body, properties));
+        byteBuffer.putInt(sysFlag);
+        byteBuffer.putInt(flag);
+        byteBuffer.putInt(bodyLength);
+        if (bodyLength > 0) {
+            byteBuffer.put(body);
+        }
+        byteBuffer.putShort((short) propertiesLength);
+        if (propertiesLength > 0) {
+            byteBuffer.put(properties);
+        }
+    }
+
+
+    /**
+     * Brokerʹã͵ϢֻSYSFLAGFLAGBODYPROPERTIES
+     *
+     * @return ʽ󷵻null
+     */
+    public static List<MessageExt> decodeBatchMessages(final ByteBuffer byteBuffer) {
+        return decodeBatchMessages(byteBuffer, null);
+    }
+
+
+    /**
+     * @param propertiesDataList
+     *            Ϊnullʱ˳ÿϢԭʼݣûԵķnullBrokerԭ洢
+     *            ʱٷл
+     */
+    public static List<MessageExt> decodeBatchMessages(final ByteBuffer byteBuffer,
+            final List<byte[]> propertiesDataList) {
+        List<MessageExt> msgExts = new ArrayList<MessageExt>();
+        try {
+            while (byteBuffer.hasRemaining()) {
+                final int totalSize = byteBuffer.getInt();
+                final int beginPosition = byteBuffer.position() - 4;
+
+                MessageExt msgExt = new MessageExt();
+                msgExt.setSysFlag(byteBuffer.getInt());
+                msgExt.setFlag(byteBuffer.getInt());
+
+                int bodyLength = byteBuffer.getInt();
+                byte[] body = new byte[bodyLength];
+                byteBuffer.get(body);
+                msgExt.setBody(body);
+
+                short propertiesLength = byteBuffer.getShort();
+                byte[] properties = null;
+                if (propertiesLength > 0) {
+                    properties = new byte[propertiesLength];
+                    byteBuffer.get(properties);
+                }
+                if (propertiesDataList != null) {
+                    propertiesDataList.add(properties);
+                }
+                else if (properties != null) {
+                    msgExt.setProperties(bytes2messageProperties(properties, 0, propertiesLength));
+                }
+
+                if (byteBuffer.position() - beginPosition != totalSize) {
+                    log.warn("batch message decode error, total size not matched, " + totalSize);
+                    return null;
+                }
+
+                msgExts.add(msgExt);
+            }
+        }
+        catch (BufferUnderflowException e) {
+            log.warn("batch message decode error.", e);
+            return null;
+        }
+        catch (NegativeArraySizeException e) {
+            log.warn("batch message decode error.", e);
+            return null;
+        }
+
+        return msgExts;
+    }
+
+    /**
+     * ϢÿϢϢIDOffsetλϢڼеţ0뼯ϱϢIDͬ
+     */
+    public final static int MessageSetIndexShift = 48;
+    public final static long MessageSetPhysicOffsetMask = (1L << MessageSetIndexShift) - 1;
+    // ֻ16λһϢϢŻϢIDظ
+    public final static int MessageSetMaxMessages = (1 << (64 - MessageSetIndexShift)) - 1;
+
+
+    public static long messageSetInnerOffset(final long commitLogOffset, final int index) {
+        return commitLogOffset | ((long) index << MessageSetIndexShift);
+    }
+
+
+    /**
+     * BrokerʹãϢϵϢ<br>
+     * COUNT(4) + TAGSCODE(8 * COUNT) + ѹϢϢʽһ<br>
+     * tagsCodeѹַConsumeQueueʱҪѹ
+     */
+    public static byte[] encodeMessageSetBody(final long[] tagsCodes, final byte[] compressedMessages) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(4 + 8 * tagsCodes.length + compressedMessages.length);
+        byteBuffer.putInt(tagsCodes.length);
+        for (long tagsCode : tagsCodes) {
+            byteBuffer.putLong(tagsCode);
+        }
+        byteBuffer.put(compressedMessages);
+        return byteBuffer.array();
+    }
+
+
+    /**
+     * ȡϢÿϢtagsCodebyteBufferǰλϢ忪ʼȡλò
+     */
+    public static long[] decodeMessageSetTagsCodes(final ByteBuffer byteBuffer) {
+        final int position = byteBuffer.position();
+        final int count = byteBuffer.getInt(position);
+        long[] tagsCodes = new long[count];
+        for (int i = 0; i < count; i++) {
+            tagsCodes[i] = byteBuffer.getLong(position + 4 + 8 * i);
+        }
+        return tagsCodes;
+    }
+
+
+    /**
+     * ͻʹãBrokerѹ洢ϢչɶϢ
+     *
+     * @return ʽ󷵻null
+     */
+    public static List<MessageExt> decodeMessageSet(final MessageExt messageSet) {
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(messageSet.getBody());
+            final int count = byteBuffer.getInt();
+            byteBuffer.position(4 + 8 * count);
+            byte[] compressed = new byte[byteBuffer.remaining()];
+            byteBuffer.get(compressed);
+
+            byte[] data = CompressionCodecs.getCodec(messageSet.getSysFlag()).uncompress(compressed);
+            List<MessageExt> msgExts = decodeBatchMessages(ByteBuffer.wrap(data));
+            if (null == msgExts || msgExts.size() != count) {
+                return null;
+            }
+
+            ByteBuffer byteBufferMsgId = ByteBuffer.allocate(MSG_ID_LENGTH);
+            for (int i = 0; i < count; i++) {
+                MessageExt msgExt = msgExts.get(i);
+                msgExt.setTopic(messageSet.getTopic());
+                msgExt.setQueueId(messageSet.getQueueId());
+                msgExt.setQueueOffset(messageSet.getQueueOffset() + i);
+                msgExt.setCommitLogOffset(messageSet.getCommitLogOffset());
+                msgExt.setStoreSize(messageSet.getStoreSize());
+                msgExt.setBornTimestamp(messageSet.getBornTimestamp());
+                msgExt.setBornHost(messageSet.getBornHost());
+                msgExt.setStoreTimestamp(messageSet.getStoreTimestamp());
+                msgExt.setStoreHost(messageSet.getStoreHost());
+                msgExt.setReconsumeTimes(messageSet.getReconsumeTimes());
+                msgExt.setSysFlag(msgExt.getSysFlag()
+                        | (messageSet.getSysFlag() & MessageSysFlag.MultiTagsFlag));
+                msgExt.setBody(CompressionCodecs.uncompress(msgExt.getSysFlag(), msgExt.getBody()));
+                msgExt.setMsgId(createMessageId(byteBufferMsgId, messageSet.getStoreHostBytes(),
+                    messageSetInnerOffset(messageSet.getCommitLogOffset(), i)));
+            }
+
+            return msgExts;
+        }
+        catch (IOException e) {
+            log.warn("message set uncompress error.", e);
+        }
+        catch (RuntimeException e) {
+            log.warn("message set decode error.", e);
+        }
+
+        return null;
+    }
+
     /**
      * лϢ
      */
@@ -265,5 +514,240 @@ public class MessageDecoder {
         return map;
     }
 
+    /**
+     * ƸʽϢԣһֽΪ0ıʽ0ͷ<br>
+     * ֮ÿԣKEYID(1) [+ KEYLENGTH(1) + KEYKEYIDΪ0ʱ] + VALUELENGTH(12) + VALUE<br>
+     * VALUELENGTHС128ʱռ1ֽڣռ2ֽλ1
+     */
+    public static final byte PROPERTIES_BINARY_MAGIC = 0;
+    private static final int PROPERTY_CUSTOM_KEY_ID = 0;
+    private static final int PROPERTY_MAX_VALUE_LENGTH = 0x7FFF;
+    private static final Charset PROPERTY_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * ӦID±꼴IDֻĩβ׷ӣ޸е˳
+     */
+    private static final String[] PROPERTY_KEY_TABLE = { null, //
+        Message.PROPERTY_KEYS, // 1
+        Message.PROPERTY_TAGS, // 2
+        Message.PROPERTY_WAIT_STORE_MSG_OK, // 3
+        Message.PROPERTY_DELAY_TIME_LEVEL, // 4
+        Message.PROPERTY_REAL_TOPIC, // 5
+        Message.PROPERTY_REAL_QUEUE_ID, // 6
+        Message.PROPERTY_TRANSACTION_PREPARED, // 7
+        Message.PROPERTY_PRODUCER_GROUP, // 8
+    };
+    private static final Map<String, Integer> PROPERTY_KEY_IDS = new HashMap<String, Integer>();
+    static {
+        for (int i = 1; i < PROPERTY_KEY_TABLE.length; i++) {
+            PROPERTY_KEY_IDS.put(PROPERTY_KEY_TABLE[i], i);
+        }
+    }
+
+
+    public static boolean isBinaryProperties(final byte[] data, final int offset, final int length) {
+        return length > 0 && data[offset] == PROPERTIES_BINARY_MAGIC;
+    }
+
+
+    /**
+     * лϢΪƸʽֵʱ׳IllegalArgumentException
+     */
+    public static byte[] messageProperties2Bytes(final Map<String, String> properties) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(256);
+        byteBuffer.put(PROPERTIES_BINARY_MAGIC);
+        if (properties != null) {
+            for (final Map.Entry<String, String> entry : properties.entrySet()) {
+                final byte[] value = entry.getValue().getBytes(PROPERTY_CHARSET);
+                if (value.length > PROPERTY_MAX_VALUE_LENGTH) {
+                    throw new IllegalArgumentException("property value too long, " + entry.getKey());
+                }
+
+                final Integer keyId = PROPERTY_KEY_IDS.get(entry.getKey());
+                final byte[] key = null == keyId ? entry.getKey().getBytes(PROPERTY_CHARSET) : null;
+                if (key != null && key.length > 0xFF) {
+                    throw new IllegalArgumentException("property name too long, " + entry.getKey());
+                }
+
+                final int length = 1 + (null == key ? 0 : 1 + key.length) + 2 + value.length;
+                if (byteBuffer.remaining() < length) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(byteBuffer.capacity() * 2,
+                        byteBuffer.position() + length));
+                    byteBuffer.flip();
+                    larger.put(byteBuffer);
+                    byteBuffer = larger;
+                }
+
+                if (null == key) {
+                    byteBuffer.put(keyId.byteValue());
+                }
+                else {
+                    byteBuffer.put((byte) PROPERTY_CUSTOM_KEY_ID);
+                    byteBuffer.put((byte) key.length);
+                    byteBuffer.put(key);
+                }
+
+                if (value.length < 0x80) {
+                    byteBuffer.put((byte) value.length);
+                }
+                else {
+                    byteBuffer.putShort((short) (value.length | 0x8000));
+                }
+                byteBuffer.put(value);
+            }
+        }
+
+        byte[] data = new byte[byteBuffer.position()];
+        System.arraycopy(byteBuffer.array(), 0, data, 0, data.length);
+        return data;
+    }
+
+
+    /**
+     * лϢԣıָʽ
+     */
+    public static Map<String, String> bytes2messageProperties(final byte[] data, final int offset,
+            final int length) {
+        if (!isBinaryProperties(data, offset, length)) {
+            return string2messageProperties(new String(data, offset, length));
+        }
+
+        Map<String, String> map = new HashMap<String, String>();
+        final int end = offset + length;
+        int pos = offset + 1;
+        while (pos < end) {
+            final int keyId = data[pos++] & 0xFF;
+            String key = null;
+            if (PROPERTY_CUSTOM_KEY_ID == keyId) {
+                final int keyLength = data[pos++] & 0xFF;
+                key = new String(data, pos, keyLength, PROPERTY_CHARSET);
+                pos += keyLength;
+            }
+            else if (keyId < PROPERTY_KEY_TABLE.length) {
+                key = PROPERTY_KEY_TABLE[keyId];
+            }
+
+            int valueLength = data[pos++] & 0xFF;
+            if ((valueLength & 0x80) != 0) {
+                valueLength = ((valueLength & 0x7F) << 8) | (data[pos++] & 0xFF);
+            }
+
+            // °汾ӵĳԣϰ汾ʶ
+            if (key != null) {
+                map.put(key, new String(data, pos, valueLength, PROPERTY_CHARSET));
+            }
+            pos += valueLength;
+        }
+
+        return map;
+    }
+
+
+    /**
+     * лȫԣֱӲһԣıָʽ
+     *
+     * @return Ҳnull
+     */
+    public static String getProperty(final byte[] data, final int offset, final int length,
+            final String name) {
+        final String[] values = new String[1];
+        getProperties(data, offset, length, new String[] { name }, values);
+        return values[0];
+    }
+
+
+    /**
+     * ɨһݣͬʱҶԣıָʽ
+     *
+     * @param values
+     *            namesһһӦҲΪnull
+     * @return ҵԸ
+     */
+    public static int getProperties(final byte[] data, final int offset, final int length,
+            final String[] names, final String[] values) {
+        int found = 0;
+        final int end = offset + length;
+        if (!isBinaryProperties(data, offset, length)) {
+            int pos = offset;
+            while (pos < end && found < names.length) {
+                // ÿԣNAME + NAME_VALUE_SEPARATOR + VALUE + PROPERTY_SEPARATOR
+                int nameEnd = pos;
+                while (nameEnd < end && data[nameEnd] != NAME_VALUE_SEPARATOR) {
+                    nameEnd++;
+                }
+                int valueEnd = nameEnd;
+                while (valueEnd < end && data[valueEnd] != PROPERTY_SEPARATOR) {
+                    valueEnd++;
+                }
+
+                if (nameEnd < end) {
+                    for (int i = 0; i < names.length; i++) {
+                        if (null == values[i] && equalsAscii(data, pos, nameEnd - pos, names[i])) {
+                            values[i] = new String(data, nameEnd + 1, valueEnd - nameEnd - 1);
+                            found++;
+                            break;
+                        }
+                    }
+                }
+                pos = valueEnd + 1;
+            }
+            return found;
+        }
+
+        int pos = offset + 1;
+        while (pos < end && found < names.length) {
+            final int keyId = data[pos++] & 0xFF;
+            int keyPostion = 0;
+            int keyLength = 0;
+            if (PROPERTY_CUSTOM_KEY_ID == keyId) {
+                keyLength = data[pos++] & 0xFF;
+                keyPostion = pos;
+                pos += keyLength;
+            }
+
+            int valueLength = data[pos++] & 0xFF;
+            if ((valueLength & 0x80) != 0) {
+                valueLength = ((valueLength & 0x7F) << 8) | (data[pos++] & 0xFF);
+            }
+
+            for (int i = 0; i < names.length; i++) {
+                if (values[i] != null) {
+                    continue;
+                }
+
+                final boolean matched =
+                        PROPERTY_CUSTOM_KEY_ID == keyId ? equalsAscii(data, keyPostion, keyLength, names[i])
+                                : keyId < PROPERTY_KEY_TABLE.length
+                                        && PROPERTY_KEY_TABLE[keyId].equals(names[i]);
+                if (matched) {
+                    values[i] = new String(data, pos, valueLength, PROPERTY_CHARSET);
+                    found++;
+                    break;
+                }
+            }
+            pos += valueLength;
+        }
+
+        return found;
+    }
+
+
+    /**
+     * ASCIIֱַӰֽڱȽ
+     */
+    private static boolean equalsAscii(final byte[] data, final int offset, final int length,
+            final String name) {
+        if (length != name.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static final Logger log = LoggerFactory.getLogger(MixAll.CommonLoggerName);
 }
@@ -8,12 +8,16 @@ package com.alibaba.rocketmq.common;
  * 
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
-public class MessageQueue {
+public class MessageQueue implements Comparable<MessageQueue> {
     private String topic;
     private String brokerName;
     private int queueId;
 
 
+    public MessageQueue() {
+    }
+
+
     public MessageQueue(String topic, String brokerName, int queueId) {
         this.topic = topic;
         this.brokerName = brokerName;
@@ -93,4 +97,24 @@ public class MessageQueue {
             return false;
         return true;
     }
+
+
+    @Override
+    public int compareTo(MessageQueue o) {
+        {
+            int result = this.topic.compareTo(o.topic);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        {
+            int result = this.brokerName.compareTo(o.brokerName);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        return this.queueId - o.queueId;
+    }
 }
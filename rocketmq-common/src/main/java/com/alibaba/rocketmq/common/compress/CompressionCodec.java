@@ -0,0 +1,22 @@
+/**
+ * $Id: CompressionCodec.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+import java.io.IOException;
+
+
+/**
+ * Ϣѹ㷨ʵֱ̰߳ȫ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public interface CompressionCodec {
+    public CompressionType getType();
+
+
+    public byte[] compress(final byte[] src) throws IOException;
+
+
+    public byte[] uncompress(final byte[] src) throws IOException;
+}
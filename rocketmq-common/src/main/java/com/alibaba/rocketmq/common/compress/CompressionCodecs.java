@@ -0,0 +1,68 @@
+/**
+ * $Id: CompressionCodecs.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+import java.io.IOException;
+
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+
+
+/**
+ * SysFlagҵӦѹ㷨
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class CompressionCodecs {
+    // ѹѹ޹
+    private static final ZlibCodec zlibCodec = new ZlibCodec(9);
+    private static final LZ4Codec lz4Codec = new LZ4Codec();
+
+
+    /**
+     * ȡѹ㷨ZLIBʹָѹ
+     */
+    public static CompressionCodec getCodec(final CompressionType type, final int zlibLevel) {
+        switch (type) {
+        case LZ4:
+            return lz4Codec;
+        case ZLIB:
+        default:
+            return zlibLevel == zlibCodec.getLevel() ? zlibCodec : new ZlibCodec(zlibLevel);
+        }
+    }
+
+
+    /**
+     * ѹҪSysFlagõı־λ
+     */
+    public static int toSysFlag(final CompressionType type) {
+        return MessageSysFlag.CompressedFlag | (type.getValue() << MessageSysFlag.CompressionTypeShift);
+    }
+
+
+    /**
+     * SysFlagм¼ѹ㷨ȡѹõ㷨
+     */
+    public static CompressionCodec getCodec(final int sysFlag) throws IOException {
+        final int value = (sysFlag & MessageSysFlag.CompressionTypeMask) >>> MessageSysFlag.CompressionTypeShift;
+        CompressionType type = CompressionType.valueOf(value);
+        if (null == type) {
+            throw new IOException("unknown compression type " + value);
+        }
+
+        return getCodec(type, zlibCodec.getLevel());
+    }
+
+
+    /**
+     * SysFlagѹϢ壬δѹϢֱӷ
+     */
+    public static byte[] uncompress(final int sysFlag, final byte[] body) throws IOException {
+        if ((sysFlag & MessageSysFlag.CompressedFlag) != MessageSysFlag.CompressedFlag) {
+            return body;
+        }
+
+        return getCodec(sysFlag).uncompress(body);
+    }
+}
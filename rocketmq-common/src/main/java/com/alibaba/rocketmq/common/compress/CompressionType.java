@@ -0,0 +1,43 @@
+/**
+ * $Id: CompressionType.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+/**
+ * Ϣѹ㷨ȡֵSysFlagĵ45λ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public enum CompressionType {
+    /**
+     * Deflaterϰ汾ͻֻʶ֣Ĭֵ
+     */
+    ZLIB(0),
+    /**
+     * LZ4 BlockʽѹʵZLIBѹѹٶȿܶ
+     */
+    LZ4(1);
+
+    private final int value;
+
+
+    private CompressionType(int value) {
+        this.value = value;
+    }
+
+
+    public int getValue() {
+        return value;
+    }
+
+
+    public static CompressionType valueOf(final int value) {
+        for (CompressionType type : CompressionType.values()) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * $Id: LZ4Codec.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * JavaʵֵLZ4 Blockʽѹؿ<br>
+ * ʽԭʼ(4ֽ) + LZ4 BlockBlockʽLZ4ٷһ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LZ4Codec implements CompressionCodec {
+    private static final int MIN_MATCH = 4;
+    // 5ֽڱliteral
+    private static final int LAST_LITERALS = 5;
+    // һmatchڽβ12ֽ֮ǰʼ
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    // ϣСϢС仯СϢط̫ı
+    private static final int MAX_HASH_LOG = 12;
+    private static final int MIN_HASH_LOG = 8;
+    // Ҳmatchʱӿٶ
+    private static final int SKIP_STRENGTH = 6;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+    // չֽÿʾ255ѹ󳤶Ȳᳬѹݵ255
+    private static final int MAX_COMPRESSION_RATIO = 255;
+
+
+    @Override
+    public CompressionType getType() {
+        return CompressionType.LZ4;
+    }
+
+
+    private static int readInt(final byte[] buf, final int i) {
+        return ((buf[i] & 0xFF) << 24) | ((buf[i + 1] & 0xFF) << 16) | ((buf[i + 2] & 0xFF) << 8)
+                | (buf[i + 3] & 0xFF);
+    }
+
+
+    private static void writeInt(final byte[] buf, final int i, final int value) {
+        buf[i] = (byte) (value >>> 24);
+        buf[i + 1] = (byte) (value >>> 16);
+        buf[i + 2] = (byte) (value >>> 8);
+        buf[i + 3] = (byte) value;
+    }
+
+
+    private static int hash(final int sequence, final int hashShift) {
+        return (sequence * -1640531535) >>> hashShift;
+    }
+
+
+    private static int hashLog(final int length) {
+        int hashLog = MIN_HASH_LOG;
+        while (hashLog < MAX_HASH_LOG && (1 << (hashLog + 2)) < length) {
+            hashLog++;
+        }
+        return hashLog;
+    }
+
+
+    private static int writeLength(int length, final byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+
+    private static int writeLiterals(final int token, final byte[] src, final int anchor, final int literalLength,
+            final byte[] dest, int dOff) {
+        dest[dOff++] = (byte) token;
+        if (literalLength >= RUN_MASK) {
+            dOff = writeLength(literalLength - RUN_MASK, dest, dOff);
+        }
+        System.arraycopy(src, anchor, dest, dOff, literalLength);
+        return dOff + literalLength;
+    }
+
+
+    public static int maxCompressedLength(final int length) {
+        return 4 + length + length / 255 + 16;
+    }
+
+
+    @Override
+    public byte[] compress(final byte[] src) throws IOException {
+        final int srcLength = src.length;
+        final byte[] dest = new byte[maxCompressedLength(srcLength)];
+        writeInt(dest, 0, srcLength);
+
+        int dOff = 4;
+        int anchor = 0;
+        if (srcLength > MF_LIMIT) {
+            // λ + 10ʾ
+            final int hashLog = hashLog(srcLength);
+            final int hashShift = 32 - hashLog;
+            final int[] hashTable = new int[1 << hashLog];
+            final int mfLimit = srcLength - MF_LIMIT;
+            final int matchLimit = srcLength - LAST_LITERALS;
+
+            int sOff = 0;
+            while (sOff < mfLimit) {
+                final int sequence = readInt(src, sOff);
+                final int h = hash(sequence, hashShift);
+                int ref = hashTable[h] - 1;
+                hashTable[h] = sOff + 1;
+                if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    sOff += 1 + ((sOff - anchor) >>> SKIP_STRENGTH);
+                    continue;
+                }
+
+                // ǰչmatch
+                while (sOff > anchor && ref > 0 && src[sOff - 1] == src[ref - 1]) {
+                    sOff--;
+                    ref--;
+                }
+
+                // չmatch
+                int matchLength = MIN_MATCH;
+                while (sOff + matchLength < matchLimit && src[ref + matchLength] == src[sOff + matchLength]) {
+                    matchLength++;
+                }
+
+                final int literalLength = sOff - anchor;
+                final int tokenPos = dOff;
+                dOff = writeLiterals(Math.min(literalLength, RUN_MASK) << 4, src, anchor, literalLength, dest, dOff);
+
+                final int offset = sOff - ref;
+                dest[dOff++] = (byte) offset;
+                dest[dOff++] = (byte) (offset >>> 8);
+
+                final int ml = matchLength - MIN_MATCH;
+                if (ml >= ML_MASK) {
+                    dest[tokenPos] |= ML_MASK;
+                    dOff = writeLength(ml - ML_MASK, dest, dOff);
+                }
+                else {
+                    dest[tokenPos] |= ml;
+                }
+
+                sOff += matchLength;
+                anchor = sOff;
+            }
+        }
+
+        // ʣಿȫΪliteral
+        final int literalLength = srcLength - anchor;
+        dOff = writeLiterals(Math.min(literalLength, RUN_MASK) << 4, src, anchor, literalLength, dest, dOff);
+
+        return Arrays.copyOf(dest, dOff);
+    }
+
+
+    @Override
+    public byte[] uncompress(final byte[] src) throws IOException {
+        if (src.length < 5) {
+            throw new IOException("lz4 data too short, " + src.length);
+        }
+
+        final int destLength = readInt(src, 0);
+        // ͷʱܰڴ
+        if (destLength < 0 || destLength > (long) src.length * MAX_COMPRESSION_RATIO) {
+            throw new IOException("lz4 data malformed, length " + destLength);
+        }
+
+        final byte[] dest = new byte[destLength];
+        int sOff = 4;
+        int dOff = 0;
+        try {
+            while (true) {
+                final int token = src[sOff++] & 0xFF;
+
+                // literals
+                int literalLength = token >>> 4;
+                if (literalLength == RUN_MASK) {
+                    int len;
+                    do {
+                        len = src[sOff++] & 0xFF;
+                        literalLength += len;
+                    } while (len == 0xFF);
+                }
+
+                if (dOff + literalLength > destLength || sOff + literalLength > src.length) {
+                    throw new IOException("lz4 data malformed, literal overflow at " + sOff);
+                }
+                System.arraycopy(src, sOff, dest, dOff, literalLength);
+                sOff += literalLength;
+                dOff += literalLength;
+
+                // һsequenceֻliteral
+                if (sOff >= src.length) {
+                    break;
+                }
+
+                // match
+                final int offset = (src[sOff++] & 0xFF) | ((src[sOff++] & 0xFF) << 8);
+                int matchLength = token & ML_MASK;
+                if (matchLength == ML_MASK) {
+                    int len;
+                    do {
+                        len = src[sOff++] & 0xFF;
+                        matchLength += len;
+                    } while (len == 0xFF);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = dOff - offset;
+                if (offset == 0 || ref < 0 || dOff + matchLength > destLength) {
+                    throw new IOException("lz4 data malformed, bad match at " + sOff);
+                }
+
+                if (offset >= matchLength) {
+                    System.arraycopy(dest, ref, dest, dOff, matchLength);
+                    dOff += matchLength;
+                }
+                else {
+                    // صֻֽڽ
+                    for (int i = 0; i < matchLength; i++) {
+                        dest[dOff++] = dest[ref++];
+                    }
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("lz4 data malformed, unexpected end at " + sOff);
+        }
+
+        if (dOff != destLength) {
+            throw new IOException("lz4 data malformed, expect " + destLength + " bytes, but " + dOff);
+        }
+
+        return dest;
+    }
+}
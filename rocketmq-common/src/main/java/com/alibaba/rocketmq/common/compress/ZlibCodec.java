@@ -0,0 +1,46 @@
+/**
+ * $Id: ZlibCodec.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+import java.io.IOException;
+
+import com.alibaba.rocketmq.common.UtilALl;
+
+
+/**
+ * Deflaterѹϰ汾Ϣʽһ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ZlibCodec implements CompressionCodec {
+    private final int level;
+
+
+    public ZlibCodec(final int level) {
+        this.level = level;
+    }
+
+
+    @Override
+    public CompressionType getType() {
+        return CompressionType.ZLIB;
+    }
+
+
+    @Override
+    public byte[] compress(final byte[] src) throws IOException {
+        return UtilALl.compress(src, this.level);
+    }
+
+
+    @Override
+    public byte[] uncompress(final byte[] src) throws IOException {
+        return UtilALl.uncompress(src);
+    }
+
+
+    public int getLevel() {
+        return level;
+    }
+}
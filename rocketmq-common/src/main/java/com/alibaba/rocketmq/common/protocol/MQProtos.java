@@ -36,21 +36,27 @@ public final class MQProtos {
     CONSUMER_SEND_MSG_BACK(23, 36),
     END_TRANSACTION(24, 37),
     CHECK_TRANSACTION_STATE(25, 38),
-    REGISTER_BROKER(26, 100),
-    UNREGISTER_BROKER(27, 101),
-    GET_BROKER_LIST(28, 102),
-    REGISTER_ORDER_TOPIC(29, 103),
-    UNREGISTER_ORDER_TOPIC(30, 104),
-    GET_ORDER_TOPIC_LIST(31, 105),
-    UPDATE_NAMESRV_CONFIG(32, 106),
-    GET_NAMESRV_CONFIG(33, 107),
-    GET_NAMESRV_RUNTIME_INFO(34, 108),
-    GET_ROUTEINTO_BY_TOPIC(35, 109),
-    SYNC_NAMESRV_RUNTIME_CONF(36, 110),
-    REGISTER_BROKER_SINGLE(37, 111),
-    UNREGISTER_BROKER_SINGLE(38, 112),
-    REGISTER_ORDER_TOPIC_SINGLE(39, 113),
-    UNREGISTER_ORDER_TOPIC_SINGLE(40, 114),
+    GET_BROKER_STATS_DATA(26, 39),
+    LOCK_BATCH_MQ(27, 40),
+    UNLOCK_BATCH_MQ(28, 41),
+    GET_CONSUMER_LIST_BY_GROUP(29, 42),
+    NOTIFY_CONSUMER_IDS_CHANGED(30, 43),
+    SEND_BATCH_MESSAGE(31, 44),
+    REGISTER_BROKER(32, 100),
+    UNREGISTER_BROKER(33, 101),
+    GET_BROKER_LIST(34, 102),
+    REGISTER_ORDER_TOPIC(35, 103),
+    UNREGISTER_ORDER_TOPIC(36, 104),
+    GET_ORDER_TOPIC_LIST(37, 105),
+    UPDATE_NAMESRV_CONFIG(38, 106),
+    GET_NAMESRV_CONFIG(39, 107),
+    GET_NAMESRV_RUNTIME_INFO(40, 108),
+    GET_ROUTEINTO_BY_TOPIC(41, 109),
+    SYNC_NAMESRV_RUNTIME_CONF(42, 110),
+    REGISTER_BROKER_SINGLE(43, 111),
+    UNREGISTER_BROKER_SINGLE(44, 112),
+    REGISTER_ORDER_TOPIC_SINGLE(45, 113),
+    UNREGISTER_ORDER_TOPIC_SINGLE(46, 114),
     ;
     
     public static final int SEND_MESSAGE_VALUE = 10;
@@ -79,6 +85,12 @@ public final class MQProtos {
     public static final int CONSUMER_SEND_MSG_BACK_VALUE = 36;
     public static final int END_TRANSACTION_VALUE = 37;
     public static final int CHECK_TRANSACTION_STATE_VALUE = 38;
+    public static final int GET_BROKER_STATS_DATA_VALUE = 39;
+    public static final int LOCK_BATCH_MQ_VALUE = 40;
+    public static final int UNLOCK_BATCH_MQ_VALUE = 41;
+    public static final int GET_CONSUMER_LIST_BY_GROUP_VALUE = 42;
+    public static final int NOTIFY_CONSUMER_IDS_CHANGED_VALUE = 43;
+    public static final int SEND_BATCH_MESSAGE_VALUE = 44;
     public static final int REGISTER_BROKER_VALUE = 100;
     public static final int UNREGISTER_BROKER_VALUE = 101;
     public static final int GET_BROKER_LIST_VALUE = 102;
@@ -126,6 +138,12 @@ public final class MQProtos {
         case 36: return CONSUMER_SEND_MSG_BACK;
         case 37: return END_TRANSACTION;
         case 38: return CHECK_TRANSACTION_STATE;
+        case 39: return GET_BROKER_STATS_DATA;
+        case 40: return LOCK_BATCH_MQ;
+        case 41: return UNLOCK_BATCH_MQ;
+        case 42: return GET_CONSUMER_LIST_BY_GROUP;
+        case 43: return NOTIFY_CONSUMER_IDS_CHANGED;
+        case 44: return SEND_BATCH_MESSAGE;
         case 100: return REGISTER_BROKER;
         case 101: return UNREGISTER_BROKER;
         case 102: return GET_BROKER_LIST;
@@ -171,7 +189,7 @@ public final class MQProtos {
     }
     
     private static final MQRequestCode[] VALUES = {
-      SEND_MESSAGE, PULL_MESSAGE, QUERY_MESSAGE, QUERY_BROKER_OFFSET, QUERY_CONSUMER_OFFSET, UPDATE_CONSUMER_OFFSET, UPDATE_AND_CREATE_TOPIC, DELETE_TOPIC, GET_ALL_TOPIC_CONFIG, GET_TOPIC_CONFIG_LIST, GET_TOPIC_NAME_LIST, PULL_ALL_CONSUMER_OFFSET, UPDATE_BROKER_CONFIG, GET_BROKER_CONFIG, TRIGGER_DELETE_FILES, GET_BROKER_RUNTIME_INFO, SEARCH_OFFSET_BY_TIMESTAMP, GET_MAX_OFFSET, GET_MIN_OFFSET, GET_EARLIEST_MSG_STORETIME, VIEW_MESSAGE_BY_ID, HEART_BEAT, UNREGISTER_CLIENT, CONSUMER_SEND_MSG_BACK, END_TRANSACTION, CHECK_TRANSACTION_STATE, REGISTER_BROKER, UNREGISTER_BROKER, GET_BROKER_LIST, REGISTER_ORDER_TOPIC, UNREGISTER_ORDER_TOPIC, GET_ORDER_TOPIC_LIST, UPDATE_NAMESRV_CONFIG, GET_NAMESRV_CONFIG, GET_NAMESRV_RUNTIME_INFO, GET_ROUTEINTO_BY_TOPIC, SYNC_NAMESRV_RUNTIME_CONF, REGISTER_BROKER_SINGLE, UNREGISTER_BROKER_SINGLE, REGISTER_ORDER_TOPIC_SINGLE, UNREGISTER_ORDER_TOPIC_SINGLE, 
+      SEND_MESSAGE, PULL_MESSAGE, QUERY_MESSAGE, QUERY_BROKER_OFFSET, QUERY_CONSUMER_OFFSET, UPDATE_CONSUMER_OFFSET, UPDATE_AND_CREATE_TOPIC, DELETE_TOPIC, GET_ALL_TOPIC_CONFIG, GET_TOPIC_CONFIG_LIST, GET_TOPIC_NAME_LIST, PULL_ALL_CONSUMER_OFFSET, UPDATE_BROKER_CONFIG, GET_BROKER_CONFIG, TRIGGER_DELETE_FILES, GET_BROKER_RUNTIME_INFO, SEARCH_OFFSET_BY_TIMESTAMP, GET_MAX_OFFSET, GET_MIN_OFFSET, GET_EARLIEST_MSG_STORETIME, VIEW_MESSAGE_BY_ID, HEART_BEAT, UNREGISTER_CLIENT, CONSUMER_SEND_MSG_BACK, END_TRANSACTION, CHECK_TRANSACTION_STATE, GET_BROKER_STATS_DATA, LOCK_BATCH_MQ, UNLOCK_BATCH_MQ, GET_CONSUMER_LIST_BY_GROUP, NOTIFY_CONSUMER_IDS_CHANGED, SEND_BATCH_MESSAGE, REGISTER_BROKER, UNREGISTER_BROKER, GET_BROKER_LIST, REGISTER_ORDER_TOPIC, UNREGISTER_ORDER_TOPIC, GET_ORDER_TOPIC_LIST, UPDATE_NAMESRV_CONFIG, GET_NAMESRV_CONFIG, GET_NAMESRV_RUNTIME_INFO, GET_ROUTEINTO_BY_TOPIC, SYNC_NAMESRV_RUNTIME_CONF, REGISTER_BROKER_SINGLE, UNREGISTER_BROKER_SINGLE, REGISTER_ORDER_TOPIC_SINGLE, UNREGISTER_ORDER_TOPIC_SINGLE, 
     };
     
     public static MQRequestCode valueOf(
@@ -5407,7 +5425,7 @@ public final class MQProtos {
       "uePair\022-\n\017topicOrderConfs\030\002 \002(\0132\024.remoti" +
       "ng.NVPairList\022)\n\007brokers\030\003 \003(\0132\030.rocketm" +
       "q.BrokerDataPair\022(\n\nbrokerList\030\004 \002(\0132\024.r" +
-      "emoting.StringList*\251\010\n\rMQRequestCode\022\020\n\014" +
+      "emoting.StringList*\305\t\n\rMQRequestCode\022\020\n\014" +
       "SEND_MESSAGE\020\n\022\020\n\014PULL_MESSAGE\020\013\022\021\n\rQUER",
       "Y_MESSAGE\020\014\022\027\n\023QUERY_BROKER_OFFSET\020\r\022\031\n\025" +
       "QUERY_CONSUMER_OFFSET\020\016\022\032\n\026UPDATE_CONSUM" +
@@ -5423,37 +5441,41 @@ public final class MQProtos {
       "SG_STORETIME\020 \022\026\n\022VIEW_MESSAGE_BY_ID\020!\022\016" +
       "\n\nHEART_BEAT\020\"\022\025\n\021UNREGISTER_CLIENT\020#\022\032\n" +
       "\026CONSUMER_SEND_MSG_BACK\020$\022\023\n\017END_TRANSAC" +
-      "TION\020%\022\033\n\027CHECK_TRANSACTION_STATE\020&\022\023\n\017R" +
-      "EGISTER_BROKER\020d\022\025\n\021UNREGISTER_BROKER\020e\022" +
-      "\023\n\017GET_BROKER_LIST\020f\022\030\n\024REGISTER_ORDER_T" +
-      "OPIC\020g\022\032\n\026UNREGISTER_ORDER_TOPIC\020h\022\030\n\024GE" +
-      "T_ORDER_TOPIC_LIST\020i\022\031\n\025UPDATE_NAMESRV_C" +
-      "ONFIG\020j\022\026\n\022GET_NAMESRV_CONFIG\020k\022\034\n\030GET_N",
-      "AMESRV_RUNTIME_INFO\020l\022\032\n\026GET_ROUTEINTO_B" +
-      "Y_TOPIC\020m\022\035\n\031SYNC_NAMESRV_RUNTIME_CONF\020n" +
-      "\022\032\n\026REGISTER_BROKER_SINGLE\020o\022\034\n\030UNREGIST" +
-      "ER_BROKER_SINGLE\020p\022\037\n\033REGISTER_ORDER_TOP" +
-      "IC_SINGLE\020q\022!\n\035UNREGISTER_ORDER_TOPIC_SI" +
-      "NGLE\020r*\313\005\n\016MQResponseCode\022\026\n\022FLUSH_DISK_" +
-      "TIMEOUT\020\n\022\027\n\023SLAVE_NOT_AVAILABLE\020\013\022\027\n\023FL" +
-      "USH_SLAVE_TIMEOUT\020\014\022\023\n\017MESSAGE_ILLEGAL\020\r" +
-      "\022\031\n\025SERVICE_NOT_AVAILABLE\020\016\022\031\n\025VERSION_N" +
-      "OT_SUPPORTED\020\017\022\021\n\rNO_PERMISSION\020\020\022\023\n\017TOP",
-      "IC_NOT_EXIST\020\021\022\027\n\023TOPIC_EXIST_ALREADY\020\022\022" +
-      "\022\n\016PULL_NOT_FOUND\020\023\022\032\n\026PULL_RETRY_IMMEDI" +
-      "ATELY\020\024\022\025\n\021PULL_OFFSET_MOVED\020\025\022\023\n\017QUERY_" +
-      "NOT_FOUND\020\026\022\027\n\023DELETE_INVALID_CONF\020d\022\022\n\016" +
-      "NOT_MERGE_CONF\020e\022\030\n\024REGISTER_BROKER_FAIL" +
-      "\020f\022\033\n\027REGISTER_BROKER_TIMEOUT\020g\022\035\n\031REGIS" +
-      "TER_ORDER_TOPIC_FAIL\020h\022 \n\034REGISTER_ORDER" +
-      "_TOPIC_TIMEOUT\020i\022\032\n\026UNREGISTER_BROKER_FA" +
-      "IL\020j\022\035\n\031UNREGISTER_BROKER_TIMEOUT\020k\022\"\n\036U" +
-      "NREGISTER_ORDER_TOPIC_TIMEOUT\020l\022\036\n\031TRANS",
-      "ACTION_SHOULD_COMMIT\020\310\001\022 \n\033TRANSACTION_S" +
-      "HOULD_ROLLBACK\020\311\001\022\035\n\030TRANSACTION_STATE_U" +
-      "NKNOW\020\312\001\022\"\n\035TRANSACTION_STATE_GROUP_WRON" +
-      "G\020\313\001B2\n$com.alibaba.rocketmq.common.prot" +
-      "ocolB\010MQProtosH\001"
+      "TION\020%\022\033\n\027CHECK_TRANSACTION_STATE\020&\022\031\n\025G" +
+      "ET_BROKER_STATS_DATA\020\'\022\021\n\rLOCK_BATCH_MQ\020" +
+      "(\022\023\n\017UNLOCK_BATCH_MQ\020)\022\036\n\032GET_CONSUMER_L" +
+      "IST_BY_GROUP\020*\022\037\n\033NOTIFY_CONSUMER_IDS_CH" +
+      "ANGED\020+\022\026\n\022SEND_BATCH_MESSAGE\020,\022\023\n\017REGIS" +
+      "TER_BROKER\020d\022\025\n\021UNREGISTER_BROKER\020e\022\023\n\017G",
+      "ET_BROKER_LIST\020f\022\030\n\024REGISTER_ORDER_TOPIC" +
+      "\020g\022\032\n\026UNREGISTER_ORDER_TOPIC\020h\022\030\n\024GET_OR" +
+      "DER_TOPIC_LIST\020i\022\031\n\025UPDATE_NAMESRV_CONFI" +
+      "G\020j\022\026\n\022GET_NAMESRV_CONFIG\020k\022\034\n\030GET_NAMES" +
+      "RV_RUNTIME_INFO\020l\022\032\n\026GET_ROUTEINTO_BY_TO" +
+      "PIC\020m\022\035\n\031SYNC_NAMESRV_RUNTIME_CONF\020n\022\032\n\026" +
+      "REGISTER_BROKER_SINGLE\020o\022\034\n\030UNREGISTER_B" +
+      "ROKER_SINGLE\020p\022\037\n\033REGISTER_ORDER_TOPIC_S" +
+      "INGLE\020q\022!\n\035UNREGISTER_ORDER_TOPIC_SINGLE" +
+      "\020r*\313\005\n\016MQResponseCode\022\026\n\022FLUSH_DISK_TIME",
+      "OUT\020\n\022\027\n\023SLAVE_NOT_AVAILABLE\020\013\022\027\n\023FLUSH_" +
+      "SLAVE_TIMEOUT\020\014\022\023\n\017MESSAGE_ILLEGAL\020\r\022\031\n\025" +
+      "SERVICE_NOT_AVAILABLE\020\016\022\031\n\025VERSION_NOT_S" +
+      "UPPORTED\020\017\022\021\n\rNO_PERMISSION\020\020\022\023\n\017TOPIC_N" +
+      "OT_EXIST\020\021\022\027\n\023TOPIC_EXIST_ALREADY\020\022\022\022\n\016P" +
+      "ULL_NOT_FOUND\020\023\022\032\n\026PULL_RETRY_IMMEDIATEL" +
+      "Y\020\024\022\025\n\021PULL_OFFSET_MOVED\020\025\022\023\n\017QUERY_NOT_" +
+      "FOUND\020\026\022\027\n\023DELETE_INVALID_CONF\020d\022\022\n\016NOT_" +
+      "MERGE_CONF\020e\022\030\n\024REGISTER_BROKER_FAIL\020f\022\033" +
+      "\n\027REGISTER_BROKER_TIMEOUT\020g\022\035\n\031REGISTER_",
+      "ORDER_TOPIC_FAIL\020h\022 \n\034REGISTER_ORDER_TOP" +
+      "IC_TIMEOUT\020i\022\032\n\026UNREGISTER_BROKER_FAIL\020j" +
+      "\022\035\n\031UNREGISTER_BROKER_TIMEOUT\020k\022\"\n\036UNREG" +
+      "ISTER_ORDER_TOPIC_TIMEOUT\020l\022\036\n\031TRANSACTI" +
+      "ON_SHOULD_COMMIT\020\310\001\022 \n\033TRANSACTION_SHOUL" +
+      "D_ROLLBACK\020\311\001\022\035\n\030TRANSACTION_STATE_UNKNO" +
+      "W\020\312\001\022\"\n\035TRANSACTION_STATE_GROUP_WRONG\020\313\001" +
+      "B2\n$com.alibaba.rocketmq.common.protocol" +
+      "B\010MQProtosH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
       new com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner() {
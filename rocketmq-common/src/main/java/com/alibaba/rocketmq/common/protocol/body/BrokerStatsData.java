@@ -0,0 +1,78 @@
+/**
+ * $Id: BrokerStatsData.java 1835 2013-05-16 02:00:50Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.body;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.rocketmq.remoting.protocol.RemotingSerializable;
+
+
+/**
+ * BrokerTopicСάȵͳ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerStatsData extends RemotingSerializable {
+    // key: topic
+    private List<BrokerStatsItem> topicPutStats = new ArrayList<BrokerStatsItem>();
+    // key: topic@queueId
+    private List<BrokerStatsItem> queuePutStats = new ArrayList<BrokerStatsItem>();
+    // key: topic@queueId
+    private List<BrokerStatsItem> queueGetStats = new ArrayList<BrokerStatsItem>();
+    // key: topic@groupѶѻ
+    private List<BrokerStatsItem> groupGetStats = new ArrayList<BrokerStatsItem>();
+    // ͳޣûбͳƵĴ
+    private long droppedItemTimes;
+
+
+    public List<BrokerStatsItem> getTopicPutStats() {
+        return topicPutStats;
+    }
+
+
+    public void setTopicPutStats(List<BrokerStatsItem> topicPutStats) {
+        this.topicPutStats = topicPutStats;
+    }
+
+
+    public List<BrokerStatsItem> getQueuePutStats() {
+        return queuePutStats;
+    }
+
+
+    public void setQueuePutStats(List<BrokerStatsItem> queuePutStats) {
+        this.queuePutStats = queuePutStats;
+    }
+
+
+    public List<BrokerStatsItem> getQueueGetStats() {
+        return queueGetStats;
+    }
+
+
+    public void setQueueGetStats(List<BrokerStatsItem> queueGetStats) {
+        this.queueGetStats = queueGetStats;
+    }
+
+
+    public List<BrokerStatsItem> getGroupGetStats() {
+        return groupGetStats;
+    }
+
+
+    public void setGroupGetStats(List<BrokerStatsItem> groupGetStats) {
+        this.groupGetStats = groupGetStats;
+    }
+
+
+    public long getDroppedItemTimes() {
+        return droppedItemTimes;
+    }
+
+
+    public void setDroppedItemTimes(long droppedItemTimes) {
+        this.droppedItemTimes = droppedItemTimes;
+    }
+}
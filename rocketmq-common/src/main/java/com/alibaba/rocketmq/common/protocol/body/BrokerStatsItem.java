@@ -0,0 +1,90 @@
+/**
+ * $Id: BrokerStatsItem.java 1835 2013-05-16 02:00:50Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.body;
+
+/**
+ * һͳݣkeytopictopic@queueIdtopic@group
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerStatsItem {
+    private String key;
+    // ͳۼϢ
+    private long msgNums;
+    // ͳۼϢֽ
+    private long msgBytes;
+    // һӵÿϢ
+    private double tps;
+    // һӵÿϢֽ
+    private double bytesTps;
+    // ѶѻֻжͳƲУΪ-1
+    private long lag = -1;
+
+
+    public String getKey() {
+        return key;
+    }
+
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+
+    public long getMsgNums() {
+        return msgNums;
+    }
+
+
+    public void setMsgNums(long msgNums) {
+        this.msgNums = msgNums;
+    }
+
+
+    public long getMsgBytes() {
+        return msgBytes;
+    }
+
+
+    public void setMsgBytes(long msgBytes) {
+        this.msgBytes = msgBytes;
+    }
+
+
+    public double getTps() {
+        return tps;
+    }
+
+
+    public void setTps(double tps) {
+        this.tps = tps;
+    }
+
+
+    public double getBytesTps() {
+        return bytesTps;
+    }
+
+
+    public void setBytesTps(double bytesTps) {
+        this.bytesTps = bytesTps;
+    }
+
+
+    public long getLag() {
+        return lag;
+    }
+
+
+    public void setLag(long lag) {
+        this.lag = lag;
+    }
+
+
+    @Override
+    public String toString() {
+        return "BrokerStatsItem [key=" + key + ", msgNums=" + msgNums + ", msgBytes=" + msgBytes + ", tps="
+                + tps + ", bytesTps=" + bytesTps + ", lag=" + lag + "]";
+    }
+}
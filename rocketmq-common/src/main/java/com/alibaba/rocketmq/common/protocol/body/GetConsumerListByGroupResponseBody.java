@@ -0,0 +1,28 @@
+/**
+ * $Id: GetConsumerListByGroupResponseBody.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.body;
+
+import java.util.List;
+
+import com.alibaba.rocketmq.remoting.protocol.RemotingSerializable;
+
+
+/**
+ * ConsumerIDбConsumerݴؾ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class GetConsumerListByGroupResponseBody extends RemotingSerializable {
+    private List<String> consumerIdList;
+
+
+    public List<String> getConsumerIdList() {
+        return consumerIdList;
+    }
+
+
+    public void setConsumerIdList(List<String> consumerIdList) {
+        this.consumerIdList = consumerIdList;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * $Id: LockBatchResponseBody.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.body;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.remoting.protocol.RemotingSerializable;
+
+
+/**
+ * Ӧ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LockBatchResponseBody extends RemotingSerializable {
+    // ɹĶ
+    private Set<MessageQueue> lockOKMQSet = new HashSet<MessageQueue>();
+
+
+    public Set<MessageQueue> getLockOKMQSet() {
+        return lockOKMQSet;
+    }
+
+
+    public void setLockOKMQSet(Set<MessageQueue> lockOKMQSet) {
+        this.lockOKMQSet = lockOKMQSet;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * $Id: SendBatchMessageResponseBody.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.body;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.rocketmq.remoting.protocol.RemotingSerializable;
+
+
+/**
+ * ϢӦеϢһһӦ<br>
+ * 洢ʧܵϢmsgIdΪnullʧԭӦcoderemark
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class SendBatchMessageResponseBody extends RemotingSerializable {
+    private int queueId;
+    private List<String> msgIdList = new ArrayList<String>();
+    private List<Long> queueOffsetList = new ArrayList<Long>();
+
+
+    public int getQueueId() {
+        return queueId;
+    }
+
+
+    public void setQueueId(int queueId) {
+        this.queueId = queueId;
+    }
+
+
+    public List<String> getMsgIdList() {
+        return msgIdList;
+    }
+
+
+    public void setMsgIdList(List<String> msgIdList) {
+        this.msgIdList = msgIdList;
+    }
+
+
+    public List<Long> getQueueOffsetList() {
+        return queueOffsetList;
+    }
+
+
+    public void setQueueOffsetList(List<Long> queueOffsetList) {
+        this.queueOffsetList = queueOffsetList;
+    }
+}
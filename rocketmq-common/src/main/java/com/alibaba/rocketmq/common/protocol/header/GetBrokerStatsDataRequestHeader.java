@@ -0,0 +1,46 @@
+/**
+ * $Id: GetBrokerStatsDataRequestHeader.java 1835 2013-05-16 02:00:50Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.protocol.header;
+
+import com.alibaba.rocketmq.remoting.CommandCustomHeader;
+import com.alibaba.rocketmq.remoting.annotation.CFNullable;
+import com.alibaba.rocketmq.remoting.exception.RemotingCommandException;
+
+
+/**
+ * ȡBrokerͳݣtopicconsumerGroupΪձʾ
+ * 
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class GetBrokerStatsDataRequestHeader implements CommandCustomHeader {
+    @CFNullable
+    private String topic;
+    @CFNullable
+    private String consumerGroup;
+
+
+    @Override
+    public void checkFields() throws RemotingCommandException {
+    }
+
+
+    public String getTopic() {
+        return topic;
+    }
+
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+
+    public void setConsumerGroup(String consumerGroup) {
+        this.consumerGroup = consumerGroup;
+    }
+}
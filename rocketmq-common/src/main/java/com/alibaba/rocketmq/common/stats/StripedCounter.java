@@ -0,0 +1,100 @@
+/**
+ * $Id: StripedCounter.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * ֶμ̸߲߳ۼʱAtomicLongJDK6ûLongAdder<br>
+ * ÿ̰߳߳IDɢеͬĶۼӣ֮䵽64ֽڣα
+ * ȡʱжμдʺдٵͳƳ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StripedCounter {
+    // ÿռ8long64ֽڣһCPU Cache Line
+    private static final int Pad = 8;
+    private static final int MaxStripes = 64;
+    private static final int DefaultStripes = stripesFor(Runtime.getRuntime().availableProcessors() * 2);
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+
+    public StripedCounter() {
+        this(DefaultStripes);
+    }
+
+
+    /**
+     * @param stripes
+     *            ȡ2
+     */
+    public StripedCounter(final int stripes) {
+        final int n = stripesFor(stripes);
+        this.cells = new AtomicLongArray(n * Pad);
+        this.mask = n - 1;
+    }
+
+
+    private static int stripesFor(final int expect) {
+        int n = 1;
+        while (n < expect && n < MaxStripes) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+
+    private int index() {
+        long id = Thread.currentThread().getId();
+        // ߳IDͨģɢһ
+        int h = (int) (id ^ (id >>> 32));
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return (h & this.mask) * Pad;
+    }
+
+
+    public void add(final long x) {
+        this.cells.addAndGet(this.index(), x);
+    }
+
+
+    public void increment() {
+        this.add(1);
+    }
+
+
+    /**
+     * ǰۼֵдʱǾȷ
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < this.cells.length(); i += Pad) {
+            sum += this.cells.get(i);
+        }
+        return sum;
+    }
+
+
+    /**
+     * صǰۼֵ㣬вдֵܼһ
+     */
+    public long getAndReset() {
+        long sum = 0;
+        for (int i = 0; i < this.cells.length(); i += Pad) {
+            sum += this.cells.getAndSet(i, 0);
+        }
+        return sum;
+    }
+
+
+    @Override
+    public String toString() {
+        return Long.toString(this.get());
+    }
+}
@@ -23,6 +23,19 @@ public class MessageSysFlag {
     public final static int TransactionCommitType = (0x2 << 2);
     public final static int TransactionRollbackType = (0x3 << 2);
 
+    /**
+     * SysFlag ѹ㷨45λCompressedFlagλʱЧ<br>
+     * 0ΪZLIBϰ汾ݣμCompressionType
+     */
+    public final static int CompressionTypeShift = 4;
+    public final static int CompressionTypeMask = (0x3 << CompressionTypeShift);
+
+    /**
+     * SysFlag 6λBrokerһϢѹһ洢¼ѹ㷨ͬ¼ڵ45λ<br>
+     * ϢʽμMessageDecoder.encodeMessageSetBody
+     */
+    public final static int MessageSetFlag = (0x1 << 6);
+
 
     public static int getTransactionValue(final int flag) {
         return flag & TransactionRollbackType;
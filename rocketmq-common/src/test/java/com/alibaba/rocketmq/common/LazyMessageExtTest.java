@@ -0,0 +1,93 @@
+/**
+ * $Id: LazyMessageExtTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.compress.ZlibCodec;
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LazyMessageExtTest {
+    /**
+     * CommitLog洢ʽһϢ
+     */
+    private static void encode(final ByteBuffer byteBuffer, final long queueOffset, final int sysFlag,
+            final byte[] body, final String topic, final String properties) {
+        final byte[] topicData = topic.getBytes();
+        final byte[] propertiesData = properties.getBytes();
+        final int storeSize = 88 + body.length + 1 + topicData.length + 2 + propertiesData.length;
+        byteBuffer.putInt(storeSize);
+        // ͻ˽벻УMAGICCODE
+        byteBuffer.putInt(0);
+        byteBuffer.putInt(123);
+        byteBuffer.putInt(3);
+        byteBuffer.putInt(7);
+        byteBuffer.putLong(queueOffset);
+        byteBuffer.putLong(4096 + queueOffset);
+        byteBuffer.putInt(sysFlag);
+        byteBuffer.putLong(1000);
+        byteBuffer.put(new byte[] { 10, 0, 0, 1 }).putInt(5000);
+        byteBuffer.putLong(2000);
+        byteBuffer.put(new byte[] { 127, 0, 0, 1 }).putInt(10911);
+        byteBuffer.putInt(2);
+        byteBuffer.putLong(0);
+        byteBuffer.putInt(body.length).put(body);
+        byteBuffer.put((byte) topicData.length).put(topicData);
+        byteBuffer.putShort((short) propertiesData.length).put(propertiesData);
+    }
+
+
+    @Test
+    public void test_decodesLazily() throws Exception {
+        byte[] compressed = new ZlibCodec(9).compress("hello world".getBytes());
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        encode(byteBuffer, 10, 0, "hello".getBytes(), "TopicTest", "TAGS\u0001TagA\u0002KEYS\u0001K1\u0002");
+        encode(byteBuffer, 11, MessageSysFlag.CompressedFlag, compressed, "TopicTest", "");
+        byteBuffer.flip();
+
+        List<MessageExt> eagerList = MessageDecoder.decodes(byteBuffer.duplicate());
+        List<MessageExt> lazyList = MessageDecoder.decodesLazily(byteBuffer.duplicate());
+        assertEquals(2, eagerList.size());
+        assertEquals(2, lazyList.size());
+        for (int i = 0; i < 2; i++) {
+            MessageExt eager = eagerList.get(i);
+            MessageExt lazy = lazyList.get(i);
+            assertTrue(lazy instanceof LazyMessageExt);
+            assertEquals(eager.getQueueOffset(), lazy.getQueueOffset());
+            assertEquals(eager.getCommitLogOffset(), lazy.getCommitLogOffset());
+            assertEquals(eager.getStoreSize(), lazy.getStoreSize());
+            assertEquals(eager.getReconsumeTimes(), lazy.getReconsumeTimes());
+            assertEquals(eager.getTopic(), lazy.getTopic());
+            assertEquals(eager.getBornHost(), lazy.getBornHost());
+            assertEquals(eager.getStoreHost(), lazy.getStoreHost());
+            assertEquals(eager.getMsgId(), lazy.getMsgId());
+            assertEquals(eager.getProperties(), lazy.getProperties());
+            assertArrayEquals(eager.getBody(), lazy.getBody());
+        }
+
+        LazyMessageExt lazy = (LazyMessageExt) lazyList.get(0);
+        assertEquals("TagA", lazy.getTags());
+        assertTrue(lazy.getBodyBuffer().isReadOnly());
+        assertEquals('h', lazy.getBodyBuffer().get(0));
+        assertEquals("hello world", new String(lazyList.get(1).getBody()));
+
+        // ޸Ĺֶβٴԭʼݽ
+        lazy.setTopic("TopicNew");
+        lazy.putProperty("TAGS", "TagB");
+        assertEquals("TopicNew", lazy.getTopic());
+        assertEquals("TagB", lazy.getTags());
+        assertEquals("K1", lazy.getKeys());
+    }
+}
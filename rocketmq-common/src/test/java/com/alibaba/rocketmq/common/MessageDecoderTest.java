@@ -0,0 +1,140 @@
+/**
+ * $Id: MessageDecoderTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.compress.CompressionType;
+import com.alibaba.rocketmq.common.compress.LZ4Codec;
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageDecoderTest {
+    @Test
+    public void test_batchMessage_encode_decode() {
+        byte[] body1 = "hello".getBytes();
+        byte[] properties1 = "TAGS\u0001TagA\u0002".getBytes();
+        byte[] body2 = new byte[0];
+
+        int length1 = MessageDecoder.batchMessageLength(body1, properties1);
+        int length2 = MessageDecoder.batchMessageLength(body2, null);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(length1 + length2);
+        MessageDecoder.encodeBatchMessage(byteBuffer, 1, 100, body1, properties1);
+        MessageDecoder.encodeBatchMessage(byteBuffer, 0, 200, body2, null);
+        byteBuffer.flip();
+
+        List<MessageExt> msgs = MessageDecoder.decodeBatchMessages(byteBuffer);
+        assertEquals(2, msgs.size());
+        assertEquals(1, msgs.get(0).getSysFlag());
+        assertEquals(100, msgs.get(0).getFlag());
+        assertEquals("hello", new String(msgs.get(0).getBody()));
+        assertEquals("TagA", msgs.get(0).getProperties().get("TAGS"));
+        assertEquals(200, msgs.get(1).getFlag());
+        assertEquals(0, msgs.get(1).getBody().length);
+
+        // ȲϢܾ
+        byteBuffer = ByteBuffer.allocate(length1);
+        MessageDecoder.encodeBatchMessage(byteBuffer, 0, 0, body1, properties1);
+        byteBuffer.putInt(0, length1 + 1);
+        byteBuffer.flip();
+        assertNull(MessageDecoder.decodeBatchMessages(byteBuffer));
+    }
+
+
+    @Test
+    public void test_messageSet_decode() throws Exception {
+        byte[] properties = "TAGS\u0001TagA\u0002".getBytes();
+        int length = MessageDecoder.batchMessageLength("hello".getBytes(), properties);
+        ByteBuffer batch = ByteBuffer.allocate(length * 3);
+        for (int i = 0; i < 3; i++) {
+            MessageDecoder.encodeBatchMessage(batch, 0, i, "hello".getBytes(), properties);
+        }
+
+        long[] tagsCodes = { 7, 8, 9 };
+        byte[] body = MessageDecoder.encodeMessageSetBody(tagsCodes, new LZ4Codec().compress(batch.array()));
+        assertEquals(9, MessageDecoder.decodeMessageSetTagsCodes(ByteBuffer.wrap(body))[2]);
+
+        MessageExt messageSet = new MessageExt();
+        messageSet.setTopic("TopicTest");
+        messageSet.setQueueId(1);
+        messageSet.setQueueOffset(10);
+        messageSet.setCommitLogOffset(4096);
+        messageSet.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        messageSet.setBody(body);
+        messageSet.setSysFlag(MessageSysFlag.MessageSetFlag
+                | (CompressionType.LZ4.getValue() << MessageSysFlag.CompressionTypeShift));
+
+        List<MessageExt> msgs = MessageDecoder.decodeMessageSet(messageSet);
+        assertEquals(3, msgs.size());
+        for (int i = 0; i < 3; i++) {
+            MessageExt msg = msgs.get(i);
+            assertEquals("TopicTest", msg.getTopic());
+            assertEquals(10 + i, msg.getQueueOffset());
+            assertEquals(i, msg.getFlag());
+            assertEquals("hello", new String(msg.getBody()));
+            assertEquals("TagA", msg.getTags());
+            // ϢIDдм
+            MessageId messageId = MessageDecoder.decodeMessageId(msg.getMsgId());
+            assertEquals(4096, messageId.getOffset() & MessageDecoder.MessageSetPhysicOffsetMask);
+            assertEquals(i, messageId.getOffset() >>> MessageDecoder.MessageSetIndexShift);
+        }
+    }
+
+
+    @Test
+    public void test_properties_binary() {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longValue.append("key_").append(i).append(' ');
+        }
+
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(Message.PROPERTY_TAGS, "TagA");
+        properties.put(Message.PROPERTY_KEYS, longValue.toString());
+        properties.put(Message.PROPERTY_WAIT_STORE_MSG_OK, "true");
+        properties.put("bizId", "B1");
+
+        byte[] text = MessageDecoder.messageProperties2String(properties).getBytes();
+        byte[] binary = MessageDecoder.messageProperties2Bytes(properties);
+        assertFalse(MessageDecoder.isBinaryProperties(text, 0, text.length));
+        assertTrue(MessageDecoder.isBinaryProperties(binary, 0, binary.length));
+        assertTrue(binary.length < text.length);
+
+        // ָʽܽ
+        assertEquals(properties, MessageDecoder.bytes2messageProperties(binary, 0, binary.length));
+        assertEquals(properties, MessageDecoder.bytes2messageProperties(text, 0, text.length));
+        for (byte[] data : new byte[][] { text, binary }) {
+            assertEquals("TagA", MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_TAGS));
+            assertEquals(longValue.toString(),
+                MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_KEYS));
+            assertNull(MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_DELAY_TIME_LEVEL));
+        }
+        assertEquals("B1", MessageDecoder.getProperty(binary, 0, binary.length, "bizId"));
+
+        // Ƹʽ̶ʹUTF-8ƽ̨Ĭϱ޹
+        properties.put("bizId", "");
+        binary = MessageDecoder.messageProperties2Bytes(properties);
+        assertEquals("", MessageDecoder.getProperty(binary, 0, binary.length, "bizId"));
+
+        // ʶID
+        byte[] unknown = { MessageDecoder.PROPERTIES_BINARY_MAGIC, (byte) 200, 1, 'x', 2, 1, 'A' };
+        Map<String, String> map = MessageDecoder.bytes2messageProperties(unknown, 0, unknown.length);
+        assertEquals(1, map.size());
+        assertEquals("A", map.get(Message.PROPERTY_TAGS));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * $Id: CompressionCodecTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class CompressionCodecTest {
+    private static byte[] buildJsonBody(final int size) {
+        Random random = new Random(size);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            sb.append("{\"orderId\":").append(random.nextInt(1000000))//
+                .append(",\"buyer\":\"user_").append(random.nextInt(1000))//
+                .append("\",\"status\":\"PAID\",\"amount\":").append(random.nextInt(10000)).append("},");
+        }
+        return sb.substring(0, size).getBytes();
+    }
+
+
+    @Test
+    public void test_lz4_roundtrip() throws IOException {
+        LZ4Codec codec = new LZ4Codec();
+        Random random = new Random(0);
+
+        byte[] random4k = new byte[4096];
+        random.nextBytes(random4k);
+        byte[] repeated = new byte[100000];
+        byte[][] cases = { new byte[0], "a".getBytes(), "abcdabcdabcdabcd".getBytes(), random4k, repeated,
+                          buildJsonBody(4 * 1024), buildJsonBody(64 * 1024) };
+        for (byte[] src : cases) {
+            byte[] data = codec.compress(src);
+            assertTrue(data.length <= LZ4Codec.maxCompressedLength(src.length));
+            assertArrayEquals(src, codec.uncompress(data));
+        }
+
+        // ѹȷʵС
+        assertTrue(codec.compress(repeated).length < 1024);
+        assertTrue(codec.compress(buildJsonBody(64 * 1024)).length < 32 * 1024);
+    }
+
+
+    @Test
+    public void test_lz4_malformed() throws IOException {
+        LZ4Codec codec = new LZ4Codec();
+        byte[] data = codec.compress(buildJsonBody(4 * 1024));
+        byte[] truncated = new byte[data.length / 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        try {
+            codec.uncompress(truncated);
+            fail();
+        }
+        catch (IOException e) {
+        }
+    }
+
+
+    @Test
+    public void test_lz4_length_overflow() throws IOException {
+        LZ4Codec codec = new LZ4Codec();
+        byte[] data = codec.compress(buildJsonBody(4 * 1024));
+        // ͷĳԶѹ޵ֵ
+        data[0] = 0x7F;
+        try {
+            codec.uncompress(data);
+            fail();
+        }
+        catch (IOException e) {
+        }
+    }
+
+
+    @Test
+    public void test_uncompress_by_sysFlag() throws IOException {
+        byte[] body = buildJsonBody(8 * 1024);
+        for (CompressionType type : CompressionType.values()) {
+            CompressionCodec codec = CompressionCodecs.getCodec(type, 5);
+            int sysFlag = CompressionCodecs.toSysFlag(type) | MessageSysFlag.MultiTagsFlag;
+            assertArrayEquals(body, CompressionCodecs.uncompress(sysFlag, codec.compress(body)));
+        }
+
+        // ZLIBϰ汾ı־λһ
+        assertEquals(MessageSysFlag.CompressedFlag, CompressionCodecs.toSysFlag(CompressionType.ZLIB));
+        assertArrayEquals(body, CompressionCodecs.uncompress(MessageSysFlag.MultiTagsFlag, body));
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * $Id: StripedCounterTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.common.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StripedCounterTest {
+    @Test
+    public void test_concurrent_add() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final int threads = 8;
+        final int loops = 100000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int k = 0; k < loops; k++) {
+                        counter.increment();
+                        counter.add(2);
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+
+        latch.await();
+        assertEquals(threads * loops * 3L, counter.get());
+        assertEquals(threads * loops * 3L, counter.getAndReset());
+        assertEquals(0, counter.get());
+    }
+}
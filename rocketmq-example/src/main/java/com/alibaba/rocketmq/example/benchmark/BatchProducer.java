@@ -0,0 +1,139 @@
+/**
+ * $Id: BatchProducer.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.client.producer.DefaultMQProducer;
+import com.alibaba.rocketmq.client.producer.SendCallback;
+import com.alibaba.rocketmq.client.producer.SendResult;
+import com.alibaba.rocketmq.common.Message;
+
+
+/**
+ * ܲԣԱ첽͵<br>
+ * ڱBroker߳첽СϢ;ϢͳƷTPSԼƽRT
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BatchProducer {
+    // ;Ϣޣ̰ⷢ߳ڴű
+    private static final int MaxMessagesInFlight = 20000;
+
+
+    private static void send(final boolean sendInBatch, final int threadCount, final int messageSize,
+            final long messageCount) throws Exception {
+        final String name = sendInBatch ? "benchmark_producer_batch" : "benchmark_producer_single";
+        final DefaultMQProducer producer = new DefaultMQProducer(name);
+        producer.getMQClientConfig().setNamesrvAddr(Consumer.NamesrvAddr);
+        producer.getMQClientConfig().setInstanceName(name);
+        producer.setSendMessageInBatch(sendInBatch);
+        producer.start();
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < messageSize; i += 10) {
+            sb.append("hello baby");
+        }
+        final byte[] body = sb.toString().getBytes();
+
+        // ͬһȡ·ɣ߳ͬʱ״ηʱҲ·
+        producer.send(new Message(Consumer.Topic, body));
+
+        final Semaphore inFlight = new Semaphore(MaxMessagesInFlight);
+        final AtomicLong sendIndex = new AtomicLong(0);
+        final AtomicLong successCount = new AtomicLong(0);
+        final AtomicLong failedCount = new AtomicLong(0);
+        final AtomicLong rtTotal = new AtomicLong(0);
+        final CountDownLatch sendOver = new CountDownLatch(1);
+
+        final long begin = System.currentTimeMillis();
+        final Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(name + "_" + i) {
+                @Override
+                public void run() {
+                    while (sendIndex.getAndIncrement() < messageCount) {
+                        try {
+                            inFlight.acquire();
+                            final long beginTimestamp = System.currentTimeMillis();
+                            producer.send(new Message(Consumer.Topic, body), new SendCallback() {
+                                private void complete(final boolean ok) {
+                                    rtTotal.addAndGet(System.currentTimeMillis() - beginTimestamp);
+                                    long done =
+                                            ok ? successCount.incrementAndGet() : failedCount.incrementAndGet();
+                                    inFlight.release();
+                                    if (done + (ok ? failedCount.get() : successCount.get()) >= messageCount) {
+                                        sendOver.countDown();
+                                    }
+                                }
+
+
+                                @Override
+                                public void onSuccess(SendResult sendResult) {
+                                    this.complete(true);
+                                }
+
+
+                                @Override
+                                public void onException(Throwable e) {
+                                    if (failedCount.get() == 0) e.printStackTrace(System.out);
+                                    this.complete(false);
+                                }
+                            });
+                        }
+                        catch (Exception e) {
+                            e.printStackTrace(System.out);
+                            inFlight.release();
+                            if (failedCount.incrementAndGet() + successCount.get() >= messageCount) {
+                                sendOver.countDown();
+                            }
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        boolean finished = sendOver.await(1000 * 60 * 10, TimeUnit.MILLISECONDS);
+        final long cost = System.currentTimeMillis() - begin;
+        final long total = successCount.get() + failedCount.get();
+
+        System.out.printf("%s %s send %d messages, failed %d, cost %dms, Send TPS: %d, Average RT: %7.3f\n", //
+            finished ? "OK" : "TIMEOUT", //
+            sendInBatch ? "[batch] " : "[single]", //
+            successCount.get(), //
+            failedCount.get(), //
+            cost, //
+            successCount.get() * 1000 / Math.max(1, cost), //
+            rtTotal.get() / (double) Math.max(1, total));
+
+        producer.shutdown();
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int threadCount = args.length >= 1 ? Integer.parseInt(args[0]) : 32;
+        final int messageSize = args.length >= 2 ? Integer.parseInt(args[1]) : 128;
+        final long messageCount = args.length >= 3 ? Long.parseLong(args[2]) : 1000 * 500;
+
+        final String storeRoot =
+                System.getProperty("java.io.tmpdir") + File.separator + "rocketmq_benchmark_"
+                        + System.currentTimeMillis();
+
+        final BrokerController brokerController = Consumer.startBroker(storeRoot);
+
+        // ַʽһ֣һͬʱԤ
+        send(false, threadCount, messageSize, messageCount);
+        send(true, threadCount, messageSize, messageCount);
+
+        brokerController.shutdown();
+        Consumer.deleteFile(new File(storeRoot));
+        System.exit(0);
+    }
+}
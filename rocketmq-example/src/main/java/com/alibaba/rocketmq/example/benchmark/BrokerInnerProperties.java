@@ -0,0 +1,138 @@
+/**
+ * $Id: BrokerInnerProperties.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.store.MessageExtBrokerInner;
+
+
+/**
+ * ܲԣBrokerյһϢʱԵĺʱڴ<br>
+ * ģSendMessageProcessorCommitLog.putMessageԵķʣԱȷлMapֻɨҪ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class BrokerInnerProperties {
+    // ֹJITûʹýĽ
+    private static long blackhole = 0;
+
+
+    private static abstract class Scenario {
+        final String name;
+
+
+        Scenario(final String name) {
+            this.name = name;
+        }
+
+
+        abstract MessageExtBrokerInner create(final String properties);
+    }
+
+
+    /**
+     * 洢һϢõ
+     */
+    private static void access(final MessageExtBrokerInner msgInner) {
+        blackhole += msgInner.getTags().length();
+        blackhole += msgInner.getKeys().length();
+        blackhole += msgInner.getDelayTimeLevel();
+        blackhole += msgInner.isWaitStoreMsgOK() ? 1 : 0;
+        blackhole += null == msgInner.getProperty(Message.PROPERTY_PRODUCER_GROUP) ? 0 : 1;
+        blackhole += msgInner.getPropertiesData().length;
+    }
+
+
+    /**
+     * ǰ߳ѷֽJVM֧ʱ-1
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread()
+                .getId());
+        }
+        return -1;
+    }
+
+
+    private static void run(final Scenario scenario, final String[] properties, final long millis,
+            final boolean print) {
+        long times = 0;
+        final long allocatedBegin = allocatedBytes();
+        final long begin = System.nanoTime();
+        final long end = begin + millis * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            for (String p : properties) {
+                access(scenario.create(p));
+            }
+            times += properties.length;
+        }
+        final long cost = System.nanoTime() - begin;
+        final long allocated = allocatedBytes() - allocatedBegin;
+
+        if (print) {
+            System.out.printf("%-16s %12.1f msgs/s  %8.1f ns/msg  %8.1f bytes/msg\n", //
+                scenario.name, //
+                times * 1e9 / cost, //
+                cost / (double) times, //
+                allocatedBegin < 0 ? -1 : allocated / (double) times);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final long millis = args.length >= 1 ? Long.parseLong(args[0]) : 3000;
+
+        // ͻ˷ĵ
+        Random random = new Random(0);
+        final String[] properties = new String[1024];
+        for (int i = 0; i < properties.length; i++) {
+            Map<String, String> map = new HashMap<String, String>();
+            map.put(Message.PROPERTY_TAGS, "TagA");
+            map.put(Message.PROPERTY_KEYS, "order_" + random.nextInt(1000000));
+            map.put(Message.PROPERTY_WAIT_STORE_MSG_OK, "true");
+            final int userCount = random.nextInt(4);
+            for (int k = 0; k < userCount; k++) {
+                map.put("user_key_" + k, "value_" + random.nextInt(100000));
+            }
+            properties[i] = MessageDecoder.messageProperties2String(map);
+        }
+
+        final Scenario[] scenarios = { //
+            new Scenario("map") {
+                @Override
+                MessageExtBrokerInner create(final String p) {
+                    MessageExtBrokerInner msgInner = new MessageExtBrokerInner();
+                    msgInner.setProperties(MessageDecoder.string2messageProperties(p));
+                    msgInner.setPropertiesString(p);
+                    return msgInner;
+                }
+            }, //
+            new Scenario("scan") {
+                @Override
+                MessageExtBrokerInner create(final String p) {
+                    MessageExtBrokerInner msgInner = new MessageExtBrokerInner();
+                    msgInner.setPropertiesString(p);
+                    return msgInner;
+                }
+            } };
+
+        // Ԥȣͳ
+        for (Scenario scenario : scenarios) {
+            run(scenario, properties, millis / 2, false);
+        }
+        for (Scenario scenario : scenarios) {
+            run(scenario, properties, millis, true);
+        }
+
+        System.out.println("blackhole " + (blackhole & 0xFF));
+    }
+}
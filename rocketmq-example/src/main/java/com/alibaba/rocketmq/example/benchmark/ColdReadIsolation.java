@@ -0,0 +1,289 @@
+/**
+ * $Id: ColdReadIsolation.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.common.BrokerConfig;
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.TopicConfig;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
+import com.alibaba.rocketmq.common.protocol.header.PullMessageRequestHeader;
+import com.alibaba.rocketmq.common.protocol.header.PullMessageResponseHeader;
+import com.alibaba.rocketmq.remoting.netty.NettyClientConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+import com.alibaba.rocketmq.store.MessageExtBrokerInner;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * ܲԣһConsumerͷ׷ʱѵConsumerϢӳ<br>
+ * writeдݣPageCacheecho 1 > /proc/sys/vm/drop_caches
+ * ٷֱread trueread falseBroker<br>
+ * 0׷ѵConsumerͷȡѵConsumerȡβڴеϢ
+ * ÿConsumerʹõӣBrokerֻһIỌ߳ģӹIO߳
+ *
+ * <pre>
+ * ColdReadIsolation storePath write [totalMB] [queueNums]
+ * ColdReadIsolation storePath read coldReadIsolationEnable withColdConsumer [seconds] [hotConsumerNums]
+ * </pre>
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ColdReadIsolation {
+    private static final String Topic = "ColdReadTopic";
+    private static final String Group = "ColdReadGroup";
+    private static final int BodySize = 1024;
+    private static final int ListenPort = 10931;
+    // ѵConsumerȡβϢ
+    private static final int HotMessageNums = 2048;
+    // ѵConsumerȡ֮ļ
+    private static final long HotPullIntervalMills = 2;
+
+
+    private static BrokerController createBrokerController(final String storePath,
+            final boolean coldReadIsolationEnable) throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setNamesrvAddr(null);
+        brokerConfig.setTopicConfigPath(storePath + File.separator + "topics.properties");
+        brokerConfig.setConsumerOffsetPath(storePath + File.separator + "consumeroffset.properties");
+        brokerConfig.setConsumerOffsetStorePath(storePath + File.separator + "consumeroffset");
+        brokerConfig.setColdReadIsolationEnable(coldReadIsolationEnable);
+
+        NettyServerConfig nettyServerConfig = new NettyServerConfig();
+        nettyServerConfig.setListenPort(ListenPort);
+        nettyServerConfig.setServerSelectorThreads(1);
+
+        MessageStoreConfig config = new MessageStoreConfig();
+        config.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        config.setStorePathConsumeQueue(storePath + File.separator + "consumequeue");
+        config.setStorePathIndex(storePath + File.separator + "index");
+        config.setStoreCheckpoint(storePath + File.separator + "storeCheckpoint");
+        config.setAbortFile(storePath + File.separator + "storeAbort");
+        config.setDelayOffsetStorePath(storePath + File.separator + "delayOffset.properties");
+        config.setTranStateTableStorePath(storePath + File.separator + "transaction" + File.separator
+                + "statetable");
+        config.setTranRedoLogStorePath(storePath + File.separator + "transaction" + File.separator
+                + "redolog");
+        config.setMessageIndexEnable(false);
+        // ֻȽ̳߳ظЧ
+        config.setCommitLogReadAheadEnable(false);
+
+        BrokerController brokerController = new BrokerController(brokerConfig, nettyServerConfig, config);
+        if (!brokerController.initialize()) {
+            throw new IllegalStateException("initialize broker failed");
+        }
+        brokerController.start();
+        return brokerController;
+    }
+
+
+    private static void write(final BrokerController brokerController, final long totalMB,
+            final int queueNums) throws Exception {
+        brokerController.getTopicConfigManager().updateTopicConfig(
+            new TopicConfig(Topic, queueNums, queueNums, MixAll.PERM_READ | MixAll.PERM_WRITE));
+
+        final byte[] body = new byte[BodySize];
+        final InetSocketAddress host = new InetSocketAddress("127.0.0.1", ListenPort);
+        final long total = totalMB * 1024 * 1024 / BodySize;
+        for (long i = 0; i < total; i++) {
+            MessageExtBrokerInner msg = new MessageExtBrokerInner();
+            msg.setTopic(Topic);
+            msg.setTags("TagA");
+            msg.setBody(body);
+            msg.setQueueId((int) (i % queueNums));
+            msg.setBornTimestamp(System.currentTimeMillis());
+            msg.setBornHost(host);
+            msg.setStoreHost(host);
+            brokerController.getMessageStore().putMessage(msg);
+        }
+
+        // ȴַConsumeQueue
+        while (brokerController.getMessageStore().getMaxOffsetInQuque(Topic, queueNums - 1) < total
+                / queueNums) {
+            Thread.sleep(100);
+        }
+        System.out.printf("write %d messages in %d queues\n", total, queueNums);
+    }
+
+
+    /**
+     * @return ϢһȡOffset򷵻-1
+     */
+    private static long pull(final NettyRemotingClient client, final int queueId, final long offset)
+            throws Exception {
+        PullMessageRequestHeader requestHeader = new PullMessageRequestHeader();
+        requestHeader.setConsumerGroup(Group);
+        requestHeader.setTopic(Topic);
+        requestHeader.setQueueId(queueId);
+        requestHeader.setQueueOffset(offset);
+        requestHeader.setMaxMsgNums(32);
+        requestHeader.setSysFlag(0);
+        requestHeader.setCommitOffset(0L);
+        requestHeader.setSuspendTimeoutMillis(0L);
+        requestHeader.setSubscription("*");
+
+        RemotingCommand request =
+                RemotingCommand.createRequestCommand(MQRequestCode.PULL_MESSAGE_VALUE, requestHeader);
+        RemotingCommand response = client.invokeSync("127.0.0.1:" + ListenPort, request, 1000 * 30);
+        if (response.getCode() != ResponseCode.SUCCESS_VALUE) {
+            return -1;
+        }
+
+        PullMessageResponseHeader responseHeader =
+                (PullMessageResponseHeader) response
+                    .decodeCommandCustomHeader(PullMessageResponseHeader.class);
+        return responseHeader.getNextBeginOffset();
+    }
+
+
+    private static NettyRemotingClient createClient() {
+        NettyRemotingClient client = new NettyRemotingClient(new NettyClientConfig());
+        client.start();
+        return client;
+    }
+
+
+    private static void read(final BrokerController brokerController, final boolean withColdConsumer,
+            final long seconds, final int hotConsumerNums) throws Exception {
+        final long[][] latencies = new long[hotConsumerNums][];
+        final int[] latencyCounts = new int[hotConsumerNums];
+        final AtomicLong coldMsgs = new AtomicLong(0);
+        final CountDownLatch warmed = new CountDownLatch(hotConsumerNums);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(hotConsumerNums);
+        final AtomicLong end = new AtomicLong(0);
+
+        for (int t = 0; t < hotConsumerNums; t++) {
+            final int index = t;
+            final int queueId = t + 1;
+            final long maxOffset = brokerController.getMessageStore().getMaxOffsetInQuque(Topic, queueId);
+            final long beginOffset = Math.max(0, maxOffset - HotMessageNums);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    NettyRemotingClient client = createClient();
+                    long[] samples = new long[1024 * 1024];
+                    int count = 0;
+                    try {
+                        // һ飬ѶβϢڴ
+                        long offset = beginOffset;
+                        while (offset >= 0 && offset < maxOffset) {
+                            offset = pull(client, queueId, offset);
+                        }
+                        warmed.countDown();
+                        started.await();
+
+                        offset = beginOffset;
+                        while (System.currentTimeMillis() < end.get() && count < samples.length) {
+                            final long begin = System.nanoTime();
+                            offset = pull(client, queueId, offset);
+                            samples[count++] = System.nanoTime() - begin;
+                            if (offset < 0 || offset >= maxOffset) {
+                                offset = beginOffset;
+                            }
+                            Thread.sleep(HotPullIntervalMills);
+                        }
+                    }
+                    catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    finally {
+                        latencies[index] = samples;
+                        latencyCounts[index] = count;
+                        client.shutdown();
+                        done.countDown();
+                    }
+                }
+            }, "HotConsumer" + t).start();
+        }
+
+        warmed.await();
+        end.set(System.currentTimeMillis() + seconds * 1000);
+        started.countDown();
+        if (withColdConsumer) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    NettyRemotingClient client = createClient();
+                    long offset = 0;
+                    try {
+                        while (System.currentTimeMillis() < end.get()) {
+                            final long next = pull(client, 0, offset);
+                            if (next > offset) {
+                                coldMsgs.addAndGet(next - offset);
+                                offset = next;
+                            }
+                        }
+                    }
+                    catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                    finally {
+                        client.shutdown();
+                    }
+                }
+            }, "ColdConsumer").start();
+        }
+        done.await();
+
+        int total = 0;
+        for (int count : latencyCounts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (int t = 0; t < hotConsumerNums; t++) {
+            System.arraycopy(latencies[t], 0, all, pos, latencyCounts[t]);
+            pos += latencyCounts[t];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("hot pulls %d, latency(ms) p50 %.2f p99 %.2f p999 %.2f max %.2f\n", //
+            total, //
+            percentile(all, 0.5), //
+            percentile(all, 0.99), //
+            percentile(all, 0.999), //
+            total > 0 ? all[total - 1] / 1e6 : 0);
+        System.out.printf("cold consumer %.1f msgs/s\n", coldMsgs.get() / (double) seconds);
+    }
+
+
+    private static double percentile(final long[] sorted, final double p) {
+        if (0 == sorted.length) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * p))] / 1e6;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final String storePath = args[0];
+        if ("write".equals(args[1])) {
+            final long totalMB = args.length >= 3 ? Long.parseLong(args[2]) : 1024 * 4;
+            final int queueNums = args.length >= 4 ? Integer.parseInt(args[3]) : 16;
+            BrokerController brokerController = createBrokerController(storePath, true);
+            write(brokerController, totalMB, queueNums);
+            brokerController.shutdown();
+        }
+        else {
+            final boolean coldReadIsolationEnable = Boolean.parseBoolean(args[2]);
+            final boolean withColdConsumer = Boolean.parseBoolean(args[3]);
+            final long seconds = args.length >= 5 ? Long.parseLong(args[4]) : 60;
+            final int hotConsumerNums = args.length >= 6 ? Integer.parseInt(args[5]) : 4;
+            read(createBrokerController(storePath, coldReadIsolationEnable), withColdConsumer, seconds,
+                hotConsumerNums);
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * $Id: CommitLogReadAhead.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import com.alibaba.rocketmq.store.DefaultMessageStore;
+import com.alibaba.rocketmq.store.GetMessageResult;
+import com.alibaba.rocketmq.store.GetMessageStatus;
+import com.alibaba.rocketmq.store.MessageExtBrokerInner;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * ܲԣʱ׷ѵٶȣԱǷCommitLogԤ<br>
+ * writeдݣPageCacheecho 1 > /proc/sys/vm/drop_caches
+ * ٷֱread trueread falseͷһ<br>
+ * ÿȡͣpullIntervalMillsģConsumerϢʱ
+ *
+ * <pre>
+ * CommitLogReadAhead storePath write [totalMB] [queueNums]
+ * CommitLogReadAhead storePath read readAheadEnable [seconds] [pullIntervalMills]
+ * </pre>
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class CommitLogReadAhead {
+    private static final String Topic = "ReadAheadTopic";
+    private static final int BodySize = 1024;
+
+
+    private static DefaultMessageStore createMessageStore(final String storePath,
+            final boolean readAheadEnable) throws Exception {
+        MessageStoreConfig config = new MessageStoreConfig();
+        config.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        config.setStorePathConsumeQueue(storePath + File.separator + "consumequeue");
+        config.setStorePathIndex(storePath + File.separator + "index");
+        config.setStoreCheckpoint(storePath + File.separator + "storeCheckpoint");
+        config.setAbortFile(storePath + File.separator + "storeAbort");
+        config.setDelayOffsetStorePath(storePath + File.separator + "delayOffset.properties");
+        config.setTranStateTableStorePath(storePath + File.separator + "transaction" + File.separator
+                + "statetable");
+        config.setTranRedoLogStorePath(storePath + File.separator + "transaction" + File.separator
+                + "redolog");
+        config.setMessageIndexEnable(false);
+        config.setCommitLogReadAheadEnable(readAheadEnable);
+
+        DefaultMessageStore store = new DefaultMessageStore(config);
+        if (!store.load()) {
+            throw new IllegalStateException("load message store failed");
+        }
+        store.start();
+        return store;
+    }
+
+
+    private static void write(final DefaultMessageStore store, final long totalMB, final int queueNums)
+            throws Exception {
+        final byte[] body = new byte[BodySize];
+        final InetSocketAddress host = new InetSocketAddress("127.0.0.1", 10911);
+        final long total = totalMB * 1024 * 1024 / BodySize;
+        for (long i = 0; i < total; i++) {
+            MessageExtBrokerInner msg = new MessageExtBrokerInner();
+            msg.setTopic(Topic);
+            msg.setTags("TagA");
+            msg.setBody(body);
+            msg.setQueueId((int) (i % queueNums));
+            msg.setBornTimestamp(System.currentTimeMillis());
+            msg.setBornHost(host);
+            msg.setStoreHost(host);
+            store.putMessage(msg);
+        }
+
+        // ȴַConsumeQueue
+        while (store.getMaxOffsetInQuque(Topic, queueNums - 1) < total / queueNums) {
+            Thread.sleep(100);
+        }
+        System.out.printf("write %d messages, max physic offset %d\n", total, store.getMaxPhyOffset());
+    }
+
+
+    /**
+     * Ϣ߳һͷѶ0ϢƳģ紫
+     */
+    private static void read(final DefaultMessageStore store, final long seconds,
+            final long pullIntervalMills) throws InterruptedException {
+        final byte[] copy = new byte[1024 * 256];
+        final long end = System.currentTimeMillis() + seconds * 1000;
+        final long begin = System.nanoTime();
+        long offset = 0;
+        long msgs = 0;
+        long bytes = 0;
+        long pulls = 0;
+        long suggestSlave = 0;
+        while (System.currentTimeMillis() < end) {
+            GetMessageResult result = store.getMessage(Topic, 0, offset, 32, null);
+            if (null == result || result.getStatus() != GetMessageStatus.FOUND) {
+                break;
+            }
+
+            try {
+                for (ByteBuffer buffer : result.getMessageBufferList()) {
+                    final int size = buffer.remaining();
+                    buffer.get(copy, 0, Math.min(size, copy.length));
+                    bytes += size;
+                }
+            }
+            finally {
+                result.release();
+            }
+
+            if (pullIntervalMills > 0) {
+                Thread.sleep(pullIntervalMills);
+            }
+
+            msgs += result.getMessageCount();
+            pulls++;
+            suggestSlave += result.isSuggestPullingFromSlave() ? 1 : 0;
+            offset = result.getNextBeginOffset();
+        }
+
+        final double cost = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("read %d msgs in %.1fs, %.1f msgs/s, %.1f MB/s, %.1f msgs/pull, lagging %d%%\n", //
+            msgs, //
+            cost, //
+            msgs / cost, //
+            bytes / cost / 1024 / 1024, //
+            pulls > 0 ? msgs / (double) pulls : 0, //
+            pulls > 0 ? suggestSlave * 100 / pulls : 0);
+        System.out.println("read ahead bytes "
+                + store.getStoreStatsService().getCommitLogReadAheadBytes().get());
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final String storePath = args[0];
+        if ("write".equals(args[1])) {
+            final long totalMB = args.length >= 3 ? Long.parseLong(args[2]) : 1024 * 4;
+            final int queueNums = args.length >= 4 ? Integer.parseInt(args[3]) : 16;
+            DefaultMessageStore store = createMessageStore(storePath, false);
+            write(store, totalMB, queueNums);
+            store.shutdown();
+        }
+        else {
+            final boolean readAheadEnable = Boolean.parseBoolean(args[2]);
+            final long seconds = args.length >= 4 ? Long.parseLong(args[3]) : 60;
+            final long pullIntervalMills = args.length >= 5 ? Long.parseLong(args[4]) : 1;
+            read(createMessageStore(storePath, readAheadEnable), seconds, pullIntervalMills);
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * $Id: Compression.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.util.Random;
+
+import com.alibaba.rocketmq.common.compress.CompressionCodec;
+import com.alibaba.rocketmq.common.compress.LZ4Codec;
+import com.alibaba.rocketmq.common.compress.ZlibCodec;
+
+
+/**
+ * ܲԣѹ㷨ϢѹѹٶԼѹ<br>
+ * Ϣģҵ񶩵JSONСֱΪ4K16K64K
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class Compression {
+    private static final String[] Status = { "CREATED", "PAID", "SHIPPED", "FINISHED", "CLOSED" };
+
+
+    static byte[] buildJsonBody(final Random random, final int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        sb.append('[');
+        while (sb.length() < size) {
+            sb.append("{\"orderId\":").append(100000000L + random.nextInt(100000000));
+            sb.append(",\"buyerId\":\"user_").append(random.nextInt(100000)).append('"');
+            sb.append(",\"sellerId\":").append(random.nextInt(10000));
+            sb.append(",\"status\":\"").append(Status[random.nextInt(Status.length)]).append('"');
+            sb.append(",\"amount\":").append(random.nextInt(100000) / 100.0);
+            sb.append(",\"items\":[{\"skuId\":").append(random.nextInt(1000000));
+            sb.append(",\"quantity\":").append(1 + random.nextInt(5));
+            sb.append(",\"title\":\"item title ").append(Long.toHexString(random.nextLong())).append("\"}]");
+            sb.append(",\"gmtCreate\":").append(1368000000000L + random.nextInt(100000000)).append("},");
+        }
+        sb.setLength(size - 1);
+        sb.append(']');
+        return sb.toString().getBytes();
+    }
+
+
+    private static void run(final String name, final CompressionCodec codec, final byte[][] bodies,
+            final int rounds, final boolean print) throws Exception {
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        long compressCost = 0;
+        long uncompressCost = 0;
+
+        byte[][] compressed = new byte[bodies.length][];
+        for (int r = 0; r < rounds; r++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < bodies.length; i++) {
+                compressed[i] = codec.compress(bodies[i]);
+            }
+            compressCost += System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < bodies.length; i++) {
+                if (codec.uncompress(compressed[i]).length != bodies[i].length) {
+                    throw new IllegalStateException(name + " uncompress error");
+                }
+            }
+            uncompressCost += System.nanoTime() - begin;
+
+            for (int i = 0; i < bodies.length; i++) {
+                rawBytes += bodies[i].length;
+                compressedBytes += compressed[i].length;
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-8s %6dB  compress %8.1f MB/s  uncompress %8.1f MB/s  ratio %5.3f\n", //
+                name, //
+                bodies[0].length, //
+                rawBytes * 1000.0 / compressCost, //
+                rawBytes * 1000.0 / uncompressCost, //
+                compressedBytes / (double) rawBytes);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int messageCount = args.length >= 1 ? Integer.parseInt(args[0]) : 200;
+        final int rounds = args.length >= 2 ? Integer.parseInt(args[1]) : 20;
+        final int[] sizes = { 4 * 1024, 16 * 1024, 64 * 1024 };
+        final String[] names = { "zlib-9", "zlib-1", "lz4" };
+        final CompressionCodec[] codecs = { new ZlibCodec(9), new ZlibCodec(1), new LZ4Codec() };
+
+        Random random = new Random(0);
+        for (int size : sizes) {
+            byte[][] bodies = new byte[messageCount][];
+            for (int i = 0; i < messageCount; i++) {
+                bodies[i] = buildJsonBody(random, size);
+            }
+
+            for (int i = 0; i < codecs.length; i++) {
+                // Ԥȣͳ
+                run(names[i], codecs[i], bodies, Math.max(1, rounds / 4), false);
+                run(names[i], codecs[i], bodies, rounds, true);
+            }
+        }
+    }
+}
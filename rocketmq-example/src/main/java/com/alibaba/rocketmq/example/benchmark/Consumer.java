@@ -3,14 +3,190 @@
  */
 package com.alibaba.rocketmq.example.benchmark;
 
+import java.io.File;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.client.consumer.ConsumeFromWhereOffset;
+import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeConcurrentlyContext;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeConcurrentlyStatus;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerConcurrently;
+import com.alibaba.rocketmq.client.producer.DefaultMQProducer;
+import com.alibaba.rocketmq.common.BrokerConfig;
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.TopicConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
 /**
+ * ܲԣPushʽѶ˵<br>
+ * ڱBrokerȷָϢDefaultMQPushConsumerȫ꣬ͳTPS
+ *
  * @author shijia.wxr<vintage.wang@gmail.com>
- * 
  */
 public class Consumer {
+    static final String Topic = "BenchmarkTest4";
+    // ͻ˵Ĳ·ɹ̶ָ򱾻˿
+    private static final int BrokerPort = 10911;
+    // Name ServerָһַȥHTTPȡ
+    static final String NamesrvAddr = "127.0.0.1:9876";
+
+
+    static BrokerController startBroker(final String storeRoot) throws Exception {
+        final BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setNamesrvAddr(NamesrvAddr);
+        brokerConfig.setTopicConfigPath(storeRoot + File.separator + "config" + File.separator
+                + "topics.properties");
+        brokerConfig.setConsumerOffsetPath(storeRoot + File.separator + "config" + File.separator
+                + "consumeroffset.properties");
+        brokerConfig.setConsumerOffsetHistoryDir(storeRoot + File.separator + "config" + File.separator
+                + "offsethistory");
+        brokerConfig.setConsumerOffsetStorePath(storeRoot + File.separator + "config" + File.separator
+                + "consumeroffset");
+        brokerConfig.setConfigFilePath(storeRoot + File.separator + "config" + File.separator
+                + "broker.properties");
+
+        final NettyServerConfig nettyServerConfig = new NettyServerConfig();
+        nettyServerConfig.setListenPort(BrokerPort);
+
+        final MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathCommitLog(storeRoot + File.separator + "commitlog");
+        messageStoreConfig.setStorePathConsumeQueue(storeRoot + File.separator + "consumequeue");
+        messageStoreConfig.setStorePathIndex(storeRoot + File.separator + "index");
+        messageStoreConfig.setStoreCheckpoint(storeRoot + File.separator + "checkpoint");
+        messageStoreConfig.setAbortFile(storeRoot + File.separator + "abort");
+        messageStoreConfig.setDelayOffsetStorePath(storeRoot + File.separator + "config" + File.separator
+                + "delayOffset.properties");
+        messageStoreConfig.setTranStateTableStorePath(storeRoot + File.separator + "transaction"
+                + File.separator + "statetable");
+        messageStoreConfig.setTranRedoLogStorePath(storeRoot + File.separator + "transaction" + File.separator
+                + "redolog");
+        messageStoreConfig.setMapedFileSizeCommitLog(1024 * 1024 * 256);
+        messageStoreConfig.setHaListenPort(BrokerPort + 1);
+
+        final BrokerController brokerController =
+                new BrokerController(brokerConfig, nettyServerConfig, messageStoreConfig);
+        if (!brokerController.initialize()) {
+            brokerController.shutdown();
+            throw new RuntimeException("initialize broker failed");
+        }
+
+        // ·ɹ̶4
+        brokerController.getTopicConfigManager().updateTopicConfig(new TopicConfig(Topic, 4, 4, 6));
+        brokerController.start();
+        return brokerController;
+    }
+
+
+    private static void produce(final long messageCount, final int messageSize) throws Exception {
+        final DefaultMQProducer producer = new DefaultMQProducer("benchmark_producer");
+        producer.getMQClientConfig().setNamesrvAddr(NamesrvAddr);
+        producer.getMQClientConfig().setInstanceName("benchmark_producer");
+        producer.start();
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < messageSize; i += 10) {
+            sb.append("hello baby");
+        }
+        final byte[] body = sb.toString().getBytes();
+
+        final long begin = System.currentTimeMillis();
+        for (long i = 0; i < messageCount; i++) {
+            producer.send(new Message(Topic, body));
+        }
+        final long cost = System.currentTimeMillis() - begin;
+        System.out.printf("Send %d messages, cost %dms, Send TPS: %d\n", messageCount, cost,
+            messageCount * 1000 / Math.max(1, cost));
+
+        producer.shutdown();
+    }
+
+
+    static void deleteFile(final File file) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    deleteFile(f);
+                }
+            }
+        }
+        file.delete();
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final long messageCount = args.length >= 1 ? Long.parseLong(args[0]) : 1000 * 200;
+        final int messageSize = args.length >= 2 ? Integer.parseInt(args[1]) : 1024;
+        final int consumeThreadCount = args.length >= 3 ? Integer.parseInt(args[2]) : 20;
+        final int consumeMessageBatchMaxSize = args.length >= 4 ? Integer.parseInt(args[3]) : 1;
+
+        final String storeRoot =
+                System.getProperty("java.io.tmpdir") + File.separator + "rocketmq_benchmark_"
+                        + System.currentTimeMillis();
+
+        final BrokerController brokerController = startBroker(storeRoot);
+
+        produce(messageCount, messageSize);
+
+        final AtomicLong consumeCount = new AtomicLong(0);
+        final CountDownLatch consumeOver = new CountDownLatch(1);
+
+        final DefaultMQPushConsumer consumer = new DefaultMQPushConsumer("benchmark_consumer");
+        consumer.getMQClientConfig().setNamesrvAddr(NamesrvAddr);
+        consumer.getMQClientConfig().setInstanceName("benchmark_consumer");
+        consumer.setConsumeFromWhereOffset(ConsumeFromWhereOffset.CONSUME_FROM_MIN_OFFSET);
+        consumer.setConsumeThreadCount(consumeThreadCount);
+        consumer.setConsumeMessageBatchMaxSize(consumeMessageBatchMaxSize);
+        consumer.subscribe(Topic, null);
+        consumer.registerMessageListener(new MessageListenerConcurrently() {
+            @Override
+            public ConsumeConcurrentlyStatus consumeMessage(List<MessageExt> msgs,
+                    ConsumeConcurrentlyContext context) {
+                if (consumeCount.addAndGet(msgs.size()) >= messageCount) {
+                    consumeOver.countDown();
+                }
+                return ConsumeConcurrentlyStatus.CONSUME_SUCCESS;
+            }
+        });
+
+        final Timer timer = new Timer("BenchmarkTimerThread", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            private long lastCount = 0;
+
+
+            @Override
+            public void run() {
+                long count = consumeCount.get();
+                System.out.printf("Consume TPS: %d Total: %d\n", count - this.lastCount, count);
+                this.lastCount = count;
+            }
+        }, 1000, 1000);
+
+        final long begin = System.currentTimeMillis();
+        consumer.start();
+
+        boolean finished = consumeOver.await(1000 * 60 * 10, TimeUnit.MILLISECONDS);
+        final long cost = System.currentTimeMillis() - begin;
+        timer.cancel();
 
-    public static void main(String[] args) {
-        // TODO Auto-generated method stub
+        System.out.printf("%s consume %d messages, cost %dms, Consume TPS: %d\n", //
+            finished ? "OK" : "TIMEOUT", //
+            consumeCount.get(), //
+            cost, //
+            consumeCount.get() * 1000 / Math.max(1, cost));
 
+        consumer.shutdown();
+        brokerController.shutdown();
+        deleteFile(new File(storeRoot));
+        System.exit(0);
     }
 }
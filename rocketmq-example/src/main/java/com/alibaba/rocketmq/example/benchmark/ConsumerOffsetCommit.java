@@ -0,0 +1,110 @@
+/**
+ * $Id: ConsumerOffsetCommit.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.broker.offset.ConsumerOffsetManager;
+import com.alibaba.rocketmq.common.BrokerConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * ܲԣ߳ύѽȵ<br>
+ * ģϢʱύȣÿgrouptopic½ַ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumerOffsetCommit {
+    private static final int GroupNums = 100;
+    private static final int TopicNums = 10;
+    private static final int QueueNums = 16;
+
+
+    private static ConsumerOffsetManager createConsumerOffsetManager(final boolean storeEnable) {
+        final String storePath =
+                System.getProperty("java.io.tmpdir") + File.separator + "offsetbench_"
+                        + System.currentTimeMillis();
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setConsumerOffsetPath(storePath + File.separator + "consumeroffset.properties");
+        brokerConfig.setConsumerOffsetStorePath(storePath);
+        brokerConfig.setConsumerOffsetStoreEnable(storeEnable);
+        ConsumerOffsetManager manager =
+                new ConsumerOffsetManager(new BrokerController(brokerConfig, new NettyServerConfig(),
+                    new MessageStoreConfig()));
+        manager.load();
+        return manager;
+    }
+
+
+    private static void run(final ConsumerOffsetManager manager, final int threadNums, final long millis,
+            final String name) throws InterruptedException {
+        // нַȱеkeyͬһ
+        final String[] groups = new String[GroupNums];
+        final String[] topics = new String[TopicNums];
+        for (int i = 0; i < GroupNums; i++) {
+            groups[i] = new String("benchmark_consumer_group_" + i);
+        }
+        for (int i = 0; i < TopicNums; i++) {
+            topics[i] = new String("BenchmarkTopic_" + i);
+        }
+
+        final AtomicLong commitCount = new AtomicLong(0);
+        final CountDownLatch latch = new CountDownLatch(threadNums);
+        final long end = System.nanoTime() + millis * 1000 * 1000;
+        for (int t = 0; t < threadNums; t++) {
+            final int seed = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long times = 0;
+                    int i = seed;
+                    while ((times & 0xFFF) != 0 || System.nanoTime() < end) {
+                        i = i * 1103515245 + 12345;
+                        final int r = i >>> 8;
+                        manager.commitOffset(groups[r % GroupNums], topics[(r / GroupNums) % TopicNums],
+                            (r / GroupNums / TopicNums) % QueueNums, times);
+                        times++;
+                    }
+                    commitCount.addAndGet(times);
+                    latch.countDown();
+                }
+            }, "CommitThread" + t).start();
+        }
+
+        // Brokerһʱд־
+        while (latch.getCount() > 0) {
+            manager.flushLog();
+            latch.await(10, TimeUnit.MILLISECONDS);
+        }
+
+        if (name != null) {
+            System.out.printf("%-12s threads %d  %12.1f commits/s\n", //
+                name, //
+                threadNums, //
+                commitCount.get() * 1000.0 / millis);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int threadNums = args.length >= 1 ? Integer.parseInt(args[0]) : 16;
+        final long millis = args.length >= 2 ? Long.parseLong(args[1]) : 5000;
+
+        for (boolean storeEnable : new boolean[] { false, true }) {
+            ConsumerOffsetManager manager = createConsumerOffsetManager(storeEnable);
+            // Ԥȣͳ
+            run(manager, threadNums, millis / 2, null);
+            run(manager, threadNums, millis, storeEnable ? "binary store" : "text file");
+            manager.shutdown();
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * $Id: ExpiredFileDeletion.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.store.DefaultMessageStore;
+import com.alibaba.rocketmq.store.MessageExtBrokerInner;
+import com.alibaba.rocketmq.store.config.FlushDiskType;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+import com.alibaba.rocketmq.store.stats.LatencyHistogram;
+
+
+/**
+ * ܲԣCommitLogļͬʱڱɾʱдϢӳ<br>
+ * writeдݣٷֱexpire falseexpire true̶TPSдϢ
+ * ֹɾйļÿӡһдϢӳ
+ *
+ * <pre>
+ * ExpiredFileDeletion storePath write [totalMB]
+ * ExpiredFileDeletion storePath expire deleteCommitLogFilesAsync [seconds] [putTps] [syncFlush]
+ *     [maxMBPerSecond]
+ * </pre>
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ExpiredFileDeletion {
+    private static final String Topic = "ExpiredFileTopic";
+    private static final int BodySize = 1024;
+    // ɾǰȶдʱ
+    private static final int WarmupSeconds = 5;
+
+
+    private static DefaultMessageStore createMessageStore(final String storePath, final boolean async,
+            final boolean syncFlush, final int maxMBPerSecond) throws Exception {
+        MessageStoreConfig config = new MessageStoreConfig();
+        config.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        config.setStorePathConsumeQueue(storePath + File.separator + "consumequeue");
+        config.setStorePathIndex(storePath + File.separator + "index");
+        config.setStoreCheckpoint(storePath + File.separator + "storeCheckpoint");
+        config.setAbortFile(storePath + File.separator + "storeAbort");
+        config.setDelayOffsetStorePath(storePath + File.separator + "delayOffset.properties");
+        config.setTranStateTableStorePath(storePath + File.separator + "transaction" + File.separator
+                + "statetable");
+        config.setTranRedoLogStorePath(storePath + File.separator + "transaction" + File.separator
+                + "redolog");
+        config.setMessageIndexEnable(false);
+        config.setDeleteCommitLogFilesAsync(async);
+        config.setDeleteFileMaxMBPerSecond(maxMBPerSecond);
+        config.setFlushDiskType(syncFlush ? FlushDiskType.SYNC_FLUSH : FlushDiskType.ASYNC_FLUSH);
+        // дļ
+        config.setFileReservedTime(0);
+        config.setCleanResourceInterval(1000);
+
+        DefaultMessageStore store = new DefaultMessageStore(config);
+        if (!store.load()) {
+            throw new IllegalStateException("load message store failed");
+        }
+        store.start();
+        return store;
+    }
+
+
+    private static MessageExtBrokerInner buildMessage(final byte[] body, final InetSocketAddress host) {
+        MessageExtBrokerInner msg = new MessageExtBrokerInner();
+        msg.setTopic(Topic);
+        msg.setTags("TagA");
+        msg.setBody(body);
+        msg.setQueueId(0);
+        msg.setBornTimestamp(System.currentTimeMillis());
+        msg.setBornHost(host);
+        msg.setStoreHost(host);
+        return msg;
+    }
+
+
+    private static void write(final DefaultMessageStore store, final long totalMB) {
+        final byte[] body = new byte[BodySize];
+        final InetSocketAddress host = new InetSocketAddress("127.0.0.1", 10911);
+        final long total = totalMB * 1024 * 1024 / BodySize;
+        for (long i = 0; i < total; i++) {
+            store.putMessage(buildMessage(body, host));
+        }
+        System.out.printf("write %d messages, max physic offset %d\n", total, store.getMaxPhyOffset());
+    }
+
+
+    private static void expire(final DefaultMessageStore store, final long seconds, final int putTps) {
+        final byte[] body = new byte[BodySize];
+        final InetSocketAddress host = new InetSocketAddress("127.0.0.1", 10911);
+        final AtomicLong puts = new AtomicLong(0);
+        final long end = System.currentTimeMillis() + (WarmupSeconds + seconds) * 1000;
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // ÿд̶
+                final long begin = System.currentTimeMillis();
+                while (System.currentTimeMillis() < end) {
+                    final long expected = (System.currentTimeMillis() - begin) * putTps / 1000;
+                    while (puts.get() < expected) {
+                        store.putMessage(buildMessage(body, host));
+                        puts.incrementAndGet();
+                    }
+                    try {
+                        Thread.sleep(1);
+                    }
+                    catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }, "Producer");
+        producer.start();
+
+        final LatencyHistogram putLatency = store.getStoreStatsService().getPutMessageLatency();
+        System.out.println("second\tputs\tp99(us)\tmax(us)\tminPhyOffset\tdeletingFiles\tdeletedMB");
+        for (int second = 1; second <= WarmupSeconds + seconds; second++) {
+            if (second == WarmupSeconds) {
+                store.excuteDeleteFilesManualy();
+            }
+
+            try {
+                Thread.sleep(1000);
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+
+            LatencyHistogram.Snapshot snapshot = putLatency.getLastInterval();
+            HashMap<String, String> runtimeInfo = store.getRuntimeInfo();
+            System.out.printf("%d\t%d\t%d\t%d\t%d\t%s\t%d\n", //
+                second, //
+                snapshot.getTotalCount(), //
+                snapshot.getValueAtPercentile(99), //
+                snapshot.getMaxValue(), //
+                store.getCommitLog().getMinOffset(), //
+                runtimeInfo.get("commitLogDeletingFiles"), //
+                Long.parseLong(runtimeInfo.get("commitLogDeletedBytes")) / 1024 / 1024);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final String storePath = args[0];
+        if ("write".equals(args[1])) {
+            final long totalMB = args.length >= 3 ? Long.parseLong(args[2]) : 1024 * 8;
+            DefaultMessageStore store = createMessageStore(storePath, true, false, 64);
+            write(store, totalMB);
+            store.shutdown();
+        }
+        else {
+            final boolean async = Boolean.parseBoolean(args[2]);
+            final long seconds = args.length >= 4 ? Long.parseLong(args[3]) : 60;
+            final int putTps = args.length >= 5 ? Integer.parseInt(args[4]) : 5000;
+            final boolean syncFlush = args.length >= 6 ? Boolean.parseBoolean(args[5]) : true;
+            final int maxMBPerSecond = args.length >= 7 ? Integer.parseInt(args[6]) : 64;
+            expire(createMessageStore(storePath, async, syncFlush, maxMBPerSecond), seconds, putTps);
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * $Id: MapedFileQueueContention.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.store.MapedFile;
+import com.alibaba.rocketmq.store.MapedFileQueue;
+import com.alibaba.rocketmq.store.SelectMapedBufferResult;
+
+
+/**
+ * ܲԣϢ̲߳ļʱͬʱļ½ɾMapedFileQueueļͣ<br>
+ * д̲߳׷ݣļд½ļɾ߳ļʱɾļ
+ *
+ * <pre>
+ * MapedFileQueueContention storePath [readerNums] [seconds] [mapedFileSize] [reservedFiles]
+ * </pre>
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MapedFileQueueContention {
+    private static final int DataSize = 1024;
+    // ÿ̼߳¼Ĳ
+    private static final int MaxSamples = 1024 * 1024;
+
+
+    private static double percentile(final long[] sorted, final double p) {
+        if (0 == sorted.length) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * p))] / 1e3;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final String storePath = args[0];
+        final int readerNums = args.length >= 2 ? Integer.parseInt(args[1]) : 64;
+        final long seconds = args.length >= 3 ? Long.parseLong(args[2]) : 30;
+        final int mapedFileSize = args.length >= 4 ? Integer.parseInt(args[3]) : 1024 * 1024;
+        final int reservedFiles = args.length >= 5 ? Integer.parseInt(args[4]) : 16;
+
+        final MapedFileQueue mapedFileQueue = new MapedFileQueue(storePath, mapedFileSize, null);
+        final AtomicLong end = new AtomicLong(Long.MAX_VALUE);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(readerNums + 2);
+        final AtomicLong lookups = new AtomicLong(0);
+        final AtomicLong misses = new AtomicLong(0);
+        final AtomicLong rolls = new AtomicLong(0);
+        final AtomicLong deletes = new AtomicLong(0);
+        final long[][] latencies = new long[readerNums][];
+        final int[] latencyCounts = new int[readerNums];
+
+        // дļ
+        final byte[] data = new byte[DataSize];
+        while (mapedFileQueue.getMaxOffset() < (long) mapedFileSize * 4) {
+            mapedFileQueue.getLastMapedFile().appendMessage(data);
+        }
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    started.await();
+                    MapedFile last = null;
+                    while (System.currentTimeMillis() < end.get()) {
+                        // ļд½ļ
+                        MapedFile mapedFile = mapedFileQueue.getLastMapedFile();
+                        if (null == mapedFile) {
+                            break;
+                        }
+                        if (mapedFile != last) {
+                            last = mapedFile;
+                            rolls.incrementAndGet();
+                        }
+                        mapedFile.appendMessage(data);
+                    }
+                }
+                catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                finally {
+                    done.countDown();
+                }
+            }
+        }, "Writer").start();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    started.await();
+                    while (System.currentTimeMillis() < end.get()) {
+                        // ޸ʱɾľļ
+                        List<MapedFile> mapedFiles = mapedFileQueue.getMapedFiles();
+                        if (mapedFiles.size() > reservedFiles) {
+                            MapedFile mapedFile = mapedFiles.get(mapedFiles.size() - reservedFiles - 1);
+                            long expiredTime = System.currentTimeMillis() - mapedFile.getLastModifiedTimestamp();
+                            deletes.addAndGet(mapedFileQueue.deleteExpiredFileByTime(expiredTime, 0, 1000));
+                        }
+                        else {
+                            Thread.sleep(1);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                finally {
+                    done.countDown();
+                }
+            }
+        }, "Deleter").start();
+
+        for (int t = 0; t < readerNums; t++) {
+            final int index = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Random random = new Random(index);
+                    long[] samples = new long[MaxSamples];
+                    int count = 0;
+                    long n = 0;
+                    try {
+                        started.await();
+                        while (System.currentTimeMillis() < end.get()) {
+                            final long begin = System.nanoTime();
+                            final long minOffset = mapedFileQueue.getMinOffset();
+                            final long maxOffset = mapedFileQueue.getMaxOffset();
+                            final long range = Math.max(0, maxOffset - minOffset - DataSize);
+                            final long offset = minOffset + (long) (random.nextDouble() * range);
+                            MapedFile mapedFile = mapedFileQueue.findMapedFileByOffset(offset);
+                            final long cost = System.nanoTime() - begin;
+
+                            // ֻͳƲļĺʱݿܴȱҳ
+                            SelectMapedBufferResult result = null;
+                            if (mapedFile != null) {
+                                result = mapedFile.selectMapedBuffer((int) (offset % mapedFileSize), 8);
+                            }
+                            if (result != null) {
+                                result.release();
+                            }
+                            else {
+                                misses.incrementAndGet();
+                            }
+
+                            // ÿ16βҲһ
+                            if ((n++ & 15) == 0 && count < samples.length) {
+                                samples[count++] = cost;
+                            }
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    finally {
+                        latencies[index] = samples;
+                        latencyCounts[index] = count;
+                        lookups.addAndGet(n);
+                        done.countDown();
+                    }
+                }
+            }, "Reader" + t).start();
+        }
+
+        end.set(System.currentTimeMillis() + seconds * 1000);
+        started.countDown();
+        done.await();
+
+        int total = 0;
+        for (int count : latencyCounts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (int t = 0; t < readerNums; t++) {
+            System.arraycopy(latencies[t], 0, all, pos, latencyCounts[t]);
+            pos += latencyCounts[t];
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%d readers, %.0f lookups/s, misses %d, rolls %d, deletes %d\n", //
+            readerNums, //
+            lookups.get() / (double) seconds, //
+            misses.get(), //
+            rolls.get(), //
+            deletes.get());
+        System.out.printf("lookup latency(us) p50 %.1f p99 %.1f p9999 %.1f max %.1f\n", //
+            percentile(all, 0.5), //
+            percentile(all, 0.99), //
+            percentile(all, 0.9999), //
+            total > 0 ? all[total - 1] / 1e3 : 0);
+
+        mapedFileQueue.shutdown(1000);
+        mapedFileQueue.destroy();
+        System.exit(0);
+    }
+}
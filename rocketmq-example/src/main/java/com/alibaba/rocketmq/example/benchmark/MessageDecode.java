@@ -0,0 +1,164 @@
+/**
+ * $Id: MessageDecode.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import com.alibaba.rocketmq.common.LazyMessageExt;
+import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.common.MessageExt;
+
+
+/**
+ * ܲԣϢӦĽÿ32Ϣ<br>
+ * Աӳٽ룬ӳٽֱֻOffsetTagϢ塢ȫֳֶ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageDecode {
+    private static final int BatchSize = 32;
+
+    // ֹJITûʹýĽ
+    private static long blackhole = 0;
+
+
+    private static abstract class Scenario {
+        final String name;
+
+
+        Scenario(final String name) {
+            this.name = name;
+        }
+
+
+        abstract void run(final byte[] data);
+    }
+
+
+    /**
+     * CommitLog洢ʽһϢBrokerظͻ˵ĸʽһ
+     */
+    private static byte[] buildBatch(final Random random, final int bodySize) {
+        ByteBuffer byteBuffer = ByteBuffer.allocate(BatchSize * (bodySize + 512));
+        final byte[] topic = Consumer.Topic.getBytes();
+        for (int i = 0; i < BatchSize; i++) {
+            byte[] body = Compression.buildJsonBody(random, bodySize);
+            String keys = "order_" + random.nextInt(1000000);
+            byte[] properties =
+                    ("TAGS\u0001TagA\u0002KEYS\u0001" + keys + "\u0002WAIT\u0001true\u0002").getBytes();
+            final int storeSize = 88 + body.length + 1 + topic.length + 2 + properties.length;
+            byteBuffer.putInt(storeSize);
+            byteBuffer.putInt(0);
+            byteBuffer.putInt(random.nextInt());
+            byteBuffer.putInt(0);
+            byteBuffer.putInt(0);
+            byteBuffer.putLong(i);
+            byteBuffer.putLong(byteBuffer.position());
+            byteBuffer.putInt(0);
+            byteBuffer.putLong(System.currentTimeMillis());
+            byteBuffer.put(new byte[] { 10, 0, 0, 1 }).putInt(5000);
+            byteBuffer.putLong(System.currentTimeMillis());
+            byteBuffer.put(new byte[] { 127, 0, 0, 1 }).putInt(10911);
+            byteBuffer.putInt(0);
+            byteBuffer.putLong(0);
+            byteBuffer.putInt(body.length).put(body);
+            byteBuffer.put((byte) topic.length).put(topic);
+            byteBuffer.putShort((short) properties.length).put(properties);
+        }
+
+        byte[] data = new byte[byteBuffer.position()];
+        System.arraycopy(byteBuffer.array(), 0, data, 0, data.length);
+        return data;
+    }
+
+
+    private static void run(final Scenario scenario, final byte[][] batches, final long millis,
+            final boolean print) {
+        long batchCount = 0;
+        final long begin = System.nanoTime();
+        final long end = begin + millis * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            for (byte[] data : batches) {
+                scenario.run(data);
+            }
+            batchCount += batches.length;
+        }
+        final long cost = System.nanoTime() - begin;
+
+        if (print) {
+            System.out.printf("%-24s %10.1f batches/s  %12.1f msgs/s  %8.3f us/batch\n", //
+                scenario.name, //
+                batchCount * 1e9 / cost, //
+                batchCount * BatchSize * 1e9 / cost, //
+                cost / 1000.0 / batchCount);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int bodySize = args.length >= 1 ? Integer.parseInt(args[0]) : 1024;
+        final long millis = args.length >= 2 ? Long.parseLong(args[1]) : 3000;
+
+        Random random = new Random(0);
+        final byte[][] batches = new byte[64][];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = buildBatch(random, bodySize);
+        }
+
+        final Scenario[] scenarios = { //
+            new Scenario("eager") {
+                @Override
+                void run(final byte[] data) {
+                    List<MessageExt> msgs = MessageDecoder.decodes(ByteBuffer.wrap(data));
+                    for (MessageExt msg : msgs) {
+                        blackhole += msg.getQueueOffset() + msg.getTags().length() + msg.getBody().length;
+                    }
+                }
+            }, //
+            new Scenario("lazy[offset]") {
+                @Override
+                void run(final byte[] data) {
+                    List<MessageExt> msgs = MessageDecoder.decodesLazily(ByteBuffer.wrap(data));
+                    for (MessageExt msg : msgs) {
+                        blackhole += msg.getQueueOffset();
+                    }
+                }
+            }, //
+            new Scenario("lazy[tags+bodyBuffer]") {
+                @Override
+                void run(final byte[] data) {
+                    List<MessageExt> msgs = MessageDecoder.decodesLazily(ByteBuffer.wrap(data));
+                    for (MessageExt msg : msgs) {
+                        blackhole +=
+                                msg.getQueueOffset() + msg.getTags().length()
+                                        + ((LazyMessageExt) msg).getBodyBuffer().remaining();
+                    }
+                }
+            }, //
+            new Scenario("lazy[all fields]") {
+                @Override
+                void run(final byte[] data) {
+                    List<MessageExt> msgs = MessageDecoder.decodesLazily(ByteBuffer.wrap(data));
+                    for (MessageExt msg : msgs) {
+                        blackhole +=
+                                msg.getQueueOffset() + msg.getTags().length() + msg.getBody().length
+                                        + msg.getTopic().length() + msg.getMsgId().length()
+                                        + msg.getBornHost().hashCode() + msg.getStoreHost().hashCode();
+                    }
+                }
+            } };
+
+        // Ԥȣͳ
+        for (Scenario scenario : scenarios) {
+            run(scenario, batches, millis / 2, false);
+        }
+        for (Scenario scenario : scenarios) {
+            run(scenario, batches, millis, true);
+        }
+
+        System.out.println("blackhole " + (blackhole & 0xFF));
+    }
+}
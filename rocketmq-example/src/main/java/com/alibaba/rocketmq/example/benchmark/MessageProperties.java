@@ -0,0 +1,154 @@
+/**
+ * $Id: MessageProperties.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageDecoder;
+
+
+/**
+ * ܲԣϢıʽƸʽı뿪<br>
+ * ֱԱ롢MapֻTAGSKEYSֳԼĴС
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageProperties {
+    // ֹJITûʹýĽ
+    private static long blackhole = 0;
+
+
+    private static abstract class Scenario {
+        final String name;
+
+
+        Scenario(final String name) {
+            this.name = name;
+        }
+
+
+        abstract void run(final int index);
+    }
+
+
+    /**
+     * һϢԣ510
+     */
+    private static Map<String, String> buildProperties(final Random random) {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(Message.PROPERTY_TAGS, "TagA");
+        properties.put(Message.PROPERTY_KEYS, "order_" + random.nextInt(1000000));
+        properties.put(Message.PROPERTY_WAIT_STORE_MSG_OK, "true");
+        properties.put(Message.PROPERTY_PRODUCER_GROUP, "please_rename_unique_group_name");
+        final int userCount = 1 + random.nextInt(6);
+        for (int i = 0; i < userCount; i++) {
+            properties.put("user_key_" + i, "value_" + random.nextInt(100000));
+        }
+        return properties;
+    }
+
+
+    private static void run(final Scenario scenario, final int count, final long millis,
+            final boolean print) {
+        long times = 0;
+        final long begin = System.nanoTime();
+        final long end = begin + millis * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < count; i++) {
+                scenario.run(i);
+            }
+            times += count;
+        }
+        final long cost = System.nanoTime() - begin;
+
+        if (print) {
+            System.out.printf("%-20s %12.1f ops/s  %8.1f ns/op\n", //
+                scenario.name, //
+                times * 1e9 / cost, //
+                cost / (double) times);
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final long millis = args.length >= 1 ? Long.parseLong(args[0]) : 3000;
+
+        Random random = new Random(0);
+        final int count = 1024;
+        final Map<String, String>[] maps = new Map[count];
+        final byte[][] texts = new byte[count][];
+        final byte[][] binaries = new byte[count][];
+        long textSize = 0;
+        long binarySize = 0;
+        for (int i = 0; i < count; i++) {
+            maps[i] = buildProperties(random);
+            texts[i] = MessageDecoder.messageProperties2String(maps[i]).getBytes();
+            binaries[i] = MessageDecoder.messageProperties2Bytes(maps[i]);
+            textSize += texts[i].length;
+            binarySize += binaries[i].length;
+        }
+
+        System.out.printf("encoded size, text %.1f bytes, binary %.1f bytes\n", //
+            textSize / (double) count, binarySize / (double) count);
+
+        final Scenario[] scenarios = { //
+            new Scenario("text encode") {
+                @Override
+                void run(final int index) {
+                    blackhole += MessageDecoder.messageProperties2String(maps[index]).getBytes().length;
+                }
+            }, //
+            new Scenario("binary encode") {
+                @Override
+                void run(final int index) {
+                    blackhole += MessageDecoder.messageProperties2Bytes(maps[index]).length;
+                }
+            }, //
+            new Scenario("text parse") {
+                @Override
+                void run(final int index) {
+                    byte[] data = texts[index];
+                    blackhole += MessageDecoder.bytes2messageProperties(data, 0, data.length).size();
+                }
+            }, //
+            new Scenario("binary parse") {
+                @Override
+                void run(final int index) {
+                    byte[] data = binaries[index];
+                    blackhole += MessageDecoder.bytes2messageProperties(data, 0, data.length).size();
+                }
+            }, //
+            new Scenario("text lookup") {
+                @Override
+                void run(final int index) {
+                    byte[] data = texts[index];
+                    String tags = MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_TAGS);
+                    String keys = MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_KEYS);
+                    blackhole += tags.length() + keys.length();
+                }
+            }, //
+            new Scenario("binary lookup") {
+                @Override
+                void run(final int index) {
+                    byte[] data = binaries[index];
+                    String tags = MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_TAGS);
+                    String keys = MessageDecoder.getProperty(data, 0, data.length, Message.PROPERTY_KEYS);
+                    blackhole += tags.length() + keys.length();
+                }
+            } };
+
+        // Ԥȣͳ
+        for (Scenario scenario : scenarios) {
+            run(scenario, count, millis / 2, false);
+        }
+        for (Scenario scenario : scenarios) {
+            run(scenario, count, millis, true);
+        }
+
+        System.out.println("blackhole " + (blackhole & 0xFF));
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * $Id: MessageSet.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.broker.BrokerController;
+import com.alibaba.rocketmq.client.consumer.DefaultMQPullConsumer;
+import com.alibaba.rocketmq.client.consumer.PullResult;
+import com.alibaba.rocketmq.client.consumer.PullStatus;
+import com.alibaba.rocketmq.client.producer.DefaultMQProducer;
+import com.alibaba.rocketmq.client.producer.SendCallback;
+import com.alibaba.rocketmq.client.producer.SendResult;
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageQueue;
+import com.alibaba.rocketmq.store.MessageStore;
+
+
+/**
+ * ܲԣBroker͵ϢѹϢϴ洢ǰĶԱ<br>
+ * ͳÿϢռõCommitLogֽԼPullʽȫϢ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageSet {
+    private static long produce(final DefaultMQProducer producer, final byte[][] bodies, final int messageCount)
+            throws Exception {
+        // ;ϢⷢͶ
+        final Semaphore inFlight = new Semaphore(10000);
+        final AtomicLong successCount = new AtomicLong(0);
+        final CountDownLatch sendOver = new CountDownLatch(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            inFlight.acquire();
+            producer.send(new Message(Consumer.Topic, bodies[i % bodies.length]), new SendCallback() {
+                @Override
+                public void onSuccess(SendResult sendResult) {
+                    successCount.incrementAndGet();
+                    inFlight.release();
+                    sendOver.countDown();
+                }
+
+
+                @Override
+                public void onException(Throwable e) {
+                    inFlight.release();
+                    sendOver.countDown();
+                }
+            });
+        }
+
+        sendOver.await(1000 * 60 * 5, TimeUnit.MILLISECONDS);
+        return successCount.get();
+    }
+
+
+    private static long consume(final DefaultMQPullConsumer consumer, final List<MessageQueue> mqs,
+            final long[] beginOffsets, final long[] endOffsets) throws Exception {
+        long count = 0;
+        for (int i = 0; i < mqs.size(); i++) {
+            long offset = beginOffsets[i];
+            while (offset < endOffsets[i]) {
+                PullResult pullResult = consumer.pull(mqs.get(i), null, offset, 32);
+                if (pullResult.getPullStatus() != PullStatus.FOUND) {
+                    break;
+                }
+                count += pullResult.getMsgFoundList().size();
+                offset = pullResult.getNextBeginOffset();
+            }
+        }
+        return count;
+    }
+
+
+    private static void run(final BrokerController brokerController, final DefaultMQProducer producer,
+            final DefaultMQPullConsumer consumer, final List<MessageQueue> mqs, final byte[][] bodies,
+            final int messageCount, final boolean messageSetEnable) throws Exception {
+        brokerController.getMessageStoreConfig().setMessageSetCompressEnable(messageSetEnable);
+        final MessageStore store = brokerController.getMessageStore();
+
+        final long[] beginOffsets = new long[mqs.size()];
+        final long[] endOffsets = new long[mqs.size()];
+        for (int i = 0; i < mqs.size(); i++) {
+            beginOffsets[i] = store.getMaxOffsetInQuque(Consumer.Topic, mqs.get(i).getQueueId());
+        }
+
+        final long beginPhyOffset = store.getMaxPhyOffset();
+        long begin = System.currentTimeMillis();
+        final long sendCount = produce(producer, bodies, messageCount);
+        final long sendCost = System.currentTimeMillis() - begin;
+        final long storeBytes = store.getMaxPhyOffset() - beginPhyOffset;
+
+        // ȴConsumeQueueַ
+        Thread.sleep(1000);
+        for (int i = 0; i < mqs.size(); i++) {
+            endOffsets[i] = store.getMaxOffsetInQuque(Consumer.Topic, mqs.get(i).getQueueId());
+        }
+
+        begin = System.currentTimeMillis();
+        final long consumeCount = consume(consumer, mqs, beginOffsets, endOffsets);
+        final long consumeCost = System.currentTimeMillis() - begin;
+
+        System.out.printf("%s Send TPS: %d, CommitLog %d bytes, %.1f bytes/msg, Pull %d msgs, Pull TPS: %d\n", //
+            messageSetEnable ? "[message set]" : "[plain]      ", //
+            sendCount * 1000 / Math.max(1, sendCost), //
+            storeBytes, //
+            storeBytes / (double) Math.max(1, sendCount), //
+            consumeCount, //
+            consumeCount * 1000 / Math.max(1, consumeCost));
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int messageCount = args.length >= 1 ? Integer.parseInt(args[0]) : 1000 * 200;
+        final int messageSize = args.length >= 2 ? Integer.parseInt(args[1]) : 1024;
+        final int rounds = args.length >= 3 ? Integer.parseInt(args[2]) : 2;
+
+        final String storeRoot =
+                System.getProperty("java.io.tmpdir") + File.separator + "rocketmq_benchmark_"
+                        + System.currentTimeMillis();
+
+        final BrokerController brokerController = Consumer.startBroker(storeRoot);
+
+        final DefaultMQProducer producer = new DefaultMQProducer("benchmark_producer_set");
+        producer.getMQClientConfig().setNamesrvAddr(Consumer.NamesrvAddr);
+        producer.getMQClientConfig().setInstanceName("benchmark_producer_set");
+        producer.setSendMessageInBatch(true);
+        producer.start();
+
+        final DefaultMQPullConsumer consumer = new DefaultMQPullConsumer("benchmark_consumer_set");
+        consumer.getMQClientConfig().setNamesrvAddr(Consumer.NamesrvAddr);
+        consumer.getMQClientConfig().setInstanceName("benchmark_consumer_set");
+        consumer.start();
+
+        // ҵϢͨǽṹƵJSONͬһڵϢ֮ظݺܶ
+        final Random random = new Random(0);
+        final byte[][] bodies = new byte[1024][];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = Compression.buildJsonBody(random, messageSize);
+        }
+
+        // ͬһȡ·
+        producer.send(new Message(Consumer.Topic, bodies[0]));
+        final List<MessageQueue> mqs = consumer.fetchSubscribeMessageQueues(Consumer.Topic);
+
+        for (int i = 0; i < rounds; i++) {
+            run(brokerController, producer, consumer, mqs, bodies, messageCount, false);
+            run(brokerController, producer, consumer, mqs, bodies, messageCount, true);
+        }
+
+        producer.shutdown();
+        consumer.shutdown();
+        brokerController.shutdown();
+        Consumer.deleteFile(new File(storeRoot));
+        System.exit(0);
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * $Id: OrderlyConsumer.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.client.consumer.DefaultMQPushConsumer;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyContext;
+import com.alibaba.rocketmq.client.consumer.listener.ConsumeOrderlyStatus;
+import com.alibaba.rocketmq.client.consumer.listener.MessageListenerOrderly;
+import com.alibaba.rocketmq.client.impl.consumer.ConsumeMessageOrderlyService;
+import com.alibaba.rocketmq.client.impl.consumer.ProcessQueue;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.MessageQueue;
+
+
+/**
+ * ܲԣ˳ѷڴµ<br>
+ * 磬ģϢ̰߳ϢÿеProcessQueueͳTPSÿǷϸ
+ * 0ŶÿϢѶ֤вס
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class OrderlyConsumer {
+    private static final String Topic = "BenchmarkTestOrderly";
+
+
+    private static List<MessageExt> buildMessages(final MessageQueue mq, final long beginOffset, final int nums,
+            final byte[] body) {
+        List<MessageExt> msgs = new ArrayList<MessageExt>(nums);
+        for (int i = 0; i < nums; i++) {
+            MessageExt msg = new MessageExt();
+            msg.setTopic(mq.getTopic());
+            msg.setQueueId(mq.getQueueId());
+            msg.setQueueOffset(beginOffset + i);
+            msg.setBody(body);
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int queueCount = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+        final int messageCountPerQueue = args.length >= 2 ? Integer.parseInt(args[1]) : 1000;
+        final int consumeThreadCount = args.length >= 3 ? Integer.parseInt(args[2]) : 20;
+        final long slowQueueSleepMills = args.length >= 4 ? Long.parseLong(args[3]) : 10;
+        final int pullBatchSize = 32;
+        final long totalCount = (long) queueCount * messageCountPerQueue;
+
+        final DefaultMQPushConsumer consumer = new DefaultMQPushConsumer("benchmark_consumer_orderly");
+        consumer.setConsumeThreadCount(consumeThreadCount);
+
+        final ConcurrentHashMap<MessageQueue, AtomicLong> lastOffsetTable =
+                new ConcurrentHashMap<MessageQueue, AtomicLong>();
+        final AtomicLong consumeCount = new AtomicLong(0);
+        final AtomicLong fastQueueCount = new AtomicLong(0);
+        final AtomicLong disorderCount = new AtomicLong(0);
+        final CountDownLatch fastQueuesOver = new CountDownLatch(1);
+        final long fastTotalCount = (long) (queueCount - 1) * messageCountPerQueue;
+
+        final ConsumeMessageOrderlyService consumeMessageService =
+                new ConsumeMessageOrderlyService(consumer.getDefaultMQPushConsumerImpl(),
+                    new MessageListenerOrderly() {
+                        @Override
+                        public ConsumeOrderlyStatus consumeMessage(List<MessageExt> msgs,
+                                ConsumeOrderlyContext context) {
+                            AtomicLong lastOffset = lastOffsetTable.get(context.getMessageQueue());
+                            for (MessageExt msg : msgs) {
+                                if (msg.getQueueOffset() != lastOffset.get() + 1) {
+                                    disorderCount.incrementAndGet();
+                                }
+                                lastOffset.set(msg.getQueueOffset());
+                            }
+
+                            if (context.getMessageQueue().getQueueId() == 0) {
+                                try {
+                                    Thread.sleep(slowQueueSleepMills * msgs.size());
+                                }
+                                catch (InterruptedException e) {
+                                }
+                            }
+                            else if (fastQueueCount.addAndGet(msgs.size()) >= fastTotalCount) {
+                                fastQueuesOver.countDown();
+                            }
+
+                            consumeCount.addAndGet(msgs.size());
+                            return ConsumeOrderlyStatus.SUCCESS;
+                        }
+                    });
+        consumeMessageService.start();
+
+        final List<MessageQueue> mqs = new ArrayList<MessageQueue>(queueCount);
+        final List<ProcessQueue> pqs = new ArrayList<ProcessQueue>(queueCount);
+        for (int i = 0; i < queueCount; i++) {
+            MessageQueue mq = new MessageQueue(Topic, "benchmark_broker", i);
+            ProcessQueue pq = new ProcessQueue();
+            // BrokerֱΪѾס
+            pq.setLocked(true);
+            mqs.add(mq);
+            pqs.add(pq);
+            lastOffsetTable.put(mq, new AtomicLong(-1));
+        }
+
+        final Timer timer = new Timer("BenchmarkTimerThread", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            private long lastCount = 0;
+
+
+            @Override
+            public void run() {
+                long count = consumeCount.get();
+                System.out.printf("Consume TPS: %d Total: %d\n", count - this.lastCount, count);
+                this.lastCount = count;
+            }
+        }, 1000, 1000);
+
+        final byte[] body = new byte[128];
+        final long begin = System.currentTimeMillis();
+
+        // ģϢ̣߳ÿѹһͬڰ
+        long[] nextOffsets = new long[queueCount];
+        for (boolean more = true; more;) {
+            more = false;
+            for (int i = 0; i < queueCount; i++) {
+                if (nextOffsets[i] >= messageCountPerQueue) {
+                    continue;
+                }
+
+                more = true;
+                ProcessQueue pq = pqs.get(i);
+                if (pq.getMsgCount() >= pullBatchSize) {
+                    continue;
+                }
+
+                int nums = (int) Math.min(pullBatchSize, messageCountPerQueue - nextOffsets[i]);
+                List<MessageExt> msgs = buildMessages(mqs.get(i), nextOffsets[i], nums, body);
+                nextOffsets[i] += nums;
+                boolean dispatchToConsume = pq.putMessage(msgs);
+                consumeMessageService.submitConsumeRequest(msgs, pq, mqs.get(i), dispatchToConsume);
+            }
+
+            if (more) {
+                Thread.sleep(1);
+            }
+
+            // вӰн
+            if (fastQueuesOver.getCount() == 0) {
+                break;
+            }
+        }
+
+        boolean finished = fastQueuesOver.await(1000 * 60 * 10, TimeUnit.MILLISECONDS);
+        final long cost = System.currentTimeMillis() - begin;
+        timer.cancel();
+
+        System.out.printf("%s %d queues, consume %d of %d messages, cost %dms, Consume TPS: %d, Disorder: %d\n", //
+            finished ? "OK" : "TIMEOUT", //
+            queueCount, //
+            consumeCount.get(), //
+            totalCount, //
+            cost, //
+            consumeCount.get() * 1000 / Math.max(1, cost), //
+            disorderCount.get());
+        System.out.printf("Slow queue consumed %d of %d messages\n", //
+            lastOffsetTable.get(mqs.get(0)).get() + 1, //
+            messageCountPerQueue);
+
+        for (ProcessQueue pq : pqs) {
+            pq.setDropped(true);
+        }
+        consumeMessageService.shutdown();
+        System.exit(0);
+    }
+}
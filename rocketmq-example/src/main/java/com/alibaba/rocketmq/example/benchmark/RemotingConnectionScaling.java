@@ -0,0 +1,157 @@
+/**
+ * $Id: RemotingConnectionScaling.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.remoting.InvokeCallback;
+import com.alibaba.rocketmq.remoting.RemotingClient;
+import com.alibaba.rocketmq.remoting.RemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyClientConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyRequestProcessor;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.remoting.netty.ResponseFuture;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.RequestCode;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+
+
+/**
+ * ܲԣʱ߳ڴ<br>
+ * ĬϷֱ100100010000ӣע̿ɴ򿪵ļ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RemotingConnectionScaling {
+    private static final int ListenPort = 10923;
+    private static final String Addr = "127.0.0.1:" + ListenPort;
+
+
+    private static RemotingServer createRemotingServer() throws InterruptedException {
+        NettyServerConfig config = new NettyServerConfig();
+        config.setListenPort(ListenPort);
+        RemotingServer server = new NettyRemotingServer(config);
+        server.registerProcessor(RequestCode.DEMO_REQUEST_VALUE, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+                return RemotingCommand.createResponseCommand(ResponseCode.SUCCESS_VALUE, null);
+            }
+        }, Executors.newFixedThreadPool(16));
+        server.start();
+        return server;
+    }
+
+
+    private static long usedMemory() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+
+    private static void run(final int connections, final int bodySize, final int inflight, final long millis)
+            throws Exception {
+        final long memoryBegin = usedMemory();
+
+        NettyClientConfig config = new NettyClientConfig();
+        config.setClientChannelPoolSize(connections);
+        config.setClientAsyncSemaphoreValue(inflight * 2);
+        config.setConnectTimeoutMillis(1000 * 30);
+        final RemotingClient client = new NettyRemotingClient(config);
+        client.start();
+
+        // ȴӽ
+        final long connectBegin = System.currentTimeMillis();
+        client.preWarmChannels(Addr);
+        final long connectCost = System.currentTimeMillis() - connectBegin;
+        final long connectMemory = usedMemory() - memoryBegin;
+        final int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        final byte[] body = new byte[bodySize];
+        final Semaphore semaphore = new Semaphore(inflight);
+        final AtomicLong responseCount = new AtomicLong(0);
+        final AtomicLong failedCount = new AtomicLong(0);
+        final InvokeCallback callback = new InvokeCallback() {
+            @Override
+            public void operationComplete(ResponseFuture responseFuture) {
+                if (responseFuture.getResponseCommand() != null) {
+                    responseCount.incrementAndGet();
+                }
+                else {
+                    failedCount.incrementAndGet();
+                }
+                semaphore.release();
+            }
+        };
+
+        final long begin = System.nanoTime();
+        final long end = begin + millis * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            semaphore.acquire();
+            RemotingCommand request =
+                    RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+            request.setBody(body);
+            try {
+                client.invokeAsync(Addr, request, 1000 * 3, callback);
+            }
+            catch (Exception e) {
+                failedCount.incrementAndGet();
+                semaphore.release();
+            }
+        }
+
+        // ȴδɵ
+        semaphore.tryAcquire(inflight, 1000 * 5, TimeUnit.MILLISECONDS);
+        final long cost = System.nanoTime() - begin;
+
+        // ͻͬһڣ߳ռõڴ֮
+        System.out.printf("connections %6d  connect %6d ms  threads %4d  heap %8.1f KB  "
+                + "%10.1f requests/s  failed %d\n", //
+            connections, //
+            connectCost, //
+            threads, //
+            connectMemory / 1024.0, //
+            responseCount.get() * 1e9 / cost, //
+            failedCount.get());
+
+        client.shutdown();
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        int[] connections = { 100, 1000, 10000 };
+        if (args.length >= 1) {
+            String[] items = args[0].split(",");
+            connections = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                connections[i] = Integer.parseInt(items[i]);
+            }
+        }
+        final int bodySize = args.length >= 2 ? Integer.parseInt(args[1]) : 1024;
+        final int inflight = args.length >= 3 ? Integer.parseInt(args[2]) : 2048;
+        final long millis = args.length >= 4 ? Long.parseLong(args[3]) : 10000;
+
+        RemotingServer server = createRemotingServer();
+
+        // Ԥȣͳ
+        run(1, bodySize, inflight, millis / 2);
+        for (int n : connections) {
+            run(n, bodySize, inflight, millis);
+        }
+
+        server.shutdown();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * $Id: RemotingConnections.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.remoting.InvokeCallback;
+import com.alibaba.rocketmq.remoting.RemotingClient;
+import com.alibaba.rocketmq.remoting.RemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyClientConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyRequestProcessor;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.remoting.netty.ResponseFuture;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.RequestCode;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+
+
+/**
+ * ܲԣػַ첽õ<br>
+ * ֱʹ1248ӣԱÿַӵЧ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RemotingConnections {
+    private static final int ListenPort = 10922;
+    private static final String Addr = "127.0.0.1:" + ListenPort;
+
+
+    private static RemotingServer createRemotingServer() throws InterruptedException {
+        NettyServerConfig config = new NettyServerConfig();
+        config.setListenPort(ListenPort);
+        RemotingServer server = new NettyRemotingServer(config);
+        server.registerProcessor(RequestCode.DEMO_REQUEST_VALUE, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+                return RemotingCommand.createResponseCommand(ResponseCode.SUCCESS_VALUE, null);
+            }
+        }, Executors.newFixedThreadPool(16));
+        server.start();
+        return server;
+    }
+
+
+    private static void run(final int poolSize, final int bodySize, final int inflight, final long millis,
+            final boolean print) throws Exception {
+        NettyClientConfig config = new NettyClientConfig();
+        config.setClientChannelPoolSize(poolSize);
+        config.setClientAsyncSemaphoreValue(inflight * 2);
+        final RemotingClient client = new NettyRemotingClient(config);
+        client.start();
+        client.preWarmChannels(Addr);
+
+        final byte[] body = new byte[bodySize];
+        final Semaphore semaphore = new Semaphore(inflight);
+        final AtomicLong responseCount = new AtomicLong(0);
+        final AtomicLong failedCount = new AtomicLong(0);
+        final InvokeCallback callback = new InvokeCallback() {
+            @Override
+            public void operationComplete(ResponseFuture responseFuture) {
+                if (responseFuture.getResponseCommand() != null) {
+                    responseCount.incrementAndGet();
+                }
+                else {
+                    failedCount.incrementAndGet();
+                }
+                semaphore.release();
+            }
+        };
+
+        final long begin = System.nanoTime();
+        final long end = begin + millis * 1000 * 1000;
+        while (System.nanoTime() < end) {
+            semaphore.acquire();
+            RemotingCommand request =
+                    RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+            request.setBody(body);
+            try {
+                client.invokeAsync(Addr, request, 1000 * 3, callback);
+            }
+            catch (Exception e) {
+                failedCount.incrementAndGet();
+                semaphore.release();
+            }
+        }
+
+        // ȴδɵ
+        semaphore.tryAcquire(inflight, 1000 * 5, TimeUnit.MILLISECONDS);
+        final long cost = System.nanoTime() - begin;
+
+        if (print) {
+            System.out.printf("connections %d  %10.1f requests/s  failed %d\n", //
+                poolSize, //
+                responseCount.get() * 1e9 / cost, //
+                failedCount.get());
+        }
+
+        client.shutdown();
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int bodySize = args.length >= 1 ? Integer.parseInt(args[0]) : 1024;
+        final int inflight = args.length >= 2 ? Integer.parseInt(args[1]) : 2048;
+        final long millis = args.length >= 3 ? Long.parseLong(args[2]) : 10000;
+
+        RemotingServer server = createRemotingServer();
+
+        // Ԥȣͳ
+        run(1, bodySize, inflight, millis / 2, false);
+        for (int poolSize : new int[] { 1, 2, 4, 8 }) {
+            run(poolSize, bodySize, inflight, millis, true);
+        }
+
+        server.shutdown();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * $Id: RemotingFlushConsolidation.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.remoting.RemotingClient;
+import com.alibaba.rocketmq.remoting.RemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyClientConfig;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingServer;
+import com.alibaba.rocketmq.remoting.netty.NettyRequestProcessor;
+import com.alibaba.rocketmq.remoting.netty.NettyServerConfig;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.RequestCode;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
+
+
+/**
+ * ܲԣСͬõ<br>
+ * rocketmq-researchrpc.benchmark.MTClient̸ͬ߳ѭͬãԱȺϲflushر
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RemotingFlushConsolidation {
+    private static final int ListenPort = 10924;
+    private static final String Addr = "127.0.0.1:" + ListenPort;
+
+
+    private static RemotingServer createRemotingServer(final boolean flushConsolidation)
+            throws InterruptedException {
+        NettyServerConfig config = new NettyServerConfig();
+        config.setListenPort(ListenPort);
+        config.setServerFlushConsolidationEnable(flushConsolidation);
+        RemotingServer server = new NettyRemotingServer(config);
+        server.registerProcessor(RequestCode.DEMO_REQUEST_VALUE, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+                RemotingCommand response =
+                        RemotingCommand.createResponseCommand(ResponseCode.SUCCESS_VALUE, null);
+                response.setBody(request.getBody());
+                return response;
+            }
+        }, Executors.newFixedThreadPool(16));
+        server.start();
+        return server;
+    }
+
+
+    private static void run(final boolean flushConsolidation, final int messageSize, final int threadCnt,
+            final long millis, final boolean print) throws Exception {
+        RemotingServer server = createRemotingServer(flushConsolidation);
+
+        NettyClientConfig config = new NettyClientConfig();
+        config.setClientFlushConsolidationEnable(flushConsolidation);
+        final RemotingClient client = new NettyRemotingClient(config);
+        client.start();
+
+        final byte[] message = new byte[messageSize];
+        final AtomicLong callTimesOK = new AtomicLong(0);
+        final AtomicLong callTimesFailed = new AtomicLong(0);
+        final long end = System.currentTimeMillis() + millis;
+        final CountDownLatch latch = new CountDownLatch(threadCnt);
+
+        final long begin = System.nanoTime();
+        for (int i = 0; i < threadCnt; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (System.currentTimeMillis() < end) {
+                        RemotingCommand request =
+                                RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+                        request.setBody(message);
+                        try {
+                            RemotingCommand response = client.invokeSync(Addr, request, 1000 * 3);
+                            if (response != null) {
+                                callTimesOK.incrementAndGet();
+                            }
+                            else {
+                                callTimesFailed.incrementAndGet();
+                            }
+                        }
+                        catch (Exception e) {
+                            callTimesFailed.incrementAndGet();
+                        }
+                    }
+                    latch.countDown();
+                }
+            }, "callThread_" + i).start();
+        }
+
+        latch.await();
+        final long cost = System.nanoTime() - begin;
+
+        if (print) {
+            System.out.printf("flushConsolidation %-5s threads %4d  call OK QPS: %10.1f  Failed Times: %d\n",
+                flushConsolidation, //
+                threadCnt, //
+                callTimesOK.get() * 1e9 / cost, //
+                callTimesFailed.get());
+        }
+
+        client.shutdown();
+        server.shutdown();
+        // ȴ˿ͷ
+        Thread.sleep(1000);
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        final int messageSize = args.length > 0 ? Integer.valueOf(args[0]) : 128;
+        final long millis = args.length > 1 ? Long.valueOf(args[1]) : 10000;
+
+        // Ԥȣͳ
+        run(true, messageSize, 64, millis / 2, false);
+        for (int threadCnt : new int[] { 1, 16, 128 }) {
+            run(false, messageSize, threadCnt, millis, true);
+            run(true, messageSize, threadCnt, millis, true);
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * $Id: StatsCounter.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.rocketmq.common.stats.StripedCounter;
+
+
+/**
+ * ܲԣ߳̾ۼͳƼԱAtomicLongStripedCounter
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class StatsCounter {
+    interface Counter {
+        void increment();
+
+
+        long get();
+    }
+
+
+    private static long run(final String name, final int threadCount, final long loops, final Counter counter)
+            throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch end = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(name + "_" + i) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (long k = 0; k < loops; k++) {
+                        counter.increment();
+                    }
+                    end.countDown();
+                }
+            }.start();
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        end.await();
+        final long costNanos = System.nanoTime() - begin;
+
+        System.out.printf("%-16s threads: %3d total: %d ops/s: %d ns/op: %.2f\n"//
+            , name//
+            , threadCount//
+            , counter.get()//
+            , (long) (threadCount * loops / (costNanos / 1e9))//
+            , costNanos / (double) loops//
+            );
+
+        return costNanos;
+    }
+
+
+    public static void main(String[] args) throws InterruptedException {
+        final int threadCount = args.length >= 1 ? Integer.parseInt(args[0]) : 32;
+        final long loops = args.length >= 2 ? Long.parseLong(args[1]) : 1000 * 1000 * 10;
+
+        // Ԥ
+        for (int i = 0; i < 2; i++) {
+            runOnce(threadCount, loops / 10);
+        }
+
+        System.out.println("-------------------------------------------------------------------------");
+        runOnce(threadCount, loops);
+    }
+
+
+    private static void runOnce(final int threadCount, final long loops) throws InterruptedException {
+        final AtomicLong atomicLong = new AtomicLong(0);
+        long atomicCost = run("AtomicLong", threadCount, loops, new Counter() {
+            @Override
+            public void increment() {
+                atomicLong.incrementAndGet();
+            }
+
+
+            @Override
+            public long get() {
+                return atomicLong.get();
+            }
+        });
+
+        final StripedCounter stripedCounter = new StripedCounter();
+        long stripedCost = run("StripedCounter", threadCount, loops, new Counter() {
+            @Override
+            public void increment() {
+                stripedCounter.increment();
+            }
+
+
+            @Override
+            public long get() {
+                return stripedCounter.get();
+            }
+        });
+
+        System.out.printf("StripedCounter speedup: %.2fx\n", atomicCost / (double) stripedCost);
+    }
+}
@@ -53,6 +53,12 @@ public interface RemotingClient {
             RemotingTimeoutException, RemotingSendRequestException;
 
 
+    /**
+     * ԤȽַָӣȴ
+     */
+    public void preWarmChannels(final String addr);
+
+
     public void registerProcessor(final int requestCode, final NettyRequestProcessor processor,
             final Executor executor);
 
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2010-2013 Alibaba Group Holding Limited
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.rocketmq.remoting.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * intΪKey̰߳ȫMapKeyװ䣬ΪÿEntry<br>
+ * ֶμÿ̽ĿŵַɾʱƺԪأɾ<br>
+ * ValueΪnull
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConcurrentIntHashMap<V> {
+    private static final int SegmentCount = 16;
+    private final Segment[] segments;
+
+
+    public ConcurrentIntHashMap(final int initialCapacity) {
+        this.segments = new Segment[SegmentCount];
+        final int capacity = Math.max(initialCapacity / SegmentCount, 4);
+        for (int i = 0; i < SegmentCount; i++) {
+            this.segments[i] = new Segment(capacity);
+        }
+    }
+
+
+    private static int hash(final int key) {
+        // ģɢٷֶΡλ
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+
+    private Segment segmentFor(final int hash) {
+        return this.segments[(hash >>> 28) & (SegmentCount - 1)];
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(final int key) {
+        final int hash = hash(key);
+        return (V) this.segmentFor(hash).get(key, hash);
+    }
+
+
+    /**
+     * @return ԭValueûʱnull
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final int key, final V value) {
+        if (null == value) {
+            throw new NullPointerException("value is null");
+        }
+        final int hash = hash(key);
+        return (V) this.segmentFor(hash).put(key, hash, value);
+    }
+
+
+    /**
+     * @return ɾValueûʱnull
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final int key) {
+        final int hash = hash(key);
+        return (V) this.segmentFor(hash).remove(key, hash);
+    }
+
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+
+    /**
+     * ValueĿգηֱ
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<V>();
+        for (Segment segment : this.segments) {
+            segment.copyValues((List<Object>) list);
+        }
+        return list;
+    }
+
+    private static class Segment {
+        private int[] keys;
+        // nullʾλ
+        private Object[] values;
+        private int size = 0;
+
+
+        Segment(final int capacity) {
+            int n = 4;
+            while (n < capacity * 2) {
+                n <<= 1;
+            }
+            this.keys = new int[n];
+            this.values = new Object[n];
+        }
+
+
+        private int indexOf(final int key, final int hash) {
+            final int mask = this.keys.length - 1;
+            int i = hash & mask;
+            while (this.values[i] != null) {
+                if (this.keys[i] == key) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+
+        synchronized Object get(final int key, final int hash) {
+            final int i = this.indexOf(key, hash);
+            return i < 0 ? null : this.values[i];
+        }
+
+
+        synchronized Object put(final int key, final int hash, final Object value) {
+            final int mask = this.keys.length - 1;
+            int i = hash & mask;
+            while (this.values[i] != null) {
+                if (this.keys[i] == key) {
+                    Object old = this.values[i];
+                    this.values[i] = value;
+                    return old;
+                }
+                i = (i + 1) & mask;
+            }
+
+            this.keys[i] = key;
+            this.values[i] = value;
+            // װӲ1/2
+            if (++this.size * 2 > this.keys.length) {
+                this.resize();
+            }
+            return null;
+        }
+
+
+        synchronized Object remove(final int key, final int hash) {
+            int i = this.indexOf(key, hash);
+            if (i < 0) {
+                return null;
+            }
+
+            final Object old = this.values[i];
+            this.values[i] = null;
+            this.size--;
+
+            // Ѻ̽ϵԪػƵλ֤Ҳǰλ
+            final int mask = this.keys.length - 1;
+            int j = (i + 1) & mask;
+            while (this.values[j] != null) {
+                final int home = hash(this.keys[j]) & mask;
+                // home(i, j]֮䣬˵jλõԪؿƵi
+                if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+                    this.keys[i] = this.keys[j];
+                    this.values[i] = this.values[j];
+                    this.values[j] = null;
+                    i = j;
+                }
+                j = (j + 1) & mask;
+            }
+            return old;
+        }
+
+
+        synchronized int size() {
+            return this.size;
+        }
+
+
+        synchronized void copyValues(final List<Object> list) {
+            for (Object value : this.values) {
+                if (value != null) {
+                    list.add(value);
+                }
+            }
+        }
+
+
+        private void resize() {
+            final int[] oldKeys = this.keys;
+            final Object[] oldValues = this.values;
+            this.keys = new int[oldKeys.length << 1];
+            this.values = new Object[oldValues.length << 1];
+            final int mask = this.keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldValues[k] != null) {
+                    int i = hash(oldKeys[k]) & mask;
+                    while (this.values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    this.keys[i] = oldKeys[k];
+                    this.values[i] = oldValues[k];
+                }
+            }
+        }
+    }
+}
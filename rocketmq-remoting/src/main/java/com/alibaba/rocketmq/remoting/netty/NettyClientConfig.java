@@ -17,6 +17,12 @@ public class NettyClientConfig {
     private long connectTimeoutMillis = 3000;
     // channel1Ӳ ͹ر
     private long channelNotActiveInterval = 1000 * 60;
+    // ÿַδٵ
+    private int clientChannelPoolSize = 1;
+    // ϲflushһд
+    private boolean clientFlushConsolidationEnable = true;
+    // Ƴٶٴflush
+    private int clientFlushConsolidationMaxPending = 256;
 
 
     public int getClientWorkerThreads() {
@@ -79,6 +85,16 @@ public class NettyClientConfig {
     }
 
 
+    public int getClientChannelPoolSize() {
+        return clientChannelPoolSize;
+    }
+
+
+    public void setClientChannelPoolSize(int clientChannelPoolSize) {
+        this.clientChannelPoolSize = clientChannelPoolSize;
+    }
+
+
     public int getClientAsyncSemaphoreValue() {
         return clientAsyncSemaphoreValue;
     }
@@ -87,4 +103,24 @@ public class NettyClientConfig {
     public void setClientAsyncSemaphoreValue(int clientAsyncSemaphoreValue) {
         this.clientAsyncSemaphoreValue = clientAsyncSemaphoreValue;
     }
+
+
+    public boolean isClientFlushConsolidationEnable() {
+        return clientFlushConsolidationEnable;
+    }
+
+
+    public void setClientFlushConsolidationEnable(boolean clientFlushConsolidationEnable) {
+        this.clientFlushConsolidationEnable = clientFlushConsolidationEnable;
+    }
+
+
+    public int getClientFlushConsolidationMaxPending() {
+        return clientFlushConsolidationMaxPending;
+    }
+
+
+    public void setClientFlushConsolidationMaxPending(int clientFlushConsolidationMaxPending) {
+        this.clientFlushConsolidationMaxPending = clientFlushConsolidationMaxPending;
+    }
 }
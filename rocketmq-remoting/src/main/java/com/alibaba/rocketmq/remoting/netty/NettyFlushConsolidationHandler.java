@@ -0,0 +1,127 @@
+/**
+ * $Id: NettyFlushConsolidationHandler.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.remoting.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundByteHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * ϲflushСӦСϵͳô<br>
+ * ڱ֮䣬ڱHandlerĻ
+ * ȱHandler̴߳Ŷӵд󣬻ۼmaxPendingFlushesflushһд<br>
+ * ÿһʵ̰߳ȫзڱHandlerִ߳
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class NettyFlushConsolidationHandler extends ChannelOutboundByteHandlerAdapter {
+    private final int maxPendingFlushes;
+    // Ƴٵflushд֪ͨ
+    private final List<ChannelPromise> pendingPromises = new ArrayList<ChannelPromise>();
+    private boolean flushScheduled = false;
+    private ChannelHandlerContext ctx;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled = false;
+            flushPending();
+        }
+    };
+
+
+    public NettyFlushConsolidationHandler(final int maxPendingFlushes) {
+        this.maxPendingFlushes = maxPendingFlushes;
+    }
+
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+
+    @Override
+    protected void flush(ChannelHandlerContext ctx, ByteBuf in, ChannelPromise promise) throws Exception {
+        this.pendingPromises.add(promise);
+        if (this.pendingPromises.size() >= this.maxPendingFlushes) {
+            this.flushPending();
+        }
+        // ύдִ֮УЩдݻһд
+        else if (!this.flushScheduled) {
+            this.flushScheduled = true;
+            ctx.executor().execute(this.flushTask);
+        }
+    }
+
+
+    /**
+     * ѻеһд磬ɺ֪ͨбƳٵflush
+     */
+    private void flushPending() {
+        if (this.pendingPromises.isEmpty()) {
+            return;
+        }
+
+        final ChannelPromise[] promises =
+                this.pendingPromises.toArray(new ChannelPromise[this.pendingPromises.size()]);
+        this.pendingPromises.clear();
+
+        ByteBuf in = this.ctx.outboundByteBuffer();
+        this.ctx.nextOutboundByteBuffer().writeBytes(in);
+        in.discardSomeReadBytes();
+
+        if (promises.length == 1) {
+            this.ctx.flush(promises[0]);
+            return;
+        }
+
+        this.ctx.flush().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                for (ChannelPromise promise : promises) {
+                    if (future.isSuccess()) {
+                        promise.trySuccess();
+                    }
+                    else {
+                        promise.tryFailure(future.cause());
+                    }
+                }
+            }
+        });
+    }
+
+
+    /**
+     * ļдеݣ֤˳
+     */
+    @Override
+    public void sendFile(ChannelHandlerContext ctx, FileRegion region, ChannelPromise promise)
+            throws Exception {
+        this.flushPending();
+        ctx.sendFile(region, promise);
+    }
+
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        this.flushPending();
+        ctx.disconnect(promise);
+    }
+
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        this.flushPending();
+        ctx.close(promise);
+    }
+}
@@ -7,22 +7,25 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.remoting.ChannelEventListener;
 import com.alibaba.rocketmq.remoting.InvokeCallback;
+import com.alibaba.rocketmq.remoting.common.ConcurrentIntHashMap;
 import com.alibaba.rocketmq.remoting.common.Pair;
 import com.alibaba.rocketmq.remoting.common.RemotingHelper;
 import com.alibaba.rocketmq.remoting.common.SemaphoreReleaseOnlyOnce;
@@ -47,9 +50,12 @@ public abstract class NettyRemotingAbstract {
     // ź첽ʹãֹNetty
     protected final Semaphore semaphoreAsync;
 
-    // ж
-    protected final ConcurrentHashMap<Integer /* opaque */, ResponseFuture> responseTable =
-            new ConcurrentHashMap<Integer, ResponseFuture>(256);
+    // жKeyopaque
+    protected final ConcurrentIntHashMap<ResponseFuture> responseTable =
+            new ConcurrentIntHashMap<ResponseFuture>(256);
+
+    // 첽óʱʱ10룬һȦԼ10
+    protected final HashedWheelTimer responseTimer;
 
     // Ĭ봦
     protected Pair<NettyRequestProcessor, Executor> defaultRequestProcessor;
@@ -129,6 +135,17 @@ public abstract class NettyRemotingAbstract {
     public NettyRemotingAbstract(final int permitsOneway, final int permitsAsync) {
         this.semaphoreOneway = new Semaphore(permitsOneway, true);
         this.semaphoreAsync = new Semaphore(permitsAsync, true);
+        this.responseTimer = new HashedWheelTimer(new ThreadFactory() {
+            private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NettyResponseTimer_" + this.threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, 10, TimeUnit.MILLISECONDS, 1024);
     }
 
 
@@ -189,29 +206,16 @@ public abstract class NettyRemotingAbstract {
                 }
             };
 
-            boolean executed = false;
-            for (int retry = 0; retry < 3 && !executed; retry++) {
-                try {
-                    pair.getObject2().execute(run);
-                    executed = true;
-                    break;
-                }
-                catch (RejectedExecutionException e) {
-                    plog.warn(RemotingHelper.parseChannelRemoteAddr(ctx.channel())
-                            + ", system thread pool busy, RejectedExecutionException "
-                            + pair.getObject2().toString());
-                    if (!cmd.isOnewayRPC()) {
-                        try {
-                            Thread.sleep(2);
-                        }
-                        catch (InterruptedException e1) {
-                            plog.error("", e1);
-                        }
-                    }
-                }
+            // װRequestTask¼ʱ䣬̳߳ŶӹʱԿʧ
+            final RequestTask requestTask = new RequestTask(run, ctx, cmd);
+            try {
+                pair.getObject2().execute(requestTask);
             }
-
-            if (!executed) {
+            catch (RejectedExecutionException e) {
+                // ̳߳н磬ܾĹرIO̱߳ӹԣֱӦϵͳæ
+                plog.warn(RemotingHelper.parseChannelRemoteAddr(ctx.channel())
+                        + ", system thread pool busy, RejectedExecutionException "
+                        + pair.getObject2().toString());
                 if (!cmd.isOnewayRPC()) {
                     final RemotingCommand response =
                             RemotingCommand.createResponseCommand(ResponseCode.SYSTEM_BUSY_VALUE,
@@ -232,48 +236,58 @@ public abstract class NettyRemotingAbstract {
     }
 
 
+    /**
+     * ڻصִ̳߳첽õĻص̳߳زʱڵǰִ߳
+     */
+    private void executeInvokeCallback(final ResponseFuture responseFuture) {
+        boolean runInThisThread = false;
+        Executor executor = this.getCallbackExecutor();
+        if (executor != null) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            responseFuture.getInvokeCallback().operationComplete(responseFuture);
+                        }
+                        catch (Throwable e) {
+                            plog.warn("excute callback in executor exception, and callback throw", e);
+                        }
+                    }
+                });
+            }
+            catch (Exception e) {
+                runInThisThread = true;
+                plog.warn("excute callback in executor exception, maybe executor busy", e);
+            }
+        }
+        else {
+            runInThisThread = true;
+        }
+
+        if (runInThisThread) {
+            try {
+                responseFuture.getInvokeCallback().operationComplete(responseFuture);
+            }
+            catch (Throwable e) {
+                plog.warn("", e);
+            }
+        }
+    }
+
+
     public void processResponseCommand(ChannelHandlerContext ctx, RemotingCommand cmd) {
-        final ResponseFuture responseFuture = responseTable.get(cmd.getOpaque());
+        // ȴӱɾ볬ʱֻһõصִֻһ
+        final ResponseFuture responseFuture = responseTable.remove(cmd.getOpaque());
         if (responseFuture != null) {
+            responseFuture.cancelTimeout();
             responseFuture.setResponseCommand(cmd);
 
             responseFuture.release();
 
             // 첽
             if (responseFuture.getInvokeCallback() != null) {
-                boolean runInThisThread = false;
-                Executor executor = this.getCallbackExecutor();
-                if (executor != null) {
-                    try {
-                        executor.execute(new Runnable() {
-                            @Override
-                            public void run() {
-                                try {
-                                    responseFuture.getInvokeCallback().operationComplete(responseFuture);
-                                }
-                                catch (Throwable e) {
-                                    plog.warn("excute callback in executor exception, and callback throw", e);
-                                }
-                            }
-                        });
-                    }
-                    catch (Exception e) {
-                        runInThisThread = true;
-                        plog.warn("excute callback in executor exception, maybe executor busy", e);
-                    }
-                }
-                else {
-                    runInThisThread = true;
-                }
-
-                if (runInThisThread) {
-                    try {
-                        responseFuture.getInvokeCallback().operationComplete(responseFuture);
-                    }
-                    catch (Throwable e) {
-                        plog.warn("", e);
-                    }
-                }
+                this.executeInvokeCallback(responseFuture);
             }
             // ͬ
             else {
@@ -285,8 +299,6 @@ public abstract class NettyRemotingAbstract {
                     + RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
             plog.warn(cmd.toString());
         }
-
-        responseTable.remove(cmd.getOpaque());
     }
 
 
@@ -310,30 +322,24 @@ public abstract class NettyRemotingAbstract {
     abstract public Executor getCallbackExecutor();
 
 
-    public void scanResponseTable() {
-        List<Integer> todoList = new LinkedList<Integer>();
-
-        for (ResponseFuture rep : this.responseTable.values()) {
-            if ((rep.getBeginTimestamp() + rep.getTimeoutMillis() + 1000) <= System.currentTimeMillis()) {
-                todoList.add(rep.getOpaque());
-                if (rep.getInvokeCallback() != null) {
-                    try {
-                        rep.getInvokeCallback().operationComplete(rep);
-                    }
-                    catch (Throwable e) {
-                        plog.error("scanResponseTable, operationComplete exception", e);
-                    }
-                }
-            }
+    /**
+     * 첽óʱڶʱִ߳Уصص̳߳
+     */
+    private void processResponseTimeout(final ResponseFuture responseFuture) {
+        // յӦ߷ʧʱѾû
+        if (this.responseTable.remove(responseFuture.getOpaque()) != null) {
+            responseFuture.release();
+            plog.warn("remove timeout request, " + responseFuture);
+            this.executeInvokeCallback(responseFuture);
         }
+    }
 
-        for (Integer opaque : todoList) {
-            ResponseFuture responseFuture = this.responseTable.remove(opaque);
-            if (responseFuture != null) {
-                responseFuture.release();
-                plog.warn("remove timeout request, " + responseFuture);
-            }
-        }
+
+    /**
+     * ֹͣʱʱѵǼǵĳʱٴ
+     */
+    protected void stopResponseTimer() {
+        this.responseTimer.stop();
     }
 
 
@@ -396,6 +402,13 @@ public abstract class NettyRemotingAbstract {
                     new ResponseFuture(request.getOpaque(), timeoutMillis, invokeCallback, once);
             this.responseTable.put(request.getOpaque(), responseFuture);
             try {
+                responseFuture.setTimeout(this.responseTimer.newTimeout(new TimerTask() {
+                    @Override
+                    public void run(Timeout timeout) throws Exception {
+                        processResponseTimeout(responseFuture);
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS));
+
                 channel.write(request).addListener(new ChannelFutureListener() {
                     @Override
                     public void operationComplete(ChannelFuture f) throws Exception {
@@ -409,15 +422,21 @@ public abstract class NettyRemotingAbstract {
 
                         once.release();
 
-                        responseTable.remove(request.getOpaque());
-                        responseFuture.putResponse(null);
                         plog.warn("send a request command to channel <" + channel.remoteAddress() + "> failed.");
                         plog.warn(request.toString());
+                        // 볬ʱֻһܴӱɾصִֻһ
+                        if (responseTable.remove(request.getOpaque()) != null) {
+                            responseFuture.cancelTimeout();
+                            responseFuture.putResponse(null);
+                            executeInvokeCallback(responseFuture);
+                        }
                     }
                 });
             }
             catch (Exception e) {
                 once.release();
+                this.responseTable.remove(request.getOpaque());
+                responseFuture.cancelTimeout();
                 plog.warn("write send a request command to channel <" + channel.remoteAddress() + "> failed.");
                 throw new RemotingSendRequestException(RemotingHelper.parseChannelRemoteAddr(channel), e);
             }
@@ -30,8 +30,10 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -62,10 +64,12 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     private final NettyClientConfig nettyClientConfig;
     private final Bootstrap bootstrap = new Bootstrap();
     private final EventLoopGroup eventLoopGroup;
+    // ӹãӦ
+    private DefaultEventExecutorGroup defaultEventExecutorGroup;
 
-    private final Lock lockChannelTables = new ReentrantLock();
-    private final ConcurrentHashMap<String /* addr */, ChannelWrapper> channelTables =
-            new ConcurrentHashMap<String, ChannelWrapper>();
+    // ÿַһӳأԼ
+    private final ConcurrentHashMap<String /* addr */, ChannelPool> channelTables =
+            new ConcurrentHashMap<String, ChannelPool>();
 
     // ʱ
     private final Timer timer = new Timer("ClientHouseKeepingService", true);
@@ -82,12 +86,27 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     private final ChannelEventListener channelEventListener;
 
     class ChannelWrapper {
-        private final Channel channel;
+        private final ChannelFuture channelFuture;
+        // ѷδյӦֵѡе
+        private final AtomicInteger pendingRequests = new AtomicInteger(0);
         private volatile long lastActiveTimestamp = System.currentTimeMillis();
 
 
-        public ChannelWrapper(Channel channel) {
-            this.channel = channel;
+        public ChannelWrapper(ChannelFuture channelFuture) {
+            this.channelFuture = channelFuture;
+        }
+
+
+        public boolean isOK() {
+            return this.channelFuture.channel() != null && this.channelFuture.channel().isActive();
+        }
+
+
+        /**
+         * ʧܻѾϿ
+         */
+        public boolean isBroken() {
+            return this.channelFuture.isDone() && !this.isOK();
         }
 
 
@@ -102,7 +121,160 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
 
 
         public Channel getChannel() {
-            return channel;
+            return this.channelFuture.channel();
+        }
+
+
+        public ChannelFuture getChannelFuture() {
+            return channelFuture;
+        }
+
+
+        public int getPendingRequests() {
+            return this.pendingRequests.get();
+        }
+
+
+        public void incrementPendingRequests() {
+            this.pendingRequests.incrementAndGet();
+        }
+
+
+        /**
+         * ÿʱֻһΣ
+         */
+        public void decrementPendingRequests() {
+            for (;;) {
+                int current = this.pendingRequests.get();
+                if (current <= 0 || this.pendingRequests.compareAndSet(current, current - 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 첽ʱӵδյӦ𡢳ʱʧܶصֻһ
+     */
+    class PendingRequestCallback implements InvokeCallback {
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private final ChannelWrapper channelWrapper;
+        private final InvokeCallback invokeCallback;
+
+
+        public PendingRequestCallback(ChannelWrapper channelWrapper, InvokeCallback invokeCallback) {
+            this.channelWrapper = channelWrapper;
+            this.invokeCallback = invokeCallback;
+        }
+
+
+        public void release() {
+            if (this.released.compareAndSet(false, true)) {
+                this.channelWrapper.decrementPendingRequests();
+            }
+        }
+
+
+        @Override
+        public void operationComplete(ResponseFuture responseFuture) {
+            this.release();
+            if (this.invokeCallback != null) {
+                this.invokeCallback.operationComplete(responseFuture);
+            }
+        }
+    }
+
+    /**
+     * һַĶӣÿλ÷һӣʱбַ
+     */
+    class ChannelPool {
+        // ÿѡʱȽϵĿӺܶʱӳ
+        private static final int SelectCandidates = 4;
+        private final Lock lock = new ReentrantLock();
+        private final AtomicReferenceArray<ChannelWrapper> channels;
+        private final AtomicInteger index = new AtomicInteger(0);
+        // ѡʱ˿λʧЧ
+        private volatile boolean holeFound = false;
+
+
+        public ChannelPool(final int size) {
+            this.channels = new AtomicReferenceArray<ChannelWrapper>(Math.max(1, size));
+        }
+
+
+        /**
+         * ѡλÿʼSelectCandidatesѡδٵ
+         */
+        public ChannelWrapper select() {
+            final int size = this.channels.length();
+            final int start = Math.abs(this.index.getAndIncrement() % size);
+            ChannelWrapper selected = null;
+            int candidates = 0;
+            for (int i = 0; i < size && candidates < SelectCandidates; i++) {
+                ChannelWrapper cw = this.channels.get((start + i) % size);
+                if (cw != null && cw.isOK()) {
+                    candidates++;
+                    if (null == selected || cw.getPendingRequests() < selected.getPendingRequests()) {
+                        selected = cw;
+                    }
+                }
+                else if (null == cw || cw.isBroken()) {
+                    this.holeFound = true;
+                }
+            }
+            return selected;
+        }
+
+
+        /**
+         * ϴεѡʱǷ˿λʧЧ
+         */
+        public boolean checkAndResetHoleFound() {
+            if (this.holeFound) {
+                this.holeFound = false;
+                return true;
+            }
+            return false;
+        }
+
+
+        /**
+         * ǷλûӣѾʧЧ
+         */
+        public boolean isNotFull() {
+            for (int i = 0; i < this.channels.length(); i++) {
+                ChannelWrapper cw = this.channels.get(i);
+                if (null == cw || cw.isBroken()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        /**
+         * ӳƳ
+         *
+         * @return Ƿӳ
+         */
+        public boolean remove(final Channel channel) {
+            for (int i = 0; i < this.channels.length(); i++) {
+                ChannelWrapper cw = this.channels.get(i);
+                if (cw != null && cw.getChannel() == channel) {
+                    return this.channels.compareAndSet(i, cw, null);
+                }
+            }
+            return false;
+        }
+
+
+        public Lock getLock() {
+            return lock;
+        }
+
+
+        public AtomicReferenceArray<ChannelWrapper> getChannels() {
+            return channels;
         }
     }
 
@@ -221,62 +393,52 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     }
 
 
-    private void scanNotActiveChannel() throws InterruptedException {
-        // ɨ
-        if (this.lockChannelTables.tryLock(LockTimeoutMillis, TimeUnit.MILLISECONDS)) {
-            try {
-                for (String addr : this.channelTables.keySet()) {
-                    ChannelWrapper cw = this.channelTables.get(addr);
-                    if (cw != null) {
-                        long diff = System.currentTimeMillis() - cw.getLastActiveTimestamp();
-                        if (diff > this.nettyClientConfig.getChannelNotActiveInterval()) {
-                            log.warn("the channel[{}] not active for a while[{}ms], close it forcibly", addr, diff);
-                            this.closeChannel(addr, cw.getChannel());
-                        }
+    private void scanNotActiveChannel() {
+        for (String addr : this.channelTables.keySet()) {
+            ChannelPool pool = this.channelTables.get(addr);
+            if (null == pool) {
+                continue;
+            }
+
+            for (int i = 0; i < pool.getChannels().length(); i++) {
+                ChannelWrapper cw = pool.getChannels().get(i);
+                if (cw != null) {
+                    long diff = System.currentTimeMillis() - cw.getLastActiveTimestamp();
+                    if (diff > this.nettyClientConfig.getChannelNotActiveInterval()) {
+                        log.warn("the channel[{}] not active for a while[{}ms], close it forcibly", addr,
+                            diff);
+                        this.closeChannel(addr, cw.getChannel());
                     }
                 }
             }
-            catch (Exception e) {
-                log.error("scanNotActiveChannel: close channel exception", e);
-            }
-            finally {
-                this.lockChannelTables.unlock();
-            }
-        }
-        else {
-            log.warn("scanNotActiveChannel: try to lock channel table, but timeout, {}ms", LockTimeoutMillis);
         }
     }
 
 
     @Override
     public void start() {
+        this.defaultEventExecutorGroup =
+                new DefaultEventExecutorGroup(nettyClientConfig.getClientWorkerThreads());
+
         this.bootstrap.group(this.eventLoopGroup).channel(NioSocketChannel.class)
-            .option(ChannelOption.TCP_NODELAY, true).handler(new ChannelInitializer<SocketChannel>() {
+            .option(ChannelOption.TCP_NODELAY, true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) nettyClientConfig.getConnectTimeoutMillis())
+            .handler(new ChannelInitializer<SocketChannel>() {
                 @Override
                 public void initChannel(SocketChannel ch) throws Exception {
+                    // ϲflush
+                    if (nettyClientConfig.isClientFlushConsolidationEnable()) {
+                        ch.pipeline().addLast(defaultEventExecutorGroup, new NettyFlushConsolidationHandler(
+                            nettyClientConfig.getClientFlushConsolidationMaxPending()));
+                    }
                     ch.pipeline().addLast(//
-                        new DefaultEventExecutorGroup(nettyClientConfig.getClientWorkerThreads()), //
+                        defaultEventExecutorGroup, //
                         new NettyEncoder(), //
                         new NettyDecoder(), //
                         new NettyConnetManageHandler(), new NettyClientHandler());
                 }
             });
 
-        // ÿ1ɨ첽óʱ
-        this.timer.scheduleAtFixedRate(new TimerTask() {
-
-            @Override
-            public void run() {
-                try {
-                    NettyRemotingClient.this.scanResponseTable();
-                }
-                catch (Exception e) {
-                    log.error("scanResponseTable exception", e);
-                }
-            }
-        }, 1000 * 3, 1000);
-
         // ÿ10ɨ²
         this.timer.scheduleAtFixedRate(new TimerTask() {
 
@@ -302,14 +464,25 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         try {
             this.timer.cancel();
 
-            for (ChannelWrapper cw : this.channelTables.values()) {
-                this.closeChannel(null, cw.getChannel());
+            this.stopResponseTimer();
+
+            for (ChannelPool pool : this.channelTables.values()) {
+                for (int i = 0; i < pool.getChannels().length(); i++) {
+                    ChannelWrapper cw = pool.getChannels().get(i);
+                    if (cw != null) {
+                        this.closeChannel(null, cw.getChannel());
+                    }
+                }
             }
 
             this.channelTables.clear();
 
             this.eventLoopGroup.shutdownGracefully();
 
+            if (this.defaultEventExecutorGroup != null) {
+                this.defaultEventExecutorGroup.shutdownGracefully();
+            }
+
             if (this.nettyEventExecuter != null) {
                 this.nettyEventExecuter.shutdown();
             }
@@ -329,27 +502,36 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     }
 
 
-    private Channel getAndCreateChannel(final String addr) throws InterruptedException {
+    private ChannelWrapper getAndCreateChannel(final String addr) throws InterruptedException {
         if (null == addr)
             return getAndCreateNameserverChannel();
 
-        ChannelWrapper cw = this.channelTables.get(addr);
-        if (cw != null) {
-            cw.setLastActiveTimestamp(System.currentTimeMillis());
-            return cw.getChannel();
+        ChannelPool pool = this.channelTables.get(addr);
+        if (pool != null) {
+            ChannelWrapper cw = pool.select();
+            if (cw != null) {
+                // ӶϿ̨룬ǰ
+                if (pool.checkAndResetHoleFound()) {
+                    this.fillChannelPool(addr, pool, false);
+                }
+
+                cw.setLastActiveTimestamp(System.currentTimeMillis());
+                return cw;
+            }
         }
 
-        return this.createChannel(addr);
+        return this.createChannel(addr, this.nettyClientConfig.getClientChannelPoolSize());
     }
 
 
-    private Channel getAndCreateNameserverChannel() throws InterruptedException {
+    private ChannelWrapper getAndCreateNameserverChannel() throws InterruptedException {
         String addr = this.namesrvAddrChoosed.get();
         if (addr != null) {
-            ChannelWrapper cw = this.channelTables.get(addr);
+            ChannelPool pool = this.channelTables.get(addr);
+            ChannelWrapper cw = null == pool ? null : pool.select();
             if (cw != null) {
                 cw.setLastActiveTimestamp(System.currentTimeMillis());
-                return cw.getChannel();
+                return cw;
             }
         }
 
@@ -359,10 +541,11 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
             try {
                 addr = this.namesrvAddrChoosed.get();
                 if (addr != null) {
-                    ChannelWrapper cw = this.channelTables.get(addr);
+                    ChannelPool pool = this.channelTables.get(addr);
+                    ChannelWrapper cw = null == pool ? null : pool.select();
                     if (cw != null) {
                         cw.setLastActiveTimestamp(System.currentTimeMillis());
-                        return cw.getChannel();
+                        return cw;
                     }
                 }
 
@@ -374,9 +557,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                         String newAddr = addrList.get(index);
 
                         this.namesrvAddrChoosed.set(newAddr);
-                        Channel channelNew = this.createChannel(newAddr);
-                        if (channelNew != null)
-                            return channelNew;
+                        // Name ServerСֻһ
+                        ChannelWrapper cwNew = this.createChannel(newAddr, 1);
+                        if (cwNew != null)
+                            return cwNew;
                     }
                 }
             }
@@ -396,52 +580,134 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     }
 
 
-    private Channel createChannel(final String addr) throws InterruptedException {
-        // Դ
-        if (this.lockChannelTables.tryLock(LockTimeoutMillis, TimeUnit.MILLISECONDS)) {
-            try {
-                ChannelWrapper cw = this.channelTables.get(addr);
-                if (cw != null) {
-                    cw.setLastActiveTimestamp(System.currentTimeMillis());
-                    return cw.getChannel();
-                }
+    private ChannelPool getAndCreateChannelPool(final String addr, final int poolSize) {
+        ChannelPool pool = this.channelTables.get(addr);
+        if (null == pool) {
+            pool = new ChannelPool(poolSize);
+            ChannelPool prev = this.channelTables.putIfAbsent(addr, pool);
+            if (prev != null) {
+                pool = prev;
+            }
+        }
+        return pool;
+    }
 
-                ChannelFuture channelFuture = this.bootstrap.connect(RemotingHelper.string2SocketAddress(addr));
-                Channel channel = null;
-                if (channelFuture.awaitUninterruptibly(this.nettyClientConfig.getConnectTimeoutMillis())) {
-                    channel = channelFuture.channel();
-                    if (!channel.isActive()) {
-                        log.warn("connect {} in {}ms ok, but channel not active", addr,
-                            this.nettyClientConfig.getConnectTimeoutMillis());
-                        channel.close().sync();
-                        return null;
-                    }
+
+    /**
+     * ӳплʧЧλ÷ӣȴ
+     *
+     * @param waitLock
+     *            Ƿȴַȴʱ߳ڴֱӷ
+     */
+    private void fillChannelPool(final String addr, final ChannelPool pool, final boolean waitLock)
+            throws InterruptedException {
+        final boolean locked =
+                waitLock ? pool.getLock().tryLock(LockTimeoutMillis, TimeUnit.MILLISECONDS) : pool.getLock()
+                    .tryLock();
+        if (!locked) {
+            if (waitLock) {
+                log.warn("fillChannelPool: try to lock channel pool[{}], but timeout, {}ms", addr,
+                    LockTimeoutMillis);
+            }
+            return;
+        }
+
+        try {
+            final AtomicReferenceArray<ChannelWrapper> channels = pool.getChannels();
+            for (int i = 0; i < channels.length(); i++) {
+                final ChannelWrapper prev = channels.get(i);
+                if (prev != null && !prev.isBroken()) {
+                    continue;
                 }
-                else {
-                    log.error("connect {} in {}ms timeout", addr, this.nettyClientConfig.getConnectTimeoutMillis());
-                    channelFuture.channel().close().sync();
-                    return null;
+
+                if (prev != null) {
+                    this.closeChannel(addr, prev.getChannel());
                 }
 
-                log.info("connect {} success, and add to the channel table", addr);
-                this.channelTables.put(addr, new ChannelWrapper(channel));
-                return channel;
+                final int slot = i;
+                final ChannelFuture channelFuture =
+                        this.bootstrap.connect(RemotingHelper.string2SocketAddress(addr));
+                final ChannelWrapper cw = new ChannelWrapper(channelFuture);
+                channels.set(slot, cw);
+                channelFuture.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (future.isSuccess()) {
+                            log.info("connect {} success, and add to the channel pool[{}]", addr, slot);
+                        }
+                        else {
+                            log.warn("connect " + addr + " failed, remove it from the channel pool[" + slot
+                                    + "]", future.cause());
+                            channels.compareAndSet(slot, cw, null);
+                            future.channel().close();
+                        }
+                    }
+                });
             }
-            catch (Exception e) {
-                log.error("createChannel: create channel exception", e);
+        }
+        catch (Exception e) {
+            log.error("fillChannelPool: create channel exception", e);
+        }
+        finally {
+            pool.getLock().unlock();
+        }
+    }
+
+
+    /**
+     * ͬʱӳеӣȵһӿʱ
+     */
+    private ChannelWrapper createChannel(final String addr, final int poolSize) throws InterruptedException {
+        final ChannelPool pool = this.getAndCreateChannelPool(addr, poolSize);
+        ChannelWrapper cw = pool.select();
+        if (cw != null) {
+            cw.setLastActiveTimestamp(System.currentTimeMillis());
+            return cw;
+        }
+
+        this.fillChannelPool(addr, pool, true);
+
+        final long deadline = System.currentTimeMillis() + this.nettyClientConfig.getConnectTimeoutMillis();
+        for (int i = 0; i < pool.getChannels().length(); i++) {
+            cw = pool.getChannels().get(i);
+            if (null == cw) {
+                continue;
             }
-            finally {
-                this.lockChannelTables.unlock();
+
+            final long timeout = deadline - System.currentTimeMillis();
+            if (timeout > 0) {
+                cw.getChannelFuture().awaitUninterruptibly(timeout);
+            }
+
+            if (cw.isOK()) {
+                cw.setLastActiveTimestamp(System.currentTimeMillis());
+                return cw;
             }
-        }
-        else {
-            log.warn("createChannel: try to lock channel table, but timeout, {}ms", LockTimeoutMillis);
         }
 
+        log.error("connect {} in {}ms failed", addr, this.nettyClientConfig.getConnectTimeoutMillis());
         return null;
     }
 
 
+    /**
+     * ԤȽַָӳأȴ
+     */
+    @Override
+    public void preWarmChannels(final String addr) {
+        try {
+            ChannelPool pool =
+                    this.getAndCreateChannelPool(addr, this.nettyClientConfig.getClientChannelPoolSize());
+            if (pool.isNotFull()) {
+                this.fillChannelPool(addr, pool, false);
+            }
+        }
+        catch (InterruptedException e) {
+            log.error("preWarmChannels exception", e);
+        }
+    }
+
+
     public void closeChannel(final String addr, final Channel channel) {
         if (null == channel)
             return;
@@ -449,51 +715,28 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         final String addrRemote = null == addr ? RemotingHelper.parseChannelRemoteAddr(channel) : addr;
 
         try {
-            if (this.lockChannelTables.tryLock(LockTimeoutMillis, TimeUnit.MILLISECONDS)) {
-                try {
-                    boolean removeItemFromTable = true;
-                    final ChannelWrapper prevCW = this.channelTables.get(addrRemote);
-
-                    log.info("closeChannel: begin close the channel[{}] Found: {}", addrRemote, (prevCW != null));
-
-                    if (null == prevCW) {
-                        log.info("closeChannel: the channel[{}] has been removed from the channel table before",
-                            addrRemote);
-                        removeItemFromTable = false;
-                    }
-                    else if (prevCW.getChannel() != channel) {
-                        log.info(
-                            "closeChannel: the channel[{}] has been closed before, and has been created again, nothing to do.",
-                            addrRemote);
-                        removeItemFromTable = false;
-                    }
+            final ChannelPool pool = this.channelTables.get(addrRemote);
 
-                    if (removeItemFromTable) {
-                        this.channelTables.remove(addrRemote);
-                        log.info("closeChannel: the channel[{}] was removed from channel table", addrRemote);
-                    }
+            log.info("closeChannel: begin close the channel[{}] Found: {}", addrRemote, (pool != null));
 
-                    channel.close().addListener(new ChannelFutureListener() {
-                        @Override
-                        public void operationComplete(ChannelFuture future) throws Exception {
-                            log.info("closeChannel: close the connection to remote address[{}] result: {}",
-                                addrRemote, future.isSuccess());
-                        }
-                    });
-                }
-                catch (Exception e) {
-                    log.error("closeChannel: close the channel exception", e);
-                }
-                finally {
-                    this.lockChannelTables.unlock();
-                }
+            if (pool != null && pool.remove(channel)) {
+                log.info("closeChannel: the channel[{}] was removed from channel pool", addrRemote);
             }
             else {
-                log.warn("closeChannel: try to lock channel table, but timeout, {}ms", LockTimeoutMillis);
+                log.info("closeChannel: the channel[{}] has been removed from the channel pool before",
+                    addrRemote);
             }
+
+            channel.close().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    log.info("closeChannel: close the connection to remote address[{}] result: {}",
+                        addrRemote, future.isSuccess());
+                }
+            });
         }
-        catch (InterruptedException e) {
-            log.error("closeChannel exception", e);
+        catch (Exception e) {
+            log.error("closeChannel: close the channel exception", e);
         }
     }
 
@@ -502,47 +745,21 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         if (null == channel)
             return;
 
-        try {
-            if (this.lockChannelTables.tryLock(LockTimeoutMillis, TimeUnit.MILLISECONDS)) {
-                try {
-                    boolean removeItemFromTable = true;
-                    ChannelWrapper prevCW = null;
-                    String addrRemote = null;
-                    for (String key : channelTables.keySet()) {
-                        ChannelWrapper prev = this.channelTables.get(key);
-                        if (prev.channel.equals(channel)) {
-                            prevCW = prev;
-                            addrRemote = key;
-                            break;
-                        }
-                    }
-
-                    if (null == prevCW) {
-                        log.info(
-                            "eventCloseChannel: the channel[{}] has been removed from the channel table before",
-                            addrRemote);
-                        removeItemFromTable = false;
-                    }
-
-                    if (removeItemFromTable) {
-                        this.channelTables.remove(addrRemote);
-                        log.info("closeChannel: the channel[{}] was removed from channel table", addrRemote);
-                        // channel.close().sync();
-                    }
-                }
-                catch (Exception e) {
-                    log.error("closeChannel: close the channel exception", e);
-                }
-                finally {
-                    this.lockChannelTables.unlock();
-                }
-            }
-            else {
-                log.warn("closeChannel: try to lock channel table, but timeout, {}ms", LockTimeoutMillis);
+        String addrRemote = null;
+        for (String key : this.channelTables.keySet()) {
+            ChannelPool pool = this.channelTables.get(key);
+            if (pool != null && pool.remove(channel)) {
+                addrRemote = key;
+                break;
             }
         }
-        catch (InterruptedException e) {
-            log.error("closeChannel exception", e);
+
+        if (null == addrRemote) {
+            log.info("eventCloseChannel: the channel[{}] has been removed from the channel table before",
+                RemotingHelper.parseChannelRemoteAddr(channel));
+        }
+        else {
+            log.info("closeChannel: the channel[{}] was removed from channel table", addrRemote);
         }
     }
 
@@ -564,8 +781,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     public RemotingCommand invokeSync(String addr, final RemotingCommand request, long timeoutMillis)
             throws InterruptedException, RemotingConnectException, RemotingSendRequestException,
             RemotingTimeoutException {
-        final Channel channel = this.getAndCreateChannel(addr);
+        final ChannelWrapper cw = this.getAndCreateChannel(addr);
+        final Channel channel = null == cw ? null : cw.getChannel();
         if (channel != null && channel.isActive()) {
+            cw.incrementPendingRequests();
             try {
                 return this.invokeSyncImpl(channel, request, timeoutMillis);
             }
@@ -579,6 +798,10 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
                 this.closeChannel(addr, channel);
                 throw e;
             }
+            // ͬ÷ʱѾյӦ𡢳ʱǷʧ
+            finally {
+                cw.decrementPendingRequests();
+            }
         }
         else {
             this.closeChannel(addr, channel);
@@ -591,16 +814,33 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     public void invokeAsync(String addr, RemotingCommand request, long timeoutMillis, InvokeCallback invokeCallback)
             throws InterruptedException, RemotingConnectException, RemotingTooMuchRequestException,
             RemotingTimeoutException, RemotingSendRequestException {
-        final Channel channel = this.getAndCreateChannel(addr);
+        final ChannelWrapper cw = this.getAndCreateChannel(addr);
+        final Channel channel = null == cw ? null : cw.getChannel();
         if (channel != null && channel.isActive()) {
+            cw.incrementPendingRequests();
+            final PendingRequestCallback callback = new PendingRequestCallback(cw, invokeCallback);
             try {
-                this.invokeAsyncImpl(channel, request, timeoutMillis, invokeCallback);
+                this.invokeAsyncImpl(channel, request, timeoutMillis, callback);
+            }
+            // ûзٻص
+            catch (RemotingTooMuchRequestException e) {
+                callback.release();
+                throw e;
+            }
+            catch (RemotingTimeoutException e) {
+                callback.release();
+                throw e;
             }
             catch (RemotingSendRequestException e) {
+                callback.release();
                 log.warn("invokeAsync: send request exception, so close the channel[{}]", addr);
                 this.closeChannel(addr, channel);
                 throw e;
             }
+            catch (InterruptedException e) {
+                callback.release();
+                throw e;
+            }
         }
         else {
             this.closeChannel(addr, channel);
@@ -613,7 +853,8 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
     public void invokeOneway(String addr, RemotingCommand request, long timeoutMillis)
             throws InterruptedException, RemotingConnectException, RemotingTooMuchRequestException,
             RemotingTimeoutException, RemotingSendRequestException {
-        final Channel channel = this.getAndCreateChannel(addr);
+        final ChannelWrapper cw = this.getAndCreateChannel(addr);
+        final Channel channel = null == cw ? null : cw.getChannel();
         if (channel != null && channel.isActive()) {
             try {
                 this.invokeOnewayImpl(channel, request, timeoutMillis);
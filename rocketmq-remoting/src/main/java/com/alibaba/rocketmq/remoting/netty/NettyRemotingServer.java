@@ -18,8 +18,6 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 
 import java.net.InetSocketAddress;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,17 +46,19 @@ public class NettyRemotingServer extends NettyRemotingAbstract implements Remoti
     private static final Logger log = LoggerFactory.getLogger(RemotingHelper.RemotingLogName);
 
     private final ServerBootstrap serverBootstrap;
+    // ֻ
+    private final EventLoopGroup eventLoopGroupBoss;
+    // ӵĶд
     private final EventLoopGroup eventLoopGroup;
     private final NettyServerConfig nettyServerConfig;
+    // ӹãִбַ߳
+    private DefaultEventExecutorGroup defaultEventExecutorGroup;
 
     // CallbackӦ
     private final ExecutorService publicExecutor;
 
     private final ChannelEventListener channelEventListener;
 
-    // ʱ
-    private final Timer timer = new Timer("ServerHouseKeepingService", true);
-
     class NettyServerHandler extends ChannelInboundMessageHandlerAdapter<Object> {
 
         @Override
@@ -165,21 +165,57 @@ public class NettyRemotingServer extends NettyRemotingAbstract implements Remoti
             }
         });
 
-        this.eventLoopGroup = new NioEventLoopGroup(nettyServerConfig.getServerSelectorThreads());
+        this.eventLoopGroupBoss = new NioEventLoopGroup(1, new ThreadFactory() {
+            private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "NettyBossSelector_" + this.threadIndex.incrementAndGet());
+            }
+        });
+
+        this.eventLoopGroup =
+                new NioEventLoopGroup(nettyServerConfig.getServerSelectorThreads(), new ThreadFactory() {
+                    private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "NettyServerSelector_" + this.threadIndex.incrementAndGet());
+                    }
+                });
     }
 
 
     @Override
     public void start() throws InterruptedException {
-        this.serverBootstrap.group(this.eventLoopGroup, new NioEventLoopGroup())
+        this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(//
+            nettyServerConfig.getServerWorkerThreads(), //
+            new ThreadFactory() {
+                private AtomicInteger threadIndex = new AtomicInteger(0);
+
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, "NettyServerWorkerThread_" + this.threadIndex.incrementAndGet());
+                }
+            });
+
+        this.serverBootstrap.group(this.eventLoopGroupBoss, this.eventLoopGroup)
             .channel(NioServerSocketChannel.class).option(ChannelOption.SO_BACKLOG, 65536)
             .childOption(ChannelOption.TCP_NODELAY, true)
             .localAddress(new InetSocketAddress(this.nettyServerConfig.getListenPort()))
             .childHandler(new ChannelInitializer<SocketChannel>() {
                 @Override
                 public void initChannel(SocketChannel ch) throws Exception {
+                    // ϲflush
+                    if (nettyServerConfig.isServerFlushConsolidationEnable()) {
+                        ch.pipeline().addLast(defaultEventExecutorGroup, new NettyFlushConsolidationHandler(
+                            nettyServerConfig.getServerFlushConsolidationMaxPending()));
+                    }
                     ch.pipeline().addLast(//
-                        new DefaultEventExecutorGroup(nettyServerConfig.getServerWorkerThreads()), //
+                        defaultEventExecutorGroup, //
                         new NettyEncoder(), //
                         new NettyDecoder(), //
                         new NettyConnetManageHandler(), new NettyServerHandler());
@@ -191,32 +227,22 @@ public class NettyRemotingServer extends NettyRemotingAbstract implements Remoti
         if (this.channelEventListener != null) {
             this.nettyEventExecuter.start();
         }
-
-        // ÿ1ɨ첽óʱ
-        this.timer.scheduleAtFixedRate(new TimerTask() {
-
-            @Override
-            public void run() {
-                try {
-                    NettyRemotingServer.this.scanResponseTable();
-                }
-                catch (Exception e) {
-                    log.error("scanResponseTable exception", e);
-                }
-            }
-        }, 1000 * 3, 1000);
     }
 
 
     @Override
     public void shutdown() {
         try {
-            if (this.timer != null) {
-                this.timer.cancel();
-            }
+            this.stopResponseTimer();
+
+            this.eventLoopGroupBoss.shutdownGracefully();
 
             this.eventLoopGroup.shutdownGracefully();
 
+            if (this.defaultEventExecutorGroup != null) {
+                this.defaultEventExecutorGroup.shutdownGracefully();
+            }
+
             if (this.nettyEventExecuter != null) {
                 this.nettyEventExecuter.shutdown();
             }
@@ -9,11 +9,17 @@ package com.alibaba.rocketmq.remoting.netty;
  */
 public class NettyServerConfig {
     private int listenPort = 8888;
+    // ӹõı롢ַ߳
     private int serverWorkerThreads = 32;
     private int serverCallbackExecutorThreads = 0;
+    // Ӷд߳
     private int serverSelectorThreads = 8;
     private int serverOnewaySemaphoreValue = 32;
     private int serverAsyncSemaphoreValue = 64;
+    // ϲflushӦһд
+    private boolean serverFlushConsolidationEnable = true;
+    // Ƴٶٴflush
+    private int serverFlushConsolidationMaxPending = 256;
 
 
     public int getListenPort() {
@@ -74,4 +80,24 @@ public class NettyServerConfig {
     public void setServerAsyncSemaphoreValue(int serverAsyncSemaphoreValue) {
         this.serverAsyncSemaphoreValue = serverAsyncSemaphoreValue;
     }
+
+
+    public boolean isServerFlushConsolidationEnable() {
+        return serverFlushConsolidationEnable;
+    }
+
+
+    public void setServerFlushConsolidationEnable(boolean serverFlushConsolidationEnable) {
+        this.serverFlushConsolidationEnable = serverFlushConsolidationEnable;
+    }
+
+
+    public int getServerFlushConsolidationMaxPending() {
+        return serverFlushConsolidationMaxPending;
+    }
+
+
+    public void setServerFlushConsolidationMaxPending(int serverFlushConsolidationMaxPending) {
+        this.serverFlushConsolidationMaxPending = serverFlushConsolidationMaxPending;
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * $Id: RequestTask.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.remoting.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+
+
+/**
+ * Ͷݵҵ̳߳ص񣬼¼ʱ䣬̳߳Ŷӹʱʧ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class RequestTask implements Runnable {
+    private final Runnable runnable;
+    private final ChannelHandlerContext ctx;
+    private final RemotingCommand request;
+    // ̳߳ضеʱ
+    private final long createTimestamp = System.currentTimeMillis();
+    // Ѿʧܣִ
+    private volatile boolean stopRun = false;
+
+
+    public RequestTask(final Runnable runnable, final ChannelHandlerContext ctx, final RemotingCommand request) {
+        this.runnable = runnable;
+        this.ctx = ctx;
+        this.request = request;
+    }
+
+
+    @Override
+    public void run() {
+        if (!this.stopRun) {
+            this.runnable.run();
+        }
+    }
+
+
+    /**
+     * ֱִ󷽷Ӧ
+     */
+    public void returnResponse(final int code, final String remark) {
+        this.stopRun = true;
+        if (!this.request.isOnewayRPC()) {
+            final RemotingCommand response = RemotingCommand.createResponseCommand(code, remark);
+            response.setOpaque(this.request.getOpaque());
+            response.markResponseType();
+            this.ctx.write(response);
+        }
+    }
+
+
+    public long getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+
+    public boolean isStopRun() {
+        return stopRun;
+    }
+
+
+    public void setStopRun(boolean stopRun) {
+        this.stopRun = stopRun;
+    }
+
+
+    public RemotingCommand getRequest() {
+        return request;
+    }
+
+
+    public ChannelHandlerContext getCtx() {
+        return ctx;
+    }
+}
@@ -3,6 +3,8 @@
  */
 package com.alibaba.rocketmq.remoting.netty;
 
+import io.netty.util.Timeout;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +29,8 @@ public class ResponseFuture {
     private final long beginTimestamp = System.currentTimeMillis();
     private final CountDownLatch countDownLatch = new CountDownLatch(1);
     private final SemaphoreReleaseOnlyOnce once;
+    // 첽õĳʱʱ
+    private volatile Timeout timeout;
 
 
     public ResponseFuture(int opaque, long timeoutMillis, InvokeCallback invokeCallback,
@@ -45,6 +49,22 @@ public class ResponseFuture {
     }
 
 
+    /**
+     * յӦ߷ʧܣȡʱʱ
+     */
+    public void cancelTimeout() {
+        final Timeout t = this.timeout;
+        if (t != null) {
+            t.cancel();
+        }
+    }
+
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+
     public boolean isTimeout() {
         long diff = System.currentTimeMillis() - this.beginTimestamp;
         return diff > this.timeoutMillis;
@@ -0,0 +1,47 @@
+/**
+ * $Id: ConcurrentIntHashMapTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.remoting.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConcurrentIntHashMapTest {
+    @Test
+    public void test_putGetRemove() {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<Integer>(16);
+        Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+        Random random = new Random(0);
+
+        // opaqueKeyϣɾʱ
+        for (int i = 0; i < 200000; i++) {
+            final int key = random.nextBoolean() ? i % 5000 : random.nextInt(20000) - 10000;
+            switch (random.nextInt(3)) {
+            case 0:
+                assertEquals(expected.put(key, i), map.put(key, i));
+                break;
+            case 1:
+                assertEquals(expected.remove(key), map.remove(key));
+                break;
+            default:
+                assertEquals(expected.get(key), map.get(key));
+                break;
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * $Id: NettyFlushConsolidationHandlerTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.remoting.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundByteHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class NettyFlushConsolidationHandlerTest {
+    /**
+     * ģ磬¼ÿflushдļ͵Ⱥ˳
+     */
+    static class RecordHandler extends ChannelOutboundByteHandlerAdapter {
+        private final List<String> events = new ArrayList<String>();
+        private boolean flushFailed = false;
+
+
+        @Override
+        protected void flush(ChannelHandlerContext ctx, ByteBuf in, ChannelPromise promise) throws Exception {
+            this.events.add("flush " + in.readableBytes());
+            if (this.flushFailed) {
+                in.skipBytes(in.readableBytes());
+                promise.setFailure(new IOException("flush failed"));
+                return;
+            }
+
+            ctx.nextOutboundByteBuffer().writeBytes(in);
+            ctx.flush(promise);
+        }
+
+
+        @Override
+        public void sendFile(ChannelHandlerContext ctx, FileRegion region, ChannelPromise promise)
+                throws Exception {
+            this.events.add("sendFile " + region.count());
+            region.release();
+            promise.setSuccess();
+        }
+    }
+
+
+    private static ChannelFuture[] writeAll(final EmbeddedByteChannel channel, final int writeNums) {
+        ChannelFuture[] futures = new ChannelFuture[writeNums];
+        for (int i = 0; i < writeNums; i++) {
+            futures[i] = channel.write(Unpooled.wrappedBuffer(new byte[] { (byte) i, (byte) i }));
+        }
+        return futures;
+    }
+
+
+    @Test
+    public void test_consolidate() {
+        RecordHandler recorder = new RecordHandler();
+        EmbeddedByteChannel channel =
+                new EmbeddedByteChannel(recorder, new NettyFlushConsolidationHandler(Integer.MAX_VALUE));
+
+        ChannelFuture[] futures = writeAll(channel, 8);
+        // Ŷӵд֮ǰд
+        assertTrue(recorder.events.isEmpty());
+        for (ChannelFuture future : futures) {
+            assertFalse(future.isDone());
+        }
+
+        channel.runPendingTasks();
+        assertEquals(1, recorder.events.size());
+        assertEquals("flush 16", recorder.events.get(0));
+        for (ChannelFuture future : futures) {
+            assertTrue(future.isSuccess());
+        }
+
+        ByteBuf out = channel.readOutbound();
+        assertEquals(16, out.readableBytes());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, out.readByte());
+            assertEquals(i, out.readByte());
+        }
+        channel.finish();
+    }
+
+
+    @Test
+    public void test_maxPendingFlushes() {
+        RecordHandler recorder = new RecordHandler();
+        EmbeddedByteChannel channel = new EmbeddedByteChannel(recorder, new NettyFlushConsolidationHandler(4));
+
+        ChannelFuture[] futures = writeAll(channel, 6);
+        // ۼ4дʣĵȴִ
+        assertEquals(1, recorder.events.size());
+        assertEquals("flush 8", recorder.events.get(0));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(futures[i].isSuccess());
+        }
+        assertFalse(futures[4].isDone());
+
+        channel.runPendingTasks();
+        assertEquals(2, recorder.events.size());
+        assertEquals("flush 4", recorder.events.get(1));
+        assertTrue(futures[4].isSuccess());
+        assertTrue(futures[5].isSuccess());
+        channel.finish();
+    }
+
+
+    @Test
+    public void test_flush_failed() {
+        RecordHandler recorder = new RecordHandler();
+        recorder.flushFailed = true;
+        EmbeddedByteChannel channel =
+                new EmbeddedByteChannel(recorder, new NettyFlushConsolidationHandler(Integer.MAX_VALUE));
+
+        ChannelFuture[] futures = writeAll(channel, 5);
+        channel.runPendingTasks();
+        assertEquals(1, recorder.events.size());
+        for (ChannelFuture future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isSuccess());
+            assertTrue(future.cause() instanceof IOException);
+        }
+        channel.finish();
+    }
+
+
+    @Test
+    public void test_sendFile_after_buffered() throws Exception {
+        File file = File.createTempFile("NettyFlushConsolidationHandlerTest", ".tmp");
+        file.deleteOnExit();
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.write(new byte[100]);
+
+            RecordHandler recorder = new RecordHandler();
+            EmbeddedByteChannel channel =
+                    new EmbeddedByteChannel(recorder, new NettyFlushConsolidationHandler(Integer.MAX_VALUE));
+
+            ChannelFuture[] futures = writeAll(channel, 3);
+            ChannelFuture sendFileFuture =
+                    channel.sendFile(new DefaultFileRegion(randomAccessFile.getChannel(), 0, 100));
+
+            // еļ
+            assertEquals(2, recorder.events.size());
+            assertEquals("flush 6", recorder.events.get(0));
+            assertEquals("sendFile 100", recorder.events.get(1));
+            for (ChannelFuture future : futures) {
+                assertTrue(future.isSuccess());
+            }
+            assertTrue(sendFileFuture.isSuccess());
+
+            // Ѿдƻеflushдκ
+            channel.runPendingTasks();
+            assertEquals(2, recorder.events.size());
+            channel.finish();
+        }
+        finally {
+            randomAccessFile.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * $Id: NettyRemotingClientTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.remoting.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedByteChannel;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.rocketmq.remoting.InvokeCallback;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient.ChannelPool;
+import com.alibaba.rocketmq.remoting.netty.NettyRemotingClient.ChannelWrapper;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.RequestCode;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class NettyRemotingClientTest {
+    private static final int ListenPort = 10931;
+    private static final String Addr = "127.0.0.1:" + ListenPort;
+    private static final int PoolSize = 3;
+    private static final String NoReplyRemark = "noreply";
+
+    private NettyRemotingClient client;
+
+
+    @Before
+    public void setUp() {
+        NettyClientConfig config = new NettyClientConfig();
+        config.setClientChannelPoolSize(PoolSize);
+        this.client = new NettyRemotingClient(config);
+    }
+
+
+    @After
+    public void tearDown() {
+        this.client.shutdown();
+    }
+
+
+    private ChannelWrapper newChannelWrapper(final int pendingRequests) {
+        EmbeddedByteChannel channel = new EmbeddedByteChannel(new NettyEncoder());
+        ChannelWrapper cw = this.client.new ChannelWrapper(channel.newSucceededFuture());
+        for (int i = 0; i < pendingRequests; i++) {
+            cw.incrementPendingRequests();
+        }
+        return cw;
+    }
+
+
+    @Test
+    public void test_select_leastPending() {
+        ChannelPool pool = this.client.new ChannelPool(4);
+        ChannelWrapper[] cws =
+                { this.newChannelWrapper(3), this.newChannelWrapper(1), this.newChannelWrapper(5),
+                 this.newChannelWrapper(2) };
+        for (int i = 0; i < cws.length; i++) {
+            pool.getChannels().set(i, cws[i]);
+        }
+
+        // ۴ĸλÿʼѡδٵ
+        for (int i = 0; i < cws.length * 2; i++) {
+            assertSame(cws[1], pool.select());
+        }
+        assertFalse(pool.checkAndResetHoleFound());
+
+        cws[1].incrementPendingRequests();
+        cws[1].incrementPendingRequests();
+        for (int i = 0; i < cws.length; i++) {
+            assertSame(cws[3], pool.select());
+        }
+    }
+
+
+    @Test
+    public void test_select_hole() {
+        ChannelPool pool = this.client.new ChannelPool(3);
+        assertNull(pool.select());
+        assertTrue(pool.checkAndResetHoleFound());
+        assertFalse(pool.checkAndResetHoleFound());
+
+        // ѶϿӲᱻѡУҪ
+        ChannelWrapper broken = this.newChannelWrapper(0);
+        broken.getChannel().close();
+        ChannelWrapper ok = this.newChannelWrapper(10);
+        pool.getChannels().set(0, broken);
+        pool.getChannels().set(1, ok);
+        pool.getChannels().set(2, this.newChannelWrapper(20));
+        for (int i = 0; i < 3; i++) {
+            assertSame(ok, pool.select());
+        }
+        assertTrue(pool.checkAndResetHoleFound());
+        assertTrue(pool.isNotFull());
+
+        assertTrue(pool.remove(broken.getChannel()));
+        assertFalse(pool.remove(broken.getChannel()));
+        assertNull(pool.getChannels().get(0));
+    }
+
+
+    @Test
+    public void test_decrementPendingRequests() {
+        ChannelWrapper cw = this.newChannelWrapper(1);
+        cw.decrementPendingRequests();
+        assertEquals(0, cw.getPendingRequests());
+
+        // ʱٵӦܼ
+        cw.decrementPendingRequests();
+        cw.decrementPendingRequests();
+        assertEquals(0, cw.getPendingRequests());
+
+        cw.incrementPendingRequests();
+        assertEquals(1, cw.getPendingRequests());
+    }
+
+
+    private static NettyRemotingServer createRemotingServer() throws InterruptedException {
+        NettyServerConfig config = new NettyServerConfig();
+        config.setListenPort(ListenPort);
+        NettyRemotingServer server = new NettyRemotingServer(config);
+        server.registerProcessor(RequestCode.DEMO_REQUEST_VALUE, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+                // Ӧʱ
+                if (NoReplyRemark.equals(request.getRemark())) {
+                    return null;
+                }
+                return request;
+            }
+        }, Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private ChannelPool getChannelPool() throws Exception {
+        Field field = NettyRemotingClient.class.getDeclaredField("channelTables");
+        field.setAccessible(true);
+        return ((ConcurrentHashMap<String, ChannelPool>) field.get(this.client)).get(Addr);
+    }
+
+
+    private static boolean waitForFull(final ChannelPool pool) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            boolean full = true;
+            for (int k = 0; k < pool.getChannels().length(); k++) {
+                ChannelWrapper cw = pool.getChannels().get(k);
+                if (null == cw || !cw.isOK()) {
+                    full = false;
+                    break;
+                }
+            }
+
+            if (full) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+
+    @Test
+    public void test_fillChannelPool() throws Exception {
+        NettyRemotingServer server = createRemotingServer();
+        try {
+            this.client.start();
+
+            RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+            assertNotNull(this.client.invokeSync(Addr, request, 1000 * 3));
+
+            ChannelPool pool = this.getChannelPool();
+            assertNotNull(pool);
+            assertEquals(PoolSize, pool.getChannels().length());
+            assertTrue(waitForFull(pool));
+
+            // رһӣ´ѡʱں̨
+            Channel closed = pool.getChannels().get(1).getChannel();
+            this.client.closeChannel(Addr, closed);
+            assertNull(pool.getChannels().get(1));
+
+            for (int i = 0; i < PoolSize * 2; i++) {
+                request = RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+                assertNotNull(this.client.invokeSync(Addr, request, 1000 * 3));
+            }
+            assertTrue(waitForFull(pool));
+            assertTrue(pool.getChannels().get(1).getChannel() != closed);
+
+            // յӦ
+            for (int i = 0; i < PoolSize; i++) {
+                assertEquals(0, pool.getChannels().get(i).getPendingRequests());
+            }
+        }
+        finally {
+            server.shutdown();
+        }
+    }
+
+
+    @Test
+    public void test_releasePendingRequestsWhenAsyncTimeout() throws Exception {
+        NettyRemotingServer server = createRemotingServer();
+        try {
+            this.client.start();
+
+            RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+            assertNotNull(this.client.invokeSync(Addr, request, 1000 * 3));
+            ChannelPool pool = this.getChannelPool();
+            assertTrue(waitForFull(pool));
+
+            final int requests = PoolSize * 2;
+            final CountDownLatch latch = new CountDownLatch(requests);
+            final AtomicInteger timeouts = new AtomicInteger(0);
+            for (int i = 0; i < requests; i++) {
+                request = RemotingCommand.createRequestCommand(RequestCode.DEMO_REQUEST_VALUE, null);
+                request.setRemark(NoReplyRemark);
+                this.client.invokeAsync(Addr, request, 200, new InvokeCallback() {
+                    @Override
+                    public void operationComplete(ResponseFuture responseFuture) {
+                        if (null == responseFuture.getResponseCommand()) {
+                            timeouts.incrementAndGet();
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+
+            assertTrue(latch.await(3, TimeUnit.SECONDS));
+            assertEquals(requests, timeouts.get());
+
+            // ʱҲҪδм
+            for (int i = 0; i < PoolSize; i++) {
+                assertEquals(0, pool.getChannels().get(i).getPendingRequests());
+            }
+        }
+        finally {
+            server.shutdown();
+        }
+    }
+}
@@ -8,7 +8,6 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +48,8 @@ public class CommitLog {
     private final static int BlankMagicCode = 0xBBCCDDEE ^ 1880681586 + 8;
     // 洢ϢʱĻصӿ
     private final AppendMessageCallback appendMessageCallback;
+    // ǰд߳̽ʱ䣬0ʾû̳߳
+    private volatile long beginTimeInLock = 0;
 
     abstract class FlushCommitLogService extends ServiceThread {
     }
@@ -354,8 +355,7 @@ public class CommitLog {
             /**
              * лϢ
              */
-            final byte[] propertiesData =
-                    msgInner.getPropertiesString() == null ? null : msgInner.getPropertiesString().getBytes();
+            final byte[] propertiesData = msgInner.getPropertiesData();
             final int propertiesLength = propertiesData == null ? 0 : propertiesData.length;
 
             final byte[] topicData = msgInner.getTopic().getBytes();
@@ -463,8 +463,8 @@ public class CommitLog {
                 break;
             case MessageSysFlag.TransactionNotType:
             case MessageSysFlag.TransactionCommitType:
-                // һεConsumeQueueϢ
-                CommitLog.this.topicQueueTable.put(key, ++queueOffset);
+                // һεConsumeQueueϢϢеÿϢռһλ
+                CommitLog.this.topicQueueTable.put(key, queueOffset + messageCountOf(msgInner));
                 break;
             default:
                 break;
@@ -476,6 +476,23 @@ public class CommitLog {
     }
 
 
+    private static boolean isMessageSet(final int sysFlag) {
+        return (sysFlag & MessageSysFlag.MessageSetFlag) == MessageSysFlag.MessageSetFlag;
+    }
+
+
+    /**
+     * һ洢¼ϢϢϰϢ忪ͷCOUNTֶ
+     */
+    private static int messageCountOf(final MessageExtBrokerInner msg) {
+        if (isMessageSet(msg.getSysFlag())) {
+            return ByteBuffer.wrap(msg.getBody()).getInt(0);
+        }
+
+        return 1;
+    }
+
+
     /**
      * 캯
      */
@@ -540,6 +557,14 @@ public class CommitLog {
     }
 
 
+    /**
+     * ֻѹļӶժļDeleteMapedFileServiceɾ
+     */
+    public List<MapedFile> retireExpiredFile(final long expiredTime, final long intervalForcibly) {
+        return this.mapedFileQueue.retireExpiredFileByTime(expiredTime, intervalForcibly);
+    }
+
+
     /**
      * ȡϢ
      */
@@ -655,6 +680,11 @@ public class CommitLog {
 
             // 15 BODY
             int bodyLen = byteBuffer.getInt();
+            // ϢϵtagsCodeϢ忪ʼҪѹ
+            long[] messageSetTagsCodes = null;
+            if (isMessageSet(sysFlag)) {
+                messageSetTagsCodes = MessageDecoder.decodeMessageSetTagsCodes(byteBuffer);
+            }
             if (bodyLen > 0) {
                 if (readBody) {
                     byteBuffer.get(bytesContent, 0, bodyLen);
@@ -685,11 +715,10 @@ public class CommitLog {
             short propertiesLength = byteBuffer.getShort();
             if (propertiesLength > 0) {
                 byteBuffer.get(bytesContent, 0, propertiesLength);
-                String properties = new String(bytesContent, 0, propertiesLength);
-                Map<String, String> propertiesMap = MessageDecoder.string2messageProperties(properties);
-
-                keys = propertiesMap.get(Message.PROPERTY_KEYS);
-                String tags = propertiesMap.get(Message.PROPERTY_TAGS);
+                // ֻȡҪԣлȫ
+                keys = MessageDecoder.getProperty(bytesContent, 0, propertiesLength, Message.PROPERTY_KEYS);
+                String tags =
+                        MessageDecoder.getProperty(bytesContent, 0, propertiesLength, Message.PROPERTY_TAGS);
                 if (tags != null && tags.length() > 0) {
                     tagsCode =
                             MessageExtBrokerInner.tagsString2tagsCode(MessageExt.parseTopicFilterType(sysFlag),
@@ -709,7 +738,8 @@ public class CommitLog {
                 sysFlag,// 9
                 0L,// 10
                 preparedTransactionOffset,// 11
-                null// 12
+                null,// 12
+                messageSetTagsCodes// 13
             );
         }
         catch (BufferUnderflowException e) {
@@ -876,18 +906,17 @@ public class CommitLog {
     }
 
 
-    public PutMessageResult putMessage(final MessageExtBrokerInner msg) {
+    /**
+     * ʱϢ滻ΪʱTopicʵTopic
+     *
+     * @return дConsumeQueuetagsCode
+     */
+    private long prepareMessage(final MessageExtBrokerInner msg) {
         // ô洢ʱ
         msg.setStoreTimestamp(System.currentTimeMillis());
         // ϢBODY CRCڿͻʣ
         msg.setBodyCRC(UtilALl.crc32(msg.getBody()));
-        // ؽ
-        AppendMessageResult result = null;
 
-        StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
-
-        String topic = msg.getTopic();
-        int queueId = msg.getQueueId();
         long tagsCode = msg.getTagsCode();
 
         final int tranType = MessageSysFlag.getTransactionValue(msg.getSysFlag());
@@ -900,8 +929,8 @@ public class CommitLog {
                     msg.setDelayTimeLevel(this.defaultMessageStore.getScheduleMessageService().getMaxDelayLevel());
                 }
 
-                topic = ScheduleMessageService.SCHEDULE_TOPIC;
-                queueId = ScheduleMessageService.delayLevel2QueueId(msg.getDelayTimeLevel());
+                String topic = ScheduleMessageService.SCHEDULE_TOPIC;
+                int queueId = ScheduleMessageService.delayLevel2QueueId(msg.getDelayTimeLevel());
                 tagsCode =
                         this.defaultMessageStore.getScheduleMessageService().computeDeliverTimestamp(
                             msg.getDelayTimeLevel(), msg.getStoreTimestamp());
@@ -918,93 +947,106 @@ public class CommitLog {
             }
         }
 
-        // дļҪ
-        synchronized (this) {
-            long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
+        return tagsCode;
+    }
 
-            // ô洢ʱܱ֤ȫ
-            msg.setStoreTimestamp(beginLockTimestamp);
 
-            // д
-            MapedFile mapedFile = this.mapedFileQueue.getLastMapedFile();
+    /**
+     * дһϢַConsumeQueue÷CommitLog
+     */
+    private PutMessageResult appendMessageInLock(final MessageExtBrokerInner msg, final long tagsCode,
+            final long beginLockTimestamp) {
+        // ô洢ʱܱ֤ȫ
+        msg.setStoreTimestamp(beginLockTimestamp);
+
+        // д
+        MapedFile mapedFile = this.mapedFileQueue.getLastMapedFile();
+        if (null == mapedFile) {
+            log.error("create maped file1 error, topic: " + msg.getTopic() + " clientAddr: "
+                    + msg.getBornHostString());
+            return new PutMessageResult(PutMessageStatus.CREATE_MAPEDFILE_FAILED, null);
+        }
+        AppendMessageResult result = mapedFile.appendMessage(msg, this.appendMessageCallback);
+        switch (result.getStatus()) {
+        // ɹ׷Ϣ
+        case PUT_OK:
+            break;
+        // ߵļĩβ
+        case END_OF_FILE:
+            // ļдϢ
+            mapedFile = this.mapedFileQueue.getLastMapedFile();
             if (null == mapedFile) {
-                log.error("create maped file1 error, topic: " + msg.getTopic() + " clientAddr: "
+                log.error("create maped file2 error, topic: " + msg.getTopic() + " clientAddr: "
                         + msg.getBornHostString());
-                return new PutMessageResult(PutMessageStatus.CREATE_MAPEDFILE_FAILED, null);
+                return new PutMessageResult(PutMessageStatus.CREATE_MAPEDFILE_FAILED, result);
             }
             result = mapedFile.appendMessage(msg, this.appendMessageCallback);
-            switch (result.getStatus()) {
-            // ɹ׷Ϣ
-            case PUT_OK:
-                break;
-            // ߵļĩβ
-            case END_OF_FILE:
-                // ļдϢ
-                mapedFile = this.mapedFileQueue.getLastMapedFile();
-                if (null == mapedFile) {
-                    log.error("create maped file2 error, topic: " + msg.getTopic() + " clientAddr: "
-                            + msg.getBornHostString());
-                    return new PutMessageResult(PutMessageStatus.CREATE_MAPEDFILE_FAILED, result);
-                }
-                result = mapedFile.appendMessage(msg, this.appendMessageCallback);
-                break;
-            // ϢС
-            case MESSAGE_SIZE_EXCEEDED:
-                return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result);
-                // δ֪
-            case UNKNOWN_ERROR:
-                return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result);
-            default:
-                return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result);
-            }
+            break;
+        // ϢС
+        case MESSAGE_SIZE_EXCEEDED:
+            return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result);
+            // δ֪
+        case UNKNOWN_ERROR:
+            return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result);
+        default:
+            return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result);
+        }
 
-            DispatchRequest dispatchRequest = new DispatchRequest(//
-                topic,// 1
-                queueId,// 2
-                result.getWroteOffset(),// 3
-                result.getWroteBytes(),// 4
-                tagsCode,// 5
-                msg.getStoreTimestamp(),// 6
-                result.getLogicsOffset(),// 7
-                msg.getKeys(),// 8
-                /**
-                 * 񲿷
-                 */
-                msg.getSysFlag(),// 9
-                msg.getQueueOffset(), // 10
-                msg.getPreparedTransactionOffset(),// 11
-                msg.getProperty(Message.PROPERTY_PRODUCER_GROUP)// 12
-                    );
+        DispatchRequest dispatchRequest = new DispatchRequest(//
+            msg.getTopic(),// 1
+            msg.getQueueId(),// 2
+            result.getWroteOffset(),// 3
+            result.getWroteBytes(),// 4
+            tagsCode,// 5
+            msg.getStoreTimestamp(),// 6
+            result.getLogicsOffset(),// 7
+            msg.getKeys(),// 8
+            /**
+             * 񲿷
+             */
+            msg.getSysFlag(),// 9
+            msg.getQueueOffset(), // 10
+            msg.getPreparedTransactionOffset(),// 11
+            msg.getProperty(Message.PROPERTY_PRODUCER_GROUP),// 12
+            isMessageSet(msg.getSysFlag()) ? MessageDecoder.decodeMessageSetTagsCodes(ByteBuffer.wrap(msg
+                .getBody())) : null// 13
+                );
 
-            this.defaultMessageStore.putDispatchRequest(dispatchRequest);
+        this.defaultMessageStore.putDispatchRequest(dispatchRequest);
 
-            long eclipseTime = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
-            if (eclipseTime > 1000) {
-                log.warn("putMessage in lock eclipse time(ms) " + eclipseTime);
-            }
-        }
-
-        // ؽ
-        PutMessageResult putMessageResult = new PutMessageResult(PutMessageStatus.PUT_OK, result);
+        return new PutMessageResult(PutMessageStatus.PUT_OK, result);
+    }
 
-        // ͳϢSIZE
-        storeStatsService.getPutMessageSizeTotal().addAndGet(result.getWroteBytes());
 
+    /**
+     * ͬˢ̡ͬ˫дʱȴ̻ߵSlave
+     *
+     * @param msg
+     *            жǷҪȴԼӡ־
+     * @param nextOffset
+     *            Ҫȴλ
+     * @return ȴĽ
+     */
+    private PutMessageStatus waitForFlushAndSlave(final MessageExtBrokerInner msg, final long nextOffset) {
+        PutMessageStatus status = PutMessageStatus.PUT_OK;
+        StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
         GroupCommitRequest request = null;
 
         // ͬˢ
         if (FlushDiskType.SYNC_FLUSH == this.defaultMessageStore.getMessageStoreConfig().getFlushDiskType()) {
             GroupCommitService service = (GroupCommitService) this.flushCommitLogService;
             if (msg.isWaitStoreMsgOK()) {
-                request = new GroupCommitRequest(result.getWroteOffset() + result.getWroteBytes());
+                request = new GroupCommitRequest(nextOffset);
                 service.putRequest(request);
+                final long waitBeginNanos = System.nanoTime();
                 boolean flushOK =
                         request.waitForFlush(this.defaultMessageStore.getMessageStoreConfig()
                             .getSyncFlushTimeout());
+                storeStatsService.getGroupCommitWaitLatency().recordSince(waitBeginNanos);
                 if (!flushOK) {
                     log.error("do groupcommit, wait for flush failed, topic: " + msg.getTopic() + " tags: "
                             + msg.getTags() + " client address: " + msg.getBornHostString());
-                    putMessageResult.setPutMessageStatus(PutMessageStatus.FLUSH_DISK_TIMEOUT);
+                    status = PutMessageStatus.FLUSH_DISK_TIMEOUT;
                 }
             }
             else {
@@ -1021,37 +1063,155 @@ public class CommitLog {
             HAService service = this.defaultMessageStore.getHaService();
             if (msg.isWaitStoreMsgOK()) {
                 // жǷҪȴ
-                if (service.isSlaveOK(result.getWroteOffset() + result.getWroteBytes())) {
+                if (service.isSlaveOK(nextOffset)) {
                     if (null == request) {
-                        request = new GroupCommitRequest(result.getWroteOffset() + result.getWroteBytes());
+                        request = new GroupCommitRequest(nextOffset);
                     }
                     service.putRequest(request);
 
                     service.getWaitNotifyObject().wakeupAll();
 
+                    final long waitBeginNanos = System.nanoTime();
                     boolean flushOK =
                     // TODO ˴ˢ̹Ƿ
                             request.waitForFlush(this.defaultMessageStore.getMessageStoreConfig()
                                 .getSyncFlushTimeout());
+                    storeStatsService.getHaWaitLatency().recordSince(waitBeginNanos);
                     if (!flushOK) {
                         log.error("do sync transfer other node, wait return, but failed, topic: " + msg.getTopic()
                                 + " tags: " + msg.getTags() + " client address: " + msg.getBornHostString());
-                        putMessageResult.setPutMessageStatus(PutMessageStatus.FLUSH_SLAVE_TIMEOUT);
+                        status = PutMessageStatus.FLUSH_SLAVE_TIMEOUT;
                     }
                 }
                 // Slave쳣
                 else {
                     // ߷ͷSlave쳣
-                    putMessageResult.setPutMessageStatus(PutMessageStatus.SLAVE_NOT_AVAILABLE);
+                    status = PutMessageStatus.SLAVE_NOT_AVAILABLE;
                 }
             }
         }
 
+        return status;
+    }
+
+
+    public PutMessageResult putMessage(final MessageExtBrokerInner msg) {
+        final long beginNanos = System.nanoTime();
+        final long tagsCode = this.prepareMessage(msg);
+
+        PutMessageResult putMessageResult = null;
+
+        // дļҪ
+        synchronized (this) {
+            long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
+            this.beginTimeInLock = beginLockTimestamp;
+
+            try {
+                putMessageResult = this.appendMessageInLock(msg, tagsCode, beginLockTimestamp);
+            }
+            finally {
+                // д쳣ʱҲҪһֱΪPageCacheæܾз
+                this.beginTimeInLock = 0;
+            }
+
+            long eclipseTime = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
+            if (eclipseTime > 1000) {
+                log.warn("putMessage in lock eclipse time(ms) " + eclipseTime);
+            }
+        }
+
+        if (putMessageResult.getPutMessageStatus() != PutMessageStatus.PUT_OK) {
+            return putMessageResult;
+        }
+
+        AppendMessageResult result = putMessageResult.getAppendMessageResult();
+
+        StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
+
+        // ͳϢSIZE
+        storeStatsService.getPutMessageSizeTotal().add(result.getWroteBytes());
+
+        putMessageResult.setPutMessageStatus(this.waitForFlushAndSlave(msg,
+            result.getWroteOffset() + result.getWroteBytes()));
+
+        storeStatsService.getPutMessageLatency().recordSince(beginNanos);
+
         // ͷؽ
         return putMessageResult;
     }
 
 
+    /**
+     * 洢Ϣֻһͬˢ̡ͬ˫дҲֻȴһ<br>
+     * ÿϢؽĳϢʧܲӰϢ
+     */
+    public List<PutMessageResult> putMessages(final List<MessageExtBrokerInner> msgs) {
+        final long beginNanos = System.nanoTime();
+        final long[] tagsCodes = new long[msgs.size()];
+        for (int i = 0; i < msgs.size(); i++) {
+            tagsCodes[i] = this.prepareMessage(msgs.get(i));
+        }
+
+        List<PutMessageResult> putMessageResults = new ArrayList<PutMessageResult>(msgs.size());
+        MessageExtBrokerInner lastOKMsg = null;
+        long nextOffset = 0;
+        long wroteBytes = 0;
+
+        // дļҪ
+        synchronized (this) {
+            long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
+            this.beginTimeInLock = beginLockTimestamp;
+
+            try {
+                for (int i = 0; i < msgs.size(); i++) {
+                    final MessageExtBrokerInner msg = msgs.get(i);
+                    PutMessageResult putMessageResult =
+                            this.appendMessageInLock(msg, tagsCodes[i], beginLockTimestamp);
+                    putMessageResults.add(putMessageResult);
+                    if (putMessageResult.getPutMessageStatus() == PutMessageStatus.PUT_OK) {
+                        AppendMessageResult result = putMessageResult.getAppendMessageResult();
+                        lastOKMsg = msg;
+                        nextOffset = result.getWroteOffset() + result.getWroteBytes();
+                        wroteBytes += result.getWroteBytes();
+                    }
+                }
+            }
+            finally {
+                // ͬputMessageд쳣ʱҲҪ
+                this.beginTimeInLock = 0;
+            }
+
+            long eclipseTime = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
+            if (eclipseTime > 1000) {
+                log.warn("putMessages in lock eclipse time(ms) " + eclipseTime + ", batch size " + msgs.size());
+            }
+        }
+
+        if (null == lastOKMsg) {
+            return putMessageResults;
+        }
+
+        StoreStatsService storeStatsService = this.defaultMessageStore.getStoreStatsService();
+
+        // ͳϢSIZE
+        storeStatsService.getPutMessageSizeTotal().add(wroteBytes);
+
+        // ȴһдɹϢ̣ǰϢҲ
+        PutMessageStatus status = this.waitForFlushAndSlave(lastOKMsg, nextOffset);
+        if (status != PutMessageStatus.PUT_OK) {
+            for (PutMessageResult putMessageResult : putMessageResults) {
+                if (putMessageResult.getPutMessageStatus() == PutMessageStatus.PUT_OK) {
+                    putMessageResult.setPutMessageStatus(status);
+                }
+            }
+        }
+
+        storeStatsService.getPutMessageLatency().recordSince(beginNanos);
+
+        return putMessageResults;
+    }
+
+
     /**
      * offsetȡضϢĴ洢ʱ 򷵻-1
      */
@@ -1103,4 +1263,12 @@ public class CommitLog {
     public boolean retryDeleteFirstFile(final long intervalForcibly) {
         return this.mapedFileQueue.retryDeleteFirstFile(intervalForcibly);
     }
+
+
+    /**
+     * ǰд߽ʱ䣬û̳߳ʱ0
+     */
+    public long getBeginTimeInLock() {
+        return beginTimeInLock;
+    }
 }
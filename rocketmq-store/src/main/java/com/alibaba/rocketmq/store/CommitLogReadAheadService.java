@@ -0,0 +1,208 @@
+/**
+ * $Id: CommitLogReadAheadService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+
+
+/**
+ * CommitLogԤ<br>
+ * ϢѲڴʱϢ߳ڴҳȱҳÿֻܶٵϢ<br>
+ * ConsumeQueueں̨ҳʶӦCommitLog䣬ݶPageCache
+ * һϢֱӴPageCacheȡ<br>
+ * ÿͬʱֻһԤѽȳϴԤһʱԤһ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class CommitLogReadAheadService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.StoreLoggerName);
+    private final DefaultMessageStore defaultMessageStore;
+    private final ConcurrentLinkedQueue<ConsumeQueue> requestQueue =
+            new ConcurrentLinkedQueue<ConsumeQueue>();
+    // ֹJITѶ
+    private long touchedChecksum = 0;
+
+
+    public CommitLogReadAheadService(final DefaultMessageStore defaultMessageStore) {
+        this.defaultMessageStore = defaultMessageStore;
+    }
+
+
+    /**
+     * Ϣʱã
+     *
+     * @param nextOffset
+     *            һϢ߼Offset
+     */
+    public void putRequest(final ConsumeQueue consumeQueue, final long nextOffset) {
+        final long begin = consumeQueue.readAheadBeginOffset;
+        final long end = consumeQueue.readAheadEndOffset;
+        // ûѵԤһ
+        if (nextOffset >= begin && nextOffset < begin + (end - begin) / 2) {
+            return;
+        }
+
+        if (consumeQueue.readAheadPending.compareAndSet(false, true)) {
+            consumeQueue.readAheadRequestOffset = nextOffset;
+            this.requestQueue.offer(consumeQueue);
+            this.wakeup();
+        }
+    }
+
+
+    /**
+     * ҳһֽڣȱҳݶPageCache
+     *
+     * @return ʵҳ
+     */
+    private int touch(final long from, final long to) {
+        SelectMapedBufferResult result =
+                this.defaultMessageStore.getCommitLog().getMessage(from, (int) (to - from));
+        if (null == result) {
+            return 0;
+        }
+
+        try {
+            final ByteBuffer buffer = result.getByteBuffer();
+            int pages = 0;
+            long checksum = 0;
+            int pos = 0;
+            while (pos < result.getSize()) {
+                checksum += buffer.get(pos);
+                pages++;
+                pos += MapedFile.OS_PAGE_SIZE - (int) ((from + pos) % MapedFile.OS_PAGE_SIZE);
+            }
+            this.touchedChecksum += checksum;
+            return pages;
+        }
+        finally {
+            result.release();
+        }
+    }
+
+
+    /**
+     * ߼OffsetӦϢOffsetҲ-1
+     */
+    private long phyOffsetOf(final ConsumeQueue consumeQueue, final long logicOffset) {
+        SelectMapedBufferResult bufferConsumeQueue = consumeQueue.getIndexBuffer(logicOffset);
+        if (null == bufferConsumeQueue) {
+            return -1;
+        }
+
+        try {
+            return bufferConsumeQueue.getByteBuffer().getLong();
+        }
+        finally {
+            bufferConsumeQueue.release();
+        }
+    }
+
+
+    /**
+     * ߼OffsetʼʺϢڵCommitLogҳֱﵽԤС߶ĩβ
+     */
+    private void readAhead(final ConsumeQueue consumeQueue) {
+        final long requestOffset = consumeQueue.readAheadRequestOffset;
+        final int maxPages =
+                this.defaultMessageStore.getMessageStoreConfig().getCommitLogReadAheadSize()
+                        / MapedFile.OS_PAGE_SIZE;
+        final long maxOffset = consumeQueue.getMaxOffsetInQuque();
+
+        long logicOffset = requestOffset;
+        long phyOffsetBegin = -1;
+        long phyOffsetTouched = 0;
+        // ϴԤνӣѶĲֲٷ
+        // ƵλãѵĲֿѱڴ棬Ԥ
+        if (requestOffset >= consumeQueue.readAheadBeginOffset
+                && requestOffset < consumeQueue.readAheadEndOffset) {
+            logicOffset = consumeQueue.readAheadEndOffset;
+            phyOffsetBegin = this.phyOffsetOf(consumeQueue, requestOffset);
+            phyOffsetTouched = consumeQueue.readAheadEndPhyOffset;
+        }
+
+        int pages = 0;
+        while (pages < maxPages && logicOffset < maxOffset && !this.isStoped()) {
+            SelectMapedBufferResult bufferConsumeQueue = consumeQueue.getIndexBuffer(logicOffset);
+            if (null == bufferConsumeQueue) {
+                break;
+            }
+
+            int i = 0;
+            try {
+                for (; i < bufferConsumeQueue.getSize() && pages < maxPages; i +=
+                        ConsumeQueue.CQStoreUnitSize) {
+                    long offsetPy = bufferConsumeQueue.getByteBuffer().getLong();
+                    int sizePy = bufferConsumeQueue.getByteBuffer().getInt();
+                    bufferConsumeQueue.getByteBuffer().getLong();
+
+                    // ϢеĶϢָͬһ洢¼
+                    if (offsetPy + sizePy <= phyOffsetTouched) {
+                        continue;
+                    }
+
+                    if (phyOffsetBegin < 0) {
+                        phyOffsetBegin = offsetPy;
+                    }
+                    pages += this.touch(Math.max(offsetPy, phyOffsetTouched), offsetPy + sizePy);
+                    phyOffsetTouched = offsetPy + sizePy;
+                }
+            }
+            finally {
+                bufferConsumeQueue.release();
+            }
+
+            if (0 == i) {
+                break;
+            }
+            logicOffset += i / ConsumeQueue.CQStoreUnitSize;
+        }
+
+        consumeQueue.readAheadBeginOffset = requestOffset;
+        consumeQueue.readAheadEndOffset = logicOffset;
+        consumeQueue.readAheadBeginPhyOffset = phyOffsetBegin;
+        consumeQueue.readAheadEndPhyOffset = phyOffsetTouched;
+        this.defaultMessageStore.getStoreStatsService().getCommitLogReadAheadBytes()
+            .addAndGet((long) pages * MapedFile.OS_PAGE_SIZE);
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        while (!this.isStoped()) {
+            ConsumeQueue consumeQueue = this.requestQueue.poll();
+            if (null == consumeQueue) {
+                this.waitForRunning(1000);
+                continue;
+            }
+
+            try {
+                this.readAhead(consumeQueue);
+            }
+            catch (Exception e) {
+                log.warn(this.getServiceName() + " service has exception. ", e);
+            }
+            finally {
+                consumeQueue.readAheadPending.set(false);
+            }
+        }
+
+        log.info(this.getServiceName() + " service end, checksum " + this.touchedChecksum);
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return CommitLogReadAheadService.class.getSimpleName();
+    }
+}
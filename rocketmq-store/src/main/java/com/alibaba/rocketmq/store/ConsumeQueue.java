@@ -6,6 +6,7 @@ package com.alibaba.rocketmq.store;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +43,20 @@ public class ConsumeQueue {
     private final String storePath;
     private final int mapedFileSize;
 
+    // CommitLogԤ״̬CommitLogReadAheadServiceά
+    final AtomicBoolean readAheadPending = new AtomicBoolean(false);
+    volatile long readAheadRequestOffset = 0;
+    // һԤǵ߼[begin, end)ԼӦ
+    volatile long readAheadBeginOffset = 0;
+    volatile long readAheadEndOffset = 0;
+    volatile long readAheadBeginPhyOffset = -1;
+    volatile long readAheadEndPhyOffset = -1;
+
+    // һȡʱ䣬жȵ
+    private volatile long lastAccessTimestamp = 0;
+    // ֹJITѷʵ
+    private long touchedChecksum = 0;
+
 
     public ConsumeQueue(//
             final String topic,//
@@ -66,6 +81,14 @@ public class ConsumeQueue {
     }
 
 
+    /**
+     * ϢǷһԤCommitLog
+     */
+    boolean isReadAhead(final long offsetPy, final int sizePy) {
+        return offsetPy >= this.readAheadBeginPhyOffset && (offsetPy + sizePy) <= this.readAheadEndPhyOffset;
+    }
+
+
     public boolean load() {
         boolean result = this.mapedFileQueue.load();
         log.info("load consume queue " + this.topic + "-" + this.queueId + " " + (result ? "OK" : "Failed"));
@@ -402,7 +425,9 @@ public class ConsumeQueue {
     private boolean putMessagePostionInfo(final long offset, final int size, final long tagsCode,
             final long cqOffset) {
         // ݻָʱߵ
-        if (offset <= this.maxPhysicOffset) {
+        // ϢеĶϢλͬ߼λǷѾд
+        if (offset < this.maxPhysicOffset
+                || (offset == this.maxPhysicOffset && cqOffset < this.getMaxOffsetInQuque())) {
             return true;
         }
 
@@ -492,6 +517,9 @@ public class ConsumeQueue {
         long offset = startIndex * CQStoreUnitSize;
         MapedFile mapedFile = this.mapedFileQueue.findMapedFileByOffset(offset);
         if (mapedFile != null) {
+            final long now = this.defaultMessageStore.getSystemClock().now();
+            this.lastAccessTimestamp = now;
+            mapedFile.setLastAccessTimestamp(now);
             SelectMapedBufferResult result = mapedFile.selectMapedBuffer((int) (offset % mapedFileSize));
             return result;
         }
@@ -500,6 +528,50 @@ public class ConsumeQueue {
     }
 
 
+    /**
+     * ҳʶβȵдפPageCache
+     *
+     * @param size
+     *            Ӷβǰʵֽ
+     * @return ʵҳ
+     */
+    public int touchTail(final int size) {
+        final long maxOffset = this.mapedFileQueue.getMaxOffset();
+        long offset = Math.max(this.minLogicOffset, maxOffset - size);
+        int pages = 0;
+        long checksum = 0;
+        while (offset < maxOffset) {
+            MapedFile mapedFile = this.mapedFileQueue.findMapedFileByOffset(offset);
+            if (null == mapedFile) {
+                break;
+            }
+
+            SelectMapedBufferResult result =
+                    mapedFile.selectMapedBuffer((int) (offset % this.mapedFileSize));
+            if (null == result) {
+                break;
+            }
+
+            try {
+                final ByteBuffer byteBuffer = result.getByteBuffer();
+                int pos = 0;
+                while (pos < result.getSize()) {
+                    checksum += byteBuffer.get(pos);
+                    pages++;
+                    pos += MapedFile.OS_PAGE_SIZE - (int) ((offset + pos) % MapedFile.OS_PAGE_SIZE);
+                }
+                offset += result.getSize();
+            }
+            finally {
+                result.release();
+            }
+        }
+
+        this.touchedChecksum += checksum;
+        return pages;
+    }
+
+
     public long rollNextFile(final long index) {
         int mapedFileSize = this.mapedFileSize;
         int totalUnitsInFile = mapedFileSize / CQStoreUnitSize;
@@ -534,6 +606,16 @@ public class ConsumeQueue {
     }
 
 
+    public MapedFileQueue getMapedFileQueue() {
+        return mapedFileQueue;
+    }
+
+
+    public long getLastAccessTimestamp() {
+        return lastAccessTimestamp;
+    }
+
+
     public long getMinLogicOffset() {
         return minLogicOffset;
     }
@@ -0,0 +1,266 @@
+/**
+ * $Id: ConsumeQueueResidencyService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * ConsumeQueueӳļĳפڴ<br>
+ * кܶʱӳConsumeQueueļԶȵݣOSȡĶеҳ<br>
+ * 1ȡȵУҳʶβʹ䳣פPageCache<br>
+ * 2ÿдһļ⣬ӳļʱʱδļӳ䣬
+ * ӦPageCacheٱãԱOSȻգٴηʱԶӳ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class ConsumeQueueResidencyService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.StoreLoggerName);
+    private static final String ProcSmaps = "/proc/self/smaps";
+    // ͳƳפڴļӳܶʱsmapsϴ
+    private static final long ResidentBytesIntervalMills = 1000 * 60;
+    private final DefaultMessageStore defaultMessageStore;
+
+    // һμͳƽ
+    private volatile int mapedFiles = 0;
+    private volatile long mapedBytes = 0;
+    private volatile int hotQueues = 0;
+    // һͳƵĳפڴ棬޷ͳʱΪ-1
+    private volatile long residentBytes = -1;
+    private long lastResidentBytesTimestamp = 0;
+
+    /**
+     * ӳĺѡļ¼ʱķʱ䣬зʱ仯
+     */
+    static class UnmapCandidate implements Comparable<UnmapCandidate> {
+        private final MapedFile mapedFile;
+        private final long lastAccessTimestamp;
+
+
+        UnmapCandidate(final MapedFile mapedFile) {
+            this.mapedFile = mapedFile;
+            this.lastAccessTimestamp = mapedFile.getLastAccessTimestamp();
+        }
+
+
+        @Override
+        public int compareTo(UnmapCandidate o) {
+            if (this.lastAccessTimestamp < o.lastAccessTimestamp) {
+                return -1;
+            }
+
+            return this.lastAccessTimestamp == o.lastAccessTimestamp ? 0 : 1;
+        }
+    }
+
+
+    public ConsumeQueueResidencyService(final DefaultMessageStore defaultMessageStore) {
+        this.defaultMessageStore = defaultMessageStore;
+    }
+
+
+    private void checkResidency() {
+        final MessageStoreConfig config = this.defaultMessageStore.getMessageStoreConfig();
+        final boolean enable = config.isConsumeQueueResidencyEnable();
+        final long now = this.defaultMessageStore.getSystemClock().now();
+        final List<UnmapCandidate> candidates = new ArrayList<UnmapCandidate>();
+        int mapedFiles = 0;
+        long mapedBytes = 0;
+        int hotQueues = 0;
+        long touchedPages = 0;
+
+        for (ConcurrentHashMap<Integer, ConsumeQueue> maps : this.defaultMessageStore.getConsumeQueueTable()
+            .values()) {
+            for (ConsumeQueue cq : maps.values()) {
+                // ȵеĶβפڴ
+                if (now - cq.getLastAccessTimestamp() < config.getConsumeQueueHotTimeMills()) {
+                    hotQueues++;
+                    if (enable) {
+                        touchedPages += cq.touchTail(config.getConsumeQueueHotTailSize());
+                    }
+                }
+
+                Object[] mfs = cq.getMapedFileQueue().copyMapedFiles(0);
+                if (null == mfs) {
+                    continue;
+                }
+
+                for (int i = 0; i < mfs.length; i++) {
+                    MapedFile mapedFile = (MapedFile) mfs[i];
+                    if (mapedFile.isMaped()) {
+                        mapedFiles++;
+                        mapedBytes += mapedFile.getFileSize();
+                        // һļд룬ӳ
+                        if (i < mfs.length - 1) {
+                            candidates.add(new UnmapCandidate(mapedFile));
+                        }
+                    }
+                }
+            }
+        }
+
+        int unmapedFiles = 0;
+        long unmapedBytes = 0;
+        final int excess = candidates.size() - config.getMaxMapedConsumeQueueFiles();
+        if (enable && excess > 0) {
+            Collections.sort(candidates);
+            for (UnmapCandidate candidate : candidates) {
+                if (unmapedFiles >= excess) {
+                    break;
+                }
+
+                if (candidate.mapedFile.unmap()) {
+                    unmapedFiles++;
+                    unmapedBytes += candidate.mapedFile.getFileSize();
+                }
+            }
+        }
+
+        this.mapedFiles = mapedFiles - unmapedFiles;
+        this.mapedBytes = mapedBytes - unmapedBytes;
+        this.hotQueues = hotQueues;
+
+        if (unmapedFiles > 0 || touchedPages > 0) {
+            log.info("consume queue residency, hot queues " + hotQueues + ", touched pages " + touchedPages
+                    + ", unmap files " + unmapedFiles + ", maped files " + this.mapedFiles);
+        }
+    }
+
+
+    /**
+     * /proc/self/smapsͳConsumeQueueӳгפڴֻֽ֧Linux<br>
+     * ӳܶʱϴֻڱ߳аϳļ
+     *
+     * @return ޷ͳʱ-1
+     */
+    private long computeResidentBytes() {
+        File smaps = new File(ProcSmaps);
+        if (!smaps.exists()) {
+            return -1;
+        }
+
+        BufferedReader reader = null;
+        try {
+            final String storePath =
+                    new File(this.defaultMessageStore.getMessageStoreConfig().getStorePathConsumeQueue())
+                        .getCanonicalPath() + File.separator;
+            reader = new BufferedReader(new FileReader(smaps));
+            long residentBytes = 0;
+            boolean matched = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // ӳУ 7f0a2c000000-7f0a2c600000 rw-s 00000000 fd:01 123 /path
+                if (isMappingHeader(line)) {
+                    matched = line.indexOf(storePath) > 0;
+                }
+                else if (matched && line.startsWith("Rss:")) {
+                    residentBytes += parseKiloBytes(line) * 1024;
+                }
+            }
+            return residentBytes;
+        }
+        catch (Exception e) {
+            log.warn("compute consume queue resident bytes exception", e);
+            return -1;
+        }
+        finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                }
+                catch (Exception e) {
+                }
+            }
+        }
+    }
+
+
+    private static boolean isMappingHeader(final String line) {
+        final int space = line.indexOf(' ');
+        final int dash = line.indexOf('-');
+        return space > 0 && dash > 0 && dash < space && Character.digit(line.charAt(0), 16) >= 0;
+    }
+
+
+    /**
+     *  Rss:    124 kB
+     */
+    private static long parseKiloBytes(final String line) {
+        int begin = line.indexOf(':') + 1;
+        while (begin < line.length() && line.charAt(begin) == ' ') {
+            begin++;
+        }
+
+        int end = begin;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+
+        return end > begin ? Long.parseLong(line.substring(begin, end)) : 0;
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        while (!this.isStoped()) {
+            try {
+                this.waitForRunning(this.defaultMessageStore.getMessageStoreConfig()
+                    .getConsumeQueueResidencyInterval());
+                this.checkResidency();
+
+                final long now = System.currentTimeMillis();
+                if (now - this.lastResidentBytesTimestamp >= ResidentBytesIntervalMills) {
+                    this.lastResidentBytesTimestamp = now;
+                    this.residentBytes = this.computeResidentBytes();
+                }
+            }
+            catch (Exception e) {
+                log.warn(this.getServiceName() + " service has exception. ", e);
+            }
+        }
+
+        log.info(this.getServiceName() + " service end");
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return ConsumeQueueResidencyService.class.getSimpleName();
+    }
+
+
+    public int getMapedFiles() {
+        return mapedFiles;
+    }
+
+
+    public long getMapedBytes() {
+        return mapedBytes;
+    }
+
+
+    public int getHotQueues() {
+        return hotQueues;
+    }
+
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+}
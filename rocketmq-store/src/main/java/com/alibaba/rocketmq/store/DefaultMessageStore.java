@@ -71,6 +71,12 @@ public class DefaultMessageStore implements MessageStore {
     private final TransactionStateService transactionStateService;
     // ʱͳ
     private final StoreStatsService storeStatsService;
+    // ʱԤCommitLog
+    private final CommitLogReadAheadService commitLogReadAheadService;
+    // ConsumeQueueӳļפڴ
+    private final ConsumeQueueResidencyService consumeQueueResidencyService;
+    // ̨ɾڵCommitLogļ
+    private final DeleteMapedFileService deleteMapedFileService;
     // й̱־λ
     private final RunningFlags runningFlags = new RunningFlags();
     // 洢
@@ -103,6 +109,9 @@ public class DefaultMessageStore implements MessageStore {
         this.dispatchMessageService =
                 new DispatchMessageService(this.messageStoreConfig.getPutMsgIndexHightWater());
         this.storeStatsService = new StoreStatsService();
+        this.commitLogReadAheadService = new CommitLogReadAheadService(this);
+        this.consumeQueueResidencyService = new ConsumeQueueResidencyService(this);
+        this.deleteMapedFileService = new DeleteMapedFileService(this);
         this.indexService = new IndexService(this);
         this.haService = new HAService(this);
         this.scheduleMessageService = new ScheduleMessageService(this);
@@ -242,9 +251,19 @@ public class DefaultMessageStore implements MessageStore {
 
                 // Сʱתɺ
                 fileReservedTime *= 60 * 60 * 1000;
-                deleteCount =
-                        DefaultMessageStore.this.commitLog.deleteExpiredFile(fileReservedTime,
-                            deletePhysicFilesInterval, destroyMapedFileIntervalForcibly);
+                if (DefaultMessageStore.this.getMessageStoreConfig().isDeleteCommitLogFilesAsync()) {
+                    // ֻӶժļں̨ɾ
+                    List<MapedFile> files =
+                            DefaultMessageStore.this.commitLog.retireExpiredFile(fileReservedTime,
+                                destroyMapedFileIntervalForcibly);
+                    DefaultMessageStore.this.deleteMapedFileService.putRequest(files);
+                    deleteCount = files.size();
+                }
+                else {
+                    deleteCount =
+                            DefaultMessageStore.this.commitLog.deleteExpiredFile(fileReservedTime,
+                                deletePhysicFilesInterval, destroyMapedFileIntervalForcibly);
+                }
                 if (deleteCount > 0) {
                     DefaultMessageStore.this.cleanConsumeQueueService.wakeup();
                 }
@@ -534,13 +553,28 @@ public class DefaultMessageStore implements MessageStore {
 
         private void doDispatch() {
             if (!this.requestsRead.isEmpty()) {
+                final long now = System.currentTimeMillis();
                 for (DispatchRequest req : this.requestsRead) {
+                    // 洢ʱǺ뾫
+                    DefaultMessageStore.this.storeStatsService.getDispatchLag().record(
+                        (now - req.getStoreTimestamp()) * 1000);
 
                     final int tranType = MessageSysFlag.getTransactionValue(req.getSysFlag());
                     // 1ַϢλϢConsumeQueue
                     switch (tranType) {
                     case MessageSysFlag.TransactionNotType:
                     case MessageSysFlag.TransactionCommitType:
+                        // ϢеÿϢָͬһ洢¼
+                        if (req.getMessageSetTagsCodes() != null) {
+                            final long[] tagsCodes = req.getMessageSetTagsCodes();
+                            for (int i = 0; i < tagsCodes.length; i++) {
+                                DefaultMessageStore.this.putMessagePostionInfo(req.getTopic(), req.getQueueId(),
+                                    req.getCommitLogOffset(), req.getMsgSize(), tagsCodes[i],
+                                    req.getStoreTimestamp(), req.getConsumeQueueOffset() + i);
+                            }
+                            break;
+                        }
+
                         // 󷢵Consume Queue
                         DefaultMessageStore.this.putMessagePostionInfo(req.getTopic(), req.getQueueId(),
                             req.getCommitLogOffset(), req.getMsgSize(), req.getTagsCode(),
@@ -683,8 +717,8 @@ public class DefaultMessageStore implements MessageStore {
                                 this.reputFromOffset += size;
                                 readSize += size;
                                 DefaultMessageStore.this.storeStatsService.getPutMessageTimesTotal()
-                                    .incrementAndGet();
-                                DefaultMessageStore.this.storeStatsService.getPutMessageSizeTotal().addAndGet(
+                                    .increment();
+                                DefaultMessageStore.this.storeStatsService.getPutMessageSizeTotal().add(
                                     dispatchRequest.getMsgSize());
                             }
                             // ļм
@@ -919,6 +953,7 @@ public class DefaultMessageStore implements MessageStore {
      */
     public void start() throws Exception {
         this.cleanCommitLogService.start();
+        this.deleteMapedFileService.start();
         this.cleanConsumeQueueService.start();
         this.indexService.start();
         // ڹ캯Ѿstartˡ
@@ -927,6 +962,8 @@ public class DefaultMessageStore implements MessageStore {
         this.commitLog.start();
         this.scheduleMessageService.start();
         this.storeStatsService.start();
+        this.commitLogReadAheadService.start();
+        this.consumeQueueResidencyService.start();
 
         if (this.reputMessageService != null) {
             this.reputMessageService.setReputFromOffset(this.commitLog.getMaxOffset());
@@ -962,7 +999,10 @@ public class DefaultMessageStore implements MessageStore {
             this.haService.shutdown();
 
             this.storeStatsService.shutdown();
+            this.commitLogReadAheadService.shutdown();
+            this.consumeQueueResidencyService.shutdown();
             this.cleanCommitLogService.shutdown();
+            this.deleteMapedFileService.shutdown();
             this.cleanConsumeQueueService.shutdown();
             this.dispatchMessageService.shutdown();
             this.indexService.shutdown();
@@ -979,10 +1019,13 @@ public class DefaultMessageStore implements MessageStore {
     }
 
 
-    public PutMessageResult putMessage(MessageExtBrokerInner msg) {
+    /**
+     * 洢Ƿд
+     */
+    private boolean isPutMessageAllowed() {
         if (this.shutdown) {
             log.warn("message store has shutdown, so putMessage is forbidden");
-            return new PutMessageResult(PutMessageStatus.SERVICE_NOT_AVAILABLE, null);
+            return false;
         }
 
         if (BrokerRole.SLAVE == this.messageStoreConfig.getBrokerRole()) {
@@ -991,7 +1034,7 @@ public class DefaultMessageStore implements MessageStore {
                 log.warn("message store is slave mode, so putMessage is forbidden ");
             }
 
-            return new PutMessageResult(PutMessageStatus.SERVICE_NOT_AVAILABLE, null);
+            return false;
         }
 
         if (!this.runningFlags.isWriteable()) {
@@ -1001,21 +1044,43 @@ public class DefaultMessageStore implements MessageStore {
                         + this.runningFlags.getFlagBits());
             }
 
-            return new PutMessageResult(PutMessageStatus.SERVICE_NOT_AVAILABLE, null);
+            return false;
         }
         else {
             this.printTimes.set(0);
         }
 
+        return true;
+    }
+
+
+    /**
+     * ϢʽУ
+     */
+    private boolean isMessageLegal(final MessageExtBrokerInner msg) {
         // message topicУ
         if (msg.getTopic().length() > Byte.MAX_VALUE) {
             log.warn("putMessage message topic length too long " + msg.getTopic().length());
-            return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null);
+            return false;
         }
 
         // message propertiesУ
-        if (msg.getPropertiesString() != null && msg.getPropertiesString().length() > Short.MAX_VALUE) {
-            log.warn("putMessage message properties length too long " + msg.getPropertiesString().length());
+        final byte[] propertiesData = msg.getPropertiesData();
+        if (propertiesData != null && propertiesData.length > Short.MAX_VALUE) {
+            log.warn("putMessage message properties length too long " + propertiesData.length);
+            return false;
+        }
+
+        return true;
+    }
+
+
+    public PutMessageResult putMessage(MessageExtBrokerInner msg) {
+        if (!this.isPutMessageAllowed()) {
+            return new PutMessageResult(PutMessageStatus.SERVICE_NOT_AVAILABLE, null);
+        }
+
+        if (!this.isMessageLegal(msg)) {
             return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null);
         }
 
@@ -1027,22 +1092,80 @@ public class DefaultMessageStore implements MessageStore {
             log.warn("putMessage not in lock eclipse time(ms) " + eclipseTime);
         }
         this.storeStatsService.setPutMessageEntireTimeMax(eclipseTime);
-        this.storeStatsService.getPutMessageTimesTotal().incrementAndGet();
+        this.storeStatsService.getPutMessageTimesTotal().increment();
 
         if (null == result || !result.isOk()) {
-            this.storeStatsService.getPutMessageFailedTimes().incrementAndGet();
+            this.storeStatsService.getPutMessageFailedTimes().increment();
         }
 
         return result;
     }
 
 
-    private boolean isTheBatchFull(long offsetPy, int sizePy, int maxMsgNums, int bufferTotal, int messageTotal) {
+    public List<PutMessageResult> putMessages(final List<MessageExtBrokerInner> msgs) {
+        List<PutMessageResult> results = new ArrayList<PutMessageResult>(msgs.size());
+        if (!this.isPutMessageAllowed()) {
+            for (int i = 0; i < msgs.size(); i++) {
+                results.add(new PutMessageResult(PutMessageStatus.SERVICE_NOT_AVAILABLE, null));
+            }
+            return results;
+        }
+
+        // ϷϢCommitLogԭ˳򷵻
+        List<MessageExtBrokerInner> legalMsgs = new ArrayList<MessageExtBrokerInner>(msgs.size());
+        for (MessageExtBrokerInner msg : msgs) {
+            if (this.isMessageLegal(msg)) {
+                legalMsgs.add(msg);
+                results.add(null);
+            }
+            else {
+                results.add(new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, null));
+            }
+        }
+
+        if (!legalMsgs.isEmpty()) {
+            long beginTime = this.getSystemClock().now();
+            List<PutMessageResult> putResults = this.commitLog.putMessages(legalMsgs);
+            // ͳ
+            long eclipseTime = this.getSystemClock().now() - beginTime;
+            if (eclipseTime > 1000) {
+                log.warn("putMessages not in lock eclipse time(ms) " + eclipseTime);
+            }
+            this.storeStatsService.setPutMessageEntireTimeMax(eclipseTime);
+
+            int index = 0;
+            for (int i = 0; i < results.size(); i++) {
+                if (null == results.get(i)) {
+                    results.set(i, putResults.get(index++));
+                }
+            }
+        }
+
+        this.storeStatsService.getPutMessageTimesTotal().add(msgs.size());
+        for (PutMessageResult result : results) {
+            if (!result.isOk()) {
+                this.storeStatsService.getPutMessageFailedTimes().increment();
+            }
+        }
+
+        return results;
+    }
+
+
+    /**
+     * ϢCommitLogĩβڴΪѲPageCacheУѱԤϢڴ洦
+     */
+    private boolean isMessageInDisk(final ConsumeQueue consumeQueue, long offsetPy, int sizePy) {
         long maxOffsetPy = this.commitLog.getMaxOffset();
         long memory =
                 (long) (MixAll.TotalPhysicalMemorySize * (this.messageStoreConfig
                     .getAccessMessageInMemoryMaxRatio() / 100.0));
+        return (maxOffsetPy - offsetPy) > memory && !consumeQueue.isReadAhead(offsetPy, sizePy);
+    }
+
 
+    private boolean isTheBatchFull(boolean messageInDisk, int sizePy, int maxMsgNums, int bufferTotal,
+            int messageTotal) {
         // һϢԲ
         if (0 == bufferTotal || 0 == messageTotal) {
             return false;
@@ -1053,7 +1176,7 @@ public class DefaultMessageStore implements MessageStore {
         }
 
         // Ϣڴ
-        if ((maxOffsetPy - offsetPy) > memory) {
+        if (messageInDisk) {
             if ((bufferTotal + sizePy) > this.messageStoreConfig.getMaxTransferBytesOnMessageInDisk()) {
                 return true;
             }
@@ -1091,6 +1214,7 @@ public class DefaultMessageStore implements MessageStore {
         }
 
         long beginTime = this.getSystemClock().now();
+        final long beginNanos = System.nanoTime();
 
         // öٱȡϢ
         GetMessageStatus status = GetMessageStatus.NO_MESSAGE_IN_QUEUE;
@@ -1132,6 +1256,9 @@ public class DefaultMessageStore implements MessageStore {
 
                         long nextPhyFileStartOffset = Long.MIN_VALUE;
                         long maxPhyOffsetPulling = 0;
+                        // ϢеĶϢָͬһ洢¼ֻһΣϢ
+                        long lastOffsetPy = -1;
+                        int matchedTotal = 0;
 
                         int i = 0;
                         final int MaxFilterMessageCount = 16000;
@@ -1149,9 +1276,23 @@ public class DefaultMessageStore implements MessageStore {
                                     continue;
                             }
 
+                            // ϢеĺϢ洢¼ѾڱУֻ
+                            if (offsetPy == lastOffsetPy) {
+                                if (matchedTotal >= maxMsgNums) {
+                                    break;
+                                }
+
+                                if (this.messageFilter.isMessageMatched(subscriptionData, tagsCode)) {
+                                    matchedTotal++;
+                                }
+                                continue;
+                            }
+
                             // Ϣﵽ
-                            if (this.isTheBatchFull(offsetPy, sizePy, maxMsgNums, getResult.getBufferTotalSize(),
-                                getResult.getMessageCount())) {
+                            final boolean messageInDisk =
+                                    this.isMessageInDisk(consumeQueue, offsetPy, sizePy);
+                            if (this.isTheBatchFull(messageInDisk, sizePy, maxMsgNums,
+                                getResult.getBufferTotalSize(), matchedTotal)) {
                                 break;
                             }
 
@@ -1159,10 +1300,15 @@ public class DefaultMessageStore implements MessageStore {
                             if (this.messageFilter.isMessageMatched(subscriptionData, tagsCode)) {
                                 SelectMapedBufferResult selectResult = this.commitLog.getMessage(offsetPy, sizePy);
                                 if (selectResult != null) {
-                                    this.storeStatsService.getGetMessageTransferedMsgCount().incrementAndGet();
+                                    this.storeStatsService.getGetMessageTransferedMsgCount().increment();
                                     getResult.addMessage(selectResult);
+                                    if (messageInDisk) {
+                                        getResult.setMessageInDisk(true);
+                                    }
                                     status = GetMessageStatus.FOUND;
                                     nextPhyFileStartOffset = Long.MIN_VALUE;
+                                    lastOffsetPy = offsetPy;
+                                    matchedTotal++;
                                 }
                                 else {
                                     if (getResult.getBufferTotalSize() == 0) {
@@ -1192,6 +1338,11 @@ public class DefaultMessageStore implements MessageStore {
                                 (long) (MixAll.TotalPhysicalMemorySize * (this.messageStoreConfig
                                     .getAccessMessageInMemoryMaxRatio() / 100.0));
                         getResult.setSuggestPullingFromSlave(diff > memory);
+
+                        // 󣬺̨ԤϢ´ȡʱPageCache
+                        if (diff > memory && this.messageStoreConfig.isCommitLogReadAheadEnable()) {
+                            this.commitLogReadAheadService.putRequest(consumeQueue, nextBeginOffset);
+                        }
                     }
                     finally {
                         // ͷԴ
@@ -1213,13 +1364,14 @@ public class DefaultMessageStore implements MessageStore {
         }
 
         if (GetMessageStatus.FOUND == status) {
-            this.storeStatsService.getGetMessageTimesTotalFound().incrementAndGet();
+            this.storeStatsService.getGetMessageTimesTotalFound().increment();
         }
         else {
-            this.storeStatsService.getGetMessageTimesTotalMiss().incrementAndGet();
+            this.storeStatsService.getGetMessageTimesTotalMiss().increment();
         }
         long eclipseTime = this.getSystemClock().now() - beginTime;
         this.storeStatsService.setGetMessageEntireTimeMax(eclipseTime);
+        this.storeStatsService.getGetMessageLatency().recordSince(beginNanos);
 
         getResult.setStatus(status);
         getResult.setNextBeginOffset(nextBeginOffset);
@@ -1558,8 +1710,29 @@ public class DefaultMessageStore implements MessageStore {
 
     @Override
     public HashMap<String, String> getRuntimeInfo() {
-        // TODO Auto-generated method stub
-        return null;
+        HashMap<String, String> result = this.storeStatsService.getRuntimeInfo();
+        // ConsumeQueueӳļ볣פڴ
+        final ConsumeQueueResidencyService residency = this.consumeQueueResidencyService;
+        result.put("consumeQueueMapedFiles", String.valueOf(residency.getMapedFiles()));
+        result.put("consumeQueueMapedBytes", String.valueOf(residency.getMapedBytes()));
+        result.put("consumeQueueResidentBytes", String.valueOf(residency.getResidentBytes()));
+        result.put("consumeQueueHotQueues", String.valueOf(residency.getHotQueues()));
+        // ȴ̨ɾCommitLogļ
+        result.put("commitLogDeletingFiles", String.valueOf(this.deleteMapedFileService.getPendingFiles()));
+        result.put("commitLogDeletedBytes", String.valueOf(this.deleteMapedFileService.getDeletedBytes()));
+        return result;
+    }
+
+
+    @Override
+    public boolean isOSPageCacheBusy() {
+        long begin = this.commitLog.getBeginTimeInLock();
+        if (begin <= 0) {
+            return false;
+        }
+
+        long diff = this.systemClock.now() - begin;
+        return diff > this.messageStoreConfig.getOsPageCacheBusyTimeOutMills();
     }
 
 
@@ -0,0 +1,189 @@
+/**
+ * $Id: DeleteMapedFileService.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.ServiceThread;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * ̨ɾڵCommitLogļ<br>
+ * һɾ1Gļļϵͳ־ʱͣ٣дϢӳٳë<br>
+ * ļӶժ󽻸ȸٰٷֶνضϣɾļ
+ * дϢæʱƳٽضϣȴʱΣƳٳ޻ߴʱٵȴʱҲ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class DeleteMapedFileService extends ServiceThread {
+    private static final Logger log = LoggerFactory.getLogger(MixAll.StoreLoggerName);
+    // дϢæʱٴμļʱ
+    private static final long BusyCheckIntervalMills = 100;
+    private final DefaultMessageStore defaultMessageStore;
+    private final LinkedBlockingQueue<DeleteRequest> requestQueue = new LinkedBlockingQueue<DeleteRequest>();
+    // ȴɾļ
+    private final AtomicInteger pendingFiles = new AtomicInteger(0);
+    // ͷŵĴ̿ռ
+    private final AtomicLong deletedBytes = new AtomicLong(0);
+
+    static class DeleteRequest {
+        private final MapedFile mapedFile;
+        // ύʱ䣬ڼƳ˶
+        private final long timestamp;
+
+
+        DeleteRequest(final MapedFile mapedFile, final long timestamp) {
+            this.mapedFile = mapedFile;
+            this.timestamp = timestamp;
+        }
+    }
+
+
+    public DeleteMapedFileService(final DefaultMessageStore defaultMessageStore) {
+        this.defaultMessageStore = defaultMessageStore;
+    }
+
+
+    /**
+     * ύѴӶժѽӳļ
+     */
+    public void putRequest(final List<MapedFile> mapedFiles) {
+        final long now = System.currentTimeMillis();
+        for (MapedFile mapedFile : mapedFiles) {
+            this.pendingFiles.incrementAndGet();
+            this.requestQueue.offer(new DeleteRequest(mapedFile, now));
+        }
+        this.wakeup();
+    }
+
+
+    /**
+     * дϢTPSֵʱΪæƳʱ䳬ʱɾ
+     */
+    private boolean isBusy(final DeleteRequest request) {
+        final MessageStoreConfig config = this.defaultMessageStore.getMessageStoreConfig();
+        if (!this.defaultMessageStore.getRunningFlags().isWriteable()) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - request.timestamp >= config.getDeleteFileMaxDeferMills()) {
+            return false;
+        }
+
+        return this.defaultMessageStore.getStoreStatsService().getRecentPutTps(1) > config
+            .getDeleteFileBusyPutTps();
+    }
+
+
+    private void sleep(final long mills) {
+        try {
+            Thread.sleep(mills);
+        }
+        catch (InterruptedException e) {
+            log.warn(this.getServiceName() + " interrupted", e);
+        }
+    }
+
+
+    /**
+     * ֶνضϺɾļÿ֮䰴
+     */
+    private void delete(final DeleteRequest request) {
+        final MessageStoreConfig config = this.defaultMessageStore.getMessageStoreConfig();
+        final MapedFile mapedFile = request.mapedFile;
+        final long beginTime = System.currentTimeMillis();
+
+        // ʹضϹ崻ʱҲֱɾزļ
+        if (mapedFile.renameTo(mapedFile.getFileName() + MapedFileQueue.DeletingFileSuffix)) {
+            long size = mapedFile.getFileSize();
+            while (size > 0 && !this.isStoped()) {
+                if (this.isBusy(request)) {
+                    this.sleep(BusyCheckIntervalMills);
+                    continue;
+                }
+
+                final long chunkBegin = System.currentTimeMillis();
+                final long newSize = Math.max(0, size - config.getDeleteFileChunkSize());
+                if (!mapedFile.truncate(newSize)) {
+                    break;
+                }
+                this.deletedBytes.addAndGet(size - newSize);
+
+                // ضһӦѵʱ䣬ò0ߴʱ٣ͷſռ
+                final int maxMBPerSecond = config.getDeleteFileMaxMBPerSecond();
+                final long truncated = size - newSize;
+                size = newSize;
+                if (size > 0 && maxMBPerSecond > 0
+                        && this.defaultMessageStore.getRunningFlags().isWriteable()) {
+                    final long expected = truncated * 1000 / (maxMBPerSecond * 1024L * 1024L);
+                    final long eclipse = System.currentTimeMillis() - chunkBegin;
+                    if (expected > eclipse) {
+                        this.sleep(expected - eclipse);
+                    }
+                }
+            }
+        }
+
+        mapedFile.destroy(config.getDestroyMapedFileIntervalForcibly());
+        log.info("delete expired file " + mapedFile.getFileName() + ", deferred(ms) "
+                + (beginTime - request.timestamp) + ", cost(ms) " + (System.currentTimeMillis() - beginTime));
+    }
+
+
+    @Override
+    public void run() {
+        log.info(this.getServiceName() + " service started");
+
+        while (!this.isStoped()) {
+            DeleteRequest request = this.requestQueue.poll();
+            if (null == request) {
+                this.waitForRunning(1000);
+                continue;
+            }
+
+            try {
+                this.delete(request);
+            }
+            catch (Exception e) {
+                log.warn(this.getServiceName() + " service has exception. ", e);
+            }
+            finally {
+                this.pendingFiles.decrementAndGet();
+            }
+        }
+
+        // رʱʣļ٣ֱɾ
+        DeleteRequest request;
+        while ((request = this.requestQueue.poll()) != null) {
+            request.mapedFile.destroy(0);
+            this.pendingFiles.decrementAndGet();
+        }
+
+        log.info(this.getServiceName() + " service end");
+    }
+
+
+    @Override
+    public String getServiceName() {
+        return DeleteMapedFileService.class.getSimpleName();
+    }
+
+
+    public int getPendingFiles() {
+        return pendingFiles.get();
+    }
+
+
+    public long getDeletedBytes() {
+        return deletedBytes.get();
+    }
+}
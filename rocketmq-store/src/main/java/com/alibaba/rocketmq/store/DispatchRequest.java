@@ -26,6 +26,11 @@ public class DispatchRequest {
     private final long preparedTransactionOffset;
     private final String producerGroup;
 
+    /**
+     * ϢÿϢtagsCodeͨϢΪnull
+     */
+    private final long[] messageSetTagsCodes;
+
 
     public DispatchRequest(//
             final String topic,// 1
@@ -46,6 +51,32 @@ public class DispatchRequest {
                                       // producerGroupΪգʾrecoveṛԲ
                                       // Transaction state
                                       // table
+    ) {
+        this(topic, queueId, commitLogOffset, msgSize, tagsCode, storeTimestamp, consumeQueueOffset, keys,
+            sysFlag, tranStateTableOffset, preparedTransactionOffset, producerGroup, null);
+    }
+
+
+    public DispatchRequest(//
+            final String topic,// 1
+            final int queueId,// 2
+            final long commitLogOffset,// 3
+            final int msgSize,// 4
+            final long tagsCode,// 5
+            final long storeTimestamp,// 6
+            final long consumeQueueOffset,// 7
+            final String keys,// 8
+            /**
+             * ز
+             */
+            final int sysFlag,// 9
+            final long tranStateTableOffset,// 10
+            final long preparedTransactionOffset,// 11
+            final String producerGroup,// 12
+            /**
+             * Ϣ
+             */
+            final long[] messageSetTagsCodes// 13
     ) {
         this.topic = topic;
         this.queueId = queueId;
@@ -63,6 +94,8 @@ public class DispatchRequest {
         this.tranStateTableOffset = tranStateTableOffset;
         this.preparedTransactionOffset = preparedTransactionOffset;
         this.producerGroup = producerGroup;
+
+        this.messageSetTagsCodes = messageSetTagsCodes;
     }
 
 
@@ -91,6 +124,8 @@ public class DispatchRequest {
         this.tranStateTableOffset = 0;
         this.preparedTransactionOffset = 0;
         this.producerGroup = "";
+
+        this.messageSetTagsCodes = null;
     }
 
 
@@ -152,4 +187,9 @@ public class DispatchRequest {
     public String getProducerGroup() {
         return producerGroup;
     }
+
+
+    public long[] getMessageSetTagsCodes() {
+        return messageSetTagsCodes;
+    }
 }
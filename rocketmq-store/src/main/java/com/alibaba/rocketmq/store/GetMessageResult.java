@@ -30,6 +30,8 @@ public class GetMessageResult {
     private int bufferTotalSize = 0;
     // ǷslaveϢ
     private boolean suggestPullingFromSlave = false;
+    // ǷϢڴ棬ʱҪ
+    private boolean messageInDisk = false;
 
 
     public GetMessageResult() {
@@ -123,4 +125,14 @@ public class GetMessageResult {
     public void setSuggestPullingFromSlave(boolean suggestPullingFromSlave) {
         this.suggestPullingFromSlave = suggestPullingFromSlave;
     }
+
+
+    public boolean isMessageInDisk() {
+        return messageInDisk;
+    }
+
+
+    public void setMessageInDisk(boolean messageInDisk) {
+        this.messageInDisk = messageInDisk;
+    }
 }
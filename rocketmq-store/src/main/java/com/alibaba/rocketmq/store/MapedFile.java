@@ -43,18 +43,20 @@ public class MapedFile extends ReferenceResource {
     private final long fileFromOffset;
     // ӳļС
     private final int fileSize;
-    // ӳļ
-    private final File file;
+    // ӳļɾǰܱ
+    private volatile File file;
     // ӳFileChannel
     private final FileChannel fileChannel;
-    // ӳڴpositionԶ
-    private final MappedByteBuffer mappedByteBuffer;
+    // ӳڴpositionԶ䣬ʱδʵļӳΪnullٴηʱӳ
+    private volatile MappedByteBuffer mappedByteBuffer;
     // ǰдʲôλ
     private final AtomicInteger wrotePostion = new AtomicInteger(0);
     // Flushʲôλ
     private final AtomicInteger committedPosition = new AtomicInteger(0);
     // һϢ洢ʱ
     private volatile long storeTimestamp = 0;
+    // һζʱ䣬̭ʱδʵӳ
+    private volatile long lastAccessTimestamp = System.currentTimeMillis();
 
     private boolean firstCreateInQueue = false;
 
@@ -155,7 +157,7 @@ public class MapedFile extends ReferenceResource {
 
         // ʾпռ
         if (currentPos < this.fileSize) {
-            ByteBuffer byteBuffer = this.mappedByteBuffer.slice();
+            ByteBuffer byteBuffer = this.ensureMaped().slice();
             byteBuffer.position(currentPos);
             AppendMessageResult result =
                     cb.doAppend(this.getFileFromOffset(), byteBuffer, this.fileSize - currentPos, msg);
@@ -181,7 +183,7 @@ public class MapedFile extends ReferenceResource {
 
         // ʾпռ
         if ((currentPos + data.length) <= this.fileSize) {
-            ByteBuffer byteBuffer = this.mappedByteBuffer.slice();
+            ByteBuffer byteBuffer = this.ensureMaped().slice();
             byteBuffer.position(currentPos);
             byteBuffer.put(data);
             this.wrotePostion.addAndGet(data.length);
@@ -221,7 +223,7 @@ public class MapedFile extends ReferenceResource {
         if (this.isAbleToFlush(flushLeastPages)) {
             if (this.hold()) {
                 int value = this.wrotePostion.get();
-                this.mappedByteBuffer.force();
+                this.ensureMaped().force();
                 this.committedPosition.set(value);
                 this.release();
             }
@@ -240,7 +242,7 @@ public class MapedFile extends ReferenceResource {
         if ((pos + size) <= this.wrotePostion.get()) {
             // MapedBuffer
             if (this.hold()) {
-                ByteBuffer byteBuffer = this.mappedByteBuffer.slice();
+                ByteBuffer byteBuffer = this.ensureMaped().slice();
                 byteBuffer.position(pos);
                 ByteBuffer byteBufferNew = byteBuffer.slice();
                 byteBufferNew.limit(size);
@@ -268,7 +270,7 @@ public class MapedFile extends ReferenceResource {
     public SelectMapedBufferResult selectMapedBuffer(int pos) {
         if (pos < this.wrotePostion.get() && pos >= 0) {
             if (this.hold()) {
-                ByteBuffer byteBuffer = this.mappedByteBuffer.slice();
+                ByteBuffer byteBuffer = this.ensureMaped().slice();
                 byteBuffer.position(pos);
                 int size = this.wrotePostion.get() - pos;
                 ByteBuffer byteBufferNew = byteBuffer.slice();
@@ -339,14 +341,81 @@ public class MapedFile extends ReferenceResource {
             return true;
         }
 
-        clean(this.mappedByteBuffer);
+        // ѱӳļҪٴunmap
+        if (this.mappedByteBuffer != null) {
+            clean(this.mappedByteBuffer);
+            this.mappedByteBuffer = null;
+            TotalMapedVitualMemory.addAndGet(this.fileSize * (-1));
+            TotalMapedFiles.decrementAndGet();
+        }
+        log.info("unmap file[REF:" + currentRef + "] " + this.fileName + " OK");
+        return true;
+    }
+
+
+    /**
+     * ӳڴѱӳʱӳ<br>
+     * ÷Ѿholdסļʱ
+     */
+    private MappedByteBuffer ensureMaped() {
+        MappedByteBuffer buffer = this.mappedByteBuffer;
+        if (buffer != null) {
+            return buffer;
+        }
+
+        synchronized (this) {
+            if (null == this.mappedByteBuffer) {
+                try {
+                    this.mappedByteBuffer = this.fileChannel.map(MapMode.READ_WRITE, 0, this.fileSize);
+                    TotalMapedVitualMemory.addAndGet(this.fileSize);
+                    TotalMapedFiles.incrementAndGet();
+                    log.info("remap file " + this.fileName + " OK");
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException("remap file " + this.fileName + " Failed", e);
+                }
+            }
+            return this.mappedByteBuffer;
+        }
+    }
+
+
+    /**
+     * ʱδʵļӳ䣬ӳڴ棬ӦPageCacheԱOSȻ<br>
+     * ֻдˢ̵ļ̳߳ʱٴηʱԶӳ
+     *
+     * @return Ƿӳ
+     */
+    public synchronized boolean unmap() {
+        // hold()뱾ʹͬһüΪ1˵û߳ڷ
+        if (!this.isAvailable() || null == this.mappedByteBuffer || this.refCount.get() != 1) {
+            return false;
+        }
+
+        if (!this.isFull() || this.committedPosition.get() != this.fileSize) {
+            return false;
+        }
+
+        try {
+            clean(this.mappedByteBuffer);
+        }
+        catch (Exception e) {
+            log.warn("unmap file " + this.fileName + " Failed", e);
+            return false;
+        }
+
+        this.mappedByteBuffer = null;
         TotalMapedVitualMemory.addAndGet(this.fileSize * (-1));
         TotalMapedFiles.decrementAndGet();
-        log.info("unmap file[REF:" + currentRef + "] " + this.fileName + " OK");
         return true;
     }
 
 
+    public boolean isMaped() {
+        return this.mappedByteBuffer != null;
+    }
+
+
     /**
      * Դdestroyshutdowṉ߳ͬһ
      * 
@@ -381,6 +450,49 @@ public class MapedFile extends ReferenceResource {
     }
 
 
+    /**
+     * ļӳɺֶ̨ɾ
+     */
+    public boolean renameTo(final String newFileName) {
+        if (!this.isCleanupOver()) {
+            return false;
+        }
+
+        File dest = new File(newFileName);
+        if (this.file.renameTo(dest)) {
+            log.info("rename file " + this.file.getPath() + " to " + newFileName + " OK");
+            this.file = dest;
+            return true;
+        }
+
+        log.warn("rename file " + this.file.getPath() + " to " + newFileName + " Failed");
+        return false;
+    }
+
+
+    /**
+     * ļӳ󣬰ļضϵָСֶͷŴ̿ռ<br>
+     * ԱӳļضϺʻ̱Աcleanup֮
+     */
+    public boolean truncate(final long size) {
+        if (!this.isCleanupOver()) {
+            log.warn("truncate maped file[REF:" + this.getRefCount() + "] " + this.fileName
+                    + " Failed. cleanupOver: " + this.cleanupOver);
+            return false;
+        }
+
+        try {
+            this.fileChannel.truncate(size);
+            return true;
+        }
+        catch (IOException e) {
+            log.warn("truncate file " + this.fileName + " to " + size + " Failed. ", e);
+        }
+
+        return false;
+    }
+
+
     public int getWrotePostion() {
         return wrotePostion.get();
     }
@@ -412,7 +524,7 @@ public class MapedFile extends ReferenceResource {
 
 
     public MappedByteBuffer getMappedByteBuffer() {
-        return mappedByteBuffer;
+        return this.ensureMaped();
     }
 
 
@@ -420,7 +532,7 @@ public class MapedFile extends ReferenceResource {
      * ʱãȫֻʱreloadʱ
      */
     public ByteBuffer sliceByteBuffer() {
-        return this.mappedByteBuffer.slice();
+        return this.ensureMaped().slice();
     }
 
 
@@ -437,4 +549,14 @@ public class MapedFile extends ReferenceResource {
     public void setFirstCreateInQueue(boolean firstCreateInQueue) {
         this.firstCreateInQueue = firstCreateInQueue;
     }
+
+
+    public long getLastAccessTimestamp() {
+        return lastAccessTimestamp;
+    }
+
+
+    public void setLastAccessTimestamp(long lastAccessTimestamp) {
+        this.lastAccessTimestamp = lastAccessTimestamp;
+    }
 }
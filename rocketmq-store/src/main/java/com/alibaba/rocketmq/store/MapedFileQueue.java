@@ -7,9 +7,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +21,8 @@ import com.alibaba.rocketmq.common.UtilALl;
 
 /**
  * 洢Уݶʱɾ<br>
- * ɶļ
+ * ɶļ<br>
+ * ļбǲɱ飬޸ʱͨvolatile÷
  * 
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
@@ -28,16 +30,18 @@ public class MapedFileQueue {
     private static final Logger log = LoggerFactory.getLogger(MixAll.StoreLoggerName);
     // ÿδɾļɾٸļ
     private static final int DeleteFilesBatchMax = 30;
+    // ȴ̨ɾļ׺ʱֱɾ
+    public static final String DeletingFileSuffix = ".deleting";
     // ļ洢λ
     private final String storePath;
     // ÿļĴС
     private final int mapedFileSize;
     // ˢˢ
     private long committedWhere = 0;
-    // ļ
-    private final List<MapedFile> mapedFiles = new ArrayList<MapedFile>();
-    // дmapedFiles
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    // ļʼOffset鷢޸
+    private volatile MapedFile[] mapedFiles = new MapedFile[0];
+    // ޸mapedFiles̻߳⣬Ҫ
+    private final Lock writeLock = new ReentrantLock();
     // ԤMapedFile
     private final AllocateMapedFileService allocateMapedFileService;
     // һϢ洢ʱ
@@ -98,41 +102,77 @@ public class MapedFileQueue {
         File dir = new File(this.storePath);
         File[] files = dir.listFiles();
         if (files != null) {
-            // ascending order
-            Arrays.sort(files);
-            for (File file : files) {
-                // УļСǷƥ
-                if (file.length() != this.mapedFileSize) {
-                    log.warn(file + "\t" + file.length()
-                            + " length not matched message store config value, ignore it");
-                    return true;
-                }
+            List<MapedFile> loaded = new ArrayList<MapedFile>(files.length);
+            try {
+                // ascending order
+                Arrays.sort(files);
+                for (File file : files) {
+                    // ϴɾδɵļֱɾ
+                    if (file.getName().endsWith(DeletingFileSuffix)) {
+                        log.warn("delete unfinished deleting file " + file.getPath() + " "
+                                + (file.delete() ? "OK" : "Failed"));
+                        continue;
+                    }
 
-                // ָ
-                try {
-                    MapedFile mapedFile = new MapedFile(file.getPath(), mapedFileSize);
+                    // УļСǷƥ
+                    if (file.length() != this.mapedFileSize) {
+                        log.warn(file + "\t" + file.length()
+                                + " length not matched message store config value, ignore it");
+                        return true;
+                    }
 
-                    mapedFile.setWrotePostion(this.mapedFileSize);
-                    mapedFile.setCommittedPosition(this.mapedFileSize);
-                    this.mapedFiles.add(mapedFile);
-                    log.info("load " + file.getPath() + " OK");
-                }
-                catch (IOException e) {
-                    log.error("load file " + file + " error", e);
-                    return false;
+                    // ָ
+                    try {
+                        MapedFile mapedFile = new MapedFile(file.getPath(), mapedFileSize);
+
+                        mapedFile.setWrotePostion(this.mapedFileSize);
+                        mapedFile.setCommittedPosition(this.mapedFileSize);
+                        loaded.add(mapedFile);
+                        log.info("load " + file.getPath() + " OK");
+                    }
+                    catch (IOException e) {
+                        log.error("load file " + file + " error", e);
+                        return false;
+                    }
                 }
             }
+            finally {
+                this.appendMapedFiles(loaded);
+            }
         }
 
         return true;
     }
 
 
+    /**
+     * ڶβ׷ļ
+     */
+    private void appendMapedFiles(final List<MapedFile> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+
+        this.writeLock.lock();
+        try {
+            MapedFile[] old = this.mapedFiles;
+            MapedFile[] mfs = Arrays.copyOf(old, old.length + files.size());
+            for (int i = 0; i < files.size(); i++) {
+                mfs[old.length + i] = files.get(i);
+            }
+            this.mapedFiles = mfs;
+        }
+        finally {
+            this.writeLock.unlock();
+        }
+    }
+
+
     /**
      * ˢ̽˶
      */
     public long howMuchFallBehind() {
-        if (this.mapedFiles.isEmpty())
+        if (0 == this.mapedFiles.length)
             return 0;
 
         long committed = this.committedWhere;
@@ -151,17 +191,9 @@ public class MapedFileQueue {
      * ȡеСOffsetΪգ򷵻-1
      */
     public long getMinOffset() {
-        try {
-            this.readWriteLock.readLock().lock();
-            if (!this.mapedFiles.isEmpty()) {
-                return this.mapedFiles.get(0).getFileFromOffset();
-            }
-        }
-        catch (Exception e) {
-            log.error("getMinOffset has exception.", e);
-        }
-        finally {
-            this.readWriteLock.readLock().unlock();
+        final MapedFile[] mfs = this.mapedFiles;
+        if (mfs.length > 0) {
+            return mfs[0].getFileFromOffset();
         }
 
         return -1;
@@ -169,19 +201,10 @@ public class MapedFileQueue {
 
 
     public long getMaxOffset() {
-        try {
-            this.readWriteLock.readLock().lock();
-            if (!this.mapedFiles.isEmpty()) {
-                int lastIndex = this.mapedFiles.size() - 1;
-                MapedFile mapedFile = this.mapedFiles.get(lastIndex);
-                return mapedFile.getFileFromOffset() + mapedFile.getWrotePostion();
-            }
-        }
-        catch (Exception e) {
-            log.error("getMinOffset has exception.", e);
-        }
-        finally {
-            this.readWriteLock.readLock().unlock();
+        final MapedFile[] mfs = this.mapedFiles;
+        if (mfs.length > 0) {
+            MapedFile mapedFile = mfs[mfs.length - 1];
+            return mapedFile.getFileFromOffset() + mapedFile.getWrotePostion();
         }
 
         return 0;
@@ -192,11 +215,12 @@ public class MapedFileQueue {
      * ָʱ
      */
     public void deleteLastMapedFile() {
-        if (!this.mapedFiles.isEmpty()) {
-            int lastIndex = this.mapedFiles.size() - 1;
-            MapedFile mapedFile = this.mapedFiles.get(lastIndex);
+        MapedFile mapedFile = this.getLastMapedFile2();
+        if (mapedFile != null) {
             mapedFile.destroy(1000);
-            this.mapedFiles.remove(mapedFile);
+            List<MapedFile> files = new ArrayList<MapedFile>(1);
+            files.add(mapedFile);
+            this.deleteExpiredFile(files);
             log.info("on recover, destroy a logic maped file " + mapedFile.getFileName());
         }
     }
@@ -207,20 +231,19 @@ public class MapedFileQueue {
      */
     private void deleteExpiredFile(List<MapedFile> files) {
         if (!files.isEmpty()) {
+            this.writeLock.lock();
             try {
-                this.readWriteLock.writeLock().lock();
+                List<MapedFile> remain = new ArrayList<MapedFile>(Arrays.asList(this.mapedFiles));
                 for (MapedFile file : files) {
-                    if (!this.mapedFiles.remove(file)) {
+                    if (!remain.remove(file)) {
                         log.error("deleteExpiredFile remove failed.");
                         break;
                     }
                 }
-            }
-            catch (Exception e) {
-                log.error("deleteExpiredFile has exception.", e);
+                this.mapedFiles = remain.toArray(new MapedFile[remain.size()]);
             }
             finally {
-                this.readWriteLock.writeLock().unlock();
+                this.writeLock.unlock();
             }
         }
     }
@@ -275,6 +298,42 @@ public class MapedFileQueue {
     }
 
 
+    /**
+     * ļʱ䣬ѹļӶժļɵ÷ں̨ɾ<br>
+     * ֻժѾӳļԱõļȴ´ԣɾļĴһ
+     *
+     * @return ժļ
+     */
+    public List<MapedFile> retireExpiredFileByTime(final long expiredTime, final long intervalForcibly) {
+        List<MapedFile> files = new ArrayList<MapedFile>();
+        Object[] mfs = this.copyMapedFiles(0);
+        if (null == mfs)
+            return files;
+
+        // һļд״̬ɾ
+        int mfsLength = mfs.length - 1;
+        for (int i = 0; i < mfsLength && files.size() < DeleteFilesBatchMax; i++) {
+            MapedFile mapedFile = (MapedFile) mfs[i];
+            long liveMaxTimestamp = mapedFile.getLastModifiedTimestamp() + expiredTime;
+            if (System.currentTimeMillis() < liveMaxTimestamp) {
+                break;
+            }
+
+            mapedFile.shutdown(intervalForcibly);
+            if (!mapedFile.isCleanupOver()) {
+                log.warn("retire maped file[REF:" + mapedFile.getRefCount() + "] " + mapedFile.getFileName()
+                        + " Failed, still in use");
+                break;
+            }
+            files.add(mapedFile);
+        }
+
+        deleteExpiredFile(files);
+
+        return files;
+    }
+
+
     /**
      * СOffsetɾ߼
      * 
@@ -350,10 +409,11 @@ public class MapedFileQueue {
 
 
     public MapedFile getLastMapedFile2() {
-        if (this.mapedFiles.isEmpty()) {
+        final MapedFile[] mfs = this.mapedFiles;
+        if (0 == mfs.length) {
             return null;
         }
-        return this.mapedFiles.get(this.mapedFiles.size() - 1);
+        return mfs[mfs.length - 1];
     }
 
 
@@ -371,16 +431,9 @@ public class MapedFileQueue {
      */
     public MapedFile getLastMapedFile(final long startOffset) {
         long createOffset = -1;
-        MapedFile mapedFileLast = null;
-        {
-            this.readWriteLock.readLock().lock();
-            if (this.mapedFiles.isEmpty()) {
-                createOffset = startOffset - (startOffset % this.mapedFileSize);
-            }
-            else {
-                mapedFileLast = this.mapedFiles.get(this.mapedFiles.size() - 1);
-            }
-            this.readWriteLock.readLock().unlock();
+        MapedFile mapedFileLast = this.getLastMapedFile2();
+        if (null == mapedFileLast) {
+            createOffset = startOffset - (startOffset % this.mapedFileSize);
         }
 
         if (mapedFileLast != null && mapedFileLast.isFull()) {
@@ -408,12 +461,19 @@ public class MapedFileQueue {
             }
 
             if (mapedFile != null) {
-                this.readWriteLock.writeLock().lock();
-                if (this.mapedFiles.isEmpty()) {
-                    mapedFile.setFirstCreateInQueue(true);
+                this.writeLock.lock();
+                try {
+                    MapedFile[] old = this.mapedFiles;
+                    if (0 == old.length) {
+                        mapedFile.setFirstCreateInQueue(true);
+                    }
+                    MapedFile[] mfs = Arrays.copyOf(old, old.length + 1);
+                    mfs[old.length] = mapedFile;
+                    this.mapedFiles = mfs;
+                }
+                finally {
+                    this.writeLock.unlock();
                 }
-                this.mapedFiles.add(mapedFile);
-                this.readWriteLock.writeLock().unlock();
             }
 
             return mapedFile;
@@ -423,23 +483,13 @@ public class MapedFileQueue {
     }
 
 
-    private MapedFile getFirstMapedFile() {
-        if (this.mapedFiles.isEmpty()) {
+    public MapedFile getFirstMapedFileOnLock() {
+        final MapedFile[] mfs = this.mapedFiles;
+        if (0 == mfs.length) {
             return null;
         }
 
-        return this.mapedFiles.get(0);
-    }
-
-
-    public MapedFile getFirstMapedFileOnLock() {
-        try {
-            this.readWriteLock.readLock().lock();
-            return this.getFirstMapedFile();
-        }
-        finally {
-            this.readWriteLock.readLock().unlock();
-        }
+        return mfs[0];
     }
 
 
@@ -448,38 +498,25 @@ public class MapedFileQueue {
     }
 
 
+    /**
+     * ļOffsetֱӼ±꣬
+     */
     public MapedFile findMapedFileByOffset(final long offset, final boolean returnFirstOnNotFound) {
-        try {
-            this.readWriteLock.readLock().lock();
-            MapedFile mapedFile = this.getFirstMapedFile();
-
-            if (mapedFile != null) {
-                int index =
-                        (int) ((offset / this.mapedFileSize) - (mapedFile.getFileFromOffset() / this.mapedFileSize));
-                if (index < 0 || index >= this.mapedFiles.size()) {
-                    log.warn("findMapedFileByOffset offset not matched, request Offset: " + offset + ", index: "
-                            + index + ", mapedFileSize: " + this.mapedFileSize + ", mapedFiles count: "
-                            + this.mapedFiles.size());
-                }
-
-                try {
-                    return this.mapedFiles.get(index);
-                }
-                catch (Exception e) {
-                    if (returnFirstOnNotFound) {
-                        return mapedFile;
-                    }
-                }
-            }
-        }
-        catch (Exception e) {
-            e.printStackTrace();
+        final MapedFile[] mfs = this.mapedFiles;
+        if (0 == mfs.length) {
+            return null;
         }
-        finally {
-            this.readWriteLock.readLock().unlock();
+
+        final MapedFile mapedFile = mfs[0];
+        final long index =
+                (offset / this.mapedFileSize) - (mapedFile.getFileFromOffset() / this.mapedFileSize);
+        if (index >= 0 && index < mfs.length) {
+            return mfs[(int) index];
         }
 
-        return null;
+        log.warn("findMapedFileByOffset offset not matched, request Offset: " + offset + ", index: " + index
+                + ", mapedFileSize: " + this.mapedFileSize + ", mapedFiles count: " + mfs.length);
+        return returnFirstOnNotFound ? mapedFile : null;
     }
 
 
@@ -499,24 +536,16 @@ public class MapedFileQueue {
     }
 
 
-    private Object[] copyMapedFiles(final int reservedMapedFiles) {
-        Object[] mfs = null;
-
-        try {
-            this.readWriteLock.readLock().lock();
-            if (this.mapedFiles.size() <= reservedMapedFiles) {
-                return null;
-            }
-
-            mfs = this.mapedFiles.toArray();
-        }
-        catch (Exception e) {
-            e.printStackTrace();
-        }
-        finally {
-            this.readWriteLock.readLock().unlock();
+    /**
+     * ļбĸļreservedMapedFilesʱnull
+     */
+    public Object[] copyMapedFiles(final int reservedMapedFiles) {
+        final MapedFile[] mfs = this.mapedFiles;
+        if (mfs.length <= reservedMapedFiles) {
+            return null;
         }
-        return mfs;
+
+        return Arrays.copyOf(mfs, mfs.length, Object[].class);
     }
 
 
@@ -548,11 +577,9 @@ public class MapedFileQueue {
      * رնУݻڣǲܷ
      */
     public void shutdown(final long intervalForcibly) {
-        this.readWriteLock.readLock().lock();
         for (MapedFile mf : this.mapedFiles) {
             mf.shutdown(intervalForcibly);
         }
-        this.readWriteLock.readLock().unlock();
     }
 
 
@@ -560,13 +587,17 @@ public class MapedFileQueue {
      * ٶУݱɾ˺пܲɹ
      */
     public void destroy() {
-        this.readWriteLock.writeLock().lock();
-        for (MapedFile mf : this.mapedFiles) {
-            mf.destroy(1000 * 3);
+        this.writeLock.lock();
+        try {
+            for (MapedFile mf : this.mapedFiles) {
+                mf.destroy(1000 * 3);
+            }
+            this.mapedFiles = new MapedFile[0];
+            this.committedWhere = 0;
+        }
+        finally {
+            this.writeLock.unlock();
         }
-        this.mapedFiles.clear();
-        this.committedWhere = 0;
-        this.readWriteLock.writeLock().unlock();
     }
 
 
@@ -585,8 +616,11 @@ public class MapedFileQueue {
     }
 
 
+    /**
+     * ǰļбֻ
+     */
     public List<MapedFile> getMapedFiles() {
-        return mapedFiles;
+        return Collections.unmodifiableList(Arrays.asList(this.mapedFiles));
     }
 
 
@@ -3,26 +3,155 @@
  */
 package com.alibaba.rocketmq.store;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageDecoder;
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.TopicFilterType;
 
 
 /**
+ * Brokerڲ洢õϢ<br>
+ * ֻԭʼʱлԣɨһȡ洢õļԣ
+ * Ի޸ʱMap
+ *
  * @author shijia.wxr<vintage.wang@gmail.com>
  * 
  */
 public class MessageExtBrokerInner extends MessageExt {
+    /**
+     * ͡洢Ϣõԣɨԭʼʱһȡ
+     */
+    private static final String[] ScannedPropertyNames = { //
+        Message.PROPERTY_TAGS, //
+        Message.PROPERTY_KEYS, //
+        Message.PROPERTY_DELAY_TIME_LEVEL, //
+        Message.PROPERTY_PRODUCER_GROUP, //
+        Message.PROPERTY_WAIT_STORE_MSG_OK //
+        };
+
     private String propertiesString;
+    // дCommitLogݣǿͻ˷ĶƸʽ
+    private byte[] propertiesData;
     private long tagsCode;
 
+    // Mapδɣֻԭʼ
+    private boolean propertiesLazy = false;
+    // ScannedPropertyNamesһһӦΪnullʾδɨ
+    private String[] scannedProperties;
+
 
     public String getPropertiesString() {
         return propertiesString;
     }
 
 
+    /**
+     * ıʽԭʼݣ֮ǰûMapʱMapҪʱ
+     */
     public void setPropertiesString(String propertiesString) {
         this.propertiesString = propertiesString;
+        this.propertiesData = null;
+        this.resetLazyProperties();
+    }
+
+
+    /**
+     * ûԭʼʱʹıʽ
+     */
+    public byte[] getPropertiesData() {
+        if (null == this.propertiesData && this.propertiesString != null) {
+            this.propertiesData = this.propertiesString.getBytes();
+        }
+        return propertiesData;
+    }
+
+
+    /**
+     * ԭʼݣı߶Ƹʽ֮ǰûMapʱMapҪʱ
+     */
+    public void setPropertiesData(byte[] propertiesData) {
+        this.propertiesData = propertiesData;
+        this.resetLazyProperties();
+    }
+
+
+    private void resetLazyProperties() {
+        this.scannedProperties = null;
+        this.propertiesLazy = this.propertiesLazy || null == super.getProperties();
+    }
+
+
+    /**
+     * Map֮ԷʶMapΪ׼
+     */
+    private void materializeProperties() {
+        if (this.propertiesLazy) {
+            this.propertiesLazy = false;
+            this.scannedProperties = null;
+            final byte[] data = this.getPropertiesData();
+            if (data != null && data.length > 0) {
+                super.setProperties(MessageDecoder.bytes2messageProperties(data, 0, data.length));
+            }
+            else {
+                super.setProperties(new HashMap<String, String>());
+            }
+        }
+    }
+
+
+    @Override
+    public String getProperty(final String name) {
+        if (this.propertiesLazy) {
+            for (int i = 0; i < ScannedPropertyNames.length; i++) {
+                if (ScannedPropertyNames[i].equals(name)) {
+                    if (null == this.scannedProperties) {
+                        this.scannedProperties = new String[ScannedPropertyNames.length];
+                        final byte[] data = this.getPropertiesData();
+                        if (data != null) {
+                            MessageDecoder.getProperties(data, 0, data.length, ScannedPropertyNames,
+                                this.scannedProperties);
+                        }
+                    }
+                    return this.scannedProperties[i];
+                }
+            }
+
+            this.materializeProperties();
+        }
+
+        return super.getProperty(name);
+    }
+
+
+    @Override
+    public void putProperty(final String name, final String value) {
+        this.materializeProperties();
+        super.putProperty(name, value);
+    }
+
+
+    @Override
+    public void clearProperty(final String name) {
+        this.materializeProperties();
+        super.clearProperty(name);
+    }
+
+
+    @Override
+    public Map<String, String> getProperties() {
+        this.materializeProperties();
+        return super.getProperties();
+    }
+
+
+    @Override
+    public void setProperties(Map<String, String> properties) {
+        super.setProperties(properties);
+        this.propertiesLazy = false;
+        this.scannedProperties = null;
     }
 
 
@@ -42,4 +171,12 @@ public class MessageExtBrokerInner extends MessageExt {
         // TODO
         return 0;
     }
+
+
+    @Override
+    public String toString() {
+        // ֱӷֶΣӡǰMap
+        this.materializeProperties();
+        return super.toString();
+    }
 }
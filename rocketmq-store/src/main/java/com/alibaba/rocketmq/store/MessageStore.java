@@ -4,6 +4,7 @@
 package com.alibaba.rocketmq.store;
 
 import java.util.HashMap;
+import java.util.List;
 
 import com.alibaba.rocketmq.common.MessageExt;
 import com.alibaba.rocketmq.common.protocol.heartbeat.SubscriptionData;
@@ -46,6 +47,12 @@ public interface MessageStore {
     public PutMessageResult putMessage(final MessageExtBrokerInner msg);
 
 
+    /**
+     * 洢ϢһдCommitLogؽϢһһӦ
+     */
+    public List<PutMessageResult> putMessages(final List<MessageExtBrokerInner> msgs);
+
+
     /**
      * ȡϢtypesΪnull
      */
@@ -99,6 +106,12 @@ public interface MessageStore {
     public HashMap<String, String> getRuntimeInfo();
 
 
+    /**
+     * OS PageCacheǷæдCommitLogʱ䳬ֵ
+     */
+    public boolean isOSPageCacheBusy();
+
+
     /**
      * ȡoffset
      */
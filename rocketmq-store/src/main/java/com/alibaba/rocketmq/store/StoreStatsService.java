@@ -14,6 +14,8 @@ import org.slf4j.LoggerFactory;
 
 import com.alibaba.rocketmq.common.MixAll;
 import com.alibaba.rocketmq.common.ServiceThread;
+import com.alibaba.rocketmq.common.stats.StripedCounter;
+import com.alibaba.rocketmq.store.stats.LatencyHistogram;
 
 
 /**
@@ -47,29 +49,41 @@ public class StoreStatsService extends ServiceThread {
     // ʱ
     private long messageStoreBootTimestamp = System.currentTimeMillis();
     // putMessageдϢʱʱ䣨λ룩
-    private volatile long putMessageEntireTimeMax = 0;
+    private final AtomicLong putMessageEntireTimeMax = new AtomicLong(0);
     // getMessageȡһϢʱʱ䣨λ룩
-    private volatile long getMessageEntireTimeMax = 0;
-
-    // for putMessageEntireTimeMax
-    private ReentrantLock lockPut = new ReentrantLock();
-    // for getMessageEntireTimeMax
-    private ReentrantLock lockGet = new ReentrantLock();
+    private final AtomicLong getMessageEntireTimeMax = new AtomicLong(0);
 
+    // ¼ÿζдϢۼӣʹ÷ֶμ߳̾ͬһCache Line
     // putMessageʧܴ
-    private final AtomicLong putMessageFailedTimes = new AtomicLong(0);
+    private final StripedCounter putMessageFailedTimes = new StripedCounter();
     // putMessage
-    private final AtomicLong putMessageTimesTotal = new AtomicLong(0);
+    private final StripedCounter putMessageTimesTotal = new StripedCounter();
     // getMessage
-    private final AtomicLong getMessageTimesTotalFound = new AtomicLong(0);
-    private final AtomicLong getMessageTransferedMsgCount = new AtomicLong(0);
-    private final AtomicLong getMessageTimesTotalMiss = new AtomicLong(0);
+    private final StripedCounter getMessageTimesTotalFound = new StripedCounter();
+    private final StripedCounter getMessageTransferedMsgCount = new StripedCounter();
+    private final StripedCounter getMessageTimesTotalMiss = new StripedCounter();
     // putMessageMessage Size Total
-    private final AtomicLong putMessageSizeTotal = new AtomicLong(0);
+    private final StripedCounter putMessageSizeTotal = new StripedCounter();
     // putMessageʱֲ
-    private final AtomicLong[] putMessageDistributeTime = new AtomicLong[7];
+    private final StripedCounter[] putMessageDistributeTime = new StripedCounter[7];
     // DispatchMessageServiceֵ
     private volatile long dispatchMaxBuffer = 0;
+    // CommitLogReadAheadServiceԤֽ
+    private final AtomicLong commitLogReadAheadBytes = new AtomicLong(0);
+
+    // ʱֲλ΢룬ÿڹһ
+    private final LatencyHistogram putMessageLatency = new LatencyHistogram("putMessageLatency");
+    private final LatencyHistogram getMessageLatency = new LatencyHistogram("getMessageLatency");
+    // ͬˢ̵ȴʱ
+    private final LatencyHistogram groupCommitWaitLatency = new LatencyHistogram("groupCommitWaitLatency");
+    // ͬ˫дȴʱ
+    private final LatencyHistogram haWaitLatency = new LatencyHistogram("haWaitLatency");
+    // ϢдCommitLogַConsumeQueueʱ
+    private final LatencyHistogram dispatchLag = new LatencyHistogram("dispatchLag");
+    private final LatencyHistogram[] latencyHistograms = new LatencyHistogram[] { putMessageLatency,
+                                                                                 getMessageLatency,
+                                                                                 groupCommitWaitLatency,
+                                                                                 haWaitLatency, dispatchLag };
 
     // Ƶʣ1Ӳһ
     private static final int FrequencyOfSampling = 1000;
@@ -92,76 +106,80 @@ public class StoreStatsService extends ServiceThread {
 
     public StoreStatsService() {
         for (int i = 0; i < this.putMessageDistributeTime.length; i++) {
-            putMessageDistributeTime[i] = new AtomicLong(0);
+            putMessageDistributeTime[i] = new StripedCounter();
         }
     }
 
 
     public long getPutMessageEntireTimeMax() {
-        return putMessageEntireTimeMax;
+        return putMessageEntireTimeMax.get();
+    }
+
+
+    /**
+     * ֵֻгǰֵʱŻCAS
+     */
+    private static void updateMax(final AtomicLong max, final long value) {
+        long prev = max.get();
+        while (value > prev) {
+            if (max.compareAndSet(prev, value)) {
+                break;
+            }
+            prev = max.get();
+        }
     }
 
 
     public void setPutMessageEntireTimeMax(long value) {
         // ΢
         if (value <= 0) {
-            this.putMessageDistributeTime[0].incrementAndGet();
+            this.putMessageDistributeTime[0].increment();
         }
         // 
         else if (value < 10) {
-            this.putMessageDistributeTime[1].incrementAndGet();
+            this.putMessageDistributeTime[1].increment();
         }
         // ʮ
         else if (value < 100) {
-            this.putMessageDistributeTime[2].incrementAndGet();
+            this.putMessageDistributeTime[2].increment();
         }
         // ٺ루500ڣ
         else if (value < 500) {
-            this.putMessageDistributeTime[3].incrementAndGet();
+            this.putMessageDistributeTime[3].increment();
         }
         // ٺ루500ϣ
         else if (value < 1000) {
-            this.putMessageDistributeTime[4].incrementAndGet();
+            this.putMessageDistributeTime[4].increment();
         }
         // 
         else if (value < 10000) {
-            this.putMessageDistributeTime[5].incrementAndGet();
+            this.putMessageDistributeTime[5].increment();
         }
         // 10
         else {
-            this.putMessageDistributeTime[6].incrementAndGet();
+            this.putMessageDistributeTime[6].increment();
         }
 
-        if (value > this.putMessageEntireTimeMax) {
-            this.lockPut.lock();
-            this.putMessageEntireTimeMax =
-                    value > this.putMessageEntireTimeMax ? value : this.putMessageEntireTimeMax;
-            this.lockPut.unlock();
-        }
+        updateMax(this.putMessageEntireTimeMax, value);
     }
 
 
     public long getGetMessageEntireTimeMax() {
-        return getMessageEntireTimeMax;
+        return getMessageEntireTimeMax.get();
     }
 
 
     public void setGetMessageEntireTimeMax(long value) {
-        if (value > this.getMessageEntireTimeMax) {
-            this.lockGet.lock();
-            this.getMessageEntireTimeMax =
-                    value > this.getMessageEntireTimeMax ? value : this.getMessageEntireTimeMax;
-            this.lockGet.unlock();
-        }
+        updateMax(this.getMessageEntireTimeMax, value);
     }
 
 
-    public AtomicLong getPutMessageTimesTotal() {
+    public StripedCounter getPutMessageTimesTotal() {
         return putMessageTimesTotal;
     }
 
 
-    public AtomicLong getPutMessageSizeTotal() {
+    public StripedCounter getPutMessageSizeTotal() {
         return putMessageSizeTotal;
     }
 
@@ -179,7 +197,7 @@ public class StoreStatsService extends ServiceThread {
     private String getPutMessageDistributeTimeStringInfo(Long total) {
         final StringBuilder sb = new StringBuilder(512);
 
-        for (AtomicLong i : this.putMessageDistributeTime) {
+        for (StripedCounter i : this.putMessageDistributeTime) {
             long value = i.get();
             double ratio = value / total.doubleValue();
             sb.append("\r\n\t\t");
@@ -216,19 +234,22 @@ public class StoreStatsService extends ServiceThread {
         }
 
         sb.append("\truntime: " + this.getFormatRuntime() + "\r\n");
-        sb.append("\tputMessageEntireTimeMax: " + this.putMessageEntireTimeMax + "\r\n");
+        sb.append("\tputMessageEntireTimeMax: " + this.putMessageEntireTimeMax.get() + "\r\n");
         sb.append("\tputMessageTimesTotal: " + totalTimes + "\r\n");
         sb.append("\tputMessageSizeTotal: " + this.putMessageSizeTotal.get() + "\r\n");
         sb.append("\tputMessageDistributeTime: " + this.getPutMessageDistributeTimeStringInfo(totalTimes) + "\r\n");
         sb.append("\tputMessageAverageSize: " + (this.putMessageSizeTotal.get() / totalTimes.doubleValue())
                 + "\r\n");
         sb.append("\tdispatchMaxBuffer: " + this.dispatchMaxBuffer + "\r\n");
-        sb.append("\tgetMessageEntireTimeMax: " + this.getMessageEntireTimeMax + "\r\n");
+        sb.append("\tgetMessageEntireTimeMax: " + this.getMessageEntireTimeMax.get() + "\r\n");
         sb.append("\tputTps: " + this.getPutTps() + "\r\n");
         sb.append("\tgetFoundTps: " + this.getGetFoundTps() + "\r\n");
         sb.append("\tgetMissTps: " + this.getGetMissTps() + "\r\n");
         sb.append("\tgetTotalTps: " + this.getGetTotalTps() + "\r\n");
         sb.append("\tgetTransferedTps: " + this.getGetTransferedTps() + "\r\n");
+        for (LatencyHistogram h : this.latencyHistograms) {
+            sb.append("\t" + h.getName() + "(us): " + h.getLastInterval() + "\r\n");
+        }
         return sb.toString();
     }
 
@@ -243,10 +264,21 @@ public class StoreStatsService extends ServiceThread {
 
         result.put("bootimestamp", String.valueOf(this.messageStoreBootTimestamp));
         result.put("runtime", this.getFormatRuntime());
-        result.put("putMessageEntireTimeMax", String.valueOf(this.putMessageEntireTimeMax));
+        result.put("putMessageEntireTimeMax", String.valueOf(this.putMessageEntireTimeMax.get()));
         result.put("putMessageAverageSize",
             String.valueOf((this.putMessageSizeTotal.get() / totalTimes.doubleValue())));
         result.put("dispatchMaxBuffer", String.valueOf(this.dispatchMaxBuffer));
+        result.put("commitLogReadAheadBytes", String.valueOf(this.commitLogReadAheadBytes.get()));
+
+        // һڵʱλֵλ΢
+        for (LatencyHistogram h : this.latencyHistograms) {
+            LatencyHistogram.Snapshot snapshot = h.getLastInterval();
+            result.put(h.getName() + "Count", String.valueOf(snapshot.getTotalCount()));
+            result.put(h.getName() + "P50", String.valueOf(snapshot.getValueAtPercentile(50)));
+            result.put(h.getName() + "P99", String.valueOf(snapshot.getValueAtPercentile(99)));
+            result.put(h.getName() + "P999", String.valueOf(snapshot.getValueAtPercentile(99.9)));
+            result.put(h.getName() + "Max", String.valueOf(snapshot.getMaxValue()));
+        }
 
         return result;
     }
@@ -282,6 +314,26 @@ public class StoreStatsService extends ServiceThread {
     }
 
 
+    /**
+     * дTPSʱ-1
+     */
+    public double getRecentPutTps(final int time) {
+        this.lockSampling.lock();
+        try {
+            if (this.putTimesList.size() > time) {
+                CallSnapshot last = this.putTimesList.getLast();
+                CallSnapshot lastBefore = this.putTimesList.get(this.putTimesList.size() - (time + 1));
+                return CallSnapshot.getTPS(lastBefore, last);
+            }
+        }
+        finally {
+            this.lockSampling.unlock();
+        }
+
+        return -1;
+    }
+
+
     private String getPutTps(int time) {
         String result = "";
         this.lockSampling.lock();
@@ -459,6 +511,13 @@ public class StoreStatsService extends ServiceThread {
     }
 
 
+    private void rolloverLatency() {
+        for (LatencyHistogram h : this.latencyHistograms) {
+            h.rollover();
+        }
+    }
+
+
     /**
      * 1ӴӡһTPS
      */
@@ -473,6 +532,10 @@ public class StoreStatsService extends ServiceThread {
             log.info("get_miss_tps {}", this.getGetMissTps(PrintTPSInterval));
 
             log.info("get_transfered_tps {}", this.getGetTransferedTps(PrintTPSInterval));
+
+            for (LatencyHistogram h : this.latencyHistograms) {
+                log.info("{}(us) {}", h.getName(), h.getLastInterval());
+            }
         }
     }
 
@@ -486,6 +549,8 @@ public class StoreStatsService extends ServiceThread {
 
                 this.sampling();
 
+                this.rolloverLatency();
+
                 this.printTps();
             }
             catch (Exception e) {
@@ -503,22 +568,52 @@ public class StoreStatsService extends ServiceThread {
     }
 
 
-    public AtomicLong getGetMessageTimesTotalFound() {
+    public StripedCounter getGetMessageTimesTotalFound() {
         return getMessageTimesTotalFound;
     }
 
 
-    public AtomicLong getGetMessageTimesTotalMiss() {
+    public StripedCounter getGetMessageTimesTotalMiss() {
         return getMessageTimesTotalMiss;
     }
 
 
-    public AtomicLong getGetMessageTransferedMsgCount() {
+    public StripedCounter getGetMessageTransferedMsgCount() {
         return getMessageTransferedMsgCount;
     }
 
 
-    public AtomicLong getPutMessageFailedTimes() {
+    public AtomicLong getCommitLogReadAheadBytes() {
+        return commitLogReadAheadBytes;
+    }
+
+
+    public StripedCounter getPutMessageFailedTimes() {
         return putMessageFailedTimes;
     }
+
+
+    public LatencyHistogram getPutMessageLatency() {
+        return putMessageLatency;
+    }
+
+
+    public LatencyHistogram getGetMessageLatency() {
+        return getMessageLatency;
+    }
+
+
+    public LatencyHistogram getGroupCommitWaitLatency() {
+        return groupCommitWaitLatency;
+    }
+
+
+    public LatencyHistogram getHaWaitLatency() {
+        return haWaitLatency;
+    }
+
+
+    public LatencyHistogram getDispatchLag() {
+        return dispatchLag;
+    }
 }
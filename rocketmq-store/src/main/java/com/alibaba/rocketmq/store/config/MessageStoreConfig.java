@@ -79,6 +79,10 @@ public class MessageStoreConfig {
     private int maxTransferCountOnMessageInDisk = 8;
     // Ϣڴ
     private int accessMessageInMemoryMaxRatio = 30;
+    // ʱǷں̨ԤCommitLog
+    private boolean commitLogReadAheadEnable = true;
+    // ÿÿԤCommitLogС
+    private int commitLogReadAheadSize = 1024 * 1024 * 16;
 
     // ǷϢ
     private boolean messageIndexEnable = true;
@@ -123,6 +127,36 @@ public class MessageStoreConfig {
     // ز鶨ʱʱ
     private long checkTransactionMessageTimerInterval = 1000 * 20;
 
+    // дCommitLogʱ䣬ΪOS PageCacheæµķֱӾܾ
+    private long osPageCacheBusyTimeOutMills = 1000;
+
+    // ͵ϢǷBrokerѹһϢϴ洢ҪConsumer֧չϢ
+    private boolean messageSetCompressEnable = false;
+    // һϢжѹϢ
+    private int messageSetCompressMinMessages = 4;
+
+    // ǷConsumeQueueӳļĳפڴ棬ȵжβפPageCacheӳļʱδļӳ
+    private boolean consumeQueueResidencyEnable = true;
+    // ConsumeQueueפڴļʱ䣨λ룩
+    private int consumeQueueResidencyInterval = 1000 * 10;
+    // ڴʱڱȡΪȵУλ룩
+    private int consumeQueueHotTimeMills = 1000 * 60;
+    // ȵжβפڴĴСĬԼ5000Ϣ
+    private int consumeQueueHotTailSize = 1024 * 100;
+    // ÿдһļ⣬ӳConsumeQueueļ
+    private int maxMapedConsumeQueueFiles = 1024;
+
+    // ڵCommitLogļǷɺ̷ֶ̨߳νضϺɾһɾļдϢͣ
+    private boolean deleteCommitLogFilesAsync = true;
+    // ÿνضϵĴСλֽڣ
+    private int deleteFileChunkSize = 1024 * 1024 * 64;
+    // ضļٶޣλMB/s0ʱ
+    private int deleteFileMaxMBPerSecond = 64;
+    // дϢTPSֵʱƳɾȴʱ
+    private int deleteFileBusyPutTps = 10000;
+    // һļƳɾʱ䣬ٵȴʱΣλ룩
+    private int deleteFileMaxDeferMills = 1000 * 60 * 5;
+
 
     public int getMapedFileSizeCommitLog() {
         return mapedFileSizeCommitLog;
@@ -655,4 +689,154 @@ public class MessageStoreConfig {
     public void setCheckTransactionMessageTimerInterval(long checkTransactionMessageTimerInterval) {
         this.checkTransactionMessageTimerInterval = checkTransactionMessageTimerInterval;
     }
+
+
+    public long getOsPageCacheBusyTimeOutMills() {
+        return osPageCacheBusyTimeOutMills;
+    }
+
+
+    public void setOsPageCacheBusyTimeOutMills(long osPageCacheBusyTimeOutMills) {
+        this.osPageCacheBusyTimeOutMills = osPageCacheBusyTimeOutMills;
+    }
+
+
+    public boolean isMessageSetCompressEnable() {
+        return messageSetCompressEnable;
+    }
+
+
+    public void setMessageSetCompressEnable(boolean messageSetCompressEnable) {
+        this.messageSetCompressEnable = messageSetCompressEnable;
+    }
+
+
+    public int getMessageSetCompressMinMessages() {
+        return messageSetCompressMinMessages;
+    }
+
+
+    public void setMessageSetCompressMinMessages(int messageSetCompressMinMessages) {
+        this.messageSetCompressMinMessages = messageSetCompressMinMessages;
+    }
+
+
+    public boolean isCommitLogReadAheadEnable() {
+        return commitLogReadAheadEnable;
+    }
+
+
+    public void setCommitLogReadAheadEnable(boolean commitLogReadAheadEnable) {
+        this.commitLogReadAheadEnable = commitLogReadAheadEnable;
+    }
+
+
+    public int getCommitLogReadAheadSize() {
+        return commitLogReadAheadSize;
+    }
+
+
+    public void setCommitLogReadAheadSize(int commitLogReadAheadSize) {
+        this.commitLogReadAheadSize = commitLogReadAheadSize;
+    }
+
+
+    public boolean isConsumeQueueResidencyEnable() {
+        return consumeQueueResidencyEnable;
+    }
+
+
+    public void setConsumeQueueResidencyEnable(boolean consumeQueueResidencyEnable) {
+        this.consumeQueueResidencyEnable = consumeQueueResidencyEnable;
+    }
+
+
+    public int getConsumeQueueResidencyInterval() {
+        return consumeQueueResidencyInterval;
+    }
+
+
+    public void setConsumeQueueResidencyInterval(int consumeQueueResidencyInterval) {
+        this.consumeQueueResidencyInterval = consumeQueueResidencyInterval;
+    }
+
+
+    public int getConsumeQueueHotTimeMills() {
+        return consumeQueueHotTimeMills;
+    }
+
+
+    public void setConsumeQueueHotTimeMills(int consumeQueueHotTimeMills) {
+        this.consumeQueueHotTimeMills = consumeQueueHotTimeMills;
+    }
+
+
+    public int getConsumeQueueHotTailSize() {
+        return consumeQueueHotTailSize;
+    }
+
+
+    public void setConsumeQueueHotTailSize(int consumeQueueHotTailSize) {
+        this.consumeQueueHotTailSize = consumeQueueHotTailSize;
+    }
+
+
+    public int getMaxMapedConsumeQueueFiles() {
+        return maxMapedConsumeQueueFiles;
+    }
+
+
+    public void setMaxMapedConsumeQueueFiles(int maxMapedConsumeQueueFiles) {
+        this.maxMapedConsumeQueueFiles = maxMapedConsumeQueueFiles;
+    }
+
+
+    public boolean isDeleteCommitLogFilesAsync() {
+        return deleteCommitLogFilesAsync;
+    }
+
+
+    public void setDeleteCommitLogFilesAsync(boolean deleteCommitLogFilesAsync) {
+        this.deleteCommitLogFilesAsync = deleteCommitLogFilesAsync;
+    }
+
+
+    public int getDeleteFileChunkSize() {
+        return deleteFileChunkSize;
+    }
+
+
+    public void setDeleteFileChunkSize(int deleteFileChunkSize) {
+        this.deleteFileChunkSize = deleteFileChunkSize;
+    }
+
+
+    public int getDeleteFileMaxMBPerSecond() {
+        return deleteFileMaxMBPerSecond;
+    }
+
+
+    public void setDeleteFileMaxMBPerSecond(int deleteFileMaxMBPerSecond) {
+        this.deleteFileMaxMBPerSecond = deleteFileMaxMBPerSecond;
+    }
+
+
+    public int getDeleteFileBusyPutTps() {
+        return deleteFileBusyPutTps;
+    }
+
+
+    public void setDeleteFileBusyPutTps(int deleteFileBusyPutTps) {
+        this.deleteFileBusyPutTps = deleteFileBusyPutTps;
+    }
+
+
+    public int getDeleteFileMaxDeferMills() {
+        return deleteFileMaxDeferMills;
+    }
+
+
+    public void setDeleteFileMaxDeferMills(int deleteFileMaxDeferMills) {
+        this.deleteFileMaxDeferMills = deleteFileMaxDeferMills;
+    }
 }
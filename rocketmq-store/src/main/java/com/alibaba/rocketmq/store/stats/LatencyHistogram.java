@@ -0,0 +1,196 @@
+/**
+ * $Id: LatencyHistogram.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * ʱֱͼλ΢<br>
+ * Ͱն-Էʽ֣HdrHistogramÿ2ٵȷ64ݣС1.6%<br>
+ * дֻһAtomicLongArrayͳ߳ÿڵrolloverۼֵõڵķֲ
+ * ˲Ҫд·κν߼
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LatencyHistogram {
+    // С128ֵÿֵһͰ
+    private static final int LinearBuckets = 128;
+    // ֮ÿ264Ͱ
+    private static final int SubBuckets = 64;
+    private static final int SubBucketBits = 6;
+    // ¼ֵ 2^40 - 1 ΢룬Լ12죬ֵ¼
+    private static final int MaxValueBits = 40;
+    private static final long MaxValue = (1L << MaxValueBits) - 1;
+    private static final int BucketCount = LinearBuckets + (MaxValueBits - 7) * SubBuckets;
+
+    private final String name;
+    // ۼƷֲ
+    private final AtomicLongArray counts = new AtomicLongArray(BucketCount);
+    // һrolloverʱۼƷֲֻͳ̷߳
+    private final long[] lastCounts = new long[BucketCount];
+    // һڵķֲ
+    private volatile Snapshot lastInterval = new Snapshot(new long[BucketCount]);
+
+
+    public LatencyHistogram(final String name) {
+        this.name = name;
+    }
+
+
+    static int bucketIndex(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        else if (value > MaxValue) {
+            value = MaxValue;
+        }
+
+        if (value < LinearBuckets) {
+            return (int) value;
+        }
+
+        final int msb = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = msb - SubBucketBits;
+        final int top = (int) (value >>> shift) - SubBuckets;
+        return LinearBuckets + (msb - 7) * SubBuckets + top;
+    }
+
+
+    /**
+     * Ͱܱʾֵ
+     */
+    static long highestEquivalentValue(final int index) {
+        if (index < LinearBuckets) {
+            return index;
+        }
+
+        final int k = index - LinearBuckets;
+        final int msb = k / SubBuckets + 7;
+        final int shift = msb - SubBucketBits;
+        final long top = k % SubBuckets + SubBuckets;
+        return ((top + 1) << shift) - 1;
+    }
+
+
+    /**
+     * ¼һκʱλ΢룬ɶ̲߳
+     */
+    public void record(final long valueMicros) {
+        this.counts.incrementAndGet(bucketIndex(valueMicros));
+    }
+
+
+    /**
+     * ¼beginNanosڵĺʱ
+     */
+    public void recordSince(final long beginNanos) {
+        this.record((System.nanoTime() - beginNanos) / 1000);
+    }
+
+
+    /**
+     * һڣֻͳ̵߳
+     */
+    public void rollover() {
+        final long[] interval = new long[BucketCount];
+        for (int i = 0; i < BucketCount; i++) {
+            final long now = this.counts.get(i);
+            interval[i] = now - this.lastCounts[i];
+            this.lastCounts[i] = now;
+        }
+
+        this.lastInterval = new Snapshot(interval);
+    }
+
+
+    /**
+     * һڵķֲ
+     */
+    public Snapshot getLastInterval() {
+        return lastInterval;
+    }
+
+
+    /**
+     * ۼƷֲ
+     */
+    public Snapshot getTotal() {
+        final long[] total = new long[BucketCount];
+        for (int i = 0; i < BucketCount; i++) {
+            total[i] = this.counts.get(i);
+        }
+
+        return new Snapshot(total);
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+
+        Snapshot(final long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.totalCount = total;
+        }
+
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+
+        /**
+         * ٷλֵ 99.9λ΢
+         */
+        public long getValueAtPercentile(final double percentile) {
+            if (0 == this.totalCount) {
+                return 0;
+            }
+
+            long countAtPercentile = (long) Math.ceil((percentile / 100.0) * this.totalCount);
+            if (countAtPercentile < 1) {
+                countAtPercentile = 1;
+            }
+
+            long sum = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                sum += this.counts[i];
+                if (sum >= countAtPercentile) {
+                    return highestEquivalentValue(i);
+                }
+            }
+
+            return MaxValue;
+        }
+
+
+        public long getMaxValue() {
+            for (int i = this.counts.length - 1; i >= 0; i--) {
+                if (this.counts[i] > 0) {
+                    return highestEquivalentValue(i);
+                }
+            }
+
+            return 0;
+        }
+
+
+        @Override
+        public String toString() {
+            return "count=" + this.totalCount + " p50=" + this.getValueAtPercentile(50) + " p99="
+                    + this.getValueAtPercentile(99) + " p999=" + this.getValueAtPercentile(99.9) + " max="
+                    + this.getMaxValue();
+        }
+    }
+}
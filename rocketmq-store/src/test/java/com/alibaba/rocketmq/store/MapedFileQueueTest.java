@@ -5,6 +5,9 @@ package com.alibaba.rocketmq.store;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.util.List;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -197,4 +200,134 @@ public class MapedFileQueueTest {
         System.out.println("MapedFileQueue.getMapedMemorySize() OK");
     }
 
+
+    /**
+     * дfileNums1024ֽڵļ
+     */
+    private static void fillMapedFiles(final MapedFileQueue mapedFileQueue, final int fileNums) {
+        final byte[] data = "abcd".getBytes();
+        for (int i = 0; i < 256 * fileNums; i++) {
+            MapedFile mapedFile = mapedFileQueue.getLastMapedFile();
+            assertTrue(mapedFile != null);
+            assertTrue(mapedFile.appendMessage(data));
+        }
+    }
+
+
+    @Test
+    public void test_findMapedFileByOffset_afterDelete() {
+        System.out.println("================================================================");
+        AllocateMapedFileService allocateMapedFileService = new AllocateMapedFileService();
+        allocateMapedFileService.start();
+        MapedFileQueue mapedFileQueue = new MapedFileQueue("./unit_test_store/e/", 1024, allocateMapedFileService);
+        fillMapedFiles(mapedFileQueue, 4);
+
+        List<MapedFile> snapshot = mapedFileQueue.getMapedFiles();
+        assertEquals(4, snapshot.size());
+        try {
+            snapshot.remove(0);
+            fail("getMapedFiles should be read only");
+        }
+        catch (UnsupportedOperationException e) {
+        }
+
+        // ֻеһļ
+        File first = new File(snapshot.get(0).getFileName());
+        assertTrue(first.setLastModified(System.currentTimeMillis() - 1000 * 60 * 60 * 2));
+        assertEquals(1, mapedFileQueue.deleteExpiredFileByTime(1000 * 60 * 60, 0, 1000));
+
+        // ɾȡõĿղ
+        assertEquals(4, snapshot.size());
+        assertEquals(3, mapedFileQueue.getMapedFiles().size());
+        assertEquals(1024, mapedFileQueue.getMinOffset());
+        assertEquals(1024 * 4, mapedFileQueue.getMaxOffset());
+
+        // Χ֮ǰ
+        assertTrue(mapedFileQueue.findMapedFileByOffset(100) == null);
+        assertEquals(1024, mapedFileQueue.findMapedFileByOffset(100, true).getFileFromOffset());
+
+        // Χ֮
+        assertEquals(1024, mapedFileQueue.findMapedFileByOffset(1024).getFileFromOffset());
+        assertEquals(1024 * 2, mapedFileQueue.findMapedFileByOffset(1024 * 2 + 100).getFileFromOffset());
+        assertEquals(1024 * 3, mapedFileQueue.findMapedFileByOffset(1024 * 4 - 1).getFileFromOffset());
+
+        // Χ֮
+        assertTrue(mapedFileQueue.findMapedFileByOffset(1024 * 4) == null);
+        assertEquals(1024, mapedFileQueue.findMapedFileByOffset(1024 * 5, true).getFileFromOffset());
+
+        mapedFileQueue.shutdown(1000);
+        mapedFileQueue.destroy();
+        allocateMapedFileService.shutdown();
+        System.out.println("MapedFileQueue.findMapedFileByOffset() after delete OK");
+    }
+
+
+    @Test
+    public void test_retireExpiredFileByTime() {
+        System.out.println("================================================================");
+        AllocateMapedFileService allocateMapedFileService = new AllocateMapedFileService();
+        allocateMapedFileService.start();
+        MapedFileQueue mapedFileQueue = new MapedFileQueue("./unit_test_store/f/", 1024, allocateMapedFileService);
+        fillMapedFiles(mapedFileQueue, 4);
+
+        // ڶļԱУժΪֹ
+        SelectMapedBufferResult held = mapedFileQueue.findMapedFileByOffset(1024).selectMapedBuffer(0, 4);
+        assertTrue(held != null);
+        List<MapedFile> retired = mapedFileQueue.retireExpiredFileByTime(0, 1000 * 60);
+        assertEquals(1, retired.size());
+        assertEquals(0, retired.get(0).getFileFromOffset());
+        assertEquals(1024, mapedFileQueue.getMinOffset());
+        assertEquals(3, mapedFileQueue.getMapedFiles().size());
+
+        // ͷźժһļʼձ
+        held.release();
+        List<MapedFile> retiredAgain = mapedFileQueue.retireExpiredFileByTime(0, 1000 * 60);
+        assertEquals(2, retiredAgain.size());
+        assertEquals(1, mapedFileQueue.getMapedFiles().size());
+        assertEquals(1024 * 3, mapedFileQueue.getMinOffset());
+        assertTrue(mapedFileQueue.retireExpiredFileByTime(0, 1000 * 60).isEmpty());
+
+        // ժļɵ÷ɾ
+        retired.addAll(retiredAgain);
+        for (MapedFile mapedFile : retired) {
+            assertTrue(new File(mapedFile.getFileName()).exists());
+            assertTrue(mapedFile.destroy(1000));
+        }
+
+        mapedFileQueue.shutdown(1000);
+        mapedFileQueue.destroy();
+        allocateMapedFileService.shutdown();
+        System.out.println("MapedFileQueue.retireExpiredFileByTime() OK");
+    }
+
+
+    @Test
+    public void test_load_deletingFile() {
+        System.out.println("================================================================");
+        final String storePath = "./unit_test_store/g/";
+        // ԤļĿ¼ֻдļ
+        MapedFileQueue mapedFileQueue = new MapedFileQueue(storePath, 1024, null);
+        fillMapedFiles(mapedFileQueue, 3);
+
+        // ģ̨ɾ崻ļĿ¼
+        List<MapedFile> retired = mapedFileQueue.retireExpiredFileByTime(0, 1000);
+        assertEquals(2, retired.size());
+        final MapedFile deleting = retired.get(0);
+        final String deletingFileName = deleting.getFileName() + MapedFileQueue.DeletingFileSuffix;
+        assertTrue(deleting.renameTo(deletingFileName));
+        assertTrue(new File(deletingFileName).exists());
+        assertTrue(retired.get(1).destroy(1000));
+        mapedFileQueue.shutdown(1000);
+
+        // ¼ʱɾδɾļҲ
+        MapedFileQueue reloaded = new MapedFileQueue(storePath, 1024, null);
+        assertTrue(reloaded.load());
+        assertFalse(new File(deletingFileName).exists());
+        assertEquals(1, reloaded.getMapedFiles().size());
+        assertEquals(1024 * 2, reloaded.getMinOffset());
+
+        reloaded.shutdown(1000);
+        reloaded.destroy();
+        System.out.println("MapedFileQueue.load() with deleting file OK");
+    }
 }
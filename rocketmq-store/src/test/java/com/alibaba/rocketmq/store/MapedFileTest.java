@@ -3,6 +3,8 @@
  */
 package com.alibaba.rocketmq.store;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -66,6 +68,48 @@ public class MapedFileTest {
     }
 
 
+    @Test
+    public void test_unmap_remap() throws IOException {
+        final byte[] msg = StoreMessage.getBytes();
+        MapedFile mapedFile = new MapedFile("./unit_test_store/MapedFileTest/20480", msg.length * 128);
+
+        // ûдʱܽӳ
+        assertTrue(mapedFile.appendMessage(msg));
+        assertFalse(mapedFile.unmap());
+
+        for (int i = 1; i < 128; i++) {
+            assertTrue(mapedFile.appendMessage(msg));
+        }
+        assertTrue(mapedFile.isFull());
+
+        // дûˢʱܽӳ
+        assertFalse(mapedFile.unmap());
+        assertEquals(mapedFile.getFileSize(), mapedFile.commit(0));
+
+        // ̳߳ʱܽӳ
+        SelectMapedBufferResult held = mapedFile.selectMapedBuffer(0, msg.length);
+        assertFalse(mapedFile.unmap());
+        assertTrue(mapedFile.isMaped());
+        held.release();
+
+        assertTrue(mapedFile.unmap());
+        assertFalse(mapedFile.isMaped());
+        assertFalse(mapedFile.unmap());
+
+        // ٴηʱӳ䣬ݲ
+        SelectMapedBufferResult result = mapedFile.selectMapedBuffer(msg.length * 100, msg.length);
+        assertTrue(result != null);
+        assertTrue(mapedFile.isMaped());
+        byte[] data = new byte[msg.length];
+        result.getByteBuffer().get(data);
+        result.release();
+        assertEquals(StoreMessage, new String(data));
+
+        mapedFile.shutdown(1000);
+        assertTrue(mapedFile.destroy(1000));
+    }
+
+
     /**
      * ǰڶmmap󣬻ᵼJVM CRASHED
      */
@@ -0,0 +1,54 @@
+/**
+ * $Id: MessageExtBrokerInnerTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.Message;
+import com.alibaba.rocketmq.common.MessageDecoder;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageExtBrokerInnerTest {
+    @Test
+    public void test_lazyProperties() {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(Message.PROPERTY_TAGS, "TagA");
+        properties.put(Message.PROPERTY_KEYS, "K1 K2");
+        properties.put(Message.PROPERTY_DELAY_TIME_LEVEL, "3");
+        properties.put(Message.PROPERTY_WAIT_STORE_MSG_OK, "false");
+        properties.put("bizId", "B1");
+
+        MessageExtBrokerInner text = new MessageExtBrokerInner();
+        text.setPropertiesString(MessageDecoder.messageProperties2String(properties));
+        MessageExtBrokerInner binary = new MessageExtBrokerInner();
+        binary.setPropertiesData(MessageDecoder.messageProperties2Bytes(properties));
+
+        for (MessageExtBrokerInner msgInner : new MessageExtBrokerInner[] { text, binary }) {
+            assertEquals("TagA", msgInner.getTags());
+            assertEquals("K1 K2", msgInner.getKeys());
+            assertEquals(3, msgInner.getDelayTimeLevel());
+            assertFalse(msgInner.isWaitStoreMsgOK());
+            assertNull(msgInner.getProperty(Message.PROPERTY_PRODUCER_GROUP));
+
+            // ʱMap
+            assertEquals("B1", msgInner.getProperty("bizId"));
+            assertEquals(properties, msgInner.getProperties());
+
+            // ޸ԺMapΪ׼ԭʼݲᶪMap
+            msgInner.clearProperty(Message.PROPERTY_DELAY_TIME_LEVEL);
+            msgInner.setPropertiesString(MessageDecoder.messageProperties2String(properties));
+            assertEquals(0, msgInner.getDelayTimeLevel());
+        }
+    }
+}
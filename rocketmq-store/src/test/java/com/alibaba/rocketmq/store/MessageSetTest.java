@@ -0,0 +1,211 @@
+/**
+ * $Id: MessageSetTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alibaba.rocketmq.common.MessageDecoder;
+import com.alibaba.rocketmq.common.MessageExt;
+import com.alibaba.rocketmq.common.compress.CompressionCodecs;
+import com.alibaba.rocketmq.common.compress.CompressionType;
+import com.alibaba.rocketmq.common.sysflag.MessageSysFlag;
+import com.alibaba.rocketmq.store.config.MessageStoreConfig;
+
+
+/**
+ * Ϣڴ洢ķַѯ
+ *
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class MessageSetTest {
+    private static final String StorePath = "./unit_test_store/MessageSetTest";
+    private static final String Topic = "MessageSetTest";
+    private static final int MessageNums = 16;
+
+    private DefaultMessageStore messageStore;
+    private InetSocketAddress host;
+
+
+    @Before
+    public void setUp() throws Exception {
+        MessageStoreConfig config = new MessageStoreConfig();
+        config.setStorePathCommitLog(StorePath + File.separator + "commitlog");
+        config.setStorePathConsumeQueue(StorePath + File.separator + "consumequeue");
+        config.setStorePathIndex(StorePath + File.separator + "index");
+        config.setStoreCheckpoint(StorePath + File.separator + "storeCheckpoint");
+        config.setAbortFile(StorePath + File.separator + "storeAbort");
+        config.setDelayOffsetStorePath(StorePath + File.separator + "delayOffset.properties");
+        config.setTranStateTableStorePath(StorePath + File.separator + "transaction" + File.separator
+                + "statetable");
+        config.setTranRedoLogStorePath(StorePath + File.separator + "transaction" + File.separator
+                + "redolog");
+        config.setMapedFileSizeCommitLog(1024 * 64);
+        config.setMapedFileSizeConsumeQueue(1024 * 4);
+        config.setMaxHashSlotNum(100);
+        config.setMaxIndexNum(100 * 10);
+
+        this.host = new InetSocketAddress(InetAddress.getLocalHost(), 8123);
+        this.messageStore = new DefaultMessageStore(config);
+        assertTrue(this.messageStore.load());
+        this.messageStore.start();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        this.messageStore.shutdown();
+        this.messageStore.destroy();
+    }
+
+
+    private static byte[] bodyOf(final int index) {
+        return ("message set body " + index).getBytes();
+    }
+
+
+    /**
+     * BrokerϢϵķʽһ£tagsCodeȡϢ
+     */
+    private MessageExtBrokerInner buildMessageSet() throws Exception {
+        int length = 0;
+        for (int i = 0; i < MessageNums; i++) {
+            length += MessageDecoder.batchMessageLength(bodyOf(i), null);
+        }
+        ByteBuffer batch = ByteBuffer.allocate(length);
+        final long[] tagsCodes = new long[MessageNums];
+        for (int i = 0; i < MessageNums; i++) {
+            MessageDecoder.encodeBatchMessage(batch, 0, 0, bodyOf(i), null);
+            tagsCodes[i] = i;
+        }
+
+        byte[] compressed = CompressionCodecs.getCodec(CompressionType.LZ4, 0).compress(batch.array());
+        MessageExtBrokerInner messageSet = new MessageExtBrokerInner();
+        messageSet.setTopic(Topic);
+        messageSet.setQueueId(0);
+        messageSet.setBody(MessageDecoder.encodeMessageSetBody(tagsCodes, compressed));
+        messageSet.setTagsCode(tagsCodes[0]);
+        messageSet.setSysFlag(MessageSysFlag.MessageSetFlag
+                | (CompressionType.LZ4.getValue() << MessageSysFlag.CompressionTypeShift));
+        messageSet.setBornTimestamp(System.currentTimeMillis());
+        messageSet.setBornHost(this.host);
+        messageSet.setStoreHost(this.host);
+        return messageSet;
+    }
+
+
+    private MessageExtBrokerInner buildMessage() {
+        MessageExtBrokerInner msg = new MessageExtBrokerInner();
+        msg.setTopic(Topic);
+        msg.setQueueId(0);
+        msg.setBody(bodyOf(-1));
+        msg.setBornTimestamp(System.currentTimeMillis());
+        msg.setBornHost(this.host);
+        msg.setStoreHost(this.host);
+        return msg;
+    }
+
+
+    private void waitForDispatch(final long maxOffset) throws InterruptedException {
+        for (int i = 0; i < 300 && this.messageStore.getMaxOffsetInQuque(Topic, 0) < maxOffset; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(maxOffset, this.messageStore.getMaxOffsetInQuque(Topic, 0));
+    }
+
+
+    @Test
+    public void test_dispatch() throws Exception {
+        PutMessageResult single = this.messageStore.putMessage(this.buildMessage());
+        assertTrue(single.isOk());
+        PutMessageResult result = this.messageStore.putMessage(this.buildMessageSet());
+        assertTrue(result.isOk());
+        // Ϣռͬ߼λ
+        assertEquals(1, result.getAppendMessageResult().getLogicsOffset());
+
+        this.waitForDispatch(1 + MessageNums);
+
+        // ÿϢָͬһ洢¼
+        final long commitLogOffset = result.getAppendMessageResult().getWroteOffset();
+        for (int i = 0; i < MessageNums; i++) {
+            GetMessageResult getResult = this.messageStore.getMessage(Topic, 0, 1 + i, 1, null);
+            try {
+                assertEquals(GetMessageStatus.FOUND, getResult.getStatus());
+                assertEquals(1, getResult.getMessageCount());
+                assertEquals(2 + i, getResult.getNextBeginOffset());
+                MessageExt msgExt = MessageDecoder.decode(getResult.getMessageBufferList().get(0));
+                assertEquals(commitLogOffset, msgExt.getCommitLogOffset());
+            }
+            finally {
+                getResult.release();
+            }
+        }
+
+        // һȡʱ洢¼ֻһΣϢƽλ
+        GetMessageResult getResult = this.messageStore.getMessage(Topic, 0, 0, 1 + MessageNums, null);
+        try {
+            assertEquals(GetMessageStatus.FOUND, getResult.getStatus());
+            assertEquals(2, getResult.getMessageCount());
+            assertEquals(1 + MessageNums, getResult.getNextBeginOffset());
+        }
+        finally {
+            getResult.release();
+        }
+    }
+
+
+    @Test
+    public void test_lookup_by_msgId() throws Exception {
+        PutMessageResult result = this.messageStore.putMessage(this.buildMessageSet());
+        assertTrue(result.isOk());
+        this.waitForDispatch(MessageNums);
+
+        final long commitLogOffset = result.getAppendMessageResult().getWroteOffset();
+        MessageExt messageSet = this.messageStore.lookMessageByOffset(commitLogOffset);
+        assertNotNull(messageSet);
+        List<MessageExt> msgExts = MessageDecoder.decodeMessageSet(messageSet);
+        assertNotNull(msgExts);
+        assertEquals(MessageNums, msgExts.size());
+
+        for (int i = 0; i < MessageNums; i++) {
+            MessageExt msgExt = msgExts.get(i);
+            assertEquals(i, msgExt.getQueueOffset());
+            assertArrayEquals(bodyOf(i), msgExt.getBody());
+
+            // ϢIDȥžǴ洢¼λãܲ
+            final long offset = MessageDecoder.decodeMessageId(msgExt.getMsgId()).getOffset();
+            assertEquals(i, (int) (offset >>> MessageDecoder.MessageSetIndexShift));
+            MessageExt found =
+                    this.messageStore.lookMessageByOffset(offset & MessageDecoder.MessageSetPhysicOffsetMask);
+            assertNotNull(found);
+            assertEquals(commitLogOffset, found.getCommitLogOffset());
+        }
+
+        // һϢID뼯ϱͬ
+        assertEquals(result.getAppendMessageResult().getMsgId(), msgExts.get(0).getMsgId());
+    }
+
+
+    @Test
+    public void test_max_index() {
+        final long commitLogOffset = MessageDecoder.MessageSetPhysicOffsetMask;
+        final long offset =
+                MessageDecoder.messageSetInnerOffset(commitLogOffset, MessageDecoder.MessageSetMaxMessages);
+        assertEquals(commitLogOffset, offset & MessageDecoder.MessageSetPhysicOffsetMask);
+        assertEquals(MessageDecoder.MessageSetMaxMessages,
+            (int) (offset >>> MessageDecoder.MessageSetIndexShift));
+    }
+}
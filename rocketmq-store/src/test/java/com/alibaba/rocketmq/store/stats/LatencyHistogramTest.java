@@ -0,0 +1,61 @@
+/**
+ * $Id: LatencyHistogramTest.java 1831 2013-05-16 01:39:51Z shijia.wxr $
+ */
+package com.alibaba.rocketmq.store.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+
+/**
+ * @author shijia.wxr<vintage.wang@gmail.com>
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void test_bucketIndex() {
+        long last = -1;
+        int lastIndex = -1;
+        for (long v = 0; v < (1L << 36); v = v * 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(v);
+            assertTrue(index >= lastIndex);
+            long high = LatencyHistogram.highestEquivalentValue(index);
+            // С1.6%
+            assertTrue(high >= v);
+            assertTrue(high - v <= Math.max(1, v / 63));
+            last = v;
+            lastIndex = index;
+        }
+
+        // 2^36 - 1 ͰϽ
+        assertEquals((1L << 36) - 1, last);
+        assertEquals(last, LatencyHistogram.highestEquivalentValue(lastIndex));
+        assertEquals(LatencyHistogram.bucketIndex(Long.MAX_VALUE), LatencyHistogram.bucketIndex(1L << 45));
+    }
+
+
+    @Test
+    public void test_percentile() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        histogram.rollover();
+        LatencyHistogram.Snapshot snapshot = histogram.getLastInterval();
+        assertEquals(1000, snapshot.getTotalCount());
+        assertTrue(Math.abs(snapshot.getValueAtPercentile(50) - 500) <= 8);
+        assertTrue(Math.abs(snapshot.getValueAtPercentile(99) - 990) <= 16);
+        assertTrue(Math.abs(snapshot.getValueAtPercentile(99.9) - 999) <= 16);
+        assertTrue(snapshot.getMaxValue() >= 1000);
+        assertTrue(snapshot.toString().startsWith("count=1000 p50="));
+
+        // һֻµļ¼
+        histogram.record(10);
+        histogram.rollover();
+        assertEquals(1, histogram.getLastInterval().getTotalCount());
+        assertEquals(10, histogram.getLastInterval().getMaxValue());
+        assertEquals(1001, histogram.getTotal().getTotalCount());
+    }
+}
@@ -1,12 +1,34 @@
 package com.alibaba.rocketmq.tools.stats;
 
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+
+import com.alibaba.rocketmq.common.MixAll;
+import com.alibaba.rocketmq.common.protocol.MQProtos.MQRequestCode;
+import com.alibaba.rocketmq.common.protocol.body.BrokerStatsData;
+import com.alibaba.rocketmq.common.protocol.body.BrokerStatsItem;
+import com.alibaba.rocketmq.common.protocol.header.GetBrokerStatsDataRequestHeader;
+import com.alibaba.rocketmq.remoting.common.RemotingHelper;
+import com.alibaba.rocketmq.remoting.protocol.RemotingCommand;
+import com.alibaba.rocketmq.remoting.protocol.RemotingProtos.ResponseCode;
 import com.alibaba.rocketmq.tools.SubCommand;
 
 
 /**
+ * ӡBrokerTopicСάȵͳԼѶѻ
+ * 
  * @author shijia.wxr<vintage.wang@gmail.com>
  */
 public class StatsSubCommand implements SubCommand {
+    private static final long TimeoutMillis = 1000 * 5;
+
 
     @Override
     public String commandName() {
@@ -20,14 +42,104 @@ public class StatsSubCommand implements SubCommand {
     }
 
 
+    private static Options buildCommandlineOptions(final Options options) {
+        Option opt = new Option("b", "brokerAddr", true, "Broker address, eg: 192.168.1.100:10911");
+        opt.setRequired(true);
+        options.addOption(opt);
+
+        opt = new Option("t", "topic", true, "Only print the stats of this topic");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        opt = new Option("g", "consumerGroup", true, "Only print the stats of this consumer group");
+        opt.setRequired(false);
+        options.addOption(opt);
+
+        return options;
+    }
+
+
     @Override
     public void printHelp() {
+        HelpFormatter hf = new HelpFormatter();
+        hf.setWidth(110);
+        hf.printHelp("mqadmin " + this.commandName(),
+            buildCommandlineOptions(MixAll.buildCommandlineOptions(new Options())), true);
     }
 
 
     @Override
     public void execute(String[] args) {
-        // TODO Auto-generated method stub
+        Options options = buildCommandlineOptions(MixAll.buildCommandlineOptions(new Options()));
+        final CommandLine commandLine =
+                MixAll.parseCmdLine("mqadmin " + this.commandName(), args == null ? new String[0] : args,
+                    options, new PosixParser());
+        if (null == commandLine) {
+            return;
+        }
+
+        GetBrokerStatsDataRequestHeader requestHeader = new GetBrokerStatsDataRequestHeader();
+        if (commandLine.hasOption('t')) {
+            requestHeader.setTopic(commandLine.getOptionValue('t').trim());
+        }
+        if (commandLine.hasOption('g')) {
+            requestHeader.setConsumerGroup(commandLine.getOptionValue('g').trim());
+        }
+
+        RemotingCommand request =
+                RemotingCommand.createRequestCommand(MQRequestCode.GET_BROKER_STATS_DATA_VALUE, requestHeader);
+
+        try {
+            RemotingCommand response =
+                    RemotingHelper.invokeSync(commandLine.getOptionValue('b').trim(), request, TimeoutMillis);
+            if (null == response) {
+                System.out.println("get broker stats data failed, no response");
+                return;
+            }
+
+            if (response.getCode() != ResponseCode.SUCCESS_VALUE || null == response.getBody()) {
+                System.out.println("get broker stats data failed, " + response.getCode() + " "
+                        + response.getRemark());
+                return;
+            }
+
+            BrokerStatsData statsData = BrokerStatsData.decode(response.getBody(), BrokerStatsData.class);
+            printStatsItems("Topic Put", statsData.getTopicPutStats(), false);
+            printStatsItems("Queue Put", statsData.getQueuePutStats(), false);
+            printStatsItems("Queue Get", statsData.getQueueGetStats(), false);
+            printStatsItems("Group Get", statsData.getGroupGetStats(), true);
+
+            if (statsData.getDroppedItemTimes() > 0) {
+                System.out.println("\nstats items reach the limit, dropped times: "
+                        + statsData.getDroppedItemTimes());
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+
+    private static void printStatsItems(final String title, final List<BrokerStatsItem> items,
+            final boolean printLag) {
+        if (null == items || items.isEmpty()) {
+            return;
+        }
+
+        Collections.sort(items, new Comparator<BrokerStatsItem>() {
+            @Override
+            public int compare(BrokerStatsItem o1, BrokerStatsItem o2) {
+                return o1.getKey().compareTo(o2.getKey());
+            }
+        });
 
+        System.out.printf("\n%s\n", title);
+        System.out.printf("%-64s %16s %16s %12s %14s%s\n", "#Key", "#MsgNums", "#MsgBytes", "#TPS",
+            "#Bytes/S", printLag ? "       #Lag" : "");
+        for (BrokerStatsItem item : items) {
+            System.out.printf("%-64s %16d %16d %12.2f %14.2f%s\n", item.getKey(), item.getMsgNums(),
+                item.getMsgBytes(), item.getTps(), item.getBytesTps(),
+                printLag ? String.format(" %10d", item.getLag()) : "");
+        }
     }
 }